@@ -369,6 +369,70 @@ public final class CodedInputStream {
     return decodeZigZag64(readRawVarint64());
   }
 
+  // begin osmand change
+  private static final int MAX_VARINT_SIZE = 10;
+
+  /**
+   * Reads packed {@code sint32} values until the current limit is reached.
+   * {@code dest} must have room for {@link #getBytesUntilLimit()} values
+   * (every value takes at least one byte). Values fully inside of the buffer are
+   * decoded in a tight loop without per-value method calls, only values crossing
+   * the buffer boundary go through {@link #readSInt32()}.
+   *
+   * @return number of decoded values
+   */
+  public int readPackedSInt32(final int[] dest) throws IOException {
+    int count = 0;
+    final byte[] buf = buffer;
+    while (getBytesUntilLimit() > 0) {
+      // bufferSize is already cut by current limit
+      final int safeEnd = bufferSize - MAX_VARINT_SIZE;
+      int pos = bufferPos;
+      if (pos >= safeEnd) {
+        dest[count++] = readSInt32();
+        continue;
+      }
+      while (pos < safeEnd) {
+        int result = buf[pos++];
+        if (result < 0) {
+          result &= 0x7f;
+          int tmp;
+          if ((tmp = buf[pos++]) >= 0) {
+            result |= tmp << 7;
+          } else {
+            result |= (tmp & 0x7f) << 7;
+            if ((tmp = buf[pos++]) >= 0) {
+              result |= tmp << 14;
+            } else {
+              result |= (tmp & 0x7f) << 14;
+              if ((tmp = buf[pos++]) >= 0) {
+                result |= tmp << 21;
+              } else {
+                result |= (tmp & 0x7f) << 21;
+                result |= (tmp = buf[pos++]) << 28;
+                if (tmp < 0) {
+                  // Discard upper 32 bits.
+                  int i = 0;
+                  while (i < 5 && buf[pos++] < 0) {
+                    i++;
+                  }
+                  if (i == 5) {
+                    bufferPos = pos;
+                    throw InvalidProtocolBufferException.malformedVarint();
+                  }
+                }
+              }
+            }
+          }
+        }
+        dest[count++] = (result >>> 1) ^ -(result & 1);
+      }
+      bufferPos = pos;
+    }
+    return count;
+  }
+  // end osmand change
+
   // =================================================================
 
   /**
@@ -576,6 +640,31 @@ public final class CodedInputStream {
     input = null;
   }
 
+  // begin osmand change
+  /**
+   * Receives low level file operations of a stream created over {@link RandomAccessFile}.
+   */
+  public interface ReadListener {
+
+    /**
+     * @param inBuffer true if position was inside of current buffer and no file seek was done
+     */
+    void onSeek(long position, boolean inBuffer);
+
+    void onRead(long position, int bytes, long nanos);
+  }
+
+  private ReadListener readListener;
+
+  public void setReadListener(ReadListener readListener) {
+    this.readListener = readListener;
+  }
+
+  public ReadListener getReadListener() {
+    return readListener;
+  }
+  // end osmand change
+
   // osmand change
 	private CodedInputStream(final RandomAccessFile raf) {
 		buffer = new byte[BUFFER_SIZE];
@@ -757,7 +846,12 @@ public final class CodedInputStream {
     	long remain = raf.length() - raf.getFilePointer();
     	bufferSize = (int) Math.min(remain, buffer.length);
     	if(bufferSize > 0) {
+    		final ReadListener l = readListener;
+    		final long start = l == null ? 0 : System.nanoTime();
     		raf.readFully(buffer, 0, bufferSize);
+    		if (l != null) {
+    			l.onRead(totalBytesRetired, bufferSize, System.nanoTime() - start);
+    		}
     	} else {
     		bufferSize = -1;
     	}
@@ -880,8 +974,13 @@ public final class CodedInputStream {
         	final int n;
         	// osmand change
         	if(raf != null) {
+        		final ReadListener l = readListener;
+        		final long start = l == null ? 0 : System.nanoTime();
         		raf.readFully(chunk, pos, chunk.length - pos);
         		n = chunk.length - pos;
+        		if (l != null) {
+        			l.onRead(raf.getFilePointer() - n, n, System.nanoTime() - start);
+        		}
         	} else {
         		n = (input == null) ? -1 :
         	    input.read(chunk, pos, chunk.length - pos);
@@ -946,6 +1045,9 @@ public final class CodedInputStream {
          bufferSize = 0;
       	 int n = raf.skipBytes(size - pos);
         totalBytesRetired = (int) raf.getFilePointer();
+        if (readListener != null) {
+          readListener.onSeek(totalBytesRetired, false);
+        }
       	 if (n <= 0) {
              throw InvalidProtocolBufferException.truncatedMessage();
          }
@@ -972,12 +1074,18 @@ public final class CodedInputStream {
 			  throw InvalidProtocolBufferException.truncatedMessage();
 		  }
 		  bufferPos = (int) (pointer - totalBytesRetired);
+		  if (readListener != null) {
+			  readListener.onSeek(pointer, true);
+		  }
 	  } else {
 		  totalBytesRetired = (int) pointer;
 		  bufferSizeAfterLimit = 0;
 		  raf.seek(pointer);
 		  bufferPos = 0;
 		  bufferSize = 0;
+		  if (readListener != null) {
+			  readListener.onSeek(pointer, false);
+		  }
 	  }
   }
 }
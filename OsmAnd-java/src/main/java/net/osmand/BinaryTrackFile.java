@@ -0,0 +1,671 @@
+package net.osmand;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.data.QuadRect;
+import net.osmand.util.FixedDecimalFormat;
+
+import org.apache.commons.logging.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary container of gpx tracks. Track points are stored in chunks of consecutive points of one segment,
+ * coordinates, times and optional elevation, speed, hdop and heading columns are delta encoded as zigzag varints.
+ * Every chunk has header with its segment, bounding box and time range, so chunks of time range or area are read
+ * without decoding others. Metadata, waypoints, routes and tracks without points are stored in the file header
+ * as gpx, track points with names or extensions are stored as gpx in their chunk.
+ *
+ * Values are stored with precision of gpx writer (1e-7 degree for coordinates, 0.1 for elevation, speed and hdop,
+ * 1 degree for heading), so gpx written from restored {@link GPXFile} is the same as from the original one.
+ * Points with values which are formatted differently from their rounded values (-0, huge values) are stored
+ * as gpx too. Times are stored in milliseconds.
+ *
+ * Chunks are appended to the end of file by {@link Appender}, so recorder writes points into file directly.
+ * Chunk header is written after its data, incomplete chunk at the end of file (interrupted write) is ignored.
+ */
+public class BinaryTrackFile implements Closeable {
+
+	public static final String FILE_EXT = ".gpxb";
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	private static final Log log = PlatformUtil.getLog(BinaryTrackFile.class);
+
+	private static final int MAGIC = 0x4f54524b;
+	private static final int VERSION = 1;
+	private static final int CHUNK_MAGIC = 0x4f54434b;
+	// magic, data length, size, track, segment, columns, bounds, time range, crc
+	private static final int CHUNK_HEADER_SIZE = 10 * 4 + 2 * 8 + 4;
+
+	private static final int ELEVATION_COLUMN = 1;
+	private static final int SPEED_COLUMN = 1 << 1;
+	private static final int HDOP_COLUMN = 1 << 2;
+	private static final int HEADING_COLUMN = 1 << 3;
+	private static final int DETAILS_COLUMN = 1 << 4;
+	private static final int VALUE_COLUMNS = ELEVATION_COLUMN | SPEED_COLUMN | HDOP_COLUMN | HEADING_COLUMN;
+	private static final int VALUE_COLUMNS_COUNT = 4;
+	private static final double COORDINATE_SCALE = 1e7;
+	private static final double DECIMAL_SCALE = 10;
+	// larger values are not written as decimals to gpx, they are stored as missing
+	private static final double MAX_DECIMAL_VALUE = 1e13;
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final byte[] header;
+	private final List<Chunk> chunks;
+	private final long length;
+
+	public static class Chunk {
+		private final long position;
+		private final int track;
+		private final int segment;
+		private final int columns;
+		private int dataLength;
+		private int size;
+		private int minLat = Integer.MAX_VALUE;
+		private int minLon = Integer.MAX_VALUE;
+		private int maxLat = Integer.MIN_VALUE;
+		private int maxLon = Integer.MIN_VALUE;
+		private long startTime = Long.MAX_VALUE;
+		private long endTime = Long.MIN_VALUE;
+
+		private Chunk(long position, int track, int segment, int columns) {
+			this.position = position;
+			this.track = track;
+			this.segment = segment;
+			this.columns = columns;
+		}
+
+		public int getTrackIndex() {
+			return track;
+		}
+
+		public int getSegmentIndex() {
+			return segment;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		/**
+		 * @return minimal time of chunk points
+		 */
+		public long getStartTime() {
+			return startTime;
+		}
+
+		/**
+		 * @return maximal time of chunk points
+		 */
+		public long getEndTime() {
+			return endTime;
+		}
+
+		public QuadRect getBounds() {
+			return new QuadRect(minLon / COORDINATE_SCALE, maxLat / COORDINATE_SCALE,
+					maxLon / COORDINATE_SCALE, minLat / COORDINATE_SCALE);
+		}
+
+		public boolean intersects(long from, long to) {
+			return startTime <= to && endTime >= from;
+		}
+
+		private void addPoint(int lat, int lon, long time) {
+			size++;
+			minLat = Math.min(minLat, lat);
+			minLon = Math.min(minLon, lon);
+			maxLat = Math.max(maxLat, lat);
+			maxLon = Math.max(maxLon, lon);
+			startTime = Math.min(startTime, time);
+			endTime = Math.max(endTime, time);
+		}
+
+		private byte[] writeHeader() {
+			ByteBuffer buffer = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+			buffer.putInt(CHUNK_MAGIC);
+			buffer.putInt(dataLength);
+			buffer.putInt(size);
+			buffer.putInt(track);
+			buffer.putInt(segment);
+			buffer.putInt(columns);
+			buffer.putInt(minLat);
+			buffer.putInt(minLon);
+			buffer.putInt(maxLat);
+			buffer.putInt(maxLon);
+			buffer.putLong(startTime);
+			buffer.putLong(endTime);
+			buffer.putInt(getChecksum(buffer.array()));
+			return buffer.array();
+		}
+
+		private static Chunk readHeader(byte[] header, long position) {
+			ByteBuffer buffer = ByteBuffer.wrap(header);
+			if (buffer.getInt() != CHUNK_MAGIC || buffer.getInt(CHUNK_HEADER_SIZE - 4) != getChecksum(header)) {
+				return null;
+			}
+			int dataLength = buffer.getInt();
+			int size = buffer.getInt();
+			Chunk chunk = new Chunk(position, buffer.getInt(), buffer.getInt(), buffer.getInt());
+			chunk.dataLength = dataLength;
+			chunk.size = size;
+			chunk.minLat = buffer.getInt();
+			chunk.minLon = buffer.getInt();
+			chunk.maxLat = buffer.getInt();
+			chunk.maxLon = buffer.getInt();
+			chunk.startTime = buffer.getLong();
+			chunk.endTime = buffer.getLong();
+			return dataLength > 0 && size > 0 ? chunk : null;
+		}
+
+		private static int getChecksum(byte[] header) {
+			CRC32 crc = new CRC32();
+			crc.update(header, 0, CHUNK_HEADER_SIZE - 4);
+			return (int) crc.getValue();
+		}
+	}
+
+	private BinaryTrackFile(File file, RandomAccessFile raf) throws IOException {
+		this.file = file;
+		this.raf = raf;
+		if (raf.length() < 12 || raf.readInt() != MAGIC) {
+			throw new IOException("Not a binary track file " + file.getAbsolutePath());
+		}
+		int version = raf.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported version " + version + " of binary track file " + file.getAbsolutePath());
+		}
+		int headerLength = raf.readInt();
+		if (headerLength < 0 || headerLength > raf.length() - raf.getFilePointer()) {
+			throw new IOException("Broken header of binary track file " + file.getAbsolutePath());
+		}
+		header = new byte[headerLength];
+		raf.readFully(header);
+		List<Chunk> chunks = new ArrayList<>();
+		long fileLength = raf.length();
+		long position = raf.getFilePointer();
+		byte[] chunkHeader = new byte[CHUNK_HEADER_SIZE];
+		while (position + CHUNK_HEADER_SIZE <= fileLength) {
+			raf.seek(position);
+			raf.readFully(chunkHeader);
+			Chunk chunk = Chunk.readHeader(chunkHeader, position + CHUNK_HEADER_SIZE);
+			if (chunk == null || chunk.position + chunk.dataLength > fileLength) {
+				break;
+			}
+			chunks.add(chunk);
+			position = chunk.position + chunk.dataLength;
+		}
+		if (position < fileLength) {
+			log.warn("Incomplete chunk is ignored at " + position + " of " + file.getAbsolutePath());
+		}
+		this.chunks = Collections.unmodifiableList(chunks);
+		this.length = position;
+	}
+
+	public static BinaryTrackFile open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			return new BinaryTrackFile(file, raf);
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	public static void write(File file, GPXFile gpx) throws IOException {
+		write(file, gpx, DEFAULT_CHUNK_SIZE);
+	}
+
+	public static void write(File file, GPXFile gpx, int chunkSize) throws IOException {
+		Appender appender = Appender.create(file, gpx, chunkSize);
+		try {
+			int trackIndex = 0;
+			for (Track track : gpx.tracks) {
+				if (track.generalTrack) {
+					continue;
+				}
+				for (int s = 0; s < track.segments.size(); s++) {
+					appender.setSegment(trackIndex, s);
+					List<WptPt> points = track.segments.get(s).points;
+					// columns of chunk are present in any of its points
+					for (int start = 0; start < points.size(); start += chunkSize) {
+						int end = Math.min(points.size(), start + chunkSize);
+						List<WptPt> chunkPoints = new ArrayList<>(end - start);
+						int columns = 0;
+						for (int i = start; i < end; i++) {
+							WptPt point = points.get(i);
+							if (Math.abs(point.lon) != GPXUtilities.PRIME_MERIDIAN) {
+								chunkPoints.add(point);
+								columns |= appender.getColumns(point);
+							}
+						}
+						for (WptPt point : chunkPoints) {
+							appender.append(point, columns);
+						}
+					}
+				}
+				trackIndex++;
+			}
+		} finally {
+			appender.close();
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public List<Chunk> getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @return length of file without incomplete chunk at the end
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	public GPXFile toGpxFile() throws IOException {
+		return readTimeRange(Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @return gpx with all tracks and segments (possibly empty) and track points with time in range
+	 */
+	public GPXFile readTimeRange(long from, long to) throws IOException {
+		List<Chunk> selected = new ArrayList<>();
+		for (Chunk chunk : chunks) {
+			if (chunk.intersects(from, to)) {
+				selected.add(chunk);
+			}
+		}
+		return readChunks(selected, from, to);
+	}
+
+	/**
+	 * @return gpx with all tracks and segments (possibly empty) and track points of chunks
+	 */
+	public synchronized GPXFile readChunks(List<Chunk> chunks, long from, long to) throws IOException {
+		GPXFile gpx = GPXUtilities.loadGPXFile(new ByteArrayInputStream(header));
+		if (gpx.error != null) {
+			throw new IOException("Error reading header of " + file.getAbsolutePath(), gpx.error);
+		}
+		for (Chunk chunk : chunks) {
+			while (gpx.tracks.size() <= chunk.track) {
+				gpx.tracks.add(new Track());
+			}
+			Track track = gpx.tracks.get(chunk.track);
+			while (track.segments.size() <= chunk.segment) {
+				track.segments.add(new TrkSegment());
+			}
+			TrkSegment segment = track.segments.get(chunk.segment);
+			if (!(segment.points instanceof TrackPoints)) {
+				segment.points = new TrackPoints(chunk.size);
+			}
+			readPoints(chunk, from, to, (TrackPoints) segment.points);
+		}
+		for (Track track : gpx.tracks) {
+			for (TrkSegment segment : track.segments) {
+				if (segment.points instanceof TrackPoints) {
+					((TrackPoints) segment.points).trimToSize();
+				}
+			}
+		}
+		gpx.addGeneralTrack();
+		GPXUtilities.createArtificialPrimeMeridianPoints(gpx);
+		gpx.path = file.getAbsolutePath();
+		gpx.modifiedTime = file.lastModified();
+		return gpx;
+	}
+
+	/**
+	 * Reads points of chunk with time in range
+	 */
+	public synchronized void readPoints(Chunk chunk, long from, long to, TrackPoints points) throws IOException {
+		byte[] data = new byte[chunk.dataLength];
+		raf.seek(chunk.position);
+		raf.readFully(data);
+		CodedInputStream input = CodedInputStream.newInstance(data);
+		int lat = 0;
+		int lon = 0;
+		long time = 0;
+		long[] values = new long[VALUE_COLUMNS_COUNT];
+		for (int i = 0; i < chunk.size; i++) {
+			// int arithmetic of coordinates wraps the same way as in writer
+			lat += input.readSInt32();
+			lon += input.readSInt32();
+			time += input.readSInt64();
+			double ele = readValue(input, chunk.columns, ELEVATION_COLUMN, 0, values);
+			double speed = readValue(input, chunk.columns, SPEED_COLUMN, 1, values);
+			double hdop = readValue(input, chunk.columns, HDOP_COLUMN, 2, values);
+			double heading = readValue(input, chunk.columns, HEADING_COLUMN, 3, values);
+			int detailsLength = (chunk.columns & DETAILS_COLUMN) != 0 ? input.readRawVarint32() : 0;
+			if (time < from || time > to) {
+				input.skipRawBytes(detailsLength);
+				continue;
+			}
+			WptPt point;
+			if (detailsLength > 0) {
+				// values are parsed from gpx, times are stored in seconds there
+				point = readDetails(input.readRawBytes(detailsLength));
+			} else {
+				point = new WptPt();
+				point.lat = lat / COORDINATE_SCALE;
+				point.lon = lon / COORDINATE_SCALE;
+				point.ele = ele / DECIMAL_SCALE;
+				point.speed = (chunk.columns & SPEED_COLUMN) != 0 ? speed / DECIMAL_SCALE : 0;
+				point.hdop = hdop / DECIMAL_SCALE;
+			}
+			point.time = time;
+			point.heading = (float) heading;
+			points.add(point);
+		}
+	}
+
+	private static double readValue(CodedInputStream input, int columns, int column, int index, long[] values)
+			throws IOException {
+		if ((columns & column) == 0) {
+			return Double.NaN;
+		}
+		long value = input.readRawVarint64();
+		if (value == 0) {
+			return Double.NaN;
+		}
+		values[index] += CodedInputStream.decodeZigZag64(value - 1);
+		return values[index];
+	}
+
+	private WptPt readDetails(byte[] details) throws IOException {
+		GPXFile gpx = GPXUtilities.loadGPXFile(new ByteArrayInputStream(details));
+		if (gpx.error != null || gpx.getPointsSize() != 1) {
+			throw new IOException("Error reading point of " + file.getAbsolutePath(), gpx.error);
+		}
+		return gpx.getPoints().get(0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+
+	/**
+	 * Appends points to the last segment of file, every chunk is written to file when it is full or on
+	 * {@link #flush()}. Points are not visible for readers opened before. Not thread safe.
+	 */
+	public static class Appender implements Closeable {
+
+		private final RandomAccessFile raf;
+		private final int chunkSize;
+		private final FixedDecimalFormat latLonFormat = new FixedDecimalFormat(GPXUtilities.LAT_LON_PATTERN);
+		private final FixedDecimalFormat decimalFormat = new FixedDecimalFormat(GPXUtilities.DECIMAL_PATTERN);
+		private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+		private final CodedOutputStream output = CodedOutputStream.newInstance(pending);
+
+		private long end;
+		private int track;
+		private int segment;
+		private int segmentSize;
+		private Chunk chunk;
+		// previous point of chunk
+		private int lat;
+		private int lon;
+		private long time;
+		private final long[] values = new long[VALUE_COLUMNS_COUNT];
+
+		private Appender(RandomAccessFile raf, long end, int chunkSize) {
+			this.raf = raf;
+			this.end = end;
+			this.chunkSize = Math.max(1, chunkSize);
+		}
+
+		/**
+		 * Creates new file with header of gpx (without track points)
+		 */
+		public static Appender create(File file, GPXFile gpx, int chunkSize) throws IOException {
+			byte[] header = writeHeaderGpx(gpx);
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(0);
+				raf.writeInt(MAGIC);
+				raf.writeInt(VERSION);
+				raf.writeInt(header.length);
+				raf.write(header);
+				return new Appender(raf, raf.getFilePointer(), chunkSize);
+			} catch (IOException e) {
+				raf.close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Opens existing file to continue its last segment or creates new file with header of gpx
+		 */
+		public static Appender open(File file, GPXFile gpx, int chunkSize) throws IOException {
+			if (!file.exists() || file.length() == 0) {
+				return create(file, gpx, chunkSize);
+			}
+			BinaryTrackFile trackFile = BinaryTrackFile.open(file);
+			long length = trackFile.getLength();
+			List<Chunk> chunks = trackFile.getChunks();
+			trackFile.close();
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			// incomplete chunk is overwritten
+			raf.setLength(length);
+			Appender appender = new Appender(raf, length, chunkSize);
+			if (!chunks.isEmpty()) {
+				Chunk last = chunks.get(chunks.size() - 1);
+				appender.setSegment(last.track, last.segment);
+				appender.segmentSize = last.size;
+			}
+			return appender;
+		}
+
+		public int getTrackIndex() {
+			return track;
+		}
+
+		public int getSegmentIndex() {
+			return segment;
+		}
+
+		/**
+		 * Next points are appended to new segment of the last track (if current segment is not empty)
+		 */
+		public void startSegment() {
+			if (segmentSize > 0) {
+				setSegment(track, segment + 1);
+			}
+		}
+
+		private void setSegment(int track, int segment) {
+			this.track = track;
+			this.segment = segment;
+			segmentSize = 0;
+		}
+
+		public void append(WptPt point) throws IOException {
+			append(point, VALUE_COLUMNS);
+		}
+
+		private void append(WptPt point, int columns) throws IOException {
+			int pointColumns = getColumns(point);
+			if (chunk == null || chunk.size >= chunkSize || chunk.track != track || chunk.segment != segment
+					|| (pointColumns & ~chunk.columns) != 0) {
+				flush();
+				chunk = new Chunk(end + CHUNK_HEADER_SIZE, track, segment, columns | pointColumns);
+				lat = 0;
+				lon = 0;
+				time = 0;
+				for (int i = 0; i < values.length; i++) {
+					values[i] = 0;
+				}
+			}
+			int pointLat = (int) latLonFormat.toScaledLong(point.lat);
+			int pointLon = (int) latLonFormat.toScaledLong(point.lon);
+			output.writeSInt32NoTag(pointLat - lat);
+			output.writeSInt32NoTag(pointLon - lon);
+			output.writeSInt64NoTag(point.time - time);
+			writeDecimal(ELEVATION_COLUMN, 0, point.ele);
+			writeDecimal(SPEED_COLUMN, 1, point.speed);
+			writeDecimal(HDOP_COLUMN, 2, point.hdop);
+			if ((chunk.columns & HEADING_COLUMN) != 0) {
+				writeValue(3, Float.isNaN(point.heading), Math.round(point.heading));
+			}
+			if ((chunk.columns & DETAILS_COLUMN) != 0) {
+				if ((pointColumns & DETAILS_COLUMN) != 0) {
+					byte[] details = writeDetails(point);
+					output.writeRawVarint32(details.length);
+					output.writeRawBytes(details);
+				} else {
+					output.writeRawVarint32(0);
+				}
+			}
+			lat = pointLat;
+			lon = pointLon;
+			time = point.time;
+			chunk.addPoint(pointLat, pointLon, point.time);
+			segmentSize++;
+			if (chunk.size >= chunkSize) {
+				flush();
+			}
+		}
+
+		private int getColumns(WptPt point) {
+			int columns = 0;
+			if (!Double.isNaN(point.ele)) {
+				columns |= ELEVATION_COLUMN;
+			}
+			if (point.speed != 0) {
+				columns |= SPEED_COLUMN;
+			}
+			if (!Double.isNaN(point.hdop)) {
+				columns |= HDOP_COLUMN;
+			}
+			if (!Float.isNaN(point.heading)) {
+				columns |= HEADING_COLUMN;
+			}
+			if (TrackPoints.hasDetails(point) || !isRestored(latLonFormat, point.lat) || !isRestored(latLonFormat, point.lon)
+					|| !isRestored(decimalFormat, point.ele) || !isRestored(decimalFormat, point.speed)
+					|| !isRestored(decimalFormat, point.hdop)) {
+				columns |= DETAILS_COLUMN;
+			}
+			return columns;
+		}
+
+		// rounded value is formatted the same way, values rounded to -0 (or to 0 from positive speed) are not
+		private static boolean isRestored(FixedDecimalFormat format, double value) {
+			if (Double.isNaN(value)) {
+				return true;
+			}
+			if (Math.abs(value) >= MAX_DECIMAL_VALUE) {
+				return false;
+			}
+			long rounded = format.toScaledLong(value);
+			return rounded == (int) rounded && (rounded != 0 || Double.doubleToRawLongBits(value) == 0);
+		}
+
+		private void writeDecimal(int column, int index, double value) throws IOException {
+			if ((chunk.columns & column) != 0) {
+				boolean missing = Double.isNaN(value) || Math.abs(value) >= MAX_DECIMAL_VALUE;
+				writeValue(index, missing, missing ? 0 : decimalFormat.toScaledLong(value));
+			}
+		}
+
+		private void writeValue(int index, boolean missing, long value) throws IOException {
+			if (missing) {
+				output.writeRawVarint64(0);
+			} else {
+				output.writeRawVarint64(CodedOutputStream.encodeZigZag64(value - values[index]) + 1);
+				values[index] = value;
+			}
+		}
+
+		/**
+		 * Writes appended points of current chunk and its header
+		 */
+		public void flush() throws IOException {
+			output.flush();
+			if (chunk == null || pending.size() == 0) {
+				return;
+			}
+			raf.seek(chunk.position + chunk.dataLength);
+			raf.write(pending.toByteArray());
+			chunk.dataLength += pending.size();
+			pending.reset();
+			raf.seek(chunk.position - CHUNK_HEADER_SIZE);
+			raf.write(chunk.writeHeader());
+			end = chunk.position + chunk.dataLength;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				raf.close();
+			}
+		}
+
+		private static byte[] writeDetails(WptPt point) throws IOException {
+			GPXFile gpx = new GPXFile(null);
+			gpx.addPoint(point);
+			return writeGpx(gpx);
+		}
+
+		private static byte[] writeHeaderGpx(GPXFile gpx) throws IOException {
+			GPXFile header = new GPXFile(gpx.author);
+			header.metadata = gpx.metadata;
+			header.path = gpx.path;
+			header.addPoints(gpx.getPoints());
+			header.routes = gpx.routes;
+			header.copyExtensions(gpx);
+			header.setExtensionsWriter(gpx.getExtensionsWriter());
+			for (Track track : gpx.tracks) {
+				if (!track.generalTrack) {
+					Track headerTrack = new Track();
+					headerTrack.name = track.name;
+					headerTrack.desc = track.desc;
+					headerTrack.copyExtensions(track);
+					headerTrack.setExtensionsWriter(track.getExtensionsWriter());
+					for (TrkSegment segment : track.segments) {
+						TrkSegment headerSegment = new TrkSegment();
+						headerSegment.name = segment.name;
+						headerSegment.routeSegments = segment.routeSegments;
+						headerSegment.routeTypes = segment.routeTypes;
+						headerSegment.copyExtensions(segment);
+						headerSegment.setExtensionsWriter(segment.getExtensionsWriter());
+						headerTrack.segments.add(headerSegment);
+					}
+					header.tracks.add(headerTrack);
+				}
+			}
+			return writeGpx(header);
+		}
+
+		private static byte[] writeGpx(GPXFile gpx) throws IOException {
+			StringWriter writer = new StringWriter();
+			Exception e = GPXUtilities.writeGpx(writer, gpx, null);
+			if (e != null) {
+				throw new IOException("Error writing gpx", e);
+			}
+			return writer.toString().getBytes("UTF-8");
+		}
+	}
+}
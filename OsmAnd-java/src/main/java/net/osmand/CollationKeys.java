@@ -0,0 +1,280 @@
+package net.osmand;
+
+import java.text.CollationElementIterator;
+import java.text.Normalizer;
+import java.text.RuleBasedCollator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Primary collation weights of strings, so collator comparisons of names become
+ * comparisons of char arrays. Key of a string has the same length as the string:
+ * every char is replaced by its primary weight or 0 if collator ignores it.
+ * Strings with chars which have several weights (expansions) or with chars which are collated together
+ * (contractions, e.g. "aa" in Danish, "zs" in Hungarian) have no key and are compared by collator.
+ * <p>
+ * Weights of chars are computed once by blocks of 256 chars and contractions are taken from collator rules,
+ * so key of a string is built by table lookups without locks and keys are not cached.
+ */
+public class CollationKeys {
+
+	private static final int COMPLEX = -1;
+	// weight flag of chars which start contractions
+	private static final int CONTRACTION = 1 << 16;
+	private static final int WEIGHT_MASK = 0xffff;
+	private static final String RULES_SEPARATORS = "<;,=&/@!";
+
+	private static final Map<String, CollationKeys> instances = new HashMap<>();
+
+	private final RuleBasedCollator collator;
+	// weights of chars by blocks of 256 chars, block is published when all its weights are computed
+	private final AtomicReferenceArray<int[]> weights = new AtomicReferenceArray<>(256);
+	// first chars of contractions and chars which follow them in contractions
+	private final Map<Character, String> contractions;
+
+	private CollationKeys(RuleBasedCollator collator) {
+		this.collator = collator;
+		this.contractions = parseContractions(collator.getRules());
+	}
+
+	/**
+	 * @return keys of collator created by {@link OsmAndCollator} or null if keys are not supported
+	 */
+	public static CollationKeys getInstance(Collator collator) {
+		if (collator instanceof OsmAndCollator.JavaCollator) {
+			return ((OsmAndCollator.JavaCollator) collator).getCollationKeys();
+		}
+		return null;
+	}
+
+	static synchronized CollationKeys getInstance(String id, java.text.Collator collator) {
+		// decomposed strings could be reordered, so weights of chars would depend on their neighbours
+		if (!(collator instanceof RuleBasedCollator)
+				|| collator.getDecomposition() != java.text.Collator.NO_DECOMPOSITION) {
+			return null;
+		}
+		CollationKeys keys = id == null ? null : instances.get(id);
+		if (keys == null) {
+			keys = new CollationKeys((RuleBasedCollator) collator.clone());
+			if (id != null) {
+				instances.put(id, keys);
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Rule entries with several chars are contractions, decomposed forms of entries are collated
+	 * as contractions too (e.g. "и" + breve is collated as "й"). Reset positions and extensions
+	 * don't create contractions.
+	 */
+	static Map<Character, String> parseContractions(String rules) {
+		Map<Character, String> contractions = new HashMap<>();
+		StringBuilder entry = new StringBuilder();
+		boolean quoted = false;
+		boolean reset = false;
+		for (int i = 0; i <= rules.length(); i++) {
+			char c = i < rules.length() ? rules.charAt(i) : '<';
+			if (c == '\'') {
+				// char after opening quote is taken as is (quote itself in case of '')
+				if (!quoted && i + 1 < rules.length()) {
+					entry.append(rules.charAt(++i));
+				}
+				quoted = !quoted;
+			} else if (quoted) {
+				entry.append(c);
+			} else if (RULES_SEPARATORS.indexOf(c) >= 0) {
+				if (!reset && entry.length() > 0) {
+					addContraction(contractions, entry.toString());
+					addContraction(contractions, Normalizer.normalize(entry, Normalizer.Form.NFD));
+				}
+				entry.setLength(0);
+				reset = c == '&' || c == '/';
+			} else if (!Character.isWhitespace(c)) {
+				entry.append(c);
+			}
+		}
+		return contractions;
+	}
+
+	private static void addContraction(Map<Character, String> contractions, String s) {
+		if (s.length() > 1) {
+			String next = contractions.get(s.charAt(0));
+			if (next == null) {
+				contractions.put(s.charAt(0), String.valueOf(s.charAt(1)));
+			} else if (next.indexOf(s.charAt(1)) < 0) {
+				contractions.put(s.charAt(0), next + s.charAt(1));
+			}
+		}
+	}
+
+	/**
+	 * @return key of text or null if text has no key
+	 */
+	public char[] getKey(String text) {
+		char[] key = new char[text.length()];
+		for (int i = 0; i < key.length; i++) {
+			int w = getWeight(text, i);
+			if (w == COMPLEX) {
+				return null;
+			}
+			key[i] = (char) w;
+		}
+		return key;
+	}
+
+	// weight of char or COMPLEX if it's collated together with the next char
+	private int getWeight(String text, int i) {
+		char c = text.charAt(i);
+		int[] block = weights.get(c >> 8);
+		if (block == null) {
+			block = initBlock(c >> 8);
+		}
+		int w = block[c & 0xff];
+		if (w != COMPLEX && (w & CONTRACTION) != 0) {
+			if (i + 1 < text.length() && contractions.get(c).indexOf(text.charAt(i + 1)) >= 0) {
+				return COMPLEX;
+			}
+			w &= WEIGHT_MASK;
+		}
+		return w;
+	}
+
+	private synchronized int[] initBlock(int blockIndex) {
+		int[] block = weights.get(blockIndex);
+		if (block != null) {
+			return block;
+		}
+		block = new int[256];
+		for (int k = 0; k < block.length; k++) {
+			char c = (char) ((blockIndex << 8) | k);
+			int weight = 0;
+			if (Character.isSurrogate(c) || isPrevowel(c)) {
+				weight = COMPLEX;
+			} else {
+				CollationElementIterator it = collator.getCollationElementIterator(String.valueOf(c));
+				int count = 0;
+				for (int e = it.next(); e != CollationElementIterator.NULLORDER; e = it.next()) {
+					int p = CollationElementIterator.primaryOrder(e);
+					if (p != 0) {
+						weight = p;
+						count++;
+					}
+				}
+				if (count > 1) {
+					weight = COMPLEX;
+				} else if (contractions.containsKey(c)) {
+					weight |= CONTRACTION;
+				}
+			}
+			block[k] = weight;
+		}
+		weights.set(blockIndex, block);
+		return block;
+	}
+
+	// Thai and Lao prevowels are collated after the next char
+	private static boolean isPrevowel(char c) {
+		return (c >= '\u0e40' && c <= '\u0e44') || (c >= '\u0ec0' && c <= '\u0ec4');
+	}
+
+	/**
+	 * Same result as primary collator compare
+	 */
+	public int compare(String s1, String s2) {
+		int l1 = s1.length();
+		int l2 = s2.length();
+		int i = 0;
+		int j = 0;
+		while (true) {
+			int w1 = 0;
+			while (i < l1 && (w1 = getWeight(s1, i)) == 0) {
+				i++;
+			}
+			int w2 = 0;
+			while (j < l2 && (w2 = getWeight(s2, j)) == 0) {
+				j++;
+			}
+			if (w1 == COMPLEX || w2 == COMPLEX) {
+				// java.text.Collator is synchronized
+				return collator.compare(s1, s2);
+			}
+			if (i == l1 || j == l2) {
+				return (i == l1 ? 0 : 1) - (j == l2 ? 0 : 1);
+			}
+			if (w1 != w2) {
+				return w1 < w2 ? -1 : 1;
+			}
+			i++;
+			j++;
+		}
+	}
+
+	public static int compare(char[] k1, char[] k2) {
+		int i = 0;
+		int j = 0;
+		while (true) {
+			i = skipIgnorable(k1, i, k1.length);
+			j = skipIgnorable(k2, j, k2.length);
+			if (i == k1.length || j == k2.length) {
+				return (i == k1.length ? 0 : 1) - (j == k2.length ? 0 : 1);
+			}
+			if (k1[i] != k2[j]) {
+				return k1[i] < k2[j] ? -1 : 1;
+			}
+			i++;
+			j++;
+		}
+	}
+
+	/**
+	 * Same result as collator equals of whole strings
+	 */
+	public static boolean equals(char[] k1, char[] k2) {
+		return regionEquals(k1, 0, k1.length, k2);
+	}
+
+	/**
+	 * Same result as collator equals of text.substring(from, to) and part
+	 */
+	public static boolean regionEquals(char[] text, int from, int to, char[] part) {
+		int i = from;
+		int j = 0;
+		while (true) {
+			i = skipIgnorable(text, i, to);
+			j = skipIgnorable(part, j, part.length);
+			if (i == to || j == part.length) {
+				return i == to && j == part.length;
+			}
+			if (text[i++] != part[j++]) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * @return true if some text.substring(from, k) is equal to part by collator
+	 */
+	public static boolean regionStartsWith(char[] text, int from, char[] part) {
+		int i = from;
+		int j = 0;
+		while (true) {
+			j = skipIgnorable(part, j, part.length);
+			if (j == part.length) {
+				return true;
+			}
+			i = skipIgnorable(text, i, text.length);
+			if (i == text.length || text[i++] != part[j++]) {
+				return false;
+			}
+		}
+	}
+
+	private static int skipIgnorable(char[] key, int i, int to) {
+		while (i < to && key[i] == 0) {
+			i++;
+		}
+		return i;
+	}
+}
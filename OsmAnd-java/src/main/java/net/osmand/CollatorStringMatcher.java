@@ -13,8 +13,10 @@ import java.util.Locale;
 public class CollatorStringMatcher implements StringMatcher {
 
 	private final Collator collator;
+	private final CollationKeys keys;
 	private final StringMatcherMode mode;
 	private final String part;
+	private final char[] partKey;
 	
 	public static enum StringMatcherMode {
 		// tests only first word as base starts with part
@@ -44,7 +46,8 @@ public class CollatorStringMatcher implements StringMatcher {
 		}
 		this.part = part;
 		this.mode = mode;
-		
+		this.keys = CollationKeys.getInstance(collator);
+		this.partKey = keys == null ? null : keys.getKey(part);
 	}
 
 	public Collator getCollator() {
@@ -53,11 +56,26 @@ public class CollatorStringMatcher implements StringMatcher {
 	
 	@Override
 	public boolean matches(String name) {
+		if (partKey != null) {
+			return kmatches(keys, name, part, partKey, mode, collator);
+		}
 		return cmatches(collator, name, part, mode);
 	}
 	
 	
 	public static boolean cmatches(Collator collator, String fullName, String part, StringMatcherMode mode){
+		CollationKeys keys = CollationKeys.getInstance(collator);
+		if (keys != null) {
+			String alignedPart = mode == StringMatcherMode.CHECK_CONTAINS ? part : alignChars(part);
+			char[] partKey = keys.getKey(alignedPart);
+			if (partKey != null) {
+				return kmatches(keys, fullName, alignedPart, partKey, mode, collator);
+			}
+		}
+		return collatorMatches(collator, fullName, part, mode);
+	}
+
+	private static boolean collatorMatches(Collator collator, String fullName, String part, StringMatcherMode mode) {
 		switch (mode) {
 		case CHECK_CONTAINS:
 			return ccontains(collator, fullName, part); 
@@ -124,6 +142,86 @@ public class CollatorStringMatcher implements StringMatcher {
 		return -1;
 	}
 
+	/**
+	 * Same as {@link #cmatches(Collator, String, String, StringMatcherMode)} but compares collation keys,
+	 * part should be already aligned (except {@link StringMatcherMode#CHECK_CONTAINS})
+	 */
+	private static boolean kmatches(CollationKeys keys, String fullName, String part, char[] partKey,
+			StringMatcherMode mode, Collator collator) {
+		if (mode == StringMatcherMode.CHECK_CONTAINS) {
+			char[] key = keys.getKey(fullName);
+			if (key == null) {
+				return ccontains(collator, fullName, part);
+			}
+			return kcontains(key, partKey);
+		}
+		String searchIn = simplifyStringAndAlignChars(fullName);
+		char[] key = keys.getKey(searchIn);
+		if (key == null) {
+			return collatorMatches(collator, fullName, part, mode);
+		}
+		switch (mode) {
+		case CHECK_EQUALS_FROM_SPACE:
+			return kstartsWith(searchIn, key, partKey, true, true, true);
+		case CHECK_STARTS_FROM_SPACE:
+			return kstartsWith(searchIn, key, partKey, true, true, false);
+		case CHECK_STARTS_FROM_SPACE_NOT_BEGINNING:
+			return kstartsWith(searchIn, key, partKey, false, true, false);
+		case CHECK_ONLY_STARTS_WITH:
+			return kstartsWith(searchIn, key, partKey, true, false, false);
+		case CHECK_EQUALS:
+			return kstartsWith(searchIn, key, partKey, false, false, true);
+		default:
+			return false;
+		}
+	}
+
+	private static boolean kcontains(char[] base, char[] part) {
+		if (base.length <= part.length) {
+			return CollationKeys.equals(base, part);
+		}
+		for (int pos = 0; pos <= base.length - part.length + 1; pos++) {
+			if (CollationKeys.regionStartsWith(base, pos, part)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean kstartsWith(String searchIn, char[] searchInKey, char[] startKey,
+			boolean checkBeginning, boolean checkSpaces, boolean equals) {
+		int searchInLength = searchIn.length();
+		int startLength = startKey.length;
+		if (startLength == 0) {
+			return true;
+		}
+		if (startLength > searchInLength) {
+			return false;
+		}
+		if (checkBeginning) {
+			if (CollationKeys.regionEquals(searchInKey, 0, startLength, startKey)) {
+				if (!equals || startLength == searchInLength || isSpace(searchIn.charAt(startLength))) {
+					return true;
+				}
+			}
+		}
+		if (checkSpaces) {
+			for (int i = 1; i <= searchInLength - startLength; i++) {
+				if (isSpace(searchIn.charAt(i - 1)) && !isSpace(searchIn.charAt(i))) {
+					if (CollationKeys.regionEquals(searchInKey, i, i + startLength, startKey)) {
+						if (!equals || i + startLength == searchInLength || isSpace(searchIn.charAt(i + startLength))) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+		if (!checkBeginning && !checkSpaces && equals) {
+			return CollationKeys.equals(searchInKey, startKey);
+		}
+		return false;
+	}
+
 	/**
 	 * Checks if string starts with another string.
 	 * Special check try to find as well in the middle of name
@@ -183,13 +281,13 @@ public class CollatorStringMatcher implements StringMatcher {
 		return false;
 	}
 	
-	private static String simplifyStringAndAlignChars(String fullText) {
+	public static String simplifyStringAndAlignChars(String fullText) {
 		fullText = fullText.toLowerCase(Locale.getDefault());
 		fullText = alignChars(fullText);
 		return fullText;
 	}
 
-	private static String alignChars(String fullText) {
+	public static String alignChars(String fullText) {
 		int i;
 		while ((i = fullText.indexOf('ß')) != -1) {
 			fullText = fullText.substring(0, i) + "ss" + fullText.substring(i+1);
@@ -8,6 +8,8 @@ import net.osmand.binary.StringBundleXmlWriter;
 import net.osmand.data.QuadRect;
 import net.osmand.router.RouteColorize.ColorizationType;
 import net.osmand.util.Algorithms;
+import net.osmand.util.FixedDecimalFormat;
+import net.osmand.util.IsoTimeFormat;
 
 import net.osmand.util.MapUtils;
 
@@ -17,6 +19,7 @@ import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlSerializer;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -36,7 +39,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -66,10 +68,12 @@ public class GPXUtilities {
 	public final static String GPX_TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'"; //$NON-NLS-1$
 	private final static String GPX_TIME_FORMAT_MILLIS = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"; //$NON-NLS-1$
 
-	private final static NumberFormat latLonFormat = new DecimalFormat("0.00#####", new DecimalFormatSymbols(
-			new Locale("EN", "US")));
+	final static String LAT_LON_PATTERN = "0.00#####"; //$NON-NLS-1$
 	// speed, ele, hdop
-	private final static NumberFormat decimalFormat = new DecimalFormat("#.#", new DecimalFormatSymbols(
+	final static String DECIMAL_PATTERN = "#.#"; //$NON-NLS-1$
+	private final static int WRITE_BUFFER_SIZE = 32 * 1024;
+
+	private final static NumberFormat latLonFormat = new DecimalFormat(LAT_LON_PATTERN, new DecimalFormatSymbols(
 			new Locale("EN", "US")));
 
 	public static final int RADIUS_DIVIDER = 5000;
@@ -434,6 +438,8 @@ public class GPXUtilities {
 
 		public Object renderer;
 
+		private TrackSplitter splitter;
+
 		public List<RouteSegment> routeSegments = new ArrayList<>();
 		public List<RouteType> routeTypes = new ArrayList<>();
 
@@ -441,18 +447,24 @@ public class GPXUtilities {
 			return !routeSegments.isEmpty() && !routeTypes.isEmpty();
 		}
 
-		public List<GPXTrackAnalysis> splitByDistance(double meters, boolean joinSegments) {
-			return split(getDistanceMetric(), getTimeSplit(), meters, joinSegments);
+		/**
+		 * @return splitter with cumulative distance and time of points, it's kept while points are appended
+		 */
+		public synchronized TrackSplitter getSplitter(boolean joinSegments) {
+			if (splitter == null || (generalSegment && splitter.isJoinSegments() != joinSegments)) {
+				splitter = new TrackSplitter(this, joinSegments);
+			} else {
+				splitter.update();
+			}
+			return splitter;
 		}
 
-		public List<GPXTrackAnalysis> splitByTime(int seconds, boolean joinSegments) {
-			return split(getTimeSplit(), getDistanceMetric(), seconds, joinSegments);
+		public List<GPXTrackAnalysis> splitByDistance(double meters, boolean joinSegments) {
+			return TrackSplitter.getAnalyses(getSplitter(joinSegments).splitByDistance(meters));
 		}
 
-		private List<GPXTrackAnalysis> split(SplitMetric metric, SplitMetric secondaryMetric, double metricLimit, boolean joinSegments) {
-			List<SplitSegment> splitSegments = new ArrayList<>();
-			splitSegment(metric, secondaryMetric, metricLimit, splitSegments, this, joinSegments);
-			return convert(splitSegments);
+		public List<GPXTrackAnalysis> splitByTime(int seconds, boolean joinSegments) {
+			return TrackSplitter.getAnalyses(getSplitter(joinSegments).splitByTime(seconds));
 		}
 	}
 
@@ -660,312 +672,479 @@ public class GPXUtilities {
 		}
 
 		public GPXTrackAnalysis prepareInformation(long filestamp, SplitSegment... splitSegments) {
-			float[] calculations = new float[1];
-
-			long startTimeOfSingleSegment = 0;
-			long endTimeOfSingleSegment = 0;
-
-			float distanceOfSingleSegment = 0;
-			float distanceMovingOfSingleSegment = 0;
-			long timeMovingOfSingleSegment = 0;
-
-			float totalElevation = 0;
-			int elevationPoints = 0;
-			int speedCount = 0;
-			int timeDiff = 0;
-			double totalSpeedSum = 0;
-			points = 0;
-
-			double channelThresMin = 10;           // Minimum oscillation amplitude considered as relevant or as above noise for accumulated Ascent/Descent analysis
-			double channelThres = channelThresMin; // Actual oscillation amplitude considered as above noise (dynamic channel adjustment, accomodates depedency on current VDOP/getAccuracy if desired)
-			double channelBase;
-			double channelTop;
-			double channelBottom;
-			boolean climb = false;
-
-			elevationData = new ArrayList<>();
-			speedData = new ArrayList<>();
-
+			TrackAnalysisAccumulator accumulator = new TrackAnalysisAccumulator(this, true);
 			for (SplitSegment s : splitSegments) {
 				final int numberOfPoints = s.getNumberOfPoints();
-
-				channelBase = 99999;
-				channelTop = channelBase;
-				channelBottom = channelBase;
-				//channelThres = channelThresMin; //only for dynamic channel adjustment
-
-				float segmentDistance = 0f;
+				boolean generalSegment = s.segment.generalSegment;
 				metricEnd += s.metricEnd;
 				secondaryMetricEnd += s.secondaryMetricEnd;
-				points += numberOfPoints;
+				accumulator.startSegment(generalSegment, s.metricEnd != 0);
 				for (int j = 0; j < numberOfPoints; j++) {
-					WptPt point = s.get(j);
 					if (j == 0 && locationStart == null) {
-						locationStart = point;
+						locationStart = s.get(j);
+					}
+					float segmentDistance = accumulator.addPoint(s.getLatitude(j), s.getLongitude(j), s.getTime(j),
+							s.getElevation(j), s.getSpeed(j), generalSegment && s.isFirstPoint(j),
+							generalSegment && s.isLastPoint(j));
+					if (j > 0) {
+						s.setDistance(j, segmentDistance);
 					}
 					if (j == numberOfPoints - 1) {
+						// approximated end point and point of columns are new objects
+						WptPt point = s.get(j);
+						if (j > 0) {
+							point.distance = segmentDistance;
+						}
 						locationEnd = point;
 					}
-					long time = point.time;
-					if (time != 0) {
-						if (s.metricEnd == 0) {
-							if (s.segment.generalSegment) {
-								if (point.firstPoint) {
-									startTimeOfSingleSegment = time;
-								} else if (point.lastPoint) {
-									endTimeOfSingleSegment = time;
-								}
-								if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
-									timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
-									startTimeOfSingleSegment = 0;
-									endTimeOfSingleSegment = 0;
-								}
-							}
+				}
+				accumulator.finishSegment();
+			}
+			return accumulator.finish(filestamp);
+		}
+
+	}
+
+	/**
+	 * Calculates {@link GPXTrackAnalysis} adding points one by one, so points don't need to be kept in memory.
+	 * Elevation and speed data (one item per point) are collected optionally.
+	 */
+	public static class TrackAnalysisAccumulator {
+
+		// LPF smooting of ele data, usually smooth over odd number of values like 5
+		private static final int SMOOTH_WINDOW = 5;
+		// Minimum oscillation amplitude considered as relevant or as above noise for accumulated Ascent/Descent analysis
+		private static final double CHANNEL_THRES_MIN = 10;
+
+		private final GPXTrackAnalysis a;
+		private final boolean collectData;
+		private final float[] calculations = new float[1];
+
+		private long startTimeOfSingleSegment = 0;
+		private long endTimeOfSingleSegment = 0;
+		private float distanceOfSingleSegment = 0;
+		private float distanceMovingOfSingleSegment = 0;
+		private long timeMovingOfSingleSegment = 0;
+
+		private float totalElevation = 0;
+		private int elevationPoints = 0;
+		private int speedCount = 0;
+		private int timeDiff = 0;
+		private double totalSpeedSum = 0;
+
+		// Actual oscillation amplitude considered as above noise (dynamic channel adjustment, accomodates depedency on current VDOP/getAccuracy if desired)
+		private double channelThres = CHANNEL_THRES_MIN;
+		private double channelBase;
+		private double channelTop;
+		private double channelBottom;
+		private boolean climb = false;
+
+		// state of current segment
+		private boolean generalSegment;
+		private boolean splitPart;
+		private int segmentPoints;
+		private float segmentDistance;
+		private boolean lastEleSmoothed;
+		private double prevLat;
+		private double prevLon;
+		private long prevTime;
+		private final double[] lastElevations = new double[SMOOTH_WINDOW];
+
+		// values of last added point
+		private float lastPointElevation;
+		private float lastPointSpeed;
+		private float lastPointDistance;
+
+		public TrackAnalysisAccumulator(GPXTrackAnalysis analysis, boolean collectData) {
+			this.a = analysis;
+			this.collectData = collectData;
+			a.points = 0;
+			a.elevationData = new ArrayList<>();
+			a.speedData = new ArrayList<>();
+		}
+
+		/**
+		 * @param splitPart segment is a part of split track (time span of general segment is not calculated)
+		 */
+		public void startSegment(boolean generalSegment, boolean splitPart) {
+			this.generalSegment = generalSegment;
+			this.splitPart = splitPart;
+			segmentPoints = 0;
+			segmentDistance = 0;
+			lastEleSmoothed = false;
+			channelBase = 99999;
+			channelTop = channelBase;
+			channelBottom = channelBase;
+			//channelThres = channelThresMin; //only for dynamic channel adjustment
+		}
+
+		/**
+		 * @param firstPoint, lastPoint - flags of point in general segment
+		 * @return distance from start of segment to the point
+		 */
+		public float addPoint(double lat, double lon, long time, double elevation, double pointSpeed,
+		                      boolean firstPoint, boolean lastPoint) {
+			final int j = segmentPoints++;
+			a.points++;
+			if (time != 0) {
+				if (!splitPart) {
+					if (generalSegment) {
+						if (firstPoint) {
+							startTimeOfSingleSegment = time;
+						} else if (lastPoint) {
+							endTimeOfSingleSegment = time;
+						}
+						if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
+							a.timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
+							startTimeOfSingleSegment = 0;
+							endTimeOfSingleSegment = 0;
 						}
-						startTime = Math.min(startTime, time);
-						endTime = Math.max(endTime, time);
 					}
+				}
+				a.startTime = Math.min(a.startTime, time);
+				a.endTime = Math.max(a.endTime, time);
+			}
 
-					if (left == 0 && right == 0) {
-						left = point.getLongitude();
-						right = point.getLongitude();
-						top = point.getLatitude();
-						bottom = point.getLatitude();
-					} else {
-						left = Math.min(left, point.getLongitude());
-						right = Math.max(right, point.getLongitude());
-						top = Math.max(top, point.getLatitude());
-						bottom = Math.min(bottom, point.getLatitude());
-					}
+			if (a.left == 0 && a.right == 0) {
+				a.left = lon;
+				a.right = lon;
+				a.top = lat;
+				a.bottom = lat;
+			} else {
+				a.left = Math.min(a.left, lon);
+				a.right = Math.max(a.right, lon);
+				a.top = Math.max(a.top, lat);
+				a.bottom = Math.min(a.bottom, lat);
+			}
 
-					double elevation = point.ele;
-					Elevation elevation1 = new Elevation();
-					if (!Double.isNaN(elevation)) {
-						totalElevation += elevation;
-						elevationPoints++;
-						minElevation = Math.min(elevation, minElevation);
-						maxElevation = Math.max(elevation, maxElevation);
+			Elevation elevation1 = collectData ? new Elevation() : null;
+			float pointElevation;
+			if (!Double.isNaN(elevation)) {
+				totalElevation += elevation;
+				elevationPoints++;
+				a.minElevation = Math.min(elevation, a.minElevation);
+				a.maxElevation = Math.max(elevation, a.maxElevation);
 
-						elevation1.elevation = (float) elevation;
-					} else {
-						elevation1.elevation = Float.NaN;
+				pointElevation = (float) elevation;
+			} else {
+				pointElevation = Float.NaN;
+			}
+
+			float speed = (float) pointSpeed;
+			if (speed > 0) {
+				a.hasSpeedInTrack = true;
+			}
+
+			// Trend channel analysis for elevation gain/loss, Hardy 2015-09-22, LPF filtering added 2017-10-26:
+			// - Detect the consecutive elevation trend channels: Only use the net elevation changes of each trend channel (i.e. between the turnarounds) to accumulate the Ascent/Descent values.
+			// - Perform the channel evaluation on Low Pass Filter (LPF) smoothed ele data instead of on the raw ele data
+			// Parameters:
+			// - channelThresMin (in meters): defines the channel turnaround detection, i.e. oscillations smaller than this are ignored as irrelevant or noise.
+			// - smoothWindow (number of points): is the LPF window
+			// NOW REMOVED, as no relevant examples found: Dynamic channel adjustment: To suppress unreliable measurement points, could relax the turnaround detection from the constant channelThresMin to channelThres which is e.g. based on the maximum VDOP of any point which contributed to the current trend. (Good assumption is VDOP=2*HDOP, which accounts for invisibility of lower hemisphere satellites.)
+			lastElevations[j % SMOOTH_WINDOW] = elevation;
+			double eleSmoothed = Double.NaN;
+			int j2 = 0;
+			for (int j1 = - SMOOTH_WINDOW + 1; j1 <= 0; j1++) {
+				if (j + j1 >= 0) {
+					double ele = lastElevations[(j + j1) % SMOOTH_WINDOW];
+					if (!Double.isNaN(ele)) {
+						j2++;
+						if (!Double.isNaN(eleSmoothed)) {
+							eleSmoothed = eleSmoothed + ele;
+						} else {
+							eleSmoothed = ele;
+						}
 					}
+				}
+			}
+			if (!Double.isNaN(eleSmoothed)) {
+				eleSmoothed = eleSmoothed / j2;
+			}
 
-					float speed = (float) point.speed;
-					if (speed > 0) {
-						hasSpeedInTrack = true;
+			lastEleSmoothed = !Double.isNaN(eleSmoothed);
+			if (lastEleSmoothed) {
+				// Init channel
+				if (channelBase == 99999) {
+					channelBase = eleSmoothed;
+					channelTop = channelBase;
+					channelBottom = channelBase;
+					//channelThres = channelThresMin; //only for dynamic channel adjustment
+				}
+				// Channel maintenance
+				if (eleSmoothed > channelTop) {
+					channelTop = eleSmoothed;
+					//if (!Double.isNaN(point.hdop)) {
+					//	channelThres = Math.max(channelThres, 2.0 * point.hdop); //only for dynamic channel adjustment
+					//}
+				} else if (eleSmoothed < channelBottom) {
+					channelBottom = eleSmoothed;
+					//if (!Double.isNaN(point.hdop)) {
+					//	channelThres = Math.max(channelThres, 2.0 * point.hdop); //only for dynamic channel adjustment
+					//}
+				}
+				// Turnaround (breakout) detection
+				if ((eleSmoothed <= (channelTop - channelThres)) && (climb == true)) {
+					if ((channelTop - channelBase) >= channelThres) {
+						a.diffElevationUp += channelTop - channelBase;
 					}
-
-					// Trend channel analysis for elevation gain/loss, Hardy 2015-09-22, LPF filtering added 2017-10-26:
-					// - Detect the consecutive elevation trend channels: Only use the net elevation changes of each trend channel (i.e. between the turnarounds) to accumulate the Ascent/Descent values.
-					// - Perform the channel evaluation on Low Pass Filter (LPF) smoothed ele data instead of on the raw ele data
-					// Parameters:
-					// - channelThresMin (in meters): defines the channel turnaround detection, i.e. oscillations smaller than this are ignored as irrelevant or noise.
-					// - smoothWindow (number of points): is the LPF window
-					// NOW REMOVED, as no relevant examples found: Dynamic channel adjustment: To suppress unreliable measurement points, could relax the turnaround detection from the constant channelThresMin to channelThres which is e.g. based on the maximum VDOP of any point which contributed to the current trend. (Good assumption is VDOP=2*HDOP, which accounts for invisibility of lower hemisphere satellites.)
-
-					// LPF smooting of ele data, usually smooth over odd number of values like 5
-					final int smoothWindow = 5;
-					double eleSmoothed = Double.NaN;
-					int j2 = 0;
-					for (int j1 = - smoothWindow + 1; j1 <= 0; j1++) {
-						if ((j + j1 >= 0) && !Double.isNaN(s.get(j + j1).ele)) {
-							j2++;
-							if (!Double.isNaN(eleSmoothed)) {
-								eleSmoothed = eleSmoothed + s.get(j + j1).ele;
-							} else {
-								eleSmoothed = s.get(j + j1).ele;
-							}
-						}
+					channelBase = channelTop;
+					channelBottom = eleSmoothed;
+					climb = false;
+					//channelThres = channelThresMin; //only for dynamic channel adjustment
+				} else if ((eleSmoothed >= (channelBottom + channelThres)) && (climb == false)) {
+					if ((channelBase - channelBottom) >= channelThres) {
+						a.diffElevationDown += channelBase - channelBottom;
 					}
-					if (!Double.isNaN(eleSmoothed)) {
-						eleSmoothed = eleSmoothed / j2;
+					channelBase = channelBottom;
+					channelTop = eleSmoothed;
+					climb = true;
+					//channelThres = channelThresMin; //only for dynamic channel adjustment
+				}
+			}
+
+			if (j > 0) {
+				// Old complete summation approach for elevation gain/loss
+				//if (!Double.isNaN(point.ele) && !Double.isNaN(prev.ele)) {
+				//	double diff = point.ele - prev.ele;
+				//	if (diff > 0) {
+				//		diffElevationUp += diff;
+				//	} else {
+				//		diffElevationDown -= diff;
+				//	}
+				//}
+
+				// totalDistance += MapUtils.getDistance(prev.lat, prev.lon, point.lat, point.lon);
+				// using ellipsoidal 'distanceBetween' instead of spherical haversine (MapUtils.getDistance) is
+				// a little more exact, also seems slightly faster:
+				net.osmand.Location.distanceBetween(prevLat, prevLon, lat, lon, calculations);
+				a.totalDistance += calculations[0];
+				segmentDistance += calculations[0];
+
+				// In case points are reversed and => time is decreasing
+				long timeDiffMillis = Math.max(0, time - prevTime);
+				timeDiff = (int) ((timeDiffMillis) / 1000);
+
+				//Last resort: Derive speed values from displacement if track does not originally contain speed
+				if (!a.hasSpeedInTrack && speed == 0 && timeDiff > 0) {
+					speed = calculations[0] / timeDiff;
+				}
+
+				// Motion detection:
+				//   speed > 0  uses GPS chipset's motion detection
+				//   calculations[0] > minDisplacment * time  is heuristic needed because tracks may be filtered at recording time, so points at rest may not be present in file at all
+				boolean timeSpecified = time != 0 && prevTime != 0;
+				if (speed > 0 && timeSpecified && calculations[0] > timeDiffMillis / 10000f) {
+					a.timeMoving = a.timeMoving + timeDiffMillis;
+					a.totalDistanceMoving += calculations[0];
+					if (generalSegment && !firstPoint) {
+						timeMovingOfSingleSegment += timeDiffMillis;
+						distanceMovingOfSingleSegment += calculations[0];
 					}
+				}
 
-					if (!Double.isNaN(eleSmoothed)) {
-						// Init channel
-						if (channelBase == 99999) {
-							channelBase = eleSmoothed;
-							channelTop = channelBase;
-							channelBottom = channelBase;
-							//channelThres = channelThresMin; //only for dynamic channel adjustment
-						}
-						// Channel maintenance
-						if (eleSmoothed > channelTop) {
-							channelTop = eleSmoothed;
-							//if (!Double.isNaN(point.hdop)) {
-							//	channelThres = Math.max(channelThres, 2.0 * point.hdop); //only for dynamic channel adjustment
-							//}
-						} else if (eleSmoothed < channelBottom) {
-							channelBottom = eleSmoothed;
-							//if (!Double.isNaN(point.hdop)) {
-							//	channelThres = Math.max(channelThres, 2.0 * point.hdop); //only for dynamic channel adjustment
-							//}
-						}
-						// Turnaround (breakout) detection
-						if ((eleSmoothed <= (channelTop - channelThres)) && (climb == true)) {
-							if ((channelTop - channelBase) >= channelThres) {
-								diffElevationUp += channelTop - channelBase;
-							}
-							channelBase = channelTop;
-							channelBottom = eleSmoothed;
-							climb = false;
-							//channelThres = channelThresMin; //only for dynamic channel adjustment
-						} else if ((eleSmoothed >= (channelBottom + channelThres)) && (climb == false)) {
-							if ((channelBase - channelBottom) >= channelThres) {
-								diffElevationDown += channelBase - channelBottom;
-							}
-							channelBase = channelBottom;
-							channelTop = eleSmoothed;
-							climb = true;
-							//channelThres = channelThresMin; //only for dynamic channel adjustment
-						}
-						// End detection without breakout
-						if (j == (numberOfPoints - 1)) {
-							if ((channelTop - channelBase) >= channelThres) {
-								diffElevationUp += channelTop - channelBase;
-							}
-							if ((channelBase - channelBottom) >= channelThres) {
-								diffElevationDown += channelBase - channelBottom;
-							}
-						}
+				//Next few lines for Issue 3222 heuristic testing only
+				//	if (speed > 0 && point.time != 0 && prev.time != 0) {
+				//		timeMoving0 = timeMoving0 + (point.time - prev.time);
+				//		totalDistanceMoving0 += calculations[0];
+				//	}
+			}
+			prevLat = lat;
+			prevLon = lon;
+			prevTime = time;
+
+			float distance = (j > 0) ? calculations[0] : 0;
+			if (!a.hasElevationData && !Float.isNaN(pointElevation) && a.totalDistance > 0) {
+				a.hasElevationData = true;
+			}
+
+			a.minSpeed = Math.min(speed, a.minSpeed);
+			if (speed > 0) {
+				totalSpeedSum += speed;
+				a.maxSpeed = Math.max(speed, a.maxSpeed);
+				speedCount++;
+			}
+
+			lastPointElevation = pointElevation;
+			lastPointSpeed = speed;
+			lastPointDistance = distance;
+			Speed speed1 = null;
+			if (collectData) {
+				elevation1.elevation = pointElevation;
+				elevation1.time = timeDiff;
+				elevation1.distance = distance;
+				a.elevationData.add(elevation1);
+
+				speed1 = new Speed();
+				speed1.speed = speed;
+				speed1.time = timeDiff;
+				speed1.distance = distance;
+				a.speedData.add(speed1);
+			}
+			if (!a.hasSpeedData && speed > 0 && a.totalDistance > 0) {
+				a.hasSpeedData = true;
+			}
+			if (generalSegment) {
+				distanceOfSingleSegment += calculations[0];
+				if (firstPoint) {
+					distanceOfSingleSegment = 0;
+					timeMovingOfSingleSegment = 0;
+					distanceMovingOfSingleSegment = 0;
+					if (j > 0 && collectData) {
+						elevation1.firstPoint = true;
+						speed1.firstPoint = true;
+					}
+				}
+				if (lastPoint) {
+					a.totalDistanceWithoutGaps += distanceOfSingleSegment;
+					a.timeMovingWithoutGaps += timeMovingOfSingleSegment;
+					a.totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment;
+					// last point of segment is not known in advance, flag is moved from it in finishSegment
+					if (collectData) {
+						elevation1.lastPoint = true;
+						speed1.lastPoint = true;
 					}
+				}
+			}
+			return segmentDistance;
+		}
 
-					if (j > 0) {
-						WptPt prev = s.get(j - 1);
-
-						// Old complete summation approach for elevation gain/loss
-						//if (!Double.isNaN(point.ele) && !Double.isNaN(prev.ele)) {
-						//	double diff = point.ele - prev.ele;
-						//	if (diff > 0) {
-						//		diffElevationUp += diff;
-						//	} else {
-						//		diffElevationDown -= diff;
-						//	}
-						//}
-
-						// totalDistance += MapUtils.getDistance(prev.lat, prev.lon, point.lat, point.lon);
-						// using ellipsoidal 'distanceBetween' instead of spherical haversine (MapUtils.getDistance) is
-						// a little more exact, also seems slightly faster:
-						net.osmand.Location.distanceBetween(prev.lat, prev.lon, point.lat, point.lon, calculations);
-						totalDistance += calculations[0];
-						segmentDistance += calculations[0];
-						point.distance = segmentDistance;
-
-						// In case points are reversed and => time is decreasing
-						long timeDiffMillis = Math.max(0, point.time - prev.time);
-						timeDiff = (int) ((timeDiffMillis) / 1000);
-
-						//Last resort: Derive speed values from displacement if track does not originally contain speed
-						if (!hasSpeedInTrack && speed == 0 && timeDiff > 0) {
-							speed = calculations[0] / timeDiff;
-						}
+		/**
+		 * Elevation as it's collected in elevation data (NaN if not specified)
+		 */
+		public float getLastPointElevation() {
+			return lastPointElevation;
+		}
 
-						// Motion detection:
-						//   speed > 0  uses GPS chipset's motion detection
-						//   calculations[0] > minDisplacment * time  is heuristic needed because tracks may be filtered at recording time, so points at rest may not be present in file at all
-						boolean timeSpecified = point.time != 0 && prev.time != 0;
-						if (speed > 0 && timeSpecified && calculations[0] > timeDiffMillis / 10000f) {
-							timeMoving = timeMoving + timeDiffMillis;
-							totalDistanceMoving += calculations[0];
-							if (s.segment.generalSegment && !point.firstPoint) {
-								timeMovingOfSingleSegment += timeDiffMillis;
-								distanceMovingOfSingleSegment += calculations[0];
-							}
-						}
+		/**
+		 * Speed as it's collected in speed data (derived from distance if track has no speed)
+		 */
+		public float getLastPointSpeed() {
+			return lastPointSpeed;
+		}
 
-						//Next few lines for Issue 3222 heuristic testing only
-						//	if (speed > 0 && point.time != 0 && prev.time != 0) {
-						//		timeMoving0 = timeMoving0 + (point.time - prev.time);
-						//		totalDistanceMoving0 += calculations[0];
-						//	}
-					}
+		/**
+		 * Distance from previous point of segment
+		 */
+		public float getLastPointDistance() {
+			return lastPointDistance;
+		}
 
-					elevation1.time = timeDiff;
-					elevation1.distance = (j > 0) ? calculations[0] : 0;
-					elevationData.add(elevation1);
-					if (!hasElevationData && !Float.isNaN(elevation1.elevation) && totalDistance > 0) {
-						hasElevationData = true;
-					}
+		/**
+		 * Seconds from previous point as it's collected in elevation and speed data
+		 */
+		public int getLastPointTimeDiff() {
+			return timeDiff;
+		}
 
-					minSpeed = Math.min(speed, minSpeed);
-					if (speed > 0) {
-						totalSpeedSum += speed;
-						maxSpeed = Math.max(speed, maxSpeed);
-						speedCount++;
-					}
+		public void finishSegment() {
+			addSegmentEnd(a);
+			if (collectData && segmentPoints > 0) {
+				a.elevationData.get(a.elevationData.size() - 1).lastPoint = false;
+				a.speedData.get(a.speedData.size() - 1).lastPoint = false;
+			}
+		}
 
-					Speed speed1 = new Speed();
-					speed1.speed = speed;
-					speed1.time = timeDiff;
-					speed1.distance = elevation1.distance;
-					speedData.add(speed1);
-					if (!hasSpeedData && speed1.speed > 0 && totalDistance > 0) {
-						hasSpeedData = true;
-					}
-					if (s.segment.generalSegment) {
-						distanceOfSingleSegment += calculations[0];
-						if (point.firstPoint) {
-							distanceOfSingleSegment = 0;
-							timeMovingOfSingleSegment = 0;
-							distanceMovingOfSingleSegment = 0;
-							if (j > 0) {
-								elevation1.firstPoint = true;
-								speed1.firstPoint = true;
-							}
-						}
-						if (point.lastPoint) {
-							totalDistanceWithoutGaps += distanceOfSingleSegment;
-							timeMovingWithoutGaps += timeMovingOfSingleSegment;
-							totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment;
-							if (j < numberOfPoints - 1) {
-								elevation1.lastPoint = true;
-								speed1.lastPoint = true;
-							}
-						}
-					}
+		// End detection without breakout
+		private void addSegmentEnd(GPXTrackAnalysis a) {
+			if (lastEleSmoothed) {
+				if ((channelTop - channelBase) >= channelThres) {
+					a.diffElevationUp += channelTop - channelBase;
+				}
+				if ((channelBase - channelBottom) >= channelThres) {
+					a.diffElevationDown += channelBase - channelBottom;
 				}
 			}
-			if (totalDistance < 0) {
-				hasElevationData = false;
-				hasSpeedData = false;
-			}
-			if (!isTimeSpecified()) {
-				startTime = filestamp;
-				endTime = filestamp;
+		}
+
+		/**
+		 * @return copy of analysis as if current segment is finished, state of accumulator is not changed
+		 */
+		public GPXTrackAnalysis snapshot(long filestamp, boolean segmentStarted) {
+			GPXTrackAnalysis copy = new GPXTrackAnalysis();
+			copy.totalDistance = a.totalDistance;
+			copy.totalDistanceWithoutGaps = a.totalDistanceWithoutGaps;
+			copy.totalTracks = a.totalTracks;
+			copy.startTime = a.startTime;
+			copy.endTime = a.endTime;
+			copy.timeSpan = a.timeSpan;
+			copy.timeSpanWithoutGaps = a.timeSpanWithoutGaps;
+			copy.timeMoving = a.timeMoving;
+			copy.timeMovingWithoutGaps = a.timeMovingWithoutGaps;
+			copy.totalDistanceMoving = a.totalDistanceMoving;
+			copy.totalDistanceMovingWithoutGaps = a.totalDistanceMovingWithoutGaps;
+			copy.diffElevationUp = a.diffElevationUp;
+			copy.diffElevationDown = a.diffElevationDown;
+			copy.minElevation = a.minElevation;
+			copy.maxElevation = a.maxElevation;
+			copy.minSpeed = a.minSpeed;
+			copy.maxSpeed = a.maxSpeed;
+			copy.points = a.points;
+			copy.wptPoints = a.wptPoints;
+			copy.wptCategoryNames = a.wptCategoryNames;
+			copy.metricEnd = a.metricEnd;
+			copy.secondaryMetricEnd = a.secondaryMetricEnd;
+			copy.locationStart = a.locationStart;
+			copy.locationEnd = a.locationEnd;
+			copy.left = a.left;
+			copy.right = a.right;
+			copy.top = a.top;
+			copy.bottom = a.bottom;
+			copy.elevationData = a.elevationData;
+			copy.speedData = a.speedData;
+			copy.hasElevationData = a.hasElevationData;
+			copy.hasSpeedData = a.hasSpeedData;
+			copy.hasSpeedInTrack = a.hasSpeedInTrack;
+			if (segmentStarted) {
+				addSegmentEnd(copy);
+			}
+			return finish(copy, filestamp);
+		}
+
+		public GPXTrackAnalysis finish(long filestamp) {
+			return finish(a, filestamp);
+		}
+
+		private GPXTrackAnalysis finish(GPXTrackAnalysis a, long filestamp) {
+			if (a.totalDistance < 0) {
+				a.hasElevationData = false;
+				a.hasSpeedData = false;
+			}
+			if (!a.isTimeSpecified()) {
+				a.startTime = filestamp;
+				a.endTime = filestamp;
 			}
 
 			// OUTPUT:
 			// 1. Total distance, Start time, End time
 			// 2. Time span
-			if (timeSpan == 0) {
-				timeSpan = endTime - startTime;
+			if (a.timeSpan == 0) {
+				a.timeSpan = a.endTime - a.startTime;
 			}
 
 			// 3. Time moving, if any
 			// 4. Elevation, eleUp, eleDown, if recorded
 			if (elevationPoints > 0) {
-				avgElevation = totalElevation / elevationPoints;
+				a.avgElevation = totalElevation / elevationPoints;
 			}
 
 
 			// 5. Max speed and Average speed, if any. Average speed is NOT overall (effective) speed, but only calculated for "moving" periods.
 			//    Averaging speed values is less precise than totalDistanceMoving/timeMoving
 			if (speedCount > 0) {
-				if (timeMoving > 0) {
-					avgSpeed = (float) totalDistanceMoving / (float) timeMoving * 1000f;
+				if (a.timeMoving > 0) {
+					a.avgSpeed = (float) a.totalDistanceMoving / (float) a.timeMoving * 1000f;
 				} else {
-					avgSpeed = (float) totalSpeedSum / (float) speedCount;
+					a.avgSpeed = (float) totalSpeedSum / (float) speedCount;
 				}
 			} else {
-				avgSpeed = -1;
+				a.avgSpeed = -1;
 			}
-			return this;
+			return a;
 		}
-
 	}
 
-	private static class SplitSegment {
+	static class SplitSegment {
 		TrkSegment segment;
 		double startCoeff = 0;
 		int startPointInd;
@@ -993,6 +1172,59 @@ public class GPXUtilities {
 			return endPointInd - startPointInd + 2;
 		}
 
+		// index of point in columns or -1 if points are not columnar or point is approximated
+		private int getColumnIndex(int j) {
+			if (!(segment.points instanceof TrackPoints) || (j == 0 && startCoeff != 0)
+					|| (j == getNumberOfPoints() - 1 && endCoeff != 1)) {
+				return -1;
+			}
+			return j + startPointInd;
+		}
+
+		public double getLatitude(int j) {
+			int ind = getColumnIndex(j);
+			return ind == -1 ? get(j).lat : ((TrackPoints) segment.points).getLatitude(ind);
+		}
+
+		public double getLongitude(int j) {
+			int ind = getColumnIndex(j);
+			return ind == -1 ? get(j).lon : ((TrackPoints) segment.points).getLongitude(ind);
+		}
+
+		public long getTime(int j) {
+			int ind = getColumnIndex(j);
+			return ind == -1 ? get(j).time : ((TrackPoints) segment.points).getTime(ind);
+		}
+
+		public double getElevation(int j) {
+			int ind = getColumnIndex(j);
+			return ind == -1 ? get(j).ele : ((TrackPoints) segment.points).getElevation(ind);
+		}
+
+		public double getSpeed(int j) {
+			int ind = getColumnIndex(j);
+			return ind == -1 ? get(j).speed : ((TrackPoints) segment.points).getSpeed(ind);
+		}
+
+		public boolean isFirstPoint(int j) {
+			int ind = getColumnIndex(j);
+			return ind == -1 ? get(j).firstPoint : ((TrackPoints) segment.points).isFirstPoint(ind);
+		}
+
+		public boolean isLastPoint(int j) {
+			int ind = getColumnIndex(j);
+			return ind == -1 ? get(j).lastPoint : ((TrackPoints) segment.points).isLastPoint(ind);
+		}
+
+		public void setDistance(int j, double distance) {
+			int ind = getColumnIndex(j);
+			if (ind == -1) {
+				get(j).distance = distance;
+			} else {
+				((TrackPoints) segment.points).setDistance(ind, distance);
+			}
+		}
+
 		public WptPt get(int j) {
 			final int ind = j + startPointInd;
 			if (j == 0) {
@@ -1048,88 +1280,6 @@ public class GPXUtilities {
 
 	}
 
-	private static SplitMetric getDistanceMetric() {
-		return new SplitMetric() {
-
-			private float[] calculations = new float[1];
-
-			@Override
-			public double metric(WptPt p1, WptPt p2) {
-				net.osmand.Location.distanceBetween(p1.lat, p1.lon, p2.lat, p2.lon, calculations);
-				return calculations[0];
-			}
-		};
-	}
-
-	private static SplitMetric getTimeSplit() {
-		return new SplitMetric() {
-
-			@Override
-			public double metric(WptPt p1, WptPt p2) {
-				if (p1.time != 0 && p2.time != 0) {
-					return (int) Math.abs((p2.time - p1.time) / 1000l);
-				}
-				return 0;
-			}
-		};
-	}
-
-	private abstract static class SplitMetric {
-
-		public abstract double metric(WptPt p1, WptPt p2);
-
-	}
-
-	private static void splitSegment(SplitMetric metric, SplitMetric secondaryMetric,
-									 double metricLimit, List<SplitSegment> splitSegments,
-									 TrkSegment segment, boolean joinSegments) {
-		double currentMetricEnd = metricLimit;
-		double secondaryMetricEnd = 0;
-		SplitSegment sp = new SplitSegment(segment, 0, 0);
-		double total = 0;
-		WptPt prev = null;
-		for (int k = 0; k < segment.points.size(); k++) {
-			WptPt point = segment.points.get(k);
-			if (k > 0) {
-				double currentSegment = 0;
-				if (!(segment.generalSegment && !joinSegments && point.firstPoint)) {
-					currentSegment = metric.metric(prev, point);
-					secondaryMetricEnd += secondaryMetric.metric(prev, point);
-				}
-				while (total + currentSegment > currentMetricEnd) {
-					double p = currentMetricEnd - total;
-					double cf = (p / currentSegment);
-					sp.setLastPoint(k - 1, cf);
-					sp.metricEnd = currentMetricEnd;
-					sp.secondaryMetricEnd = secondaryMetricEnd;
-					splitSegments.add(sp);
-
-					sp = new SplitSegment(segment, k - 1, cf);
-					currentMetricEnd += metricLimit;
-				}
-				total += currentSegment;
-			}
-			prev = point;
-		}
-		if (segment.points.size() > 0
-				&& !(sp.endPointInd == segment.points.size() - 1 && sp.startCoeff == 1)) {
-			sp.metricEnd = total;
-			sp.secondaryMetricEnd = secondaryMetricEnd;
-			sp.setLastPoint(segment.points.size() - 2, 1);
-			splitSegments.add(sp);
-		}
-	}
-
-	private static List<GPXTrackAnalysis> convert(List<SplitSegment> splitSegments) {
-		List<GPXTrackAnalysis> ls = new ArrayList<>();
-		for (SplitSegment s : splitSegments) {
-			GPXTrackAnalysis a = new GPXTrackAnalysis();
-			a.prepareInformation(0, s);
-			ls.add(a);
-		}
-		return ls;
-	}
-
 	public static QuadRect calculateBounds(List<WptPt> pts) {
 		QuadRect trackBounds = new QuadRect(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
 				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
@@ -1902,10 +2052,10 @@ public class GPXUtilities {
 			progress.startWork(file.getItemsToWriteSize());
 		}
 		try {
-			SimpleDateFormat format = new SimpleDateFormat(GPX_TIME_FORMAT, Locale.US);
-			format.setTimeZone(TimeZone.getTimeZone("UTC"));
+			GPXWriteFormat format = new GPXWriteFormat();
 			XmlSerializer serializer = PlatformUtil.newSerializer();
-			serializer.setOutput(output);
+			serializer.setOutput(output instanceof BufferedWriter || output instanceof StringWriter
+					? output : new BufferedWriter(output, WRITE_BUFFER_SIZE));
 			serializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true); //$NON-NLS-1$
 			serializer.startDocument("UTF-8", true); //$NON-NLS-1$
 			serializer.startTag(null, "gpx"); //$NON-NLS-1$
@@ -1935,7 +2085,7 @@ public class GPXUtilities {
 		return null;
 	}
 
-	private static void writeMetadata(XmlSerializer serializer, GPXFile file, SimpleDateFormat format, IProgress progress) throws IOException {
+	private static void writeMetadata(XmlSerializer serializer, GPXFile file, GPXWriteFormat format, IProgress progress) throws IOException {
 		String trackName = file.metadata != null ? file.metadata.name : getFilename(file.path);
 		serializer.startTag(null, "metadata");
 		writeNotNullText(serializer, "name", trackName);
@@ -1953,11 +2103,11 @@ public class GPXUtilities {
 			}
 			writeNotNullTextWithAttribute(serializer, "link", "href", file.metadata.link);
 			if (file.metadata.time != 0) {
-				writeNotNullText(serializer, "time", format.format(new Date(file.metadata.time)));
+				writeTime(serializer, format, file.metadata.time);
 			}
 			writeNotNullText(serializer, "keywords", file.metadata.keywords);
 			if (file.metadata.bounds != null) {
-				writeBounds(serializer, file.metadata.bounds);
+				writeBounds(serializer, file.metadata.bounds, format);
 			}
 			writeExtensions(serializer, file.metadata, null);
 			if (progress != null) {
@@ -1967,7 +2117,7 @@ public class GPXUtilities {
 		serializer.endTag(null, "metadata");
 	}
 
-	private static void writePoints(XmlSerializer serializer, GPXFile file, SimpleDateFormat format, IProgress progress) throws IOException {
+	private static void writePoints(XmlSerializer serializer, GPXFile file, GPXWriteFormat format, IProgress progress) throws IOException {
 		for (WptPt l : file.points) {
 			serializer.startTag(null, "wpt"); //$NON-NLS-1$
 			writeWpt(format, serializer, l, progress);
@@ -1975,7 +2125,7 @@ public class GPXUtilities {
 		}
 	}
 
-	private static void writeRoutes(XmlSerializer serializer, GPXFile file, SimpleDateFormat format, IProgress progress) throws IOException {
+	private static void writeRoutes(XmlSerializer serializer, GPXFile file, GPXWriteFormat format, IProgress progress) throws IOException {
 		for (Route route : file.routes) {
 			serializer.startTag(null, "rte"); //$NON-NLS-1$
 			writeNotNullText(serializer, "name", route.name);
@@ -1994,7 +2144,7 @@ public class GPXUtilities {
 		}
 	}
 
-	private static void writeTracks(XmlSerializer serializer, GPXFile file, SimpleDateFormat format, IProgress progress) throws IOException {
+	private static void writeTracks(XmlSerializer serializer, GPXFile file, GPXWriteFormat format, IProgress progress) throws IOException {
 		for (Track track : file.tracks) {
 			if (!track.generalTrack) {
 				serializer.startTag(null, "trk"); //$NON-NLS-1$
@@ -2003,12 +2153,16 @@ public class GPXUtilities {
 				for (TrkSegment segment : track.segments) {
 					serializer.startTag(null, "trkseg"); //$NON-NLS-1$
 					writeNotNullText(serializer, "name", segment.name);
-					for (WptPt p : segment.points) {
-						boolean artificial = Math.abs(p.lon) == PRIME_MERIDIAN;
-						if (!artificial) {
-							serializer.startTag(null, "trkpt"); //$NON-NLS-1$
-							writeWpt(format, serializer, p, progress);
-							serializer.endTag(null, "trkpt"); //$NON-NLS-1$
+					if (segment.points instanceof TrackPoints) {
+						writeTrackPoints(serializer, (TrackPoints) segment.points, format, progress);
+					} else {
+						for (WptPt p : segment.points) {
+							boolean artificial = Math.abs(p.lon) == PRIME_MERIDIAN;
+							if (!artificial) {
+								serializer.startTag(null, "trkpt"); //$NON-NLS-1$
+								writeWpt(format, serializer, p, progress);
+								serializer.endTag(null, "trkpt"); //$NON-NLS-1$
+							}
 						}
 					}
 					assignRouteExtensionWriter(segment);
@@ -2021,6 +2175,52 @@ public class GPXUtilities {
 		}
 	}
 
+	// points without details are written from columns the same way as by writeWpt
+	private static void writeTrackPoints(XmlSerializer serializer, TrackPoints points, GPXWriteFormat format,
+	                                     IProgress progress) throws IOException {
+		for (int i = 0; i < points.size(); i++) {
+			double lon = points.getLongitude(i);
+			if (Math.abs(lon) == PRIME_MERIDIAN) {
+				continue;
+			}
+			serializer.startTag(null, "trkpt"); //$NON-NLS-1$
+			if (points.hasDetails(i)) {
+				writeWpt(format, serializer, points.get(i), progress);
+			} else {
+				serializer.attribute(null, "lat", format.latLon.format(points.getLatitude(i))); //$NON-NLS-1$
+				serializer.attribute(null, "lon", format.latLon.format(lon)); //$NON-NLS-1$
+				double ele = points.getElevation(i);
+				if (!Double.isNaN(ele)) {
+					writeDecimal(serializer, "ele", format.decimal, ele);
+				}
+				long time = points.getTime(i);
+				if (time != 0) {
+					writeTime(serializer, format, time);
+				}
+				double hdop = points.getHdop(i);
+				if (!Double.isNaN(hdop)) {
+					writeDecimal(serializer, "hdop", format.decimal, hdop);
+				}
+				double speed = points.getSpeed(i);
+				float heading = points.getHeading(i);
+				if (speed > 0 || !Float.isNaN(heading)) {
+					serializer.startTag(null, "extensions");
+					if (speed > 0) {
+						writeDecimal(serializer, "osmand:speed", format.decimal, speed);
+					}
+					if (!Float.isNaN(heading)) {
+						writeNotNullText(serializer, "osmand:heading", String.valueOf(Math.round(heading)));
+					}
+					serializer.endTag(null, "extensions");
+				}
+				if (progress != null) {
+					progress.progress(1);
+				}
+			}
+			serializer.endTag(null, "trkpt"); //$NON-NLS-1$
+		}
+	}
+
 	private static void assignRouteExtensionWriter(final TrkSegment segment) {
 		if (segment.hasRoute() && segment.getExtensionsWriter() == null) {
 			segment.setExtensionsWriter(new GPXExtensionsWriter() {
@@ -2074,6 +2274,23 @@ public class GPXUtilities {
 		}
 	}
 
+	private static void writeDecimal(XmlSerializer serializer, String tag, FixedDecimalFormat format, double value) throws IOException {
+		serializer.startTag(null, tag);
+		serializer.text(format.getBuffer(), 0, format.formatToBuffer(value));
+		serializer.endTag(null, tag);
+	}
+
+	private static void writeTime(XmlSerializer serializer, GPXWriteFormat format, long time) throws IOException {
+		int length = format.time.formatToBuffer(time);
+		if (length > 0) {
+			serializer.startTag(null, "time");
+			serializer.text(format.time.getBuffer(), 0, length);
+			serializer.endTag(null, "time");
+		} else {
+			writeNotNullText(serializer, "time", format.time.format(time));
+		}
+	}
+
 	private static void writeExtensions(XmlSerializer serializer, GPXExtensions p, IProgress progress) throws IOException {
 		writeExtensions(serializer, p.getExtensionsToRead(), p, progress);
 	}
@@ -2097,15 +2314,15 @@ public class GPXUtilities {
 		}
 	}
 
-	private static void writeWpt(SimpleDateFormat format, XmlSerializer serializer, WptPt p, IProgress progress) throws IOException {
-		serializer.attribute(null, "lat", latLonFormat.format(p.lat)); //$NON-NLS-1$ //$NON-NLS-2$
-		serializer.attribute(null, "lon", latLonFormat.format(p.lon)); //$NON-NLS-1$ //$NON-NLS-2$
+	private static void writeWpt(GPXWriteFormat format, XmlSerializer serializer, WptPt p, IProgress progress) throws IOException {
+		serializer.attribute(null, "lat", format.latLon.format(p.lat)); //$NON-NLS-1$ //$NON-NLS-2$
+		serializer.attribute(null, "lon", format.latLon.format(p.lon)); //$NON-NLS-1$ //$NON-NLS-2$
 
 		if (!Double.isNaN(p.ele)) {
-			writeNotNullText(serializer, "ele", decimalFormat.format(p.ele));
+			writeDecimal(serializer, "ele", format.decimal, p.ele);
 		}
 		if (p.time != 0) {
-			writeNotNullText(serializer, "time", format.format(new Date(p.time)));
+			writeTime(serializer, format, p.time);
 		}
 		writeNotNullText(serializer, "name", p.name);
 		writeNotNullText(serializer, "desc", p.desc);
@@ -2115,10 +2332,10 @@ public class GPXUtilities {
 			writeNotNullText(serializer, "cmt", p.comment);
 		}
 		if (!Double.isNaN(p.hdop)) {
-			writeNotNullText(serializer, "hdop", decimalFormat.format(p.hdop));
+			writeDecimal(serializer, "hdop", format.decimal, p.hdop);
 		}
 		if (p.speed > 0) {
-			p.getExtensionsToWrite().put("speed", decimalFormat.format(p.speed));
+			p.getExtensionsToWrite().put("speed", format.decimal.format(p.speed));
 		}
 		if (!Float.isNaN(p.heading)) {
 			p.getExtensionsToWrite().put("heading", String.valueOf(Math.round(p.heading)));
@@ -2162,15 +2379,22 @@ public class GPXUtilities {
 		writeNotNullText(serializer, "license", copyright.license);
 	}
 
-	private static void writeBounds(XmlSerializer serializer, Bounds bounds) throws IOException {
+	private static void writeBounds(XmlSerializer serializer, Bounds bounds, GPXWriteFormat format) throws IOException {
 		serializer.startTag(null, "bounds");
-		serializer.attribute(null, "minlat", latLonFormat.format(bounds.minlat));
-		serializer.attribute(null, "minlon", latLonFormat.format(bounds.minlon));
-		serializer.attribute(null, "maxlat", latLonFormat.format(bounds.maxlat));
-		serializer.attribute(null, "maxlon", latLonFormat.format(bounds.maxlon));
+		serializer.attribute(null, "minlat", format.latLon.format(bounds.minlat));
+		serializer.attribute(null, "minlon", format.latLon.format(bounds.minlon));
+		serializer.attribute(null, "maxlat", format.latLon.format(bounds.maxlat));
+		serializer.attribute(null, "maxlon", format.latLon.format(bounds.maxlon));
 		serializer.endTag(null, "bounds");
 	}
 
+	// formatters with reusable buffers for single write of gpx
+	private static class GPXWriteFormat {
+		final IsoTimeFormat time = new IsoTimeFormat();
+		final FixedDecimalFormat latLon = new FixedDecimalFormat(LAT_LON_PATTERN);
+		final FixedDecimalFormat decimal = new FixedDecimalFormat(DECIMAL_PATTERN);
+	}
+
 	public static class GPXFileResult {
 		public ArrayList<List<Location>> locations = new ArrayList<List<Location>>();
 		public ArrayList<WptPt> wayPoints = new ArrayList<>();
@@ -2237,9 +2461,25 @@ public class GPXUtilities {
 		return result;
 	}
 
+	// formats for times which are not parsed by IsoTimeFormat, files are loaded in parallel by GpxBatchAnalyzer
+	private static final ThreadLocal<SimpleDateFormat[]> timeParseFormats = new ThreadLocal<SimpleDateFormat[]>() {
+		@Override
+		protected SimpleDateFormat[] initialValue() {
+			SimpleDateFormat format = new SimpleDateFormat(GPX_TIME_FORMAT, Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("UTC"));
+			SimpleDateFormat formatMillis = new SimpleDateFormat(GPX_TIME_FORMAT_MILLIS, Locale.US);
+			formatMillis.setTimeZone(TimeZone.getTimeZone("UTC"));
+			return new SimpleDateFormat[] {format, formatMillis};
+		}
+	};
+
 	private static long parseTime(String text,SimpleDateFormat format,SimpleDateFormat formatMillis) {
-		long time = 0;
-		if (text != null) {
+		long time = IsoTimeFormat.parse(text, Long.MIN_VALUE);
+		if (time != Long.MIN_VALUE) {
+			return time;
+		}
+		time = 0;
+		if (text != null && format != null) {
 			try {
 				time = format.parse(text).getTime();
 			} catch (ParseException e1) {
@@ -2284,10 +2524,9 @@ public class GPXUtilities {
 
 	public static GPXFile loadGPXFile(InputStream stream, GPXExtensionsReader extensionsReader) {
 		GPXFile gpxFile = new GPXFile(null);
-		SimpleDateFormat format = new SimpleDateFormat(GPX_TIME_FORMAT, Locale.US);
-		format.setTimeZone(TimeZone.getTimeZone("UTC"));
-		SimpleDateFormat formatMillis = new SimpleDateFormat(GPX_TIME_FORMAT_MILLIS, Locale.US);
-		formatMillis.setTimeZone(TimeZone.getTimeZone("UTC"));
+		SimpleDateFormat[] timeFormats = timeParseFormats.get();
+		SimpleDateFormat format = timeFormats[0];
+		SimpleDateFormat formatMillis = timeFormats[1];
 		try {
 			XmlPullParser parser = PlatformUtil.newXMLPullParser();
 			parser.setInput(getUTF8Reader(stream));
@@ -2639,6 +2878,276 @@ public class GPXUtilities {
 		return gpxFile;
 	}
 
+	/**
+	 * Calculates the same analysis as {@link GPXFile#getAnalysis(long)} of loaded file reading points in stream,
+	 * so memory doesn't depend on size of file. Elevation and speed data are not collected.
+	 */
+	public static GPXTrackAnalysis analyzeGPXFile(File file) {
+		GPXTrackAnalysis analysis = null;
+		FileInputStream fis = null;
+		try {
+			fis = new FileInputStream(file);
+			analysis = analyzeGPXStream(fis, file.lastModified());
+		} catch (Exception e) {
+			log.error("Error analyzing gpx " + file.getAbsolutePath(), e); //$NON-NLS-1$
+		} finally {
+			Algorithms.closeStream(fis);
+		}
+		if (analysis == null) {
+			// route point extensions and broken files are processed by full load
+			analysis = loadGPXFile(file).getAnalysis(file.lastModified());
+		}
+		return analysis;
+	}
+
+	private static final int STREAM_GPX = 0;
+	private static final int STREAM_METADATA = 1;
+	private static final int STREAM_TRK = 2;
+	private static final int STREAM_TRKSEG = 3;
+	private static final int STREAM_RTE = 4;
+	private static final int STREAM_TRKPT = 5;
+	private static final int STREAM_WPT = 6;
+	private static final int STREAM_RTEPT = 7;
+
+	/**
+	 * @return null if file structure requires full load
+	 */
+	private static GPXTrackAnalysis analyzeGPXStream(InputStream stream, long fileTimestamp)
+			throws IOException, XmlPullParserException {
+		XmlPullParser parser = PlatformUtil.newXMLPullParser();
+		parser.setInput(getUTF8Reader(stream));
+		GPXTrackAnalysis analysis = new GPXTrackAnalysis();
+		analysis.wptCategoryNames = new HashSet<>();
+		StreamSegment segment = new StreamSegment(analysis);
+		WptPt point = new WptPt();
+		String category = null;
+		int state = STREAM_GPX;
+		int pointParent = STREAM_GPX;
+		// segments of current track, points without trkseg are added to implicit segment
+		int trackSegments = 0;
+		boolean implicitSegment = false;
+		int extensionsDepth = -1;
+		int tok;
+		while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
+			if (tok == XmlPullParser.START_TAG) {
+				String tag = parser.getName();
+				if (extensionsDepth != -1) {
+					if (tag.toLowerCase().equals("routepointextension")) {
+						return null;
+					}
+					if (state == STREAM_TRKPT && tag.equals("speed") && parser.getDepth() == extensionsDepth + 1) {
+						String value = readText(parser, tag);
+						if (value != null && !Algorithms.isEmpty(value.trim())) {
+							try {
+								point.speed = Float.parseFloat(value);
+							} catch (NumberFormatException e) {
+								log.debug(e.getMessage(), e);
+							}
+						}
+					}
+				} else if (tag.equals("extensions")) {
+					extensionsDepth = parser.getDepth();
+				} else if (state == STREAM_GPX) {
+					if (tag.equals("metadata")) {
+						state = STREAM_METADATA;
+					} else if (tag.equals("trk")) {
+						state = STREAM_TRK;
+						trackSegments = 0;
+						implicitSegment = false;
+					} else if (tag.equals("rte")) {
+						state = STREAM_RTE;
+					} else if (tag.equals("wpt")) {
+						analysis.wptPoints++;
+						category = null;
+						state = STREAM_WPT;
+					}
+				} else if (state == STREAM_TRK || state == STREAM_TRKSEG) {
+					if (state == STREAM_TRK && tag.equals("trkseg")) {
+						segment.finish();
+						implicitSegment = false;
+						trackSegments++;
+						segment.start();
+						state = STREAM_TRKSEG;
+					} else if (tag.equals("trkpt") || tag.equals("rpt")) {
+						if (state == STREAM_TRK && !implicitSegment) {
+							if (trackSegments > 0) {
+								// point is added to previous closed segment
+								return null;
+							}
+							implicitSegment = true;
+							trackSegments++;
+							segment.start();
+						}
+						parseStreamPoint(parser, point);
+						pointParent = state;
+						state = STREAM_TRKPT;
+					} else if (state == STREAM_TRKSEG && tag.equals("csvattributes")) {
+						String[] pointsArr = readText(parser, "csvattributes").split("\n");
+						for (int i = 0; i < pointsArr.length; i++) {
+							String[] pointAttrs = pointsArr[i].split(",");
+							try {
+								if (pointsArr.length > 1) {
+									parseStreamPoint(null, point);
+									point.lon = Double.parseDouble(pointAttrs[0]);
+									point.lat = Double.parseDouble(pointAttrs[1]);
+									if (pointsArr.length > 2) {
+										point.ele = Double.parseDouble(pointAttrs[2]);
+									}
+									segment.add(point);
+								}
+							} catch (NumberFormatException e) {
+							}
+						}
+					}
+				} else if (state == STREAM_RTE) {
+					if (tag.equals("rtept")) {
+						state = STREAM_RTEPT;
+					}
+				} else if (state == STREAM_TRKPT) {
+					if (tag.equals("speed")) {
+						try {
+							String value = readText(parser, "speed");
+							if (!Algorithms.isEmpty(value)) {
+								point.speed = Float.parseFloat(value);
+							}
+						} catch (NumberFormatException e) {
+						}
+					} else if (tag.equals("ele")) {
+						String text = readText(parser, "ele");
+						if (text != null) {
+							try {
+								point.ele = Float.parseFloat(text);
+							} catch (NumberFormatException e) {
+							}
+						}
+					} else if (tag.equals("time")) {
+						point.time = parseTime(readText(parser, "time"), null, null);
+					}
+				} else if (state == STREAM_WPT) {
+					if (tag.equals("category")) {
+						category = readText(parser, "category");
+					} else if (tag.equals("type") && category == null) {
+						category = readText(parser, "type");
+					}
+				}
+			} else if (tok == XmlPullParser.END_TAG) {
+				String tag = parser.getName();
+				if (extensionsDepth != -1) {
+					if (tag.equals("extensions") && parser.getDepth() == extensionsDepth) {
+						extensionsDepth = -1;
+					}
+				} else if (tag.equals("metadata") || tag.equals("wpt") && state == STREAM_WPT) {
+					if (state == STREAM_WPT) {
+						analysis.wptCategoryNames.add(category == null ? "" : category);
+					}
+					state = STREAM_GPX;
+				} else if ((tag.equals("trkpt") || tag.equals("rpt")) && state == STREAM_TRKPT) {
+					segment.add(point);
+					state = pointParent;
+				} else if (tag.equals("trkseg") && state == STREAM_TRKSEG) {
+					segment.finish();
+					state = STREAM_TRK;
+				} else if (tag.equals("trk") && state == STREAM_TRK) {
+					segment.finish();
+					state = STREAM_GPX;
+				} else if (tag.equals("rtept") && state == STREAM_RTEPT) {
+					state = STREAM_RTE;
+				} else if (tag.equals("rte") && state == STREAM_RTE) {
+					state = STREAM_GPX;
+				}
+			}
+		}
+		segment.finish();
+		return segment.accumulator.finish(fileTimestamp);
+	}
+
+	private static void parseStreamPoint(XmlPullParser parser, WptPt point) {
+		point.lat = 0;
+		point.lon = 0;
+		point.time = 0;
+		point.ele = Double.NaN;
+		point.speed = 0;
+		point.distance = 0;
+		if (parser != null) {
+			try {
+				point.lat = Double.parseDouble(parser.getAttributeValue("", "lat")); //$NON-NLS-1$ //$NON-NLS-2$
+				point.lon = Double.parseDouble(parser.getAttributeValue("", "lon")); //$NON-NLS-1$ //$NON-NLS-2$
+			} catch (NumberFormatException e) {
+				// ignore
+			}
+		}
+	}
+
+	// points of segment are analyzed when second point is read (segments of single point are skipped)
+	private static class StreamSegment {
+		final GPXTrackAnalysis analysis;
+		final TrackAnalysisAccumulator accumulator;
+		final WptPt first = new WptPt();
+		final WptPt prev = new WptPt();
+		boolean started;
+		int size;
+
+		StreamSegment(GPXTrackAnalysis analysis) {
+			this.analysis = analysis;
+			this.accumulator = new TrackAnalysisAccumulator(analysis, false);
+		}
+
+		void start() {
+			analysis.totalTracks++;
+			started = true;
+			size = 0;
+		}
+
+		void add(WptPt p) {
+			if (!started) {
+				return;
+			}
+			if (size == 0) {
+				copyPoint(p, first);
+			} else {
+				if (size == 1) {
+					accumulator.startSegment(false, false);
+					analyze(first);
+				}
+				if (Math.abs(p.lon - prev.lon) >= 180) {
+					WptPt projection = projectionOnPrimeMeridian(prev, p);
+					WptPt oppositeSideProjection = new WptPt(projection);
+					oppositeSideProjection.lon = -oppositeSideProjection.lon;
+					analyze(projection);
+					analyze(oppositeSideProjection);
+				}
+				analyze(p);
+			}
+			size++;
+		}
+
+		private void analyze(WptPt p) {
+			float distance = accumulator.addPoint(p.lat, p.lon, p.time, p.ele, p.speed, false, false);
+			p.distance = analysis.points > 1 ? distance : 0;
+			if (analysis.locationStart == null) {
+				analysis.locationStart = new WptPt(p);
+			}
+			copyPoint(p, prev);
+		}
+
+		void finish() {
+			if (started && size > 1) {
+				accumulator.finishSegment();
+				analysis.locationEnd = new WptPt(prev);
+			}
+			started = false;
+		}
+
+		private static void copyPoint(WptPt src, WptPt dst) {
+			dst.lat = src.lat;
+			dst.lon = src.lon;
+			dst.time = src.time;
+			dst.ele = src.ele;
+			dst.speed = src.speed;
+			dst.distance = src.distance;
+		}
+	}
+
 	private static Reader getUTF8Reader(InputStream f) throws IOException {
 		BufferedInputStream bis = new BufferedInputStream(f);
 		assert bis.markSupported();
@@ -0,0 +1,207 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+
+import org.apache.commons.logging.Log;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analyzes set of gpx files in parallel: worker threads take next file and analyze it in stream
+ * ({@link GPXUtilities#analyzeGPXFile(File)}), results are passed through bounded queue to the thread which
+ * called {@link #analyze(Collection, AnalysisSink)}, so sink is not required to be thread safe (e.g. writes
+ * to database connection) and memory is limited by number of threads and queue size.
+ */
+public class GpxBatchAnalyzer {
+
+	public static final int DEFAULT_MAX_PENDING_RESULTS = 64;
+
+	private static final Log log = PlatformUtil.getLog(GpxBatchAnalyzer.class);
+
+	private final int threads;
+	private final int maxPendingResults;
+
+	public interface AnalysisSink {
+
+		/**
+		 * Called in thread of {@link #analyze(Collection, AnalysisSink)} in order of completion
+		 */
+		void onFileAnalyzed(File file, GPXTrackAnalysis analysis);
+
+		boolean isCancelled();
+	}
+
+	public static class BatchStatistics {
+
+		private int files;
+		private int points;
+		private long bytes;
+		private long timeMs;
+
+		public int getFiles() {
+			return files;
+		}
+
+		public int getPoints() {
+			return points;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getTimeMs() {
+			return timeMs;
+		}
+
+		public double getFilesPerSecond() {
+			return timeMs > 0 ? files * 1000d / timeMs : 0;
+		}
+
+		public double getBytesPerSecond() {
+			return timeMs > 0 ? bytes * 1000d / timeMs : 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Analyzed %d files (%d points, %d KB) in %d ms: %.1f files/s, %.1f KB/s",
+					files, points, bytes / 1024, timeMs, getFilesPerSecond(), getBytesPerSecond() / 1024);
+		}
+	}
+
+	private static class AnalyzedFile {
+		private final File file;
+		private final GPXTrackAnalysis analysis;
+
+		AnalyzedFile(File file, GPXTrackAnalysis analysis) {
+			this.file = file;
+			this.analysis = analysis;
+		}
+	}
+
+	// worker has no more files
+	private static final AnalyzedFile FINISHED = new AnalyzedFile(null, null);
+
+	public GpxBatchAnalyzer() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_PENDING_RESULTS);
+	}
+
+	public GpxBatchAnalyzer(int threads, int maxPendingResults) {
+		this.threads = Math.max(1, threads);
+		this.maxPendingResults = Math.max(1, maxPendingResults);
+	}
+
+	public BatchStatistics analyze(Collection<File> files, final AnalysisSink sink) {
+		long startTime = System.currentTimeMillis();
+		BatchStatistics statistics = new BatchStatistics();
+		int workers = Math.min(threads, files.size());
+		if (workers <= 1) {
+			for (File file : files) {
+				if (sink.isCancelled()) {
+					break;
+				}
+				processResult(new AnalyzedFile(file, analyzeFile(file)), sink, statistics);
+			}
+		} else {
+			analyzeInParallel(files.iterator(), workers, sink, statistics);
+		}
+		statistics.timeMs = System.currentTimeMillis() - startTime;
+		return statistics;
+	}
+
+	private void analyzeInParallel(final Iterator<File> files, int workers, AnalysisSink sink,
+	                               BatchStatistics statistics) {
+		final BlockingQueue<AnalyzedFile> results = new ArrayBlockingQueue<>(maxPendingResults);
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "GpxBatchAnalyzer-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		for (int i = 0; i < workers; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					boolean interrupted = false;
+					try {
+						File file;
+						while ((file = nextFile(files, cancelled)) != null) {
+							results.put(new AnalyzedFile(file, analyzeFile(file)));
+						}
+					} catch (InterruptedException e) {
+						// analysis was interrupted, results are not taken anymore
+						interrupted = true;
+					} finally {
+						// worker failed with unexpected error is counted as finished, so results are still taken
+						if (!interrupted) {
+							try {
+								results.put(FINISHED);
+							} catch (InterruptedException e) {
+								// results are not taken anymore
+							}
+						}
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		int finishedWorkers = 0;
+		try {
+			while (finishedWorkers < workers) {
+				AnalyzedFile result = results.take();
+				if (result == FINISHED) {
+					finishedWorkers++;
+				} else if (sink.isCancelled()) {
+					// workers finish current files
+					cancelled.set(true);
+				} else {
+					processResult(result, sink, statistics);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (finishedWorkers < workers) {
+				// results are not taken anymore, blocked workers are interrupted
+				cancelled.set(true);
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	private static File nextFile(Iterator<File> files, AtomicBoolean cancelled) {
+		synchronized (files) {
+			return !cancelled.get() && files.hasNext() ? files.next() : null;
+		}
+	}
+
+	private static GPXTrackAnalysis analyzeFile(File file) {
+		try {
+			return GPXUtilities.analyzeGPXFile(file);
+		} catch (RuntimeException e) {
+			log.error("Error analyzing gpx " + file.getAbsolutePath(), e);
+			return new GPXTrackAnalysis();
+		}
+	}
+
+	private static void processResult(AnalyzedFile result, AnalysisSink sink, BatchStatistics statistics) {
+		statistics.files++;
+		statistics.points += result.analysis.points + result.analysis.wptPoints;
+		statistics.bytes += result.file.length();
+		sink.onFileAnalyzed(result.file, result.analysis);
+	}
+}
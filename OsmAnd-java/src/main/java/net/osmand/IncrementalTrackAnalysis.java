@@ -0,0 +1,264 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.Elevation;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Speed;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrackAnalysisAccumulator;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Analysis of track which grows while points are appended (recorded track). Every point is analyzed once,
+ * so {@link #getAnalysis(GPXFile, long)} costs O(new points) and returns the same values as
+ * {@link GPXFile#getAnalysis(long)}, except elevation and speed data which are downsampled
+ * to limited number of items (item joins several consecutive points).
+ *
+ * If segments analyzed before were changed (not only appended), analysis is recalculated from the start.
+ */
+public class IncrementalTrackAnalysis {
+
+	public static final int DEFAULT_MAX_DATA_SIZE = 2048;
+
+	private final int maxDataSize;
+
+	private GPXTrackAnalysis analysis;
+	private TrackAnalysisAccumulator accumulator;
+	private DataSeries data;
+
+	// analyzed segments and sizes of all except last
+	private final List<TrkSegment> segments = new ArrayList<>();
+	private final TIntArrayList segmentSizes = new TIntArrayList();
+	private int segmentSize;
+	private List<WptPt> lastPoints;
+	private int lastPointIndex;
+
+	public IncrementalTrackAnalysis() {
+		this(DEFAULT_MAX_DATA_SIZE);
+	}
+
+	public IncrementalTrackAnalysis(int maxDataSize) {
+		this.maxDataSize = Math.max(2, maxDataSize & ~1);
+		reset();
+	}
+
+	public synchronized void reset() {
+		analysis = new GPXTrackAnalysis();
+		accumulator = new TrackAnalysisAccumulator(analysis, false);
+		data = new DataSeries(maxDataSize);
+		segments.clear();
+		segmentSizes.clear();
+		segmentSize = 0;
+		lastPoints = null;
+		lastPointIndex = -1;
+	}
+
+	public synchronized int getPointsCount() {
+		return analysis.points;
+	}
+
+	/**
+	 * Analyzes points appended to the file since previous call.
+	 */
+	public synchronized void update(GPXFile gpxFile) {
+		if (!isAppendedTo(gpxFile)) {
+			reset();
+		}
+		int ind = 0;
+		for (Track track : gpxFile.tracks) {
+			for (TrkSegment segment : track.segments) {
+				if (!segment.generalSegment) {
+					if (ind >= segments.size()) {
+						startSegment(segment);
+					}
+					if (ind == segments.size() - 1) {
+						addPoints(segment.points);
+					}
+					ind++;
+				}
+			}
+		}
+	}
+
+	public synchronized GPXTrackAnalysis getAnalysis(GPXFile gpxFile, long fileTimestamp) {
+		update(gpxFile);
+		GPXTrackAnalysis res = accumulator.snapshot(fileTimestamp, segmentSize > 1);
+		res.wptPoints = gpxFile.getPointsSize();
+		res.wptCategoryNames = gpxFile.getWaypointCategories(true);
+		if (lastPoints != null) {
+			res.locationEnd = lastPoints.get(lastPointIndex);
+		}
+		res.elevationData = new ArrayList<>(data.elevationData.size());
+		res.speedData = new ArrayList<>(data.speedData.size());
+		data.copyTo(res.elevationData, res.speedData);
+		return res;
+	}
+
+	private boolean isAppendedTo(GPXFile gpxFile) {
+		int ind = 0;
+		for (Track track : gpxFile.tracks) {
+			for (TrkSegment segment : track.segments) {
+				if (!segment.generalSegment && ind < segments.size()) {
+					if (segments.get(ind) != segment) {
+						return false;
+					}
+					int size = segment.points.size();
+					if (ind < segmentSizes.size() ? size != segmentSizes.get(ind) : size < segmentSize) {
+						return false;
+					}
+					ind++;
+				}
+			}
+		}
+		return ind == segments.size();
+	}
+
+	private void startSegment(TrkSegment segment) {
+		if (segmentSize > 1) {
+			accumulator.finishSegment();
+		}
+		if (!segments.isEmpty()) {
+			segmentSizes.add(segmentSize);
+		}
+		segments.add(segment);
+		segmentSize = 0;
+		analysis.totalTracks++;
+	}
+
+	// segments of single point are not analyzed, first point is analyzed with the second one
+	private void addPoints(List<WptPt> points) {
+		int size = points.size();
+		for (int i = Math.max(segmentSize, 1); i < size; i++) {
+			if (i == 1) {
+				accumulator.startSegment(false, false);
+				addPoint(points, 0);
+			}
+			addPoint(points, i);
+		}
+		segmentSize = Math.max(segmentSize, size);
+	}
+
+	private void addPoint(List<WptPt> points, int i) {
+		float segmentDistance = accumulator.addPoint(TrackPoints.getLatitude(points, i),
+				TrackPoints.getLongitude(points, i), TrackPoints.getTime(points, i),
+				TrackPoints.getElevation(points, i), TrackPoints.getSpeed(points, i), false, false);
+		if (i > 0) {
+			TrackPoints.setDistance(points, i, segmentDistance);
+		}
+		if (analysis.locationStart == null) {
+			analysis.locationStart = points.get(i);
+		}
+		lastPoints = points;
+		lastPointIndex = i;
+		data.add(accumulator.getLastPointElevation(), accumulator.getLastPointSpeed(),
+				accumulator.getLastPointTimeDiff(), accumulator.getLastPointDistance());
+	}
+
+	// elevation and speed data where each item joins 'step' points, step is doubled when size limit is reached
+	private static class DataSeries {
+
+		private final int maxSize;
+		private final List<Elevation> elevationData = new ArrayList<>();
+		private final List<Speed> speedData = new ArrayList<>();
+		private int step = 1;
+		// points and elevations joined to last item
+		private int lastItemPoints;
+		private int lastItemElevations;
+
+		DataSeries(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		void add(float elevation, float speed, int time, float distance) {
+			if (lastItemPoints == 0 || lastItemPoints == step) {
+				if (elevationData.size() == maxSize) {
+					compact();
+				}
+				Elevation e = new Elevation();
+				e.elevation = elevation;
+				e.time = time;
+				e.distance = distance;
+				elevationData.add(e);
+				Speed s = new Speed();
+				s.speed = speed;
+				s.time = time;
+				s.distance = distance;
+				speedData.add(s);
+				lastItemPoints = 1;
+				lastItemElevations = Float.isNaN(elevation) ? 0 : 1;
+			} else {
+				Elevation e = elevationData.get(elevationData.size() - 1);
+				if (!Float.isNaN(elevation)) {
+					e.elevation = lastItemElevations == 0 ? elevation
+							: (e.elevation * lastItemElevations + elevation) / (lastItemElevations + 1);
+					lastItemElevations++;
+				}
+				e.time += time;
+				e.distance += distance;
+				Speed s = speedData.get(speedData.size() - 1);
+				s.speed = joinSpeed(s.speed, s.time, lastItemPoints, speed, time, 1);
+				s.time += time;
+				s.distance += distance;
+				lastItemPoints++;
+			}
+		}
+
+		// joins pairs of items
+		private void compact() {
+			int size = elevationData.size() / 2;
+			for (int i = 0; i < size; i++) {
+				Elevation e1 = elevationData.get(2 * i);
+				Elevation e2 = elevationData.get(2 * i + 1);
+				if (Float.isNaN(e1.elevation)) {
+					e1.elevation = e2.elevation;
+				} else if (!Float.isNaN(e2.elevation)) {
+					e1.elevation = (e1.elevation + e2.elevation) / 2;
+				}
+				e1.time += e2.time;
+				e1.distance += e2.distance;
+				elevationData.set(i, e1);
+
+				Speed s1 = speedData.get(2 * i);
+				Speed s2 = speedData.get(2 * i + 1);
+				s1.speed = joinSpeed(s1.speed, s1.time, step, s2.speed, s2.time, step);
+				s1.time += s2.time;
+				s1.distance += s2.distance;
+				speedData.set(i, s1);
+			}
+			elevationData.subList(size, elevationData.size()).clear();
+			speedData.subList(size, speedData.size()).clear();
+			step *= 2;
+		}
+
+		// speed is averaged by time or by points if time is not specified
+		private static float joinSpeed(float speed1, int time1, int points1, float speed2, int time2, int points2) {
+			if (time1 + time2 > 0) {
+				return (speed1 * time1 + speed2 * time2) / (time1 + time2);
+			}
+			return (speed1 * points1 + speed2 * points2) / (points1 + points2);
+		}
+
+		void copyTo(List<Elevation> elevations, List<Speed> speeds) {
+			for (Elevation e : elevationData) {
+				Elevation copy = new Elevation();
+				copy.elevation = e.elevation;
+				copy.time = e.time;
+				copy.distance = e.distance;
+				elevations.add(copy);
+			}
+			for (Speed s : speedData) {
+				Speed copy = new Speed();
+				copy.speed = s.speed;
+				copy.time = s.time;
+				copy.distance = s.distance;
+				speeds.add(copy);
+			}
+		}
+	}
+}
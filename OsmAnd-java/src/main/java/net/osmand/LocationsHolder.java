@@ -13,10 +13,12 @@ public class LocationsHolder {
 	private static final int LOCATION_TYPE_LATLON = 0;
 	private static final int LOCATION_TYPE_LOCATION = 1;
 	private static final int LOCATION_TYPE_WPTPT = 2;
+	private static final int LOCATION_TYPE_TRACK_POINTS = 3;
 
 	private List<LatLon> latLonList;
 	private List<Location> locationList;
 	private List<WptPt> wptPtList;
+	private TrackPoints trackPoints;
 	private int locationType;
 	private int size;
 
@@ -36,11 +38,17 @@ public class LocationsHolder {
 				wptPtList = new ArrayList<>((List<WptPt>) locations);
 				size = locations.size();
 				break;
+			case LOCATION_TYPE_TRACK_POINTS:
+				trackPoints = new TrackPoints((TrackPoints) locations);
+				size = locations.size();
+				break;
 		}
 	}
 
 	private int resolveLocationType(List<?> locations) {
-		if (!Algorithms.isEmpty(locations)) {
+		if (locations instanceof TrackPoints) {
+			return LOCATION_TYPE_TRACK_POINTS;
+		} else if (!Algorithms.isEmpty(locations)) {
 			Object locationObj = locations.get(0);
 			if (locationObj instanceof LatLon) {
 				return LOCATION_TYPE_LATLON;
@@ -63,6 +71,8 @@ public class LocationsHolder {
 				return locationList.get(index).getLatitude();
 			case LOCATION_TYPE_WPTPT:
 				return wptPtList.get(index).getLatitude();
+			case LOCATION_TYPE_TRACK_POINTS:
+				return trackPoints.getLatitude(index);
 			default:
 				return 0;
 		}
@@ -76,6 +86,8 @@ public class LocationsHolder {
 				return locationList.get(index).getLongitude();
 			case LOCATION_TYPE_WPTPT:
 				return wptPtList.get(index).getLongitude();
+			case LOCATION_TYPE_TRACK_POINTS:
+				return trackPoints.getLongitude(index);
 			default:
 				return 0;
 		}
@@ -117,6 +129,8 @@ public class LocationsHolder {
 	public List<WptPt> getWptPtList() {
 		if (this.locationType == LOCATION_TYPE_WPTPT) {
 			return wptPtList;
+		} else if (this.locationType == LOCATION_TYPE_TRACK_POINTS) {
+			return trackPoints;
 		} else {
 			return getList(LOCATION_TYPE_WPTPT);
 		}
@@ -141,6 +155,8 @@ public class LocationsHolder {
 	public WptPt getWptPt(int index) {
 		if (this.locationType == LOCATION_TYPE_WPTPT) {
 			return wptPtList.get(index);
+		} else if (this.locationType == LOCATION_TYPE_TRACK_POINTS) {
+			return trackPoints.get(index);
 		} else {
 			WptPt wptPt = new WptPt();
 			wptPt.lat = getLatitude(index);
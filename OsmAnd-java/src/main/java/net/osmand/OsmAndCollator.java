@@ -6,37 +6,57 @@ public class OsmAndCollator {
 
 	public static net.osmand.Collator primaryCollator() {
 		// romanian locale encounters diacritics as different symbols
-		final java.text.Collator instance = Locale.getDefault().getLanguage().equals("ro")  ||
+		Locale locale = Locale.getDefault().getLanguage().equals("ro")  ||
 				Locale.getDefault().getLanguage().equals("cs") ||
-				Locale.getDefault().getLanguage().equals("sk")? java.text.Collator.getInstance(Locale.US)
-				: java.text.Collator.getInstance();
+				Locale.getDefault().getLanguage().equals("sk")? Locale.US : Locale.getDefault();
+		final java.text.Collator instance = java.text.Collator.getInstance(locale);
 		instance.setStrength(java.text.Collator.PRIMARY);
-		return wrapCollator(instance);
+		return new JavaCollator(instance, "primary_" + locale);
 	}
 	
 	public static net.osmand.Collator wrapCollator(final java.text.Collator instance) {
-		return new net.osmand.Collator() {
-			
-			@Override
-			public int compare(Object o1, Object o2) {
-				return instance.compare(o1, o2);
-			}
-			
-			@Override
-			public boolean equals(Object obj) {
-				return instance.equals(obj);
-			}
+		return new JavaCollator(instance, null);
+	}
 
-			@Override
-			public boolean equals(String source, String target) {
-				return instance.equals(source, target);
-			}
+	static class JavaCollator implements net.osmand.Collator {
+		private final java.text.Collator instance;
+		// collators with the same id share cached collation keys
+		private final String id;
+		private CollationKeys keys;
+		private boolean keysInitialized;
+
+		JavaCollator(java.text.Collator instance, String id) {
+			this.instance = instance;
+			this.id = id;
+		}
 
-			@Override
-			public int compare(String source, String target) {
-				return instance.compare(source, target);
+		synchronized CollationKeys getCollationKeys() {
+			if (!keysInitialized) {
+				keys = CollationKeys.getInstance(id, instance);
+				keysInitialized = true;
 			}
-		};
+			return keys;
+		}
+
+		@Override
+		public int compare(Object o1, Object o2) {
+			return instance.compare(o1, o2);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return instance.equals(obj);
+		}
+
+		@Override
+		public boolean equals(String source, String target) {
+			return instance.equals(source, target);
+		}
+
+		@Override
+		public int compare(String source, String target) {
+			return instance.compare(source, target);
+		}
 	}
 	
 }
@@ -0,0 +1,351 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.WptPt;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+/**
+ * Compact storage of track points in primitive columns, could be used instead of ArrayList in
+ * {@link GPXUtilities.TrkSegment#points}. Points with names, descriptions, colors or extensions
+ * (except speed and heading which are restored from columns on write) are kept in sparse storage.
+ * Elevation, speed, hdop and heading are stored as floats: values of gpx elements are parsed as floats and
+ * are kept exactly, other values (e.g. set from location or parsed as double from csvattributes of segment)
+ * are rounded to float precision, about 7 significant digits (elevation 1234.56789 is read as 1234.5679).
+ * Latitude, longitude, time and distance are kept exactly.
+ *
+ * {@link #get(int)} creates a detached point, changes of it should be written back with {@link #set(int, WptPt)}.
+ * Analysis, colorization and other bulk consumers should read columns directly.
+ */
+public class TrackPoints extends AbstractList<WptPt> implements RandomAccess {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int size;
+	private double[] lat;
+	private double[] lon;
+	private long[] time;
+	private float[] ele;
+	private float[] speed;
+	private float[] hdop;
+	private float[] heading;
+	private double[] distance;
+	private BitSet firstPoints = new BitSet();
+	private BitSet lastPoints = new BitSet();
+	// original points which have fields not stored in columns
+	private TIntObjectHashMap<WptPt> details = new TIntObjectHashMap<>();
+
+	public TrackPoints() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public TrackPoints(int capacity) {
+		allocate(Math.max(capacity, 1));
+	}
+
+	public TrackPoints(Collection<WptPt> points) {
+		this(points.size());
+		addAll(points);
+	}
+
+	public TrackPoints(TrackPoints points) {
+		this(points.size);
+		size = points.size;
+		System.arraycopy(points.lat, 0, lat, 0, size);
+		System.arraycopy(points.lon, 0, lon, 0, size);
+		System.arraycopy(points.time, 0, time, 0, size);
+		System.arraycopy(points.ele, 0, ele, 0, size);
+		System.arraycopy(points.speed, 0, speed, 0, size);
+		System.arraycopy(points.hdop, 0, hdop, 0, size);
+		System.arraycopy(points.heading, 0, heading, 0, size);
+		System.arraycopy(points.distance, 0, distance, 0, size);
+		firstPoints = (BitSet) points.firstPoints.clone();
+		lastPoints = (BitSet) points.lastPoints.clone();
+		details.putAll(points.details);
+	}
+
+	private void allocate(int capacity) {
+		lat = lat == null ? new double[capacity] : Arrays.copyOf(lat, capacity);
+		lon = lon == null ? new double[capacity] : Arrays.copyOf(lon, capacity);
+		time = time == null ? new long[capacity] : Arrays.copyOf(time, capacity);
+		ele = ele == null ? new float[capacity] : Arrays.copyOf(ele, capacity);
+		speed = speed == null ? new float[capacity] : Arrays.copyOf(speed, capacity);
+		hdop = hdop == null ? new float[capacity] : Arrays.copyOf(hdop, capacity);
+		heading = heading == null ? new float[capacity] : Arrays.copyOf(heading, capacity);
+		distance = distance == null ? new double[capacity] : Arrays.copyOf(distance, capacity);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > lat.length) {
+			allocate(Math.max(capacity, lat.length + (lat.length >> 1)));
+		}
+	}
+
+	public void trimToSize() {
+		if (size < lat.length) {
+			allocate(Math.max(size, 1));
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public WptPt get(int index) {
+		checkIndex(index);
+		WptPt detail = details.get(index);
+		WptPt p;
+		if (detail != null) {
+			p = new WptPt(detail);
+			p.copyExtensions(detail);
+		} else {
+			p = new WptPt();
+		}
+		p.lat = lat[index];
+		p.lon = lon[index];
+		p.time = time[index];
+		p.ele = ele[index];
+		p.speed = speed[index];
+		p.hdop = hdop[index];
+		p.heading = heading[index];
+		p.distance = distance[index];
+		p.firstPoint = firstPoints.get(index);
+		p.lastPoint = lastPoints.get(index);
+		return p;
+	}
+
+	@Override
+	public WptPt set(int index, WptPt p) {
+		WptPt old = get(index);
+		write(index, p);
+		return old;
+	}
+
+	@Override
+	public void add(int index, WptPt p) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		ensureCapacity(size + 1);
+		if (index < size) {
+			move(index, index + 1, size - index);
+		}
+		size++;
+		modCount++;
+		write(index, p);
+	}
+
+	@Override
+	public WptPt remove(int index) {
+		WptPt old = get(index);
+		if (index < size - 1) {
+			move(index + 1, index, size - index - 1);
+		}
+		size--;
+		modCount++;
+		details.remove(size);
+		firstPoints.clear(size);
+		lastPoints.clear(size);
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+		modCount++;
+		details.clear();
+		firstPoints.clear();
+		lastPoints.clear();
+	}
+
+	public double getLatitude(int index) {
+		checkIndex(index);
+		return lat[index];
+	}
+
+	public double getLongitude(int index) {
+		checkIndex(index);
+		return lon[index];
+	}
+
+	public long getTime(int index) {
+		checkIndex(index);
+		return time[index];
+	}
+
+	public double getElevation(int index) {
+		checkIndex(index);
+		return ele[index];
+	}
+
+	public double getSpeed(int index) {
+		checkIndex(index);
+		return speed[index];
+	}
+
+	public double getHdop(int index) {
+		checkIndex(index);
+		return hdop[index];
+	}
+
+	public float getHeading(int index) {
+		checkIndex(index);
+		return heading[index];
+	}
+
+	public double getDistance(int index) {
+		checkIndex(index);
+		return distance[index];
+	}
+
+	public void setDistance(int index, double dist) {
+		checkIndex(index);
+		distance[index] = dist;
+	}
+
+	public boolean isFirstPoint(int index) {
+		checkIndex(index);
+		return firstPoints.get(index);
+	}
+
+	public boolean isLastPoint(int index) {
+		checkIndex(index);
+		return lastPoints.get(index);
+	}
+
+	/**
+	 * @return true if point has fields which are not stored in columns (name, extensions, etc.)
+	 */
+	public boolean hasDetails(int index) {
+		checkIndex(index);
+		return details.containsKey(index);
+	}
+
+	/**
+	 * @return number of points kept in sparse storage
+	 */
+	public int getDetailsCount() {
+		return details.size();
+	}
+
+	public static double getLatitude(List<WptPt> points, int index) {
+		return points instanceof TrackPoints ? ((TrackPoints) points).getLatitude(index) : points.get(index).lat;
+	}
+
+	public static double getLongitude(List<WptPt> points, int index) {
+		return points instanceof TrackPoints ? ((TrackPoints) points).getLongitude(index) : points.get(index).lon;
+	}
+
+	public static long getTime(List<WptPt> points, int index) {
+		return points instanceof TrackPoints ? ((TrackPoints) points).getTime(index) : points.get(index).time;
+	}
+
+	public static double getElevation(List<WptPt> points, int index) {
+		return points instanceof TrackPoints ? ((TrackPoints) points).getElevation(index) : points.get(index).ele;
+	}
+
+	public static double getSpeed(List<WptPt> points, int index) {
+		return points instanceof TrackPoints ? ((TrackPoints) points).getSpeed(index) : points.get(index).speed;
+	}
+
+	public static boolean isFirstPoint(List<WptPt> points, int index) {
+		return points instanceof TrackPoints ? ((TrackPoints) points).isFirstPoint(index) : points.get(index).firstPoint;
+	}
+
+	public static void setDistance(List<WptPt> points, int index, double distance) {
+		if (points instanceof TrackPoints) {
+			((TrackPoints) points).setDistance(index, distance);
+		} else {
+			points.get(index).distance = distance;
+		}
+	}
+
+	private void write(int index, WptPt p) {
+		lat[index] = p.lat;
+		lon[index] = p.lon;
+		time[index] = p.time;
+		ele[index] = (float) p.ele;
+		speed[index] = (float) p.speed;
+		hdop[index] = (float) p.hdop;
+		heading[index] = p.heading;
+		distance[index] = p.distance;
+		firstPoints.set(index, p.firstPoint);
+		lastPoints.set(index, p.lastPoint);
+		if (hasDetails(p)) {
+			details.put(index, p);
+		} else {
+			details.remove(index);
+		}
+	}
+
+	static boolean hasDetails(WptPt p) {
+		if (p.name != null || p.link != null || p.category != null || p.desc != null || p.comment != null
+				|| p.deleted || p.speedColor != 0 || p.altitudeColor != 0 || p.slopeColor != 0 || p.colourARGB != 0
+				|| p.getExtensionsWriter() != null) {
+			return true;
+		}
+		for (String key : p.getExtensionsToRead().keySet()) {
+			// speed is written from column only if it is positive, otherwise extension (like 0) is kept
+			if (!("speed".equals(key) && p.speed > 0) && !"heading".equals(key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// shifts points by one position for insert or remove
+	private void move(int from, int to, int length) {
+		System.arraycopy(lat, from, lat, to, length);
+		System.arraycopy(lon, from, lon, to, length);
+		System.arraycopy(time, from, time, to, length);
+		System.arraycopy(ele, from, ele, to, length);
+		System.arraycopy(speed, from, speed, to, length);
+		System.arraycopy(hdop, from, hdop, to, length);
+		System.arraycopy(heading, from, heading, to, length);
+		System.arraycopy(distance, from, distance, to, length);
+		moveBits(firstPoints, from, to, length);
+		moveBits(lastPoints, from, to, length);
+		if (!details.isEmpty()) {
+			TIntObjectHashMap<WptPt> moved = new TIntObjectHashMap<>(details.size());
+			TIntObjectIterator<WptPt> it = details.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				int ind = it.key();
+				if (ind >= from && ind < from + length) {
+					ind += to - from;
+				} else if (ind == to) {
+					// removed point
+					continue;
+				}
+				moved.put(ind, it.value());
+			}
+			details = moved;
+		}
+	}
+
+	private static void moveBits(BitSet bits, int from, int to, int length) {
+		if (bits.isEmpty()) {
+			return;
+		}
+		BitSet moved = bits.get(from, from + length);
+		bits.clear(Math.min(from, to), Math.max(from, to) + length);
+		for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+			bits.set(to + i);
+		}
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
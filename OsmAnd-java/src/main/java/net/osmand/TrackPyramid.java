@@ -0,0 +1,332 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.Elevation;
+import net.osmand.util.Algorithms;
+import net.osmand.util.MapUtils;
+
+import org.apache.commons.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Levels of detail of track (or elevation profile) computed once by Douglas-Peucker: every point gets importance,
+ * the largest tolerance it's kept with, and points form a tree of intervals splits. Points simplified with any
+ * tolerance (the same as {@link net.osmand.osm.edit.OsmMapUtils#simplifyDouglasPeucker(List, int, int, List, double)})
+ * or limited number of the most important points are extracted in time of the result size.
+ *
+ * Collinear parts (where all distances are 0) are not split, so tolerance should not be negative.
+ */
+public class TrackPyramid {
+
+	public static final String CACHE_FILE_EXT = ".lod";
+
+	private static final int CACHE_VERSION = 1;
+	private static final Log log = PlatformUtil.getLog(TrackPyramid.class);
+
+	private final int size;
+	private int root = -1;
+	// children of split point in tree, -1 if interval is not split
+	private final int[] left;
+	private final int[] right;
+	private final double[] importance;
+
+	private TrackPyramid(int size) {
+		this.size = size;
+		left = new int[size];
+		right = new int[size];
+		importance = new double[size];
+		Arrays.fill(left, -1);
+		Arrays.fill(right, -1);
+	}
+
+	/**
+	 * Importance is orthogonal distance to simplified line in meters
+	 */
+	public static TrackPyramid forGeometry(final double[] latitudes, final double[] longitudes) {
+		TrackPyramid pyramid = new TrackPyramid(latitudes.length);
+		pyramid.build(new DistanceMetric() {
+			@Override
+			public double getDistance(int point, int start, int end) {
+				return MapUtils.getOrthogonalDistance(latitudes[point], longitudes[point],
+						latitudes[start], longitudes[start], latitudes[end], longitudes[end]);
+			}
+		});
+		return pyramid;
+	}
+
+	/**
+	 * Importance is vertical distance to simplified profile (e.g. elevation in meters)
+	 *
+	 * @param x increasing values (distance or time)
+	 */
+	public static TrackPyramid forProfile(final double[] x, final double[] y) {
+		TrackPyramid pyramid = new TrackPyramid(x.length);
+		pyramid.build(new DistanceMetric() {
+			@Override
+			public double getDistance(int point, int start, int end) {
+				double dx = x[end] - x[start];
+				double value = dx > 0 ? y[start] + (y[end] - y[start]) * (x[point] - x[start]) / dx : y[start];
+				return Math.abs(y[point] - value);
+			}
+		});
+		return pyramid;
+	}
+
+	/**
+	 * Missing elevations are taken from neighbour points
+	 */
+	public static TrackPyramid forElevationData(List<Elevation> elevationData) {
+		int size = elevationData.size();
+		double[] x = new double[size];
+		double[] y = new double[size];
+		double distance = 0;
+		double elevation = Double.NaN;
+		for (int i = 0; i < size; i++) {
+			Elevation e = elevationData.get(i);
+			distance += e.distance;
+			x[i] = distance;
+			if (!Float.isNaN(e.elevation)) {
+				if (Double.isNaN(elevation)) {
+					Arrays.fill(y, 0, i, e.elevation);
+				}
+				elevation = e.elevation;
+			}
+			y[i] = Double.isNaN(elevation) ? 0 : elevation;
+		}
+		return forProfile(x, y);
+	}
+
+	private interface DistanceMetric {
+		double getDistance(int point, int start, int end);
+	}
+
+	private void build(DistanceMetric metric) {
+		if (size < 3) {
+			return;
+		}
+		// intervals to split: start, end, split point of parent interval (negative for left child)
+		TIntArrayList intervals = new TIntArrayList();
+		intervals.add(0);
+		intervals.add(size - 1);
+		intervals.add(Integer.MIN_VALUE);
+		while (!intervals.isEmpty()) {
+			int last = intervals.size();
+			int start = intervals.get(last - 3);
+			int end = intervals.get(last - 2);
+			int parent = intervals.get(last - 1);
+			intervals.remove(last - 3, 3);
+
+			double dmax = Double.NEGATIVE_INFINITY;
+			int index = -1;
+			for (int i = start + 1; i < end; i++) {
+				double d = metric.getDistance(i, start, end);
+				if (d > dmax) {
+					dmax = d;
+					index = i;
+				}
+			}
+			if (index == -1 || !(dmax > 0)) {
+				continue;
+			}
+			if (parent == Integer.MIN_VALUE) {
+				root = index;
+				importance[index] = dmax;
+			} else if (parent < 0) {
+				left[-parent - 1] = index;
+				importance[index] = Math.min(dmax, importance[-parent - 1]);
+			} else {
+				right[parent - 1] = index;
+				importance[index] = Math.min(dmax, importance[parent - 1]);
+			}
+			intervals.add(start);
+			intervals.add(index);
+			intervals.add(-index - 1);
+			intervals.add(index);
+			intervals.add(end);
+			intervals.add(index + 1);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return largest tolerance point is kept with (first and last points are always kept)
+	 */
+	public double getImportance(int index) {
+		return index == 0 || index == size - 1 ? Double.POSITIVE_INFINITY : importance[index];
+	}
+
+	/**
+	 * @return sorted indexes of points kept with tolerance including first and last
+	 */
+	public int[] getIndexes(double tolerance) {
+		TIntArrayList res = new TIntArrayList();
+		if (size == 0) {
+			return res.toArray();
+		}
+		res.add(0);
+		TIntArrayList stack = new TIntArrayList();
+		int node = root;
+		while (isKept(node, tolerance) || !stack.isEmpty()) {
+			while (isKept(node, tolerance)) {
+				stack.add(node);
+				node = left[node];
+			}
+			node = stack.removeAt(stack.size() - 1);
+			res.add(node);
+			node = right[node];
+		}
+		if (size > 1) {
+			res.add(size - 1);
+		}
+		return res.toArray();
+	}
+
+	private boolean isKept(int node, double tolerance) {
+		return node != -1 && importance[node] > tolerance;
+	}
+
+	/**
+	 * @return sorted indexes of the most important points including first and last
+	 */
+	public int[] getIndexes(int maxPoints) {
+		TIntArrayList res = new TIntArrayList();
+		if (size == 0 || maxPoints <= 0) {
+			return res.toArray();
+		}
+		res.add(0);
+		if (size > 1 && maxPoints > 1) {
+			res.add(size - 1);
+		}
+		PriorityQueue<Integer> queue = new PriorityQueue<>(16, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(importance[o2], importance[o1]);
+			}
+		});
+		if (root != -1) {
+			queue.add(root);
+		}
+		while (res.size() < maxPoints && !queue.isEmpty()) {
+			int node = queue.poll();
+			res.add(node);
+			if (left[node] != -1) {
+				queue.add(left[node]);
+			}
+			if (right[node] != -1) {
+				queue.add(right[node]);
+			}
+		}
+		res.sort();
+		return res.toArray();
+	}
+
+	/**
+	 * Keeps the most important entries of elevation data and first/last points of segments, distance and time
+	 * of removed entries are added to the next kept entry.
+	 */
+	public static List<Elevation> simplifyElevationData(List<Elevation> elevationData, int maxPoints) {
+		if (elevationData.size() <= maxPoints) {
+			return elevationData;
+		}
+		TrackPyramid pyramid = forElevationData(elevationData);
+		boolean[] kept = new boolean[elevationData.size()];
+		for (int ind : pyramid.getIndexes(maxPoints)) {
+			kept[ind] = true;
+		}
+		List<Elevation> res = new ArrayList<>();
+		float distance = 0;
+		int time = 0;
+		for (int i = 0; i < elevationData.size(); i++) {
+			Elevation e = elevationData.get(i);
+			distance += e.distance;
+			time += e.time;
+			if (kept[i] || e.firstPoint || e.lastPoint) {
+				Elevation r = new Elevation();
+				r.elevation = e.elevation;
+				r.distance = distance;
+				r.time = time;
+				r.firstPoint = e.firstPoint;
+				r.lastPoint = e.lastPoint;
+				res.add(r);
+				distance = 0;
+				time = 0;
+			}
+		}
+		return res;
+	}
+
+	public static File getCacheFile(File gpxFile) {
+		return new File(gpxFile.getParentFile(), gpxFile.getName() + CACHE_FILE_EXT);
+	}
+
+	/**
+	 * @param sourceModified modification time of data pyramid is built for (e.g. gpx file)
+	 */
+	public boolean writeToFile(File file, long sourceModified) {
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out.writeInt(CACHE_VERSION);
+			out.writeLong(sourceModified);
+			out.writeInt(size);
+			out.writeInt(root);
+			for (int i = 0; i < size; i++) {
+				out.writeInt(left[i]);
+				out.writeInt(right[i]);
+				out.writeDouble(importance[i]);
+			}
+			return true;
+		} catch (IOException e) {
+			log.error("Error writing " + file.getName(), e);
+			return false;
+		} finally {
+			Algorithms.closeStream(out);
+		}
+	}
+
+	/**
+	 * @return null if file doesn't exist or it's built for another version of data
+	 */
+	public static TrackPyramid readFromFile(File file, long sourceModified, int size) {
+		if (!file.exists()) {
+			return null;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() != CACHE_VERSION || in.readLong() != sourceModified || in.readInt() != size) {
+				return null;
+			}
+			TrackPyramid pyramid = new TrackPyramid(size);
+			pyramid.root = in.readInt();
+			for (int i = 0; i < size; i++) {
+				pyramid.left[i] = in.readInt();
+				pyramid.right[i] = in.readInt();
+				pyramid.importance[i] = in.readDouble();
+			}
+			return pyramid;
+		} catch (IOException e) {
+			log.error("Error reading " + file.getName(), e);
+			return null;
+		} finally {
+			Algorithms.closeStream(in);
+		}
+	}
+}
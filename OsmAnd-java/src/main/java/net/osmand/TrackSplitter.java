@@ -0,0 +1,297 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.SplitSegment;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits track segment by distance or time intervals. Cumulative distance and time of points are computed
+ * once, so borders of splits for any interval are found by binary search and distance and time of splits
+ * are taken from the cumulative arrays. Splits of recently used intervals are cached, so switching back to
+ * interval takes no time. Splits keep only their borders, full {@link GPXTrackAnalysis} with data of points
+ * is calculated on request and is not kept by splitter.
+ *
+ * Points appended to segment (recorded track) are added to cumulative arrays on {@link #update()}, if points
+ * were removed or replaced, arrays are rebuilt, changes of indexed points are not detected.
+ */
+public class TrackSplitter {
+
+	public static final int MAX_CACHED_INTERVALS = 4;
+
+	private final TrkSegment segment;
+	// distance and time between points of different segments of general segment are not counted
+	private final boolean skipGaps;
+	private final float[] calculations = new float[1];
+
+	private List<WptPt> points;
+	private int size;
+	// meters and seconds from the first point
+	private double[] distances = new double[0];
+	private int[] times = new int[0];
+
+	private final Map<String, List<Split>> cachedSplits = new LinkedHashMap<String, List<Split>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, List<Split>> eldest) {
+			return size() > MAX_CACHED_INTERVALS;
+		}
+	};
+
+	public TrackSplitter(TrkSegment segment, boolean joinSegments) {
+		this.segment = segment;
+		this.skipGaps = segment.generalSegment && !joinSegments;
+		update();
+	}
+
+	public TrkSegment getSegment() {
+		return segment;
+	}
+
+	public boolean isJoinSegments() {
+		return !skipGaps;
+	}
+
+	/**
+	 * Adds points appended since previous call to cumulative distance and time.
+	 */
+	public synchronized void update() {
+		List<WptPt> points = segment.points;
+		int newSize = points.size();
+		if (points != this.points || newSize < size) {
+			this.points = points;
+			size = 0;
+			cachedSplits.clear();
+		}
+		if (size == newSize) {
+			return;
+		}
+		if (distances.length < newSize) {
+			int capacity = Math.max(newSize, distances.length + (distances.length >> 1));
+			distances = Arrays.copyOf(distances, capacity);
+			times = Arrays.copyOf(times, capacity);
+		}
+		for (int i = size; i < newSize; i++) {
+			if (i == 0) {
+				distances[i] = 0;
+				times[i] = 0;
+			} else {
+				distances[i] = distances[i - 1] + getStep(i, false);
+				times[i] = times[i - 1] + (int) getStep(i, true);
+			}
+		}
+		size = newSize;
+		cachedSplits.clear();
+	}
+
+	// the same metrics were calculated from points of split segments
+	private double getStep(int i, boolean time) {
+		if (skipGaps && TrackPoints.isFirstPoint(points, i)) {
+			return 0;
+		}
+		if (time) {
+			long t1 = TrackPoints.getTime(points, i - 1);
+			long t2 = TrackPoints.getTime(points, i);
+			if (t1 != 0 && t2 != 0) {
+				return (int) Math.abs((t2 - t1) / 1000L);
+			}
+			return 0;
+		}
+		Location.distanceBetween(TrackPoints.getLatitude(points, i - 1), TrackPoints.getLongitude(points, i - 1),
+				TrackPoints.getLatitude(points, i), TrackPoints.getLongitude(points, i), calculations);
+		return calculations[0];
+	}
+
+	public synchronized int getPointsCount() {
+		return size;
+	}
+
+	/**
+	 * @return meters from the first point to point
+	 */
+	public synchronized double getDistance(int index) {
+		checkIndex(index);
+		return distances[index];
+	}
+
+	/**
+	 * @return seconds from the first point to point (time between points with unknown time is not counted)
+	 */
+	public synchronized double getTime(int index) {
+		checkIndex(index);
+		return times[index];
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	public List<Split> splitByDistance(double meters) {
+		return split(false, meters);
+	}
+
+	public List<Split> splitByTime(int seconds) {
+		return split(true, seconds);
+	}
+
+	private synchronized List<Split> split(boolean byTime, double interval) {
+		String key = (byTime ? "t" : "d") + interval;
+		List<Split> splits = cachedSplits.get(key);
+		if (splits == null) {
+			splits = calculateSplits(byTime, interval);
+			cachedSplits.put(key, splits);
+		}
+		return splits;
+	}
+
+	private List<Split> calculateSplits(boolean byTime, double interval) {
+		List<Split> splits = new ArrayList<>();
+		if (size == 0) {
+			return Collections.unmodifiableList(splits);
+		}
+		double total = getMetric(byTime, size - 1);
+		int startIndex = 0;
+		double startCoeff = 0;
+		int index = 1;
+		for (double metricEnd = interval; interval > 0 && metricEnd < total; metricEnd += interval) {
+			index = findFirstGreater(byTime, index, metricEnd);
+			double coeff = (metricEnd - getMetric(byTime, index - 1)) / getStep(index, byTime);
+			splits.add(new Split(startIndex, startCoeff, index - 1, coeff, metricEnd, getMetric(!byTime, index)));
+			startIndex = index - 1;
+			startCoeff = coeff;
+		}
+		splits.add(new Split(startIndex, startCoeff, size - 2, 1, total, getMetric(!byTime, size - 1)));
+		return Collections.unmodifiableList(splits);
+	}
+
+	private double getMetric(boolean byTime, int index) {
+		return byTime ? times[index] : distances[index];
+	}
+
+	// values are not decreasing and the last value is greater than searched value
+	private int findFirstGreater(boolean byTime, int from, double value) {
+		int low = from;
+		int high = size - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getMetric(byTime, mid) > value) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	private double getValue(boolean byTime, int index, double coeff) {
+		if (coeff == 0) {
+			return getMetric(byTime, index);
+		} else if (coeff == 1) {
+			return getMetric(byTime, index + 1);
+		}
+		double value = getMetric(byTime, index);
+		return value + coeff * (getMetric(byTime, index + 1) - value);
+	}
+
+	/**
+	 * @return analyses of splits, they are calculated on every call
+	 */
+	public static List<GPXTrackAnalysis> getAnalyses(List<Split> splits) {
+		List<GPXTrackAnalysis> analyses = new ArrayList<>(splits.size());
+		for (Split split : splits) {
+			analyses.add(split.calculateAnalysis());
+		}
+		return analyses;
+	}
+
+	/**
+	 * Part of segment from start point (or point between start and next point by start coefficient)
+	 * to point between end and next point by end coefficient.
+	 */
+	public class Split {
+
+		private final int startIndex;
+		private final double startCoeff;
+		private final int endIndex;
+		private final double endCoeff;
+		private final double metricEnd;
+		private final double secondaryMetricEnd;
+
+		private Split(int startIndex, double startCoeff, int endIndex, double endCoeff,
+		              double metricEnd, double secondaryMetricEnd) {
+			this.startIndex = startIndex;
+			this.startCoeff = startCoeff;
+			this.endIndex = endIndex;
+			this.endCoeff = endCoeff;
+			this.metricEnd = metricEnd;
+			this.secondaryMetricEnd = secondaryMetricEnd;
+		}
+
+		public int getStartIndex() {
+			return startIndex;
+		}
+
+		public double getStartCoeff() {
+			return startCoeff;
+		}
+
+		public int getEndIndex() {
+			return endIndex;
+		}
+
+		public double getEndCoeff() {
+			return endCoeff;
+		}
+
+		/**
+		 * @return distance or time (seconds) from the first point to the end of split by split metric
+		 */
+		public double getMetricEnd() {
+			return metricEnd;
+		}
+
+		/**
+		 * @return time (seconds) or distance from the first point to the point after end of split
+		 */
+		public double getSecondaryMetricEnd() {
+			return secondaryMetricEnd;
+		}
+
+		/**
+		 * @return meters between start and end of split
+		 */
+		public double getDistance() {
+			synchronized (TrackSplitter.this) {
+				return getValue(false, endIndex, endCoeff) - getValue(false, startIndex, startCoeff);
+			}
+		}
+
+		/**
+		 * @return seconds between start and end of split
+		 */
+		public double getTime() {
+			synchronized (TrackSplitter.this) {
+				return getValue(true, endIndex, endCoeff) - getValue(true, startIndex, startCoeff);
+			}
+		}
+
+		/**
+		 * @return new analysis of split points, it's not cached as it keeps data of every point
+		 */
+		public GPXTrackAnalysis calculateAnalysis() {
+			SplitSegment splitSegment = new SplitSegment(segment, startIndex, startCoeff);
+			splitSegment.setLastPoint(endIndex, endCoeff);
+			splitSegment.metricEnd = metricEnd;
+			splitSegment.secondaryMetricEnd = secondaryMetricEnd;
+			return new GPXTrackAnalysis().prepareInformation(0, splitSegment);
+		}
+	}
+}
@@ -0,0 +1,396 @@
+package net.osmand.binary;
+
+import com.google.protobuf.CodedInputStream;
+
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapTransportReaderAdapter.TransportIndex;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects disk I/O of binary map readers: seeks, buffer refills, bytes and time
+ * per file and per section of the file. Sections are recognized by file offsets of indexes,
+ * so no changes are needed in reader adapters.
+ * <p>
+ * Every n-th search request of a reader (see {@link #setTraceSampling(int)}) is traced separately
+ * and passed to {@link IOStatsListener}s when it is finished.
+ */
+public class BinaryIndexIOStats {
+
+	public enum IOSection {
+		// file header and anything outside of known indexes
+		HEADER,
+		MAP,
+		POI,
+		ROUTE,
+		ADDRESS,
+		TRANSPORT
+	}
+
+	public interface IOStatsListener {
+
+		void onRequestTrace(RequestTrace trace);
+	}
+
+	public static class IOCounters {
+		long seeks;
+		long bufferedSeeks;
+		long refills;
+		long bytes;
+		long nanos;
+
+		public long getSeeks() {
+			return seeks;
+		}
+
+		/**
+		 * Seeks satisfied by the current buffer without file access
+		 */
+		public long getBufferedSeeks() {
+			return bufferedSeeks;
+		}
+
+		public long getRefills() {
+			return refills;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public boolean isEmpty() {
+			return seeks == 0 && bufferedSeeks == 0 && refills == 0;
+		}
+
+		void add(IOCounters c) {
+			seeks += c.seeks;
+			bufferedSeeks += c.bufferedSeeks;
+			refills += c.refills;
+			bytes += c.bytes;
+			nanos += c.nanos;
+		}
+
+		IOCounters copy() {
+			IOCounters c = new IOCounters();
+			c.add(this);
+			return c;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("seeks %d (buffered %d), reads %d, %.1f KB, %.2f ms", seeks, bufferedSeeks, refills,
+					bytes / 1024f, nanos / 1e6f);
+		}
+	}
+
+	private static class SectionCounters {
+		final Map<IOSection, IOCounters> sections = new EnumMap<>(IOSection.class);
+
+		IOCounters get(IOSection section) {
+			IOCounters c = sections.get(section);
+			if (c == null) {
+				c = new IOCounters();
+				sections.put(section, c);
+			}
+			return c;
+		}
+
+		Map<IOSection, IOCounters> copySections() {
+			Map<IOSection, IOCounters> res = new EnumMap<>(IOSection.class);
+			for (Map.Entry<IOSection, IOCounters> e : sections.entrySet()) {
+				res.put(e.getKey(), e.getValue().copy());
+			}
+			return res;
+		}
+
+		static IOCounters total(Map<IOSection, IOCounters> sections) {
+			IOCounters total = new IOCounters();
+			for (IOCounters c : sections.values()) {
+				total.add(c);
+			}
+			return total;
+		}
+	}
+
+	/**
+	 * Snapshot of counters of one file.
+	 */
+	public static class FileIOStats {
+		private final String fileName;
+		private final Map<IOSection, IOCounters> sections;
+
+		FileIOStats(String fileName, Map<IOSection, IOCounters> sections) {
+			this.fileName = fileName;
+			this.sections = sections;
+		}
+
+		public String getFileName() {
+			return fileName;
+		}
+
+		public Map<IOSection, IOCounters> getSections() {
+			return sections;
+		}
+
+		public IOCounters getTotal() {
+			return SectionCounters.total(sections);
+		}
+
+		@Override
+		public String toString() {
+			return fileName + ": " + getTotal() + " " + sections;
+		}
+	}
+
+	public static class RequestTrace {
+		private final String fileName;
+		private final String request;
+		private final long startTime;
+		private final long startNanos;
+		private long durationNanos;
+		private final SectionCounters counters = new SectionCounters();
+
+		RequestTrace(String fileName, String request) {
+			this.fileName = fileName;
+			this.request = request;
+			this.startTime = System.currentTimeMillis();
+			this.startNanos = System.nanoTime();
+		}
+
+		public String getFileName() {
+			return fileName;
+		}
+
+		public String getRequest() {
+			return request;
+		}
+
+		public long getStartTime() {
+			return startTime;
+		}
+
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		public Map<IOSection, IOCounters> getSections() {
+			return counters.sections;
+		}
+
+		public IOCounters getTotal() {
+			return SectionCounters.total(counters.sections);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %s %.2f ms: %s %s", fileName, request, durationNanos / 1e6f, getTotal(),
+					counters.sections);
+		}
+	}
+
+	private final Map<String, SectionCounters> files = new LinkedHashMap<>();
+	private final List<IOStatsListener> listeners = new CopyOnWriteArrayList<>();
+	private final AtomicInteger requests = new AtomicInteger();
+	private volatile int traceSampling = 0;
+
+	public void addListener(IOStatsListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(IOStatsListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @param everyNthRequest trace every n-th search request, 0 switches tracing off
+	 */
+	public void setTraceSampling(int everyNthRequest) {
+		this.traceSampling = Math.max(0, everyNthRequest);
+	}
+
+	public int getTraceSampling() {
+		return traceSampling;
+	}
+
+	public synchronized List<FileIOStats> getFileStats() {
+		List<FileIOStats> res = new ArrayList<>();
+		for (Map.Entry<String, SectionCounters> e : files.entrySet()) {
+			res.add(new FileIOStats(e.getKey(), e.getValue().copySections()));
+		}
+		return res;
+	}
+
+	public synchronized FileIOStats getFileStats(String fileName) {
+		SectionCounters c = files.get(fileName);
+		return c == null ? null : new FileIOStats(fileName, c.copySections());
+	}
+
+	public synchronized Map<IOSection, IOCounters> getSectionTotals() {
+		Map<IOSection, IOCounters> res = new EnumMap<>(IOSection.class);
+		for (SectionCounters c : files.values()) {
+			for (Map.Entry<IOSection, IOCounters> e : c.sections.entrySet()) {
+				IOCounters total = res.get(e.getKey());
+				if (total == null) {
+					total = new IOCounters();
+					res.put(e.getKey(), total);
+				}
+				total.add(e.getValue());
+			}
+		}
+		return res;
+	}
+
+	public synchronized void reset() {
+		files.clear();
+	}
+
+	ReaderIOListener createListener(BinaryMapIndexReader reader) {
+		return new ReaderIOListener(this, reader);
+	}
+
+	private synchronized void record(String fileName, IOSection section, boolean seek, boolean buffered, int bytes,
+			long nanos) {
+		SectionCounters c = files.get(fileName);
+		if (c == null) {
+			c = new SectionCounters();
+			files.put(fileName, c);
+		}
+		count(c.get(section), seek, buffered, bytes, nanos);
+	}
+
+	private static void count(IOCounters c, boolean seek, boolean buffered, int bytes, long nanos) {
+		if (!seek) {
+			c.refills++;
+			c.bytes += bytes;
+			c.nanos += nanos;
+		} else if (buffered) {
+			c.bufferedSeeks++;
+		} else {
+			c.seeks++;
+		}
+	}
+
+	/**
+	 * Listener of one reader. Reader is used by a single thread at a time, so only shared stats are synchronized.
+	 */
+	static class ReaderIOListener implements CodedInputStream.ReadListener {
+		private final BinaryIndexIOStats stats;
+		private final BinaryMapIndexReader reader;
+		private final String fileName;
+		private int partsCount = -1;
+		private int[] sectionStart = new int[0];
+		private int[] sectionEnd = new int[0];
+		private IOSection[] sectionType = new IOSection[0];
+		private RequestTrace trace;
+		private int traceDepth;
+
+		ReaderIOListener(BinaryIndexIOStats stats, BinaryMapIndexReader reader) {
+			this.stats = stats;
+			this.reader = reader;
+			this.fileName = reader.getFile() == null ? "" : reader.getFile().getName();
+		}
+
+		BinaryIndexIOStats getStats() {
+			return stats;
+		}
+
+		@Override
+		public void onSeek(long position, boolean inBuffer) {
+			onEvent(position, true, inBuffer, 0, 0);
+		}
+
+		@Override
+		public void onRead(long position, int bytes, long nanos) {
+			onEvent(position, false, false, bytes, nanos);
+		}
+
+		private void onEvent(long position, boolean seek, boolean buffered, int bytes, long nanos) {
+			IOSection section = getSection(position);
+			stats.record(fileName, section, seek, buffered, bytes, nanos);
+			if (trace != null) {
+				count(trace.counters.get(section), seek, buffered, bytes, nanos);
+			}
+		}
+
+		void startTrace(String request) {
+			if (traceDepth++ > 0) {
+				return;
+			}
+			int sampling = stats.traceSampling;
+			if (sampling > 0 && stats.requests.incrementAndGet() % sampling == 0) {
+				trace = new RequestTrace(fileName, request);
+			}
+		}
+
+		void finishTrace() {
+			if (traceDepth == 0 || --traceDepth > 0) {
+				return;
+			}
+			RequestTrace t = trace;
+			trace = null;
+			if (t != null) {
+				t.durationNanos = System.nanoTime() - t.startNanos;
+				for (IOStatsListener l : stats.listeners) {
+					l.onRequestTrace(t);
+				}
+			}
+		}
+
+		private IOSection getSection(long position) {
+			updateSections();
+			for (int i = 0; i < sectionStart.length; i++) {
+				if (position >= sectionStart[i] && position < sectionEnd[i]) {
+					return sectionType[i];
+				}
+			}
+			return IOSection.HEADER;
+		}
+
+		private void updateSections() {
+			int count = reader.mapIndexes.size() + reader.poiIndexes.size() + reader.routingIndexes.size()
+					+ reader.addressIndexes.size() + reader.transportIndexes.size();
+			if (count == partsCount) {
+				return;
+			}
+			partsCount = count;
+			sectionStart = new int[count];
+			sectionEnd = new int[count];
+			sectionType = new IOSection[count];
+			int i = 0;
+			for (MapIndex p : reader.mapIndexes) {
+				setSection(i++, p, IOSection.MAP);
+			}
+			for (PoiRegion p : reader.poiIndexes) {
+				setSection(i++, p, IOSection.POI);
+			}
+			for (RouteRegion p : reader.routingIndexes) {
+				setSection(i++, p, IOSection.ROUTE);
+			}
+			for (AddressRegion p : reader.addressIndexes) {
+				setSection(i++, p, IOSection.ADDRESS);
+			}
+			for (TransportIndex p : reader.transportIndexes) {
+				setSection(i++, p, IOSection.TRANSPORT);
+			}
+		}
+
+		private void setSection(int i, BinaryIndexPart part, IOSection type) {
+			sectionStart[i] = part.getFilePointer();
+			sectionEnd[i] = part.getFilePointer() + part.getLength();
+			sectionType[i] = type;
+		}
+	}
+}
@@ -51,6 +51,8 @@ public class BinaryMapAddressReaderAdapter {
 	public static class AddressRegion extends BinaryIndexPart {
 		String enName;
 		int indexNameOffset = -1;
+		// in-memory copy of name index table, see BinaryMapIndexReader.buildNamePrefixIndexes
+		NamePrefixIndex namePrefixIndex;
 		List<String> attributeTagsTable = new ArrayList<String>();
 		List<CitiesBlock> cities = new ArrayList<BinaryMapAddressReaderAdapter.CitiesBlock>();
 
@@ -630,7 +632,13 @@ public class BinaryMapAddressReaderAdapter {
 				// here offsets are sorted by distance
 				TIntArrayList charsList = new TIntArrayList();
 				charsList.add(0);
-				map.readIndexedStringTable(stringMatcher.getCollator(), Collections.singletonList(req.nameQuery), "", Collections.singletonList(loffsets), charsList);
+				if (reg.namePrefixIndex != null) {
+					reg.namePrefixIndex.search(stringMatcher.getCollator(), Collections.singletonList(req.nameQuery),
+							Collections.singletonList(loffsets), charsList);
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				} else {
+					map.readIndexedStringTable(stringMatcher.getCollator(), Collections.singletonList(req.nameQuery), "", Collections.singletonList(loffsets), charsList);
+				}
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmAndAddressNameIndexData.ATOM_FIELD_NUMBER:
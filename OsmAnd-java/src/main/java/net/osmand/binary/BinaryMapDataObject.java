@@ -25,6 +25,8 @@ public class BinaryMapDataObject {
 	
 	protected TIntObjectHashMap<String> objectNames = null;
 	protected TIntArrayList namesOrder = null;
+	// streaming search: names keep string table indexes until they are requested
+	protected BinaryMapIndexReader.LazyStringTable stringTable = null;
 	protected long id = 0;
 	
 	protected MapIndex mapIndex = null;
@@ -50,10 +52,23 @@ public class BinaryMapDataObject {
 	}
 	
 	
+	protected void resolveNames() {
+		if (stringTable != null) {
+			if (objectNames != null) {
+				int[] keys = objectNames.keys();
+				for (int j = 0; j < keys.length; j++) {
+					objectNames.put(keys[j], stringTable.get(objectNames.get(keys[j]).charAt(0)));
+				}
+			}
+			stringTable = null;
+		}
+	}
+
 	public String getName() {
 		if(objectNames == null){
 			return "";
 		}
+		resolveNames();
 		String name = objectNames.get(mapIndex.nameEncodingType);
 		if(name == null){
 			return "";
@@ -62,6 +77,7 @@ public class BinaryMapDataObject {
 	}
 
 	public TIntObjectHashMap<String> getObjectNames() {
+		resolveNames();
 		return objectNames;
 	}
 	
@@ -69,6 +85,7 @@ public class BinaryMapDataObject {
 		if (namesOrder == null) {
 			return null;
 		}
+		resolveNames();
 		LinkedHashMap<Integer, String> lm = new LinkedHashMap<Integer, String> ();
 		for (int i = 0; i < namesOrder.size(); i++) {
 			int nm = namesOrder.get(i);
@@ -78,6 +95,7 @@ public class BinaryMapDataObject {
 	}
 	
 	public void putObjectName(int type, String name){
+		resolveNames();
 		if(objectNames == null){
 			objectNames = new TIntObjectHashMap<String>();
 			namesOrder = new TIntArrayList();
@@ -118,6 +136,7 @@ public class BinaryMapDataObject {
 	
 	public String getNameByType(int type) {
 		if(type != -1 && objectNames != null) {
+			resolveNames();
 			return objectNames.get(type);
 		}
 		return null;
@@ -271,6 +290,8 @@ public class BinaryMapDataObject {
 			}
 			if (equals) {
 				// here we know that name indexes are equal & it is enough to check the value sets
+				resolveNames();
+				thatObj.resolveNames();
 				if (objectNames == null || thatObj.objectNames == null) {
 					equals = objectNames == thatObj.objectNames;
 				} else if (objectNames.size() != thatObj.objectNames.size()) {
@@ -401,7 +422,7 @@ public class BinaryMapDataObject {
 		if (mapIndex == null) {
 			return "";
 		}
-		TIntObjectIterator<String> it = objectNames.iterator();
+		TIntObjectIterator<String> it = getObjectNames().iterator();
 		while (it.hasNext()) {
 			it.advance();
 			BinaryMapIndexReader.TagValuePair tp = mapIndex.decodeType(it.key());
@@ -55,12 +55,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -88,6 +91,10 @@ public class BinaryMapIndexReader {
 	public static final int LABEL_ZOOM_ENCODE = 31 - SHIFT_COORDINATES;
 	private final static Log log = PlatformUtil.getLog(BinaryMapIndexReader.class);
 	public static boolean READ_STATS = false;
+	// switch off only to compare with per-value decoding (see testCoordinatesDecoding)
+	public static boolean BULK_COORDINATES_DECODING = true;
+	// when set, I/O of every newly opened reader is collected (see setIOStats)
+	public static BinaryIndexIOStats IO_STATS = null;
 	public static final SearchPoiTypeFilter ACCEPT_ALL_POI_TYPE_FILTER = new SearchPoiTypeFilter() {
 		@Override
 		public boolean isEmpty() {
@@ -115,7 +122,9 @@ public class BinaryMapIndexReader {
 	/*private*/ List<BinaryIndexPart> indexes = new ArrayList<BinaryIndexPart>();
 	TLongObjectHashMap<IncompleteTransportRoute> incompleteTransportRoutes = null;
 	
+	// search entry points are synchronized, so one reader can be shared by search APIs running in parallel
 	protected CodedInputStream codedIS;
+	private BinaryIndexIOStats.ReaderIOListener ioListener;
 
 	private final BinaryMapTransportReaderAdapter transportAdapter;
 	private final BinaryMapPoiReaderAdapter poiAdapter;
@@ -130,6 +139,7 @@ public class BinaryMapIndexReader {
 		this.file = file;
 		codedIS = CodedInputStream.newInstance(raf);
 		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		setIOStats(IO_STATS);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
@@ -142,6 +152,7 @@ public class BinaryMapIndexReader {
 		this.file = file;
 		codedIS = CodedInputStream.newInstance(raf);
 		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		setIOStats(IO_STATS);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
@@ -156,6 +167,7 @@ public class BinaryMapIndexReader {
 		this.file = referenceToSameFile.file;
 		codedIS = CodedInputStream.newInstance(raf);
 		codedIS.setSizeLimit(Integer.MAX_VALUE); // 2048 MB
+		setIOStats(IO_STATS);
 		version = referenceToSameFile.version;
 		dateCreated = referenceToSameFile.dateCreated;
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
@@ -173,6 +185,29 @@ public class BinaryMapIndexReader {
 	}
 
 
+	public void setIOStats(BinaryIndexIOStats stats) {
+		ioListener = stats == null ? null : stats.createListener(this);
+		if (codedIS != null) {
+			codedIS.setReadListener(ioListener);
+		}
+	}
+
+	public BinaryIndexIOStats getIOStats() {
+		return ioListener == null ? null : ioListener.getStats();
+	}
+
+	private void startIOTrace(String request) {
+		if (ioListener != null) {
+			ioListener.startTrace(request);
+		}
+	}
+
+	private void finishIOTrace() {
+		if (ioListener != null) {
+			ioListener.finishTrace();
+		}
+	}
+
 	public long getDateCreated() {
 		return dateCreated;
 	}
@@ -485,7 +520,7 @@ public class BinaryMapIndexReader {
 	/**
 	 * Transport public methods
 	 */
-	public void loadTransportRoutes(int[] filePointers, TIntObjectHashMap<TransportRoute> result) throws IOException {
+	public synchronized void loadTransportRoutes(int[] filePointers, TIntObjectHashMap<TransportRoute> result) throws IOException {
 		Map<TransportIndex, TIntArrayList> groupPoints = new HashMap<TransportIndex, TIntArrayList>();
 		for (int filePointer : filePointers) {
 			TransportIndex ind = getTransportIndex(filePointer);
@@ -564,7 +599,7 @@ public class BinaryMapIndexReader {
 		return false;
 	}
 	
-	public List<TransportStop> searchTransportIndex(TransportIndex index, SearchRequest<TransportStop> req) throws IOException {
+	public synchronized List<TransportStop> searchTransportIndex(TransportIndex index, SearchRequest<TransportStop> req) throws IOException {
 		if (index.stopsFileLength == 0 || index.right < req.left || index.left > req.right || index.top > req.bottom
 				|| index.bottom < req.top) {
 			return req.getSearchResults();
@@ -583,15 +618,20 @@ public class BinaryMapIndexReader {
 		return req.getSearchResults();
 	}
 	
-	public List<TransportStop> searchTransportIndex(SearchRequest<TransportStop> req) throws IOException {
-		for (TransportIndex index : transportIndexes) {
-			searchTransportIndex(index, req);
-		}
-		if (req.numberOfVisitedObjects > 0) {
-			log.debug("Search is done. Visit " + req.numberOfVisitedObjects + " objects. Read " + req.numberOfAcceptedObjects + " objects."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-			log.debug("Read " + req.numberOfReadSubtrees + " subtrees. Go through " + req.numberOfAcceptedSubtrees + " subtrees.");   //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
+	public synchronized List<TransportStop> searchTransportIndex(SearchRequest<TransportStop> req) throws IOException {
+		startIOTrace("searchTransportIndex");
+		try {
+			for (TransportIndex index : transportIndexes) {
+				searchTransportIndex(index, req);
+			}
+			if (req.numberOfVisitedObjects > 0) {
+				log.debug("Search is done. Visit " + req.numberOfVisitedObjects + " objects. Read " + req.numberOfAcceptedObjects + " objects."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				log.debug("Read " + req.numberOfReadSubtrees + " subtrees. Go through " + req.numberOfAcceptedSubtrees + " subtrees.");   //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
+			}
+			return req.getSearchResults();
+		} finally {
+			finishIOTrace();
 		}
-		return req.getSearchResults();
 	}
 
 	/**
@@ -613,13 +653,13 @@ public class BinaryMapIndexReader {
 		return null;
 	}
 
-	public List<City> getCities(SearchRequest<City> resultMatcher,
+	public synchronized List<City> getCities(SearchRequest<City> resultMatcher,
 	                            int cityType) throws IOException {
 		return getCities(resultMatcher, null, null, cityType);
 	}
 
 
-	public List<City> getCities(SearchRequest<City> resultMatcher, StringMatcher matcher, String lang, int cityType)
+	public synchronized List<City> getCities(SearchRequest<City> resultMatcher, StringMatcher matcher, String lang, int cityType)
 			throws IOException {
 		List<City> cities = new ArrayList<City>();
 		for (AddressRegion r : addressIndexes) {
@@ -635,11 +675,11 @@ public class BinaryMapIndexReader {
 		return cities;
 	}
 	
-	public List<City> getCities(AddressRegion region, SearchRequest<City> resultMatcher,  
+	public synchronized List<City> getCities(AddressRegion region, SearchRequest<City> resultMatcher,  
 			int cityType) throws IOException {
 		return getCities(region, resultMatcher, null, cityType);
 	}
-	public List<City> getCities(AddressRegion region, SearchRequest<City> resultMatcher, StringMatcher matcher,  
+	public synchronized List<City> getCities(AddressRegion region, SearchRequest<City> resultMatcher, StringMatcher matcher,  
 			int cityType) throws IOException {
 		List<City> cities = new ArrayList<City>();
 		for (CitiesBlock block : region.cities) {
@@ -653,7 +693,7 @@ public class BinaryMapIndexReader {
 		return cities;
 	}
 
-	public int preloadStreets(City c, SearchRequest<Street> resultMatcher) throws IOException {
+	public synchronized int preloadStreets(City c, SearchRequest<Street> resultMatcher) throws IOException {
 		AddressRegion reg;
 		try {
 			reg = checkAddressIndex(c.getFileOffset());
@@ -678,7 +718,7 @@ public class BinaryMapIndexReader {
 		throw new IllegalArgumentException("Illegal offset " + offset); //$NON-NLS-1$
 	}
 
-	public void preloadBuildings(Street s, SearchRequest<Building> resultMatcher) throws IOException {
+	public synchronized void preloadBuildings(Street s, SearchRequest<Building> resultMatcher) throws IOException {
 		AddressRegion reg = checkAddressIndex(s.getFileOffset());
 		codedIS.seek(s.getFileOffset());
 		int size = codedIS.readRawVarint32();
@@ -870,7 +910,16 @@ public class BinaryMapIndexReader {
 		return searchMapIndex(req, null);
 	}
 	
-	public List<BinaryMapDataObject> searchMapIndex(SearchRequest<BinaryMapDataObject> req, MapIndex filterMapIndex) throws IOException {
+	public synchronized List<BinaryMapDataObject> searchMapIndex(SearchRequest<BinaryMapDataObject> req, MapIndex filterMapIndex) throws IOException {
+		startIOTrace("searchMapIndex");
+		try {
+			return searchMapIndexInternal(req, filterMapIndex);
+		} finally {
+			finishIOTrace();
+		}
+	}
+
+	private List<BinaryMapDataObject> searchMapIndexInternal(SearchRequest<BinaryMapDataObject> req, MapIndex filterMapIndex) throws IOException {
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
 		req.numberOfAcceptedSubtrees = 0;
@@ -944,6 +993,10 @@ public class BinaryMapIndexReader {
 	
 
 	protected void readMapDataBlocks(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex root) throws IOException {
+		if (req.streaming) {
+			streamMapDataBlocks(req, tree, root);
+			return;
+		}
 		List<BinaryMapDataObject> tempResults = null;
 		long baseId = 0;
 		while (true) {
@@ -1017,6 +1070,58 @@ public class BinaryMapIndexReader {
 
 	}
 
+	/**
+	 * Publishes objects as soon as they are read, names are resolved on demand from raw block string table.
+	 */
+	private void streamMapDataBlocks(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex root)
+			throws IOException {
+		// string table is stored after objects, so fetch its raw bytes first and return to the block start
+		int blockStart = codedIS.getTotalBytesRead();
+		LazyStringTable stringTable = null;
+		long baseId = 0;
+		while (stringTable == null) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == 0) {
+				break;
+			} else if (tag == MapDataBlock.STRINGTABLE_FIELD_NUMBER) {
+				stringTable = new LazyStringTable(codedIS.readRawBytes(codedIS.readRawVarint32()));
+			} else if (tag == MapDataBlock.BASEID_FIELD_NUMBER) {
+				baseId = codedIS.readUInt64();
+			} else {
+				skipUnknownField(t);
+			}
+		}
+		codedIS.seek(blockStart);
+		while (true) {
+			if (req.isCancelled()) {
+				return;
+			}
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case MapDataBlock.DATAOBJECTS_FIELD_NUMBER:
+				int length = codedIS.readRawVarint32();
+				int oldLimit = codedIS.pushLimit(length);
+				BinaryMapDataObject mapObject = readMapDataObject(tree, req, root);
+				if (mapObject != null) {
+					mapObject.setId(mapObject.getId() + baseId);
+					if (mapObject.objectNames != null) {
+						mapObject.stringTable = stringTable;
+					}
+					req.publish(mapObject);
+				}
+				codedIS.popLimit(oldLimit);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
 	protected void searchMapTreeBounds(MapTree current, MapTree parent,
 			SearchRequest<BinaryMapDataObject> req, List<MapTree> foundSubtrees) throws IOException {
 		int init = 0;
@@ -1089,6 +1194,31 @@ public class BinaryMapIndexReader {
 	}
 
 	private int MASK_TO_READ = ~((1 << SHIFT_COORDINATES) - 1);
+	// reusable buffers for packed coordinates (reader is not thread safe)
+	private int[] coordinatesBuffer = new int[256];
+	private int[] innerCoordinatesBuffer = new int[256];
+
+	static int[] ensureCapacity(int[] buffer, int size) {
+		if (buffer.length < size) {
+			return new int[Math.max(size, buffer.length * 2)];
+		}
+		return buffer;
+	}
+
+	/**
+	 * Reads packed sint32 field until current limit, buffer should have capacity of field size in bytes.
+	 */
+	int readPackedCoordinates(int[] buffer) throws IOException {
+		if (BULK_COORDINATES_DECODING) {
+			return codedIS.readPackedSInt32(buffer);
+		}
+		int len = 0;
+		while (codedIS.getBytesUntilLimit() > 0) {
+			buffer[len++] = codedIS.readSInt32();
+		}
+		return len;
+	}
+
 	private BinaryMapDataObject readMapDataObject(MapTree tree , SearchRequest<BinaryMapDataObject> req, 
 			MapIndex root) throws IOException {
 		int tag = WireFormat.getTagFieldNumber(codedIS.readTag());
@@ -1096,7 +1226,6 @@ public class BinaryMapIndexReader {
 		if (!area && OsmandOdb.MapData.COORDINATES_FIELD_NUMBER != tag) {
 			throw new IllegalArgumentException();
 		}
-		req.cacheCoordinates.clear();
 		int size = codedIS.readRawVarint32();
 		if (READ_STATS) {
 			req.stat.lastObjectCoordinates += size;
@@ -1112,11 +1241,14 @@ public class BinaryMapIndexReader {
 		int minY = Integer.MAX_VALUE;
 		int maxY = 0;
 		req.numberOfVisitedObjects++;
-		while (codedIS.getBytesUntilLimit() > 0) {
-			int x = (codedIS.readSInt32() << SHIFT_COORDINATES) + px;
-			int y = (codedIS.readSInt32() << SHIFT_COORDINATES) + py;
-			req.cacheCoordinates.add(x);
-			req.cacheCoordinates.add(y);
+		coordinatesBuffer = ensureCapacity(coordinatesBuffer, size);
+		int[] coordinates = coordinatesBuffer;
+		int coordinatesLength = readPackedCoordinates(coordinates) & ~1;
+		for (int i = 0; i < coordinatesLength; i += 2) {
+			int x = (coordinates[i] << SHIFT_COORDINATES) + px;
+			int y = (coordinates[i + 1] << SHIFT_COORDINATES) + py;
+			coordinates[i] = x;
+			coordinates[i + 1] = y;
 			px = x;
 			py = y;
 			if (!contains && req.left <= x && req.right >= x && req.top <= y && req.bottom >= y) {
@@ -1143,7 +1275,7 @@ public class BinaryMapIndexReader {
 
 		// read 
 
-		List<TIntArrayList> innercoordinates = null;
+		List<int[]> innercoordinates = null;
 		TIntArrayList additionalTypes = null;
 		TIntObjectHashMap<String> stringNames = null;
 		TIntArrayList stringOrder = null;
@@ -1160,10 +1292,8 @@ public class BinaryMapIndexReader {
 				break;
 			case OsmandOdb.MapData.POLYGONINNERCOORDINATES_FIELD_NUMBER:
 				if (innercoordinates == null) {
-					innercoordinates = new ArrayList<TIntArrayList>();
+					innercoordinates = new ArrayList<int[]>();
 				}
-				TIntArrayList polygon = new TIntArrayList();
-				innercoordinates.add(polygon);
 				px = tree.left & MASK_TO_READ;
 				py = tree.top & MASK_TO_READ;
 				size = codedIS.readRawVarint32();
@@ -1173,14 +1303,18 @@ public class BinaryMapIndexReader {
 							size);
 				}
 				old = codedIS.pushLimit(size);
-				while (codedIS.getBytesUntilLimit() > 0) {
-					int x = (codedIS.readSInt32() << SHIFT_COORDINATES) + px;
-					int y = (codedIS.readSInt32() << SHIFT_COORDINATES) + py;
-					polygon.add(x);
-					polygon.add(y);
+				innerCoordinatesBuffer = ensureCapacity(innerCoordinatesBuffer, size);
+				int[] inner = innerCoordinatesBuffer;
+				int innerLength = readPackedCoordinates(inner) & ~1;
+				for (int k = 0; k < innerLength; k += 2) {
+					int x = (inner[k] << SHIFT_COORDINATES) + px;
+					int y = (inner[k + 1] << SHIFT_COORDINATES) + py;
+					inner[k] = x;
+					inner[k + 1] = y;
 					px = x;
 					py = y;
 				}
+				innercoordinates.add(Arrays.copyOf(inner, innerLength));
 				codedIS.popLimit(old);
 				break;
 			case OsmandOdb.MapData.ADDITIONALTYPES_FIELD_NUMBER:
@@ -1270,9 +1404,18 @@ public class BinaryMapIndexReader {
 				break;
 			}
 		}
-		BinaryMapDataObject dataObject = new BinaryMapDataObject();
+		BinaryMapDataObject dataObject;
+		if (req.streaming && req.reuseObjects) {
+			if (req.reusableMapObject == null) {
+				req.reusableMapObject = new BinaryMapDataObject();
+			}
+			dataObject = req.reusableMapObject;
+			dataObject.stringTable = null;
+		} else {
+			dataObject = new BinaryMapDataObject();
+		}
 		dataObject.area = area;
-		dataObject.coordinates = req.cacheCoordinates.toArray();
+		dataObject.coordinates = Arrays.copyOf(coordinates, coordinatesLength);
 		dataObject.objectNames = stringNames;
 		dataObject.namesOrder = stringOrder;
 		if (innercoordinates == null) {
@@ -1280,7 +1423,7 @@ public class BinaryMapIndexReader {
 		} else {
 			dataObject.polygonInnerCoordinates = new int[innercoordinates.size()][];
 			for (int i = 0; i < innercoordinates.size(); i++) {
-				dataObject.polygonInnerCoordinates[i] = innercoordinates.get(i).toArray();
+				dataObject.polygonInnerCoordinates[i] = innercoordinates.get(i);
 			}
 		}
 		dataObject.types = req.cacheTypes.toArray();
@@ -1298,48 +1441,194 @@ public class BinaryMapIndexReader {
 		return dataObject;
 	}
 
-	public List<MapObject> searchAddressDataByName(SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
+	public synchronized List<MapObject> searchAddressDataByName(SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
+		startIOTrace("searchAddressDataByName");
+		try {
+			for (AddressRegion reg : addressIndexes) {
+				if (reg.indexNameOffset != -1) {
+					codedIS.seek(reg.indexNameOffset);
+					int len = readInt();
+					int old = codedIS.pushLimit(len);
+					addressAdapter.searchAddressDataByName(reg, req, typeFilter);
+					codedIS.popLimit(old);
+				}
+			}
+			return req.getSearchResults();
+		} finally {
+			finishIOTrace();
+		}
+	}
+
+	public List<MapObject> searchAddressDataByName(SearchRequest<MapObject> req) throws IOException {
+		return searchAddressDataByName(req, null);
+	}
+
+	/**
+	 * Reads name index tables of address and poi regions into memory, so search by name
+	 * doesn't read them from file anymore and files without matches can be skipped quickly
+	 * (see {@link #containsAddressNamePrefix(String)}, {@link #containsPoiNamePrefix(String)}).
+	 * Regions are shared with reader copies, so indexes are built once per file.
+	 */
+	public synchronized void buildNamePrefixIndexes() throws IOException {
 		for (AddressRegion reg : addressIndexes) {
-			if (reg.indexNameOffset != -1) {
+			if (reg.indexNameOffset != -1 && reg.namePrefixIndex == null) {
 				codedIS.seek(reg.indexNameOffset);
 				int len = readInt();
 				int old = codedIS.pushLimit(len);
-				addressAdapter.searchAddressDataByName(reg, req, typeFilter);
+				reg.namePrefixIndex = readNamePrefixIndex(OsmandOdb.OsmAndAddressNameIndexData.TABLE_FIELD_NUMBER);
+				codedIS.popLimit(old);
+			}
+		}
+		for (PoiRegion poiIndex : poiIndexes) {
+			if (poiIndex.namePrefixIndex == null) {
+				codedIS.seek(poiIndex.filePointer);
+				int old = codedIS.pushLimit(poiIndex.length);
+				if (skipToField(OsmandOdb.OsmAndPoiIndex.NAMEINDEX_FIELD_NUMBER)) {
+					int len = readInt();
+					int oldLimit = codedIS.pushLimit(len);
+					poiIndex.namePrefixIndex = readNamePrefixIndex(OsmandOdb.OsmAndPoiNameIndex.TABLE_FIELD_NUMBER);
+					codedIS.popLimit(oldLimit);
+				} else {
+					poiIndex.namePrefixIndex = NamePrefixIndex.build(new ArrayList<NamePrefixIndex.TableNode>());
+				}
 				codedIS.popLimit(old);
 			}
 		}
-		return req.getSearchResults();
 	}
 
-	public List<MapObject> searchAddressDataByName(SearchRequest<MapObject> req) throws IOException {
-		return searchAddressDataByName(req, null);
+	private NamePrefixIndex readNamePrefixIndex(int tableField) throws IOException {
+		List<NamePrefixIndex.TableNode> nodes = new ArrayList<>();
+		if (skipToField(tableField)) {
+			int len = readInt();
+			int old = codedIS.pushLimit(len);
+			nodes = readIndexedStringTableNodes("");
+			codedIS.popLimit(old);
+		}
+		codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+		return NamePrefixIndex.build(nodes);
 	}
 
-	public void initCategories(PoiRegion poiIndex) throws IOException {
-		poiAdapter.initCategories(poiIndex);
+	private boolean skipToField(int field) throws IOException {
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == 0) {
+				return false;
+			} else if (tag == field) {
+				return true;
+			}
+			skipUnknownField(t);
+		}
+	}
+
+	/**
+	 * @return false only if address name index is loaded in memory and nothing could be found by name
+	 */
+	public boolean containsAddressNamePrefix(String nameQuery) {
+		Collator collator = OsmAndCollator.primaryCollator();
+		for (AddressRegion reg : addressIndexes) {
+			if (reg.indexNameOffset != -1) {
+				if (reg.namePrefixIndex == null || reg.namePrefixIndex.containsPrefix(collator, nameQuery)) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
-	public void initCategories() throws IOException {
+	/**
+	 * @return false only if poi name index is loaded in memory and nothing could be found by name
+	 */
+	public boolean containsPoiNamePrefix(String nameQuery) {
+		Collator collator = OsmAndCollator.primaryCollator();
+		List<String> words = Algorithms.splitByWordsLowercase(poiAdapter.normalizeSearchPoiByNameQuery(nameQuery));
 		for (PoiRegion poiIndex : poiIndexes) {
-			poiAdapter.initCategories(poiIndex);
+			if (poiIndex.namePrefixIndex == null) {
+				return true;
+			}
+			boolean all = true;
+			for (String word : words) {
+				if (!poiIndex.namePrefixIndex.containsPrefix(collator, word)) {
+					// found offsets of all words are intersected
+					all = false;
+					break;
+				}
+			}
+			if (all) {
+				return true;
+			}
 		}
+		return false;
 	}
 
-	public List<Amenity> searchPoiByName(SearchRequest<Amenity> req) throws IOException {
-		if (req.nameQuery == null || req.nameQuery.length() == 0) {
-			throw new IllegalArgumentException();
+	/**
+	 * @return prefixes of address names similar to query with edit distance (best first),
+	 * empty if name index is not loaded in memory
+	 */
+	public Map<String, Integer> getFuzzyAddressNamePrefixes(String nameQuery, int maxEdits, int limit) {
+		Map<String, Integer> res = new LinkedHashMap<>();
+		for (AddressRegion reg : addressIndexes) {
+			if (reg.namePrefixIndex != null) {
+				mergeFuzzyPrefixes(res, reg.namePrefixIndex.fuzzyPrefixes(nameQuery, maxEdits, limit));
+			}
 		}
+		return res;
+	}
+
+	/**
+	 * @return prefixes of poi names similar to query word with edit distance (best first),
+	 * empty if name index is not loaded in memory
+	 */
+	public Map<String, Integer> getFuzzyPoiNamePrefixes(String nameQuery, int maxEdits, int limit) {
+		Map<String, Integer> res = new LinkedHashMap<>();
+		String query = poiAdapter.normalizeSearchPoiByNameQuery(nameQuery);
+		for (PoiRegion poiIndex : poiIndexes) {
+			if (poiIndex.namePrefixIndex != null) {
+				mergeFuzzyPrefixes(res, poiIndex.namePrefixIndex.fuzzyPrefixes(query, maxEdits, limit));
+			}
+		}
+		return res;
+	}
+
+	private static void mergeFuzzyPrefixes(Map<String, Integer> res, Map<String, Integer> prefixes) {
+		for (Entry<String, Integer> e : prefixes.entrySet()) {
+			Integer d = res.get(e.getKey());
+			if (d == null || d > e.getValue()) {
+				res.put(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	public synchronized void initCategories(PoiRegion poiIndex) throws IOException {
+		poiAdapter.initCategories(poiIndex);
+	}
+
+	public synchronized void initCategories() throws IOException {
 		for (PoiRegion poiIndex : poiIndexes) {
 			poiAdapter.initCategories(poiIndex);
-			codedIS.seek(poiIndex.filePointer);
-			int old = codedIS.pushLimit(poiIndex.length);
-			poiAdapter.searchPoiByName(poiIndex, req);
-			codedIS.popLimit(old);
 		}
-		return req.getSearchResults();
 	}
 
-	public Map<PoiCategory, List<String>> searchPoiCategoriesByName(String query, Map<PoiCategory, List<String>> map) throws IOException {
+	public synchronized List<Amenity> searchPoiByName(SearchRequest<Amenity> req) throws IOException {
+		startIOTrace("searchPoiByName");
+		try {
+			if (req.nameQuery == null || req.nameQuery.length() == 0) {
+				throw new IllegalArgumentException();
+			}
+			for (PoiRegion poiIndex : poiIndexes) {
+				poiAdapter.initCategories(poiIndex);
+				codedIS.seek(poiIndex.filePointer);
+				int old = codedIS.pushLimit(poiIndex.length);
+				poiAdapter.searchPoiByName(poiIndex, req);
+				codedIS.popLimit(old);
+			}
+			return req.getSearchResults();
+		} finally {
+			finishIOTrace();
+		}
+	}
+
+	public synchronized Map<PoiCategory, List<String>> searchPoiCategoriesByName(String query, Map<PoiCategory, List<String>> map) throws IOException {
 		if (query == null || query.length() == 0) {
 			throw new IllegalArgumentException();
 		}
@@ -1370,7 +1659,7 @@ public class BinaryMapIndexReader {
 		return map;
 	}
 
-	public List<PoiSubType> searchPoiSubTypesByPrefix(String query) throws IOException {
+	public synchronized List<PoiSubType> searchPoiSubTypesByPrefix(String query) throws IOException {
 		if (query == null || query.length() == 0) {
 			throw new IllegalArgumentException();
 		}
@@ -1387,25 +1676,30 @@ public class BinaryMapIndexReader {
 		return list;
 	}
 
-	public List<Amenity> searchPoi(SearchRequest<Amenity> req) throws IOException {
-		req.numberOfVisitedObjects = 0;
-		req.numberOfAcceptedObjects = 0;
-		req.numberOfAcceptedSubtrees = 0;
-		req.numberOfReadSubtrees = 0;
-		for (PoiRegion poiIndex : poiIndexes) {
-			poiAdapter.initCategories(poiIndex);
-			codedIS.seek(poiIndex.filePointer);
-			int old = codedIS.pushLimit(poiIndex.length);
-			poiAdapter.searchPoiIndex(req.left, req.right, req.top, req.bottom, req, poiIndex);
-			codedIS.popLimit(old);
-		}
-		log.info("Read " + req.numberOfReadSubtrees + " subtrees. Go through " + req.numberOfAcceptedSubtrees + " subtrees.");   //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
-		log.info("Search poi is done. Visit " + req.numberOfVisitedObjects + " objects. Read " + req.numberOfAcceptedObjects + " objects."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	public synchronized List<Amenity> searchPoi(SearchRequest<Amenity> req) throws IOException {
+		startIOTrace("searchPoi");
+		try {
+			req.numberOfVisitedObjects = 0;
+			req.numberOfAcceptedObjects = 0;
+			req.numberOfAcceptedSubtrees = 0;
+			req.numberOfReadSubtrees = 0;
+			for (PoiRegion poiIndex : poiIndexes) {
+				poiAdapter.initCategories(poiIndex);
+				codedIS.seek(poiIndex.filePointer);
+				int old = codedIS.pushLimit(poiIndex.length);
+				poiAdapter.searchPoiIndex(req.left, req.right, req.top, req.bottom, req, poiIndex);
+				codedIS.popLimit(old);
+			}
+			log.info("Read " + req.numberOfReadSubtrees + " subtrees. Go through " + req.numberOfAcceptedSubtrees + " subtrees.");   //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
+			log.info("Search poi is done. Visit " + req.numberOfVisitedObjects + " objects. Read " + req.numberOfAcceptedObjects + " objects."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
-		return req.getSearchResults();
+			return req.getSearchResults();
+		} finally {
+			finishIOTrace();
+		}
 	}
 
-	public List<Amenity> searchPoi(PoiRegion poiIndex, SearchRequest<Amenity> req) throws IOException {
+	public synchronized List<Amenity> searchPoi(PoiRegion poiIndex, SearchRequest<Amenity> req) throws IOException {
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
 		req.numberOfAcceptedSubtrees = 0;
@@ -1709,8 +2003,12 @@ public class BinaryMapIndexReader {
 
 		SearchPoiTypeFilter poiTypeFilter = null;
 
+		// streaming mode: results are only passed to result matcher
+		boolean streaming = false;
+		boolean reuseObjects = false;
+		BinaryMapDataObject reusableMapObject = null;
+
 		// cache information
-		TIntArrayList cacheCoordinates = new TIntArrayList();
 		TIntArrayList cacheTypes = new TIntArrayList();
 		TLongArrayList cacheIdsA = new TLongArrayList();
 		TLongArrayList cacheIdsB = new TLongArrayList();
@@ -1754,12 +2052,31 @@ public class BinaryMapIndexReader {
 
 		public boolean publish(T obj) {
 			if (resultMatcher == null || resultMatcher.publish(obj)) {
-				searchResults.add(obj);
+				if (!streaming) {
+					searchResults.add(obj);
+				}
 				return true;
 			}
 			return false;
 		}
 
+		/**
+		 * In streaming mode objects are delivered to result matcher as soon as they are read and
+		 * are not collected into search results, so a scan of the whole file runs in constant memory.
+		 * Map object names are resolved lazily on first access.
+		 *
+		 * @param reuseObjects map objects are read into the same instance which is valid only
+		 *                     inside of {@link ResultMatcher#publish(Object)}
+		 */
+		public void setStreaming(boolean streaming, boolean reuseObjects) {
+			this.streaming = streaming;
+			this.reuseObjects = reuseObjects;
+		}
+
+		public boolean isStreaming() {
+			return streaming;
+		}
+
 		public void collectRawData(T obj) {
 			if (rawDataCollector != null) {
 				rawDataCollector.publish(obj);
@@ -1839,7 +2156,6 @@ public class BinaryMapIndexReader {
 		public void clearSearchResults() {
 			// recreate whole list to allow GC collect old data 
 			searchResults = new ArrayList<T>();
-			cacheCoordinates.clear();
 			cacheTypes.clear();
 			land = false;
 			ocean = false;
@@ -2024,7 +2340,7 @@ public class BinaryMapIndexReader {
 				bm.namesOrder = new TIntArrayList();
 				for (int i = 0; i < o.namesOrder.size(); i++) {
 					int nameType = o.namesOrder.get(i);
-					String name = o.objectNames.get(nameType);
+					String name = o.getNameByType(nameType);
 					TagValuePair tp = o.mapIndex.decodeType(nameType);
 					Integer r = getRule(tp);
 					if(r != null) {
@@ -2042,6 +2358,63 @@ public class BinaryMapIndexReader {
 		}
 	}
 
+	public static class LazyStringTable {
+		private final byte[] data;
+		private TIntArrayList offsets;
+		private String[] strings;
+
+		LazyStringTable(byte[] data) {
+			this.data = data;
+		}
+
+		public int size() {
+			index();
+			return strings.length;
+		}
+
+		public String get(int i) {
+			index();
+			if (strings[i] == null) {
+				int offset = offsets.get(2 * i);
+				int length = offsets.get(2 * i + 1);
+				try {
+					strings[i] = new String(data, offset, length, "UTF-8");
+				} catch (UnsupportedEncodingException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			return strings[i];
+		}
+
+		private void index() {
+			if (offsets != null) {
+				return;
+			}
+			TIntArrayList offsets = new TIntArrayList();
+			CodedInputStream is = CodedInputStream.newInstance(data);
+			try {
+				while (true) {
+					int t = is.readTag();
+					int tag = WireFormat.getTagFieldNumber(t);
+					if (tag == 0) {
+						break;
+					} else if (tag == OsmandOdb.StringTable.S_FIELD_NUMBER) {
+						int length = is.readRawVarint32();
+						offsets.add(is.getTotalBytesRead());
+						offsets.add(length);
+						is.skipRawBytes(length);
+					} else {
+						is.skipField(t);
+					}
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			this.strings = new String[offsets.size() / 2];
+			this.offsets = offsets;
+		}
+	}
+
 	public static class TagValuePair {
 		public String tag;
 		public String value;
@@ -2129,7 +2502,7 @@ public class BinaryMapIndexReader {
 		}
 	}
 
-	private static class MapTree {
+	static class MapTree {
 		int filePointer = 0;
 		int length = 0;
 
@@ -2181,6 +2554,7 @@ public class BinaryMapIndexReader {
 	private static boolean testPoiSearch = true;
 	private static boolean testPoiSearchOnPath = false;
 	private static boolean testTransportSearch = false;
+	private static boolean testCoordinatesDecoding = false;
 	
 	private static int sleft = MapUtils.get31TileNumberX(27.55079);
 	private static int sright = MapUtils.get31TileNumberX(27.55317);
@@ -2217,6 +2591,9 @@ public class BinaryMapIndexReader {
 		if (testTransportSearch) {
 			testTransportSearch(reader);
 		}
+		if (testCoordinatesDecoding) {
+			testCoordinatesDecoding(reader);
+		}
 
 		if (testPoiSearch || testPoiSearchOnPath) {
 			PoiRegion poiRegion = reader.getPoiIndexes().get(0);
@@ -2233,6 +2610,59 @@ public class BinaryMapIndexReader {
 		println("Time " + (System.currentTimeMillis() - time)); //$NON-NLS-1$
 	}
 
+	private static void testCoordinatesDecoding(BinaryMapIndexReader reader) throws IOException {
+		// reads all map and route objects of the file alternating bulk and per value decoding of coordinates
+		final long[] points = new long[1];
+		ResultMatcher<BinaryMapDataObject> mapMatcher = new ResultMatcher<BinaryMapDataObject>() {
+			@Override
+			public boolean publish(BinaryMapDataObject obj) {
+				points[0] += obj.getPointsLength();
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+		ResultMatcher<RouteDataObject> routeMatcher = new ResultMatcher<RouteDataObject>() {
+			@Override
+			public boolean publish(RouteDataObject obj) {
+				points[0] += obj.getPointsLength();
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+		boolean bulk = BULK_COORDINATES_DECODING;
+		for (int run = 0; run < 10; run++) {
+			BULK_COORDINATES_DECODING = run % 2 == 0;
+			points[0] = 0;
+			long mapTime = System.nanoTime();
+			for (MapIndex mi : reader.getMapIndexes()) {
+				for (MapRoot root : mi.getRoots()) {
+					reader.searchMapIndex(buildSearchRequest(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
+							root.getMinZoom(), null, mapMatcher), mi);
+				}
+			}
+			mapTime = System.nanoTime() - mapTime;
+			long routeTime = System.nanoTime();
+			for (RouteRegion rr : reader.getRoutingIndexes()) {
+				SearchRequest<RouteDataObject> req = buildSearchRouteRequest(0, Integer.MAX_VALUE, 0,
+						Integer.MAX_VALUE, null);
+				List<RouteSubregion> subregions = reader.searchRouteIndexTree(req, rr.getSubregions());
+				reader.loadRouteIndexData(subregions, routeMatcher);
+			}
+			routeTime = System.nanoTime() - routeTime;
+			println((BULK_COORDINATES_DECODING ? "Bulk " : "Per value ") + "decoding: points " + points[0]
+					+ " map " + mapTime / 1000000 + " ms, route " + routeTime / 1000000 + " ms");
+		}
+		BULK_COORDINATES_DECODING = bulk;
+	}
+
 	private static void testSearchOnthePath(BinaryMapIndexReader reader) throws IOException {
 		float radius = 1000;
 		final MapPoiTypes poiTypes = MapPoiTypes.getDefault();
@@ -2480,6 +2910,46 @@ public class BinaryMapIndexReader {
 		}
 	}
 
+	private List<NamePrefixIndex.TableNode> readIndexedStringTableNodes(String prefix) throws IOException {
+		List<NamePrefixIndex.TableNode> nodes = new ArrayList<>();
+		NamePrefixIndex.TableNode node = null;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return nodes;
+			case OsmandOdb.IndexedStringTable.KEY_FIELD_NUMBER :
+				String key = codedIS.readString();
+				node = new NamePrefixIndex.TableNode(prefix.length() > 0 ? prefix + key : key);
+				nodes.add(node);
+				break;
+			case OsmandOdb.IndexedStringTable.VAL_FIELD_NUMBER :
+				int val = readInt();
+				if (node != null) {
+					node.vals.add(val);
+				}
+				break;
+			case OsmandOdb.IndexedStringTable.SUBTABLES_FIELD_NUMBER :
+				int len = codedIS.readRawVarint32();
+				int oldLim = codedIS.pushLimit(len);
+				if (node != null) {
+					if (node.valsBeforeChildren < 0) {
+						node.valsBeforeChildren = node.vals.size();
+					}
+					node.children.addAll(readIndexedStringTableNodes(node.key));
+				} else {
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				}
+				codedIS.popLimit(oldLim);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
 	private static void testAddressSearchByName(BinaryMapIndexReader reader) throws IOException {
 		SearchRequest<MapObject> req = buildAddressByNameRequest(new ResultMatcher<MapObject>() {
 			@Override
@@ -2687,29 +3157,44 @@ public class BinaryMapIndexReader {
 
 
 	public List<RouteSubregion> searchRouteIndexTree(SearchRequest<?> req, List<RouteSubregion> list) throws IOException {
-		req.numberOfVisitedObjects = 0;
-		req.numberOfAcceptedObjects = 0;
-		req.numberOfAcceptedSubtrees = 0;
-		req.numberOfReadSubtrees = 0;
-		if (routeAdapter != null) {
-			routeAdapter.initRouteTypesIfNeeded(req, list);
-			return routeAdapter.searchRouteRegionTree(req, list,
-					new ArrayList<BinaryMapRouteReaderAdapter.RouteSubregion>());
+		startIOTrace("searchRouteIndexTree");
+		try {
+			req.numberOfVisitedObjects = 0;
+			req.numberOfAcceptedObjects = 0;
+			req.numberOfAcceptedSubtrees = 0;
+			req.numberOfReadSubtrees = 0;
+			if (routeAdapter != null) {
+				routeAdapter.initRouteTypesIfNeeded(req, list);
+				return routeAdapter.searchRouteRegionTree(req, list,
+						new ArrayList<BinaryMapRouteReaderAdapter.RouteSubregion>());
+			}
+			return Collections.emptyList();
+		} finally {
+			finishIOTrace();
 		}
-		return Collections.emptyList();
 	}
 
 	public void loadRouteIndexData(List<RouteSubregion> toLoad, ResultMatcher<RouteDataObject> matcher) throws IOException {
-		if (routeAdapter != null) {
-			routeAdapter.loadRouteRegionData(toLoad, matcher);
+		startIOTrace("loadRouteIndexData");
+		try {
+			if (routeAdapter != null) {
+				routeAdapter.loadRouteRegionData(toLoad, matcher);
+			}
+		} finally {
+			finishIOTrace();
 		}
 	}
 
 	public List<RouteDataObject> loadRouteIndexData(RouteSubregion rs) throws IOException {
-		if (routeAdapter != null) {
-			return routeAdapter.loadRouteRegionData(rs);
+		startIOTrace("loadRouteIndexData");
+		try {
+			if (routeAdapter != null) {
+				return routeAdapter.loadRouteRegionData(rs);
+			}
+			return Collections.emptyList();
+		} finally {
+			finishIOTrace();
 		}
-		return Collections.emptyList();
 	}
 
 	public void initRouteRegion(RouteRegion routeReg) throws IOException {
@@ -57,6 +57,8 @@ public class BinaryMapPoiReaderAdapter {
 		List<PoiCategory> categoriesType = new ArrayList<PoiCategory>();
 		List<List<String>> subcategories = new ArrayList<List<String>>();
 		List<PoiSubType> subTypes = new ArrayList<PoiSubType>();
+		// in-memory copy of name index table, see BinaryMapIndexReader.buildNamePrefixIndexes
+		NamePrefixIndex namePrefixIndex;
 
 		int left31;
 		int right31;
@@ -293,7 +295,7 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	private String normalizeSearchPoiByNameQuery(String query) {
+	String normalizeSearchPoiByNameQuery(String query) {
 		return query.replace("\"", "").toLowerCase();
 	}
 
@@ -317,7 +319,7 @@ public class BinaryMapPoiReaderAdapter {
 				int length = readInt();
 				int oldLimit = codedIS.pushLimit(length);
 				// here offsets are sorted by distance
-				offsets = readPoiNameIndex(matcher.getCollator(), query, req);
+				offsets = readPoiNameIndex(matcher.getCollator(), query, req, region);
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmandOdb.OsmAndPoiIndex.POIDATA_FIELD_NUMBER:
@@ -372,7 +374,7 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	private TIntLongHashMap readPoiNameIndex(Collator instance, String query, SearchRequest<Amenity> req) throws IOException {
+	private TIntLongHashMap readPoiNameIndex(Collator instance, String query, SearchRequest<Amenity> req, PoiRegion region) throws IOException {
 		TIntLongHashMap offsets = new TIntLongHashMap();
 		List<TIntArrayList> listOffsets = null;
 		List<TIntLongHashMap> listOfSepOffsets = new ArrayList<TIntLongHashMap>();
@@ -394,7 +396,12 @@ public class BinaryMapPoiReaderAdapter {
 					charsList.add(0);
 					listOffsets.add(new TIntArrayList());
 				}
-				map.readIndexedStringTable(instance, queries, "", listOffsets, charsList);
+				if (region.namePrefixIndex != null) {
+					region.namePrefixIndex.search(instance, queries, listOffsets, charsList);
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				} else {
+					map.readIndexedStringTable(instance, queries, "", listOffsets, charsList);
+				}
 				codedIS.popLimit(oldLimit);
 				break;
 			}
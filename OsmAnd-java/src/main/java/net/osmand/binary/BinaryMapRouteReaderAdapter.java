@@ -22,6 +22,7 @@ import org.apache.commons.logging.Log;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
@@ -602,6 +603,7 @@ public class BinaryMapRouteReaderAdapter {
 	
 	private CodedInputStream codedIS;
 	private final BinaryMapIndexReader map;
+	private int[] pointsBuffer = new int[256];
 	
 	protected BinaryMapRouteReaderAdapter(BinaryMapIndexReader map){
 		this.codedIS = map.codedIS;
@@ -672,8 +674,8 @@ public class BinaryMapRouteReaderAdapter {
 	
 	private RouteDataObject readRouteDataObject(RouteRegion reg, int pleftx, int ptopy) throws IOException {
 		RouteDataObject o = new RouteDataObject(reg);
-		TIntArrayList pointsX = new TIntArrayList();
-		TIntArrayList pointsY = new TIntArrayList();
+		int[] pointsX = null;
+		int[] pointsY = null;
 		TIntArrayList types = new TIntArrayList();
 		List<TIntArrayList> globalpointTypes = new ArrayList<TIntArrayList>();
 		List<TIntArrayList> globalpointNames = new ArrayList<TIntArrayList>();
@@ -682,8 +684,8 @@ public class BinaryMapRouteReaderAdapter {
 			int tags = WireFormat.getTagFieldNumber(ts);
 			switch (tags) {
 			case 0:
-				o.pointsX = pointsX.toArray();
-				o.pointsY = pointsY.toArray();
+				o.pointsX = pointsX == null ? new int[0] : pointsX;
+				o.pointsY = pointsY == null ? new int[0] : pointsY;
 				o.types = types.toArray();
 				if (globalpointTypes.size() > 0) {
 					o.pointTypes = new int[globalpointTypes.size()][];
@@ -737,11 +739,23 @@ public class BinaryMapRouteReaderAdapter {
 				oldLimit = codedIS.pushLimit(len);
 				int px = pleftx >> SHIFT_COORDINATES;
 				int py = ptopy >> SHIFT_COORDINATES;
-				while(codedIS.getBytesUntilLimit() > 0){
-					int x = (codedIS.readSInt32() ) + px;
-					int y = (codedIS.readSInt32() ) + py;
-					pointsX.add(x << SHIFT_COORDINATES);
-					pointsY.add(y << SHIFT_COORDINATES);
+				pointsBuffer = BinaryMapIndexReader.ensureCapacity(pointsBuffer, len);
+				int[] points = pointsBuffer;
+				int pointsLength = map.readPackedCoordinates(points) / 2;
+				int offset = 0;
+				if (pointsX == null) {
+					pointsX = new int[pointsLength];
+					pointsY = new int[pointsLength];
+				} else {
+					offset = pointsX.length;
+					pointsX = Arrays.copyOf(pointsX, offset + pointsLength);
+					pointsY = Arrays.copyOf(pointsY, offset + pointsLength);
+				}
+				for (int k = 0; k < pointsLength; k++) {
+					int x = points[2 * k] + px;
+					int y = points[2 * k + 1] + py;
+					pointsX[offset + k] = x << SHIFT_COORDINATES;
+					pointsY[offset + k] = y << SHIFT_COORDINATES;
 					px = x;
 					py = y;
 				}
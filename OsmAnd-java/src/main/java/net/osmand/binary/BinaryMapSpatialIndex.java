@@ -0,0 +1,176 @@
+package net.osmand.binary;
+
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.BinaryMapTransportReaderAdapter.TransportIndex;
+import net.osmand.data.PackedRTree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spatial prefilter over bounds of opened readers (map roots, route subregions, poi, address and transport boxes),
+ * so readers intersecting a bbox are found without iterating every file.
+ * Trees are rebuilt lazily on the first query after readers were added or removed.
+ * Results are returned in the order readers were added.
+ */
+public class BinaryMapSpatialIndex {
+
+	public enum IndexDataType {
+		MAP,
+		ROUTE,
+		BASE_ROUTE,
+		POI,
+		ADDRESS,
+		TRANSPORT
+	}
+
+	private static class IndexEntry {
+		final BinaryMapIndexReader reader;
+		final int minZoom;
+		final int maxZoom;
+
+		IndexEntry(BinaryMapIndexReader reader, int minZoom, int maxZoom) {
+			this.reader = reader;
+			this.minZoom = minZoom;
+			this.maxZoom = maxZoom;
+		}
+	}
+
+	private final Map<BinaryMapIndexReader, Integer> readers = new HashMap<>();
+	private final Map<IndexDataType, PackedRTree<IndexEntry>> trees = new EnumMap<>(IndexDataType.class);
+	private int order = 0;
+
+	public BinaryMapSpatialIndex() {
+	}
+
+	public BinaryMapSpatialIndex(Collection<? extends BinaryMapIndexReader> readers) {
+		for (BinaryMapIndexReader r : readers) {
+			addReader(r);
+		}
+	}
+
+	public synchronized void addReader(BinaryMapIndexReader reader) {
+		readers.put(reader, order++);
+		trees.clear();
+	}
+
+	public synchronized void removeReader(BinaryMapIndexReader reader) {
+		if (readers.remove(reader) != null) {
+			trees.clear();
+		}
+	}
+
+	public synchronized void clear() {
+		readers.clear();
+		trees.clear();
+	}
+
+	public synchronized boolean containsReader(BinaryMapIndexReader reader) {
+		return readers.containsKey(reader);
+	}
+
+	public synchronized int size() {
+		return readers.size();
+	}
+
+	/**
+	 * @param zoom used only for {@link IndexDataType#MAP}, -1 to accept any zoom
+	 */
+	public synchronized List<BinaryMapIndexReader> query(IndexDataType type, int left31x, int top31y,
+			int right31x, int bottom31y, int zoom) {
+		List<IndexEntry> entries = getTree(type).queryInBox(left31x, top31y, right31x, bottom31y,
+				new ArrayList<IndexEntry>());
+		if (entries.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Set<BinaryMapIndexReader> set = new HashSet<>();
+		List<BinaryMapIndexReader> res = new ArrayList<>();
+		for (IndexEntry e : entries) {
+			if (type == IndexDataType.MAP && zoom != -1 && (e.minZoom > zoom || e.maxZoom < zoom)) {
+				continue;
+			}
+			if (set.add(e.reader)) {
+				res.add(e.reader);
+			}
+		}
+		Collections.sort(res, new Comparator<BinaryMapIndexReader>() {
+			@Override
+			public int compare(BinaryMapIndexReader o1, BinaryMapIndexReader o2) {
+				return Integer.compare(readers.get(o1), readers.get(o2));
+			}
+		});
+		return res;
+	}
+
+	public boolean contains(IndexDataType type, int left31x, int top31y, int right31x, int bottom31y, int zoom) {
+		return !query(type, left31x, top31y, right31x, bottom31y, zoom).isEmpty();
+	}
+
+	private PackedRTree<IndexEntry> getTree(IndexDataType type) {
+		PackedRTree<IndexEntry> tree = trees.get(type);
+		if (tree == null) {
+			PackedRTree.Builder<IndexEntry> builder = new PackedRTree.Builder<>();
+			for (BinaryMapIndexReader reader : readers.keySet()) {
+				addBounds(builder, type, reader);
+			}
+			tree = builder.build();
+			trees.put(type, tree);
+		}
+		return tree;
+	}
+
+	private void addBounds(PackedRTree.Builder<IndexEntry> builder, IndexDataType type, BinaryMapIndexReader reader) {
+		switch (type) {
+		case MAP:
+			for (MapIndex mi : reader.getMapIndexes()) {
+				for (MapRoot root : mi.getRoots()) {
+					builder.add(new IndexEntry(reader, root.minZoom, root.maxZoom),
+							root.left, root.top, root.right, root.bottom);
+				}
+			}
+			break;
+		case ROUTE:
+		case BASE_ROUTE:
+			IndexEntry routeEntry = new IndexEntry(reader, 0, 0);
+			for (RouteRegion rr : reader.getRoutingIndexes()) {
+				List<RouteSubregion> subregions = type == IndexDataType.ROUTE ? rr.getSubregions()
+						: rr.getBaseSubregions();
+				for (RouteSubregion sub : subregions) {
+					builder.add(routeEntry, sub.left, sub.top, sub.right, sub.bottom);
+				}
+			}
+			break;
+		case POI:
+			IndexEntry poiEntry = new IndexEntry(reader, 0, 0);
+			for (PoiRegion poi : reader.getPoiIndexes()) {
+				builder.add(poiEntry, poi.left31, poi.top31, poi.right31, poi.bottom31);
+			}
+			break;
+		case ADDRESS:
+			IndexEntry addressEntry = new IndexEntry(reader, 0, 0);
+			for (AddressRegion address : reader.getAddressIndexes()) {
+				builder.add(addressEntry, address.left31, address.top31, address.right31, address.bottom31);
+			}
+			break;
+		case TRANSPORT:
+			IndexEntry transportEntry = new IndexEntry(reader, 0, 0);
+			for (TransportIndex ti : reader.getTransportIndexes()) {
+				builder.add(transportEntry, ti.getLeft(), ti.getTop(), ti.getRight(), ti.getBottom());
+			}
+			break;
+		}
+	}
+}
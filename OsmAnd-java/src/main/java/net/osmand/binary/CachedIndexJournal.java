@@ -0,0 +1,388 @@
+package net.osmand.binary;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.OsmandIndex.FileIndex;
+
+import org.apache.commons.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of {@link FileIndex} records used by {@link CachedOsmandIndexes}.
+ * <p>
+ * Layout: header (magic, format version, cache version) followed by records
+ * (type, file name, size, date, version, payload length, payload crc, payload).
+ * Only record headers are read on startup, payloads are decoded on first access.
+ * A truncated or corrupted tail (crash during append) is cut off on the next write,
+ * compaction rewrites live records into a temporary file and renames it over the journal.
+ */
+class CachedIndexJournal {
+
+	private static final Log log = PlatformUtil.getLog(CachedIndexJournal.class);
+
+	static final int MAGIC = 0x4F494A31; // OIJ1
+	static final int FORMAT_VERSION = 1;
+
+	private static final byte RECORD_FILE_INDEX = 1;
+	private static final byte RECORD_REMOVED = 2;
+
+	private static final int COMPACT_MIN_DEAD_RECORDS = 32;
+
+	private final File file;
+	private final int cacheVersion;
+	private final Map<String, JournalEntry> directory = new LinkedHashMap<>();
+	private final List<JournalEntry> pending = new ArrayList<>();
+	private final List<String> pendingRemoved = new ArrayList<>();
+	private long validLength;
+	private int deadRecords;
+	private boolean rewriteRequired = true;
+
+	static class JournalEntry {
+		final String fileName;
+		final long size;
+		final long dateModified;
+		final int version;
+		long payloadOffset = -1;
+		int payloadLength;
+		int payloadCrc;
+		FileIndex fileIndex;
+
+		JournalEntry(String fileName, long size, long dateModified, int version) {
+			this.fileName = fileName;
+			this.size = size;
+			this.dateModified = dateModified;
+			this.version = version;
+		}
+	}
+
+	CachedIndexJournal(File file, int cacheVersion) {
+		this.file = file;
+		this.cacheVersion = cacheVersion;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int size() {
+		return directory.size();
+	}
+
+	public boolean hasChanges() {
+		return rewriteRequired || !pending.isEmpty() || !pendingRemoved.isEmpty();
+	}
+
+	/**
+	 * Reads record headers only, payloads stay on disk until {@link #getFileIndex(File)} needs them.
+	 */
+	public void load() throws IOException {
+		directory.clear();
+		pending.clear();
+		pendingRemoved.clear();
+		deadRecords = 0;
+		validLength = 0;
+		rewriteRequired = true;
+		if (!file.exists()) {
+			return;
+		}
+		long time = System.currentTimeMillis();
+		long fileLength = file.length();
+		DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (fileLength < 12 || is.readInt() != MAGIC || is.readInt() != FORMAT_VERSION
+					|| is.readInt() != cacheVersion) {
+				return;
+			}
+			long pos = 12;
+			validLength = pos;
+			rewriteRequired = false;
+			while (pos < fileLength) {
+				try {
+					byte type = is.readByte();
+					String name = is.readUTF();
+					long size = is.readLong();
+					long dateModified = is.readLong();
+					int version = is.readInt();
+					int payloadLength = is.readInt();
+					int payloadCrc = is.readInt();
+					// 1 + (2 + utf) + 8 + 8 + 4 + 4 + 4
+					long payloadOffset = pos + 31 + utfLength(name);
+					if (payloadLength < 0 || payloadOffset + payloadLength > fileLength) {
+						break;
+					}
+					skipFully(is, payloadLength);
+					pos = payloadOffset + payloadLength;
+					JournalEntry prev;
+					if (type == RECORD_FILE_INDEX) {
+						JournalEntry entry = new JournalEntry(name, size, dateModified, version);
+						entry.payloadOffset = payloadOffset;
+						entry.payloadLength = payloadLength;
+						entry.payloadCrc = payloadCrc;
+						prev = directory.put(name, entry);
+					} else if (type == RECORD_REMOVED) {
+						prev = directory.remove(name);
+						deadRecords++;
+					} else {
+						break;
+					}
+					if (prev != null) {
+						deadRecords++;
+					}
+					validLength = pos;
+				} catch (EOFException e) {
+					break;
+				}
+			}
+		} finally {
+			is.close();
+		}
+		if (validLength < fileLength) {
+			log.warn("Index cache journal has broken tail " + (fileLength - validLength) + " bytes, it will be truncated");
+		}
+		log.info("Initialize cache journal " + directory.size() + " files " + (System.currentTimeMillis() - time) + " ms");
+	}
+
+	public FileIndex getFileIndex(File f) throws IOException {
+		JournalEntry entry = directory.get(f.getName());
+		if (entry == null || entry.size != f.length()) {
+			return null;
+		}
+		return decode(entry);
+	}
+
+	public void put(FileIndex fileIndex) {
+		JournalEntry entry = new JournalEntry(fileIndex.getFileName(), fileIndex.getSize(),
+				fileIndex.getDateModified(), fileIndex.getVersion());
+		entry.fileIndex = fileIndex;
+		if (directory.put(entry.fileName, entry) != null) {
+			deadRecords++;
+		}
+		pendingRemoved.remove(entry.fileName);
+		pending.add(entry);
+	}
+
+	public void remove(String fileName) {
+		if (directory.remove(fileName) != null) {
+			deadRecords++;
+			pendingRemoved.add(fileName);
+		}
+	}
+
+	/**
+	 * Drops records of files which are not present anymore.
+	 */
+	public void retainFiles(Collection<File> files) {
+		Set<String> names = new HashSet<>();
+		for (File f : files) {
+			names.add(f.getName());
+		}
+		for (String name : new ArrayList<>(directory.keySet())) {
+			if (!names.contains(name)) {
+				remove(name);
+			}
+		}
+	}
+
+	public List<FileIndex> getAllFileIndexes() throws IOException {
+		List<FileIndex> res = new ArrayList<>();
+		// corrupted entries are removed from directory while decoding
+		for (JournalEntry entry : new ArrayList<>(directory.values())) {
+			FileIndex fi = decode(entry);
+			if (fi != null) {
+				res.add(fi);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Appends pending records or compacts the journal when it contains too many outdated records.
+	 *
+	 * @return true if journal was compacted
+	 */
+	public boolean flush() throws IOException {
+		if (rewriteRequired || (deadRecords > COMPACT_MIN_DEAD_RECORDS && deadRecords > directory.size())) {
+			compact();
+			return true;
+		} else if (!pending.isEmpty() || !pendingRemoved.isEmpty()) {
+			append();
+		}
+		return false;
+	}
+
+	private void append() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (String removed : pendingRemoved) {
+			writeRecord(out, RECORD_REMOVED, new JournalEntry(removed, 0, 0, 0), new byte[0]);
+		}
+		List<JournalEntry> written = new ArrayList<>();
+		for (JournalEntry entry : pending) {
+			// entry could be replaced again during the same session
+			if (directory.get(entry.fileName) == entry) {
+				written.add(entry);
+			}
+		}
+		long[] payloadOffsets = new long[written.size()];
+		for (int i = 0; i < written.size(); i++) {
+			JournalEntry entry = written.get(i);
+			payloadOffsets[i] = validLength + writeRecord(out, RECORD_FILE_INDEX, entry, entry.fileIndex.toByteArray());
+		}
+		out.flush();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(validLength);
+			raf.seek(validLength);
+			raf.write(bytes.toByteArray());
+			raf.getFD().sync();
+		} finally {
+			raf.close();
+		}
+		for (int i = 0; i < written.size(); i++) {
+			written.get(i).payloadOffset = payloadOffsets[i];
+		}
+		validLength += bytes.size();
+		pending.clear();
+		pendingRemoved.clear();
+	}
+
+	private void compact() throws IOException {
+		long time = System.currentTimeMillis();
+		// decode everything before the old journal is replaced
+		List<JournalEntry> entries = new ArrayList<>(directory.values());
+		List<byte[]> payloads = new ArrayList<>();
+		for (JournalEntry entry : entries) {
+			FileIndex fi = decode(entry);
+			payloads.add(fi == null ? null : fi.toByteArray());
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(cacheVersion);
+		long[] payloadOffsets = new long[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			if (payloads.get(i) != null) {
+				payloadOffsets[i] = writeRecord(out, RECORD_FILE_INDEX, entries.get(i), payloads.get(i));
+			}
+		}
+		out.flush();
+		File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+		RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+		try {
+			raf.setLength(0);
+			raf.write(bytes.toByteArray());
+			raf.getFD().sync();
+		} finally {
+			raf.close();
+		}
+		if (!tmp.renameTo(file)) {
+			// rename over existing file is not atomic on all platforms
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				throw new IOException("Index cache journal could not be replaced " + file.getAbsolutePath());
+			}
+		}
+		for (int i = 0; i < entries.size(); i++) {
+			JournalEntry entry = entries.get(i);
+			if (payloads.get(i) == null) {
+				directory.remove(entry.fileName);
+			} else {
+				entry.payloadOffset = payloadOffsets[i];
+			}
+		}
+		validLength = bytes.size();
+		deadRecords = 0;
+		rewriteRequired = false;
+		pending.clear();
+		pendingRemoved.clear();
+		log.info("Compact cache journal " + directory.size() + " files " + (System.currentTimeMillis() - time) + " ms");
+	}
+
+	private FileIndex decode(JournalEntry entry) throws IOException {
+		if (entry.fileIndex != null) {
+			return entry.fileIndex;
+		}
+		if (entry.payloadOffset < 0) {
+			return null;
+		}
+		byte[] payload = new byte[entry.payloadLength];
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			raf.seek(entry.payloadOffset);
+			raf.readFully(payload);
+		} finally {
+			raf.close();
+		}
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		if ((int) crc.getValue() != entry.payloadCrc) {
+			log.warn("Index cache journal record is corrupted " + entry.fileName);
+			directory.remove(entry.fileName);
+			rewriteRequired = true;
+			return null;
+		}
+		entry.fileIndex = FileIndex.parseFrom(payload);
+		return entry.fileIndex;
+	}
+
+	/**
+	 * @return offset of payload inside of the output stream
+	 */
+	private static long writeRecord(DataOutputStream out, byte type, JournalEntry entry, byte[] payload)
+			throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		out.writeByte(type);
+		out.writeUTF(entry.fileName);
+		out.writeLong(entry.size);
+		out.writeLong(entry.dateModified);
+		out.writeInt(entry.version);
+		out.writeInt(payload.length);
+		out.writeInt((int) crc.getValue());
+		long payloadOffset = out.size();
+		out.write(payload);
+		return payloadOffset;
+	}
+
+	private static void skipFully(DataInputStream is, int len) throws IOException {
+		while (len > 0) {
+			int skipped = is.skipBytes(len);
+			if (skipped <= 0) {
+				throw new EOFException();
+			}
+			len -= skipped;
+		}
+	}
+
+	private static int utfLength(String s) {
+		int len = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= 0x0001 && c <= 0x007F) {
+				len++;
+			} else if (c > 0x07FF) {
+				len += 3;
+			} else {
+				len += 2;
+			}
+		}
+		return len;
+	}
+}
@@ -28,11 +28,14 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.Collection;
 
 public class CachedOsmandIndexes {
 
 	private OsmAndStoredIndex storedIndex;
 	private OsmAndStoredIndex.Builder storedIndexBuilder;
+	private CachedIndexJournal journal;
+	private boolean journalCompacted;
 	private Log log = PlatformUtil.getLog(CachedOsmandIndexes.class);
 	private boolean hasChanged = true;
 
@@ -40,7 +43,7 @@ public class CachedOsmandIndexes {
 
 	public void addToCache(BinaryMapIndexReader reader, File f) {
 		hasChanged = true;
-		if (storedIndexBuilder == null) {
+		if (storedIndexBuilder == null && journal == null) {
 			storedIndexBuilder = OsmandIndex.OsmAndStoredIndex.newBuilder();
 			storedIndexBuilder.setVersion(VERSION);
 			storedIndexBuilder.setDateCreated(System.currentTimeMillis());
@@ -157,8 +160,11 @@ public class CachedOsmandIndexes {
 			fileIndex.addRoutingIndex(routing);
 		}
 
-		storedIndexBuilder.addFileIndex(fileIndex);
-
+		if (journal != null) {
+			journal.put(fileIndex.build());
+		} else {
+			storedIndexBuilder.addFileIndex(fileIndex);
+		}
 	}
 
 	private void addRouteSubregion(RoutingPart.Builder routing, RouteSubregion sub, boolean base) {
@@ -177,7 +183,13 @@ public class CachedOsmandIndexes {
 	public BinaryMapIndexReader getReader(File f, boolean useStoredIndex) throws IOException {
 		RandomAccessFile mf = new RandomAccessFile(f.getPath(), "r");
 		FileIndex found = null;
-		if (storedIndex != null && useStoredIndex) {
+		if (journal != null && useStoredIndex) {
+			try {
+				found = journal.getFileIndex(f);
+			} catch (IOException e) {
+				log.error("Error reading index cache journal " + f.getName(), e);
+			}
+		} else if (storedIndex != null && useStoredIndex) {
 			for (int i = 0; i < storedIndex.getFileIndexCount(); i++) {
 				FileIndex fi = storedIndex.getFileIndex(i);
 				if (f.length() == fi.getSize() && f.getName().equals(fi.getFileName())) {
@@ -324,15 +336,63 @@ public class CachedOsmandIndexes {
 		log.info("Initialize cache " + (System.currentTimeMillis() - time));
 	}
 
+	/**
+	 * Writes full index. In journal mode it's written only if journal was compacted by {@link #writeToJournal()}
+	 * or file doesn't exist, so records changed since the last compaction are not in the file.
+	 */
 	public void writeToFile(File f) throws IOException {
-		if (hasChanged) {
+		if (journal != null ? journalCompacted || !f.exists() : hasChanged) {
+			OsmAndStoredIndex index;
+			if (journal != null) {
+				OsmAndStoredIndex.Builder builder = OsmandIndex.OsmAndStoredIndex.newBuilder();
+				builder.setVersion(VERSION);
+				builder.setDateCreated(System.currentTimeMillis());
+				builder.addAllFileIndex(journal.getAllFileIndexes());
+				index = builder.build();
+			} else {
+				index = storedIndexBuilder.build();
+			}
 			FileOutputStream outputStream = new FileOutputStream(f);
 			try {
-				storedIndexBuilder.build().writeTo(outputStream);
+				index.writeTo(outputStream);
 			} finally {
 				outputStream.close();
 			}
 		}
 	}
 
+	/**
+	 * Switches cache to the append-only journal format, so only changed files are written
+	 * and only headers of file records are read on startup.
+	 * Index previously read with {@link #readFromFile(File, int)} is imported into a new journal.
+	 */
+	public void readFromJournal(File f, int version) throws IOException {
+		journal = new CachedIndexJournal(f, version);
+		journal.load();
+		if (journal.size() == 0 && storedIndex != null) {
+			for (FileIndex fi : storedIndex.getFileIndexList()) {
+				journal.put(fi);
+			}
+		}
+		storedIndex = null;
+		storedIndexBuilder = null;
+		hasChanged = journal.hasChanges();
+	}
+
+	/**
+	 * Removes cached records of files that are not present anymore (works only in journal mode).
+	 */
+	public void retainFiles(Collection<File> files) {
+		if (journal != null) {
+			journal.retainFiles(files);
+			hasChanged |= journal.hasChanges();
+		}
+	}
+
+	public void writeToJournal() throws IOException {
+		if (journal != null) {
+			journalCompacted |= journal.flush();
+		}
+	}
+
 }
@@ -7,6 +7,7 @@ import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.data.Building;
 import net.osmand.data.City;
+import net.osmand.data.CityAddressIndex;
 import net.osmand.data.LatLon;
 import net.osmand.data.MapObject;
 import net.osmand.data.Street;
@@ -27,6 +28,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -49,6 +51,44 @@ public class GeocodingUtilities {
 	public static final float THRESHOLD_MULTIPLIER_SKIP_BUILDINGS_AFTER = 1.5f;
 	public static final float DISTANCE_BUILDING_PROXIMITY = 100;
 
+	public static final int MAX_CACHED_STREET_NAMES = 2000;
+	public static final int MAX_CACHED_CITY_INDEXES = 16;
+
+	// streets found by name and indexed buildings of their cities, shared by searches of neighbour points
+	private final StreetsCache streetsCache;
+
+	public GeocodingUtilities() {
+		this(false);
+	}
+
+	/**
+	 * @param cacheStreets keep streets found by name and spatial indexes of their cities between searches
+	 *                     (instance should be used by one thread)
+	 */
+	public GeocodingUtilities(boolean cacheStreets) {
+		streetsCache = cacheStreets ? new StreetsCache() : null;
+	}
+
+	private static class StreetsCache {
+		private final Map<String, List<Street>> streets = new LinkedHashMap<String, List<Street>>(256, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, List<Street>> eldest) {
+				return size() > MAX_CACHED_STREET_NAMES;
+			}
+		};
+		// cities with all buildings loaded by file and city offset
+		private final Map<String, CityAddressIndex> cities = new LinkedHashMap<String, CityAddressIndex>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CityAddressIndex> eldest) {
+				return size() > MAX_CACHED_CITY_INDEXES;
+			}
+		};
+	}
+
 
 	public static final Comparator<GeocodingResult> DISTANCE_COMPARATOR = new Comparator<GeocodingResult>() {
 
@@ -244,36 +284,34 @@ public class GeocodingUtilities {
 					mainWord = s;
 				}
 			}
-			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
-					new ResultMatcher<MapObject>() {
-						@Override
-						public boolean publish(MapObject object) {
-							if (object instanceof Street
-									&& prepareStreetName(object.getName(), addCommonWordsFinal).equals(streetNamesUsedFinal)) {
-								double d = MapUtils.getDistance(object.getLocation(), road.searchPoint.getLatitude(),
-										road.searchPoint.getLongitude());
-								// double check to suport old format
-								if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
-									GeocodingResult rs = new GeocodingResult(road);
-									rs.street = (Street) object;
-									// set connection point to sort
-									rs.connectionPoint = rs.street.getLocation();
-									rs.city = rs.street.getCity();
-									streetsList.add(rs);
-									return true;
-								}
-								return false;
-							}
-							return false;
-						}
-
-						@Override
-						public boolean isCancelled() {
-							return result != null && result.isCancelled();
-						}
-					}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
-			req.setBBoxRadius(road.getLocation().getLatitude(), road.getLocation().getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
-			reader.searchAddressDataByName(req);
+			List<Street> streets;
+			if (streetsCache != null) {
+				// all streets with the name are searched once and filtered by distance for every point
+				String key = reader.getFile().getAbsolutePath() + " " + streetNamesUsedFinal + " " + addCommonWordsFinal;
+				streets = streetsCache.streets.get(key);
+				if (streets == null) {
+					streets = searchStreets(reader, mainWord, streetNamesUsedFinal, addCommonWordsFinal, null, result);
+					if (result == null || !result.isCancelled()) {
+						streetsCache.streets.put(key, streets);
+					}
+				}
+			} else {
+				streets = searchStreets(reader, mainWord, streetNamesUsedFinal, addCommonWordsFinal, road.getLocation(),
+						result);
+			}
+			for (Street street : streets) {
+				double d = MapUtils.getDistance(street.getLocation(), road.searchPoint.getLatitude(),
+						road.searchPoint.getLongitude());
+				// double check to suport old format
+				if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
+					GeocodingResult rs = new GeocodingResult(road);
+					rs.street = street;
+					// set connection point to sort
+					rs.connectionPoint = rs.street.getLocation();
+					rs.city = rs.street.getCity();
+					streetsList.add(rs);
+				}
+			}
 		}
 
 		final List<GeocodingResult> res = new ArrayList<GeocodingResult>();
@@ -317,6 +355,33 @@ public class GeocodingUtilities {
 		return res;
 	}
 
+	private List<Street> searchStreets(BinaryMapIndexReader reader, String mainWord, final List<String> streetNames,
+			final boolean addCommonWords, LatLon location, final ResultMatcher<GeocodingResult> result) throws IOException {
+		final List<Street> streets = new ArrayList<Street>();
+		SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
+				new ResultMatcher<MapObject>() {
+					@Override
+					public boolean publish(MapObject object) {
+						if (object instanceof Street
+								&& prepareStreetName(object.getName(), addCommonWords).equals(streetNames)) {
+							streets.add((Street) object);
+							return true;
+						}
+						return false;
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return result != null && result.isCancelled();
+					}
+				}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+		if (location != null) {
+			req.setBBoxRadius(location.getLatitude(), location.getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
+		}
+		reader.searchAddressDataByName(req);
+		return streets;
+	}
+
 	public void filterDuplicateRegionResults(final List<GeocodingResult> res) {
 		Collections.sort(res, DISTANCE_COMPARATOR);
 		// filter duplicate city results (when building is in both regions on boundary)
@@ -364,9 +429,18 @@ public class GeocodingUtilities {
 	private List<GeocodingResult> loadStreetBuildings(final GeocodingResult road, BinaryMapIndexReader reader,
 			GeocodingResult street) throws IOException {
 		final List<GeocodingResult> streetBuildings = new ArrayList<GeocodingResult>();
-		reader.preloadBuildings(street.street, null);
-		log.info("Preload buildings " + street.street.getName() + " " + street.city.getName() + " " + street.street.getId());
-		for (Building b : street.street.getBuildings()) {
+		List<Building> buildings;
+		City city = street.street.getCity();
+		if (streetsCache != null && city != null) {
+			CityAddressIndex index = getCityIndex(reader, city);
+			buildings = index.getBuildings(street.street, road.searchPoint.getLatitude(),
+					road.searchPoint.getLongitude(), DISTANCE_BUILDING_PROXIMITY);
+		} else {
+			reader.preloadBuildings(street.street, null);
+			log.info("Preload buildings " + street.street.getName() + " " + street.city.getName() + " " + street.street.getId());
+			buildings = street.street.getBuildings();
+		}
+		for (Building b : buildings) {
 			if (b.getLatLon2() != null) {
 				double slat = b.getLocation().getLatitude();
 				double slon = b.getLocation().getLongitude();
@@ -397,4 +471,26 @@ public class GeocodingUtilities {
 		}
 		return streetBuildings;
 	}
+
+	private CityAddressIndex getCityIndex(BinaryMapIndexReader reader, City city) throws IOException {
+		String key = reader.getFile().getAbsolutePath() + " " + city.getFileOffset();
+		CityAddressIndex index = streetsCache.cities.get(key);
+		if (index == null) {
+			// streets and buildings are loaded into a copy, so they are released with the index
+			City c = city.isPostcode() ? new City(city.getName(), city.getId()) : new City(city.getType());
+			c.setId(city.getId());
+			c.copyNames(city);
+			c.setLocation(city.getLocation());
+			c.setFileOffset(city.getFileOffset());
+			reader.preloadStreets(c, null);
+			for (Street s : c.getStreets()) {
+				reader.preloadBuildings(s, null);
+			}
+			index = new CityAddressIndex(c);
+			streetsCache.cities.put(key, index);
+			log.info("Index buildings of " + city.getName() + ": " + c.getStreets().size() + " streets, "
+					+ index.getBuildingsCount() + " buildings");
+		}
+		return index;
+	}
 }
@@ -0,0 +1,388 @@
+package net.osmand.binary;
+
+import net.osmand.CollationKeys;
+import net.osmand.Collator;
+import net.osmand.CollatorStringMatcher;
+import net.osmand.OsmAndCollator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * In-memory copy of an {@link OsmandOdb.IndexedStringTable} (address or poi name index) which resolves
+ * queries to the same offsets as {@link BinaryMapIndexReader#readIndexedStringTable} without file access.
+ * <p>
+ * Keys are compared by precomputed {@link CollationKeys} of the primary collator
+ * instead of collator comparison of every key. Keys or queries without collation keys
+ * are compared with {@link CollatorStringMatcher#cmatches} as before.
+ * <p>
+ * Nodes are stored in flat arrays, children of one node are contiguous.
+ */
+public class NamePrefixIndex {
+
+	private final String[] keys;
+	private final CollationKeys collationKeys;
+	// collation keys of key as compared text (lower case) and as compared prefix
+	private final char[][] textKeys;
+	private final char[][] startKeys;
+	private final int[] childStart;
+	private final int[] childCount;
+	private final int[] valStart;
+	private final int[] valCount;
+	// values stored in file before subtable of the key
+	private final int[] valsBeforeChildren;
+	private final int[] vals;
+	private final int rootCount;
+
+	private NamePrefixIndex(Builder b) {
+		int n = b.keys.size();
+		keys = b.keys.toArray(new String[n]);
+		collationKeys = CollationKeys.getInstance(OsmAndCollator.primaryCollator());
+		textKeys = new char[n][];
+		startKeys = new char[n][];
+		for (int i = 0; i < n && collationKeys != null; i++) {
+			textKeys[i] = textKey(collationKeys, keys[i]);
+			startKeys[i] = startKey(collationKeys, keys[i]);
+		}
+		childStart = b.childStart.toArray();
+		childCount = b.childCount.toArray();
+		valStart = b.valStart.toArray();
+		valCount = b.valCount.toArray();
+		valsBeforeChildren = b.valsBeforeChildren.toArray();
+		vals = b.vals.toArray();
+		rootCount = b.rootCount;
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	public boolean isEmpty() {
+		return keys.length == 0;
+	}
+
+	/**
+	 * Same contract as {@link BinaryMapIndexReader#readIndexedStringTable}
+	 */
+	public void search(Collator instance, List<String> queries, List<TIntArrayList> listOffsets,
+			TIntArrayList matchedCharacters) {
+		boolean useKeys = collationKeys != null && CollationKeys.getInstance(instance) == collationKeys;
+		char[][] queryTextKeys = new char[queries.size()][];
+		char[][] queryStartKeys = new char[queries.size()][];
+		for (int i = 0; i < queries.size() && useKeys; i++) {
+			if (queries.get(i) != null) {
+				queryTextKeys[i] = textKey(collationKeys, queries.get(i));
+				queryStartKeys[i] = startKey(collationKeys, queries.get(i));
+			}
+		}
+		searchLevel(instance, useKeys, 0, rootCount, queries, queryTextKeys, queryStartKeys, listOffsets,
+				matchedCharacters);
+	}
+
+	/**
+	 * @return true if query matches at least one key, so search by name could find anything
+	 */
+	public boolean containsPrefix(Collator instance, String query) {
+		List<String> queries = new ArrayList<>(1);
+		queries.add(query);
+		List<TIntArrayList> listOffsets = new ArrayList<>(1);
+		listOffsets.add(new TIntArrayList());
+		TIntArrayList charsList = new TIntArrayList();
+		charsList.add(0);
+		search(instance, queries, listOffsets, charsList);
+		return !listOffsets.get(0).isEmpty();
+	}
+
+	/**
+	 * Finds prefixes of keys which differ from query by at most maxEdits inserted, deleted or replaced chars.
+	 * Levenshtein automaton of query is run over the trie, so subtrees are skipped as soon as
+	 * no prefix of them could match. Chars are compared by collation keys if possible.
+	 *
+	 * @return prefixes in lower case with edit distance (best first), exact matches are not included
+	 */
+	public Map<String, Integer> fuzzyPrefixes(String query, int maxEdits, int limit) {
+		String q = CollatorStringMatcher.simplifyStringAndAlignChars(query);
+		char[] queryKey = collationKeys == null ? null : collationKeys.getKey(q);
+		FuzzySearch fs = new FuzzySearch(queryKey != null, queryKey != null ? queryKey : q.toCharArray(), maxEdits);
+		for (int node = 0; node < rootCount; node++) {
+			fuzzyNode(fs, node, null, maxEdits + 1);
+		}
+		List<Map.Entry<String, Integer>> entries = new ArrayList<>(fs.results.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+			@Override
+			public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
+				if (!o1.getValue().equals(o2.getValue())) {
+					return o1.getValue() < o2.getValue() ? -1 : 1;
+				}
+				return o2.getKey().length() - o1.getKey().length();
+			}
+		});
+		Map<String, Integer> res = new LinkedHashMap<>();
+		for (int i = 0; i < entries.size() && i < limit; i++) {
+			res.put(entries.get(i).getKey(), entries.get(i).getValue());
+		}
+		return res;
+	}
+
+	private static class FuzzySearch {
+		final boolean useKeys;
+		final char[] query;
+		final int maxEdits;
+		// rows[p] - edit distances between first p chars of current key and every prefix of query
+		int[][] rows = new int[16][];
+		final Map<String, Integer> results = new LinkedHashMap<>();
+
+		FuzzySearch(boolean useKeys, char[] query, int maxEdits) {
+			this.useKeys = useKeys;
+			this.maxEdits = maxEdits;
+			int len = 0;
+			char[] q = new char[query.length];
+			for (char c : query) {
+				// ignorable chars
+				if (c != 0) {
+					q[len++] = c;
+				}
+			}
+			this.query = Arrays.copyOf(q, len);
+			rows[0] = new int[len + 1];
+			for (int j = 0; j <= len; j++) {
+				rows[0][j] = j;
+			}
+		}
+
+		int[] row(int p) {
+			if (p >= rows.length) {
+				rows = Arrays.copyOf(rows, p * 2);
+			}
+			if (rows[p] == null) {
+				rows[p] = new int[query.length + 1];
+			}
+			return rows[p];
+		}
+	}
+
+	private void fuzzyNode(FuzzySearch fs, int node, char[] parentSeq, int bestOnPath) {
+		char[] seq = fs.useKeys ? textKeys[node] : CollatorStringMatcher.simplifyStringAndAlignChars(keys[node]).toCharArray();
+		if (seq == null) {
+			return;
+		}
+		int common = 0;
+		if (parentSeq != null) {
+			while (common < parentSeq.length && common < seq.length && parentSeq[common] == seq[common]) {
+				common++;
+			}
+			if (common < parentSeq.length) {
+				// key doesn't extend parent key, rows of the parent could be overwritten by other children
+				common = 0;
+			}
+		}
+		int m = fs.query.length;
+		for (int p = common; p < seq.length; p++) {
+			int[] prev = fs.row(p);
+			int[] next = fs.row(p + 1);
+			char c = seq[p];
+			if (fs.useKeys && c == 0) {
+				System.arraycopy(prev, 0, next, 0, m + 1);
+				continue;
+			}
+			next[0] = prev[0] + 1;
+			int min = next[0];
+			for (int j = 1; j <= m; j++) {
+				int cost = fs.query[j - 1] == c ? 0 : 1;
+				next[j] = Math.min(Math.min(prev[j] + 1, next[j - 1] + 1), prev[j - 1] + cost);
+				min = Math.min(min, next[j]);
+			}
+			if (next[m] < bestOnPath) {
+				// longer prefixes with the same distance are found by prefix search of this one
+				bestOnPath = next[m];
+				if (bestOnPath == 0) {
+					return;
+				}
+				String prefix = CollatorStringMatcher.simplifyStringAndAlignChars(keys[node]).substring(0, p + 1);
+				Integer d = fs.results.get(prefix);
+				if (d == null || d > bestOnPath) {
+					fs.results.put(prefix, bestOnPath);
+				}
+			}
+			if (min > fs.maxEdits) {
+				return;
+			}
+		}
+		for (int child = childStart[node]; child < childStart[node] + childCount[node]; child++) {
+			fuzzyNode(fs, child, seq, bestOnPath);
+		}
+	}
+
+	private void searchLevel(Collator instance, boolean useKeys, int start, int count, List<String> queries,
+			char[][] queryTextKeys, char[][] queryStartKeys, List<TIntArrayList> listOffsets,
+			TIntArrayList matchedCharacters) {
+		boolean[] matched = new boolean[queries.size()];
+		for (int node = start; node < start + count; node++) {
+			String key = keys[node];
+			boolean shouldWeReadSubtable = false;
+			for (int i = 0; i < queries.size(); i++) {
+				int charMatches = matchedCharacters.get(i);
+				String query = queries.get(i);
+				matched[i] = false;
+				if (query == null) {
+					continue;
+				}
+				if (useKeys ? startsWith(instance, key, textKeys[node], query, queryStartKeys[i])
+						: startsWith(instance, key, null, query, null)) {
+					if (query.length() >= charMatches) {
+						if (query.length() > charMatches) {
+							matchedCharacters.set(i, query.length());
+							listOffsets.get(i).clear();
+						}
+						matched[i] = true;
+					}
+				} else if (useKeys ? startsWith(instance, query, queryTextKeys[i], key, startKeys[node])
+						: startsWith(instance, query, null, key, null)) {
+					if (key.length() >= charMatches) {
+						if (key.length() > charMatches) {
+							matchedCharacters.set(i, key.length());
+							listOffsets.get(i).clear();
+						}
+						matched[i] = true;
+					}
+				}
+				shouldWeReadSubtable |= matched[i];
+			}
+			addValues(valStart[node], valStart[node] + valsBeforeChildren[node], matched, listOffsets);
+			if (shouldWeReadSubtable && childCount[node] > 0) {
+				List<String> subqueries = new ArrayList<>(queries);
+				char[][] subTextKeys = queryTextKeys.clone();
+				char[][] subStartKeys = queryStartKeys.clone();
+				for (int i = 0; i < queries.size(); i++) {
+					if (!matched[i]) {
+						subqueries.set(i, null);
+						subTextKeys[i] = null;
+						subStartKeys[i] = null;
+					}
+				}
+				searchLevel(instance, useKeys, childStart[node], childCount[node], subqueries, subTextKeys, subStartKeys,
+						listOffsets, matchedCharacters);
+			}
+			addValues(valStart[node] + valsBeforeChildren[node], valStart[node] + valCount[node], matched, listOffsets);
+		}
+	}
+
+	private void addValues(int from, int to, boolean[] matched, List<TIntArrayList> listOffsets) {
+		for (int v = from; v < to; v++) {
+			for (int i = 0; i < matched.length; i++) {
+				if (matched[i]) {
+					listOffsets.get(i).add(vals[v]);
+				}
+			}
+		}
+	}
+
+	private static boolean startsWith(Collator instance, String fullText, char[] fullTextKey, String start,
+			char[] startKey) {
+		if (fullTextKey == null || startKey == null) {
+			return CollatorStringMatcher.cmatches(instance, fullText, start,
+					CollatorStringMatcher.StringMatcherMode.CHECK_ONLY_STARTS_WITH);
+		}
+		if (startKey.length > fullTextKey.length) {
+			return false;
+		}
+		return CollationKeys.regionEquals(fullTextKey, 0, startKey.length, startKey);
+	}
+
+	// same conversions as CollatorStringMatcher does for compared text and prefix
+	private static char[] textKey(CollationKeys collationKeys, String s) {
+		return collationKeys.getKey(CollatorStringMatcher.simplifyStringAndAlignChars(s));
+	}
+
+	private static char[] startKey(CollationKeys collationKeys, String s) {
+		return collationKeys.getKey(CollatorStringMatcher.alignChars(s));
+	}
+
+	public void writeTo(DataOutputStream out) throws IOException {
+		out.writeInt(keys.length);
+		out.writeInt(rootCount);
+		for (int i = 0; i < keys.length; i++) {
+			out.writeUTF(keys[i]);
+			out.writeInt(childStart[i]);
+			out.writeInt(childCount[i]);
+			out.writeInt(valCount[i]);
+			out.writeInt(valsBeforeChildren[i]);
+			for (int v = valStart[i]; v < valStart[i] + valCount[i]; v++) {
+				out.writeInt(vals[v]);
+			}
+		}
+	}
+
+	public static NamePrefixIndex readFrom(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		Builder b = new Builder();
+		b.rootCount = in.readInt();
+		for (int i = 0; i < n; i++) {
+			b.keys.add(in.readUTF());
+			b.childStart.add(in.readInt());
+			b.childCount.add(in.readInt());
+			int valCount = in.readInt();
+			b.valStart.add(b.vals.size());
+			b.valCount.add(valCount);
+			b.valsBeforeChildren.add(in.readInt());
+			for (int v = 0; v < valCount; v++) {
+				b.vals.add(in.readInt());
+			}
+		}
+		return new NamePrefixIndex(b);
+	}
+
+	/**
+	 * Key of indexed string table read from file (with prefixes of parent keys)
+	 */
+	static class TableNode {
+		final String key;
+		final TIntArrayList vals = new TIntArrayList();
+		final List<TableNode> children = new ArrayList<>();
+		int valsBeforeChildren = -1;
+
+		TableNode(String key) {
+			this.key = key;
+		}
+	}
+
+	static NamePrefixIndex build(List<TableNode> roots) {
+		Builder b = new Builder();
+		b.rootCount = roots.size();
+		// breadth first, so children of every node are stored together
+		List<TableNode> queue = new ArrayList<>(roots);
+		for (int i = 0; i < queue.size(); i++) {
+			TableNode node = queue.get(i);
+			b.keys.add(node.key);
+			b.childStart.add(node.children.isEmpty() ? 0 : queue.size());
+			b.childCount.add(node.children.size());
+			b.valStart.add(b.vals.size());
+			b.valCount.add(node.vals.size());
+			b.valsBeforeChildren.add(node.valsBeforeChildren < 0 ? node.vals.size() : node.valsBeforeChildren);
+			b.vals.addAll(node.vals);
+			queue.addAll(node.children);
+		}
+		return new NamePrefixIndex(b);
+	}
+
+	private static class Builder {
+		private final List<String> keys = new ArrayList<>();
+		private final TIntArrayList childStart = new TIntArrayList();
+		private final TIntArrayList childCount = new TIntArrayList();
+		private final TIntArrayList valStart = new TIntArrayList();
+		private final TIntArrayList valCount = new TIntArrayList();
+		private final TIntArrayList valsBeforeChildren = new TIntArrayList();
+		private final TIntArrayList vals = new TIntArrayList();
+		private int rootCount;
+	}
+}
@@ -0,0 +1,200 @@
+package net.osmand.binary;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+
+import org.apache.commons.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores {@link NamePrefixIndex}es of obf files next to the index cache, so they are not rebuilt
+ * from name index tables on every start. Records are valid while size and modification date
+ * of obf file are the same.
+ */
+public class NamePrefixIndexCache {
+
+	public static final int VERSION = 1;
+	private static final int MAGIC = 0x4e504943;
+
+	private final Log log = PlatformUtil.getLog(NamePrefixIndexCache.class);
+	private final Map<String, FileRecord> records = new LinkedHashMap<>();
+	private boolean hasChanged = false;
+
+	private static class FileRecord {
+		long size;
+		long lastModified;
+		final List<RegionRecord> address = new ArrayList<>();
+		final List<RegionRecord> poi = new ArrayList<>();
+	}
+
+	private static class RegionRecord {
+		final int filePointer;
+		final NamePrefixIndex index;
+
+		RegionRecord(int filePointer, NamePrefixIndex index) {
+			this.filePointer = filePointer;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * Attaches cached indexes to address and poi regions of reader or builds them from file.
+	 */
+	public void attach(BinaryMapIndexReader reader, File f) throws IOException {
+		FileRecord r = records.get(f.getName());
+		if (r != null && r.size == f.length() && r.lastModified == f.lastModified()
+				&& apply(r.address, reader.addressIndexes) && apply(r.poi, reader.poiIndexes)) {
+			return;
+		}
+		reader.buildNamePrefixIndexes();
+		r = new FileRecord();
+		r.size = f.length();
+		r.lastModified = f.lastModified();
+		for (AddressRegion reg : reader.addressIndexes) {
+			if (reg.namePrefixIndex != null) {
+				r.address.add(new RegionRecord(reg.filePointer, reg.namePrefixIndex));
+			}
+		}
+		for (PoiRegion reg : reader.poiIndexes) {
+			if (reg.namePrefixIndex != null) {
+				r.poi.add(new RegionRecord(reg.filePointer, reg.namePrefixIndex));
+			}
+		}
+		records.put(f.getName(), r);
+		hasChanged = true;
+	}
+
+	private boolean apply(List<RegionRecord> regionRecords, List<? extends BinaryIndexPart> regions) {
+		List<BinaryIndexPart> withIndex = new ArrayList<>();
+		for (BinaryIndexPart p : regions) {
+			if (!(p instanceof AddressRegion) || ((AddressRegion) p).indexNameOffset != -1) {
+				withIndex.add(p);
+			}
+		}
+		if (withIndex.size() != regionRecords.size()) {
+			return false;
+		}
+		for (int i = 0; i < withIndex.size(); i++) {
+			if (withIndex.get(i).filePointer != regionRecords.get(i).filePointer) {
+				return false;
+			}
+		}
+		for (int i = 0; i < withIndex.size(); i++) {
+			BinaryIndexPart p = withIndex.get(i);
+			if (p instanceof AddressRegion) {
+				((AddressRegion) p).namePrefixIndex = regionRecords.get(i).index;
+			} else if (p instanceof PoiRegion) {
+				((PoiRegion) p).namePrefixIndex = regionRecords.get(i).index;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes records of files that are not present anymore.
+	 */
+	public void retainFiles(Collection<File> files) {
+		Set<String> names = new HashSet<>();
+		for (File f : files) {
+			names.add(f.getName());
+		}
+		Iterator<String> it = records.keySet().iterator();
+		while (it.hasNext()) {
+			if (!names.contains(it.next())) {
+				it.remove();
+				hasChanged = true;
+			}
+		}
+	}
+
+	public void readFromFile(File f) throws IOException {
+		long time = System.currentTimeMillis();
+		records.clear();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				hasChanged = true;
+				return;
+			}
+			int files = in.readInt();
+			for (int i = 0; i < files; i++) {
+				String name = in.readUTF();
+				FileRecord r = new FileRecord();
+				r.size = in.readLong();
+				r.lastModified = in.readLong();
+				readRegions(in, r.address);
+				readRegions(in, r.poi);
+				records.put(name, r);
+			}
+			hasChanged = false;
+		} finally {
+			in.close();
+		}
+		log.info("Initialize name prefix indexes " + (System.currentTimeMillis() - time));
+	}
+
+	private static void readRegions(DataInputStream in, List<RegionRecord> regions) throws IOException {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			int filePointer = in.readInt();
+			regions.add(new RegionRecord(filePointer, NamePrefixIndex.readFrom(in)));
+		}
+	}
+
+	/**
+	 * Writes records to temporary file which replaces the file, so interrupted write doesn't break the cache.
+	 */
+	public void writeToFile(File f) throws IOException {
+		if (!hasChanged) {
+			return;
+		}
+		File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(records.size());
+			for (Map.Entry<String, FileRecord> e : records.entrySet()) {
+				FileRecord r = e.getValue();
+				out.writeUTF(e.getKey());
+				out.writeLong(r.size);
+				out.writeLong(r.lastModified);
+				writeRegions(out, r.address);
+				writeRegions(out, r.poi);
+			}
+		} finally {
+			out.close();
+		}
+		// rename doesn't replace existing file on some file systems
+		if (!tmp.renameTo(f) && !(f.delete() && tmp.renameTo(f))) {
+			tmp.delete();
+			throw new IOException("Name index cache could not be replaced " + f.getAbsolutePath());
+		}
+		hasChanged = false;
+	}
+
+	private static void writeRegions(DataOutputStream out, List<RegionRecord> regions) throws IOException {
+		out.writeInt(regions.size());
+		for (RegionRecord r : regions) {
+			out.writeInt(r.filePointer);
+			r.index.writeTo(out);
+		}
+	}
+}
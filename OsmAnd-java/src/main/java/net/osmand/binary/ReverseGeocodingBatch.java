@@ -0,0 +1,263 @@
+package net.osmand.binary;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutingConfiguration;
+import net.osmand.router.RoutingContext;
+import net.osmand.util.MapUtils;
+
+import org.apache.commons.logging.Log;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reverse geocoding of many points (e.g. recorded GPS fixes). Points are processed in Hilbert curve order,
+ * so neighbour points are geocoded one after another and reuse routing tiles loaded by routing context,
+ * streets found by name and buildings of their cities. Every thread has its own readers and caches,
+ * points are given to threads by chunks of {@link #CHUNK_SIZE} points.
+ */
+public class ReverseGeocodingBatch {
+
+	private static final Log log = PlatformUtil.getLog(ReverseGeocodingBatch.class);
+
+	public static final int CHUNK_SIZE = 256;
+	// 2^16 x 2^16 grid, cells are ~600 m at equator
+	private static final int HILBERT_ORDER = 16;
+
+	private final RoutingConfiguration config;
+	private final BinaryMapIndexReader[] readers;
+	private final int threads;
+	private boolean allowEmptyNames = false;
+
+	private int lastPoints;
+	private long lastTime;
+
+	/**
+	 * @param readers readers with routing and address data, they are copied for every thread
+	 */
+	public ReverseGeocodingBatch(RoutingConfiguration config, BinaryMapIndexReader[] readers, int threads) {
+		this.config = config;
+		this.readers = readers;
+		this.threads = Math.max(1, threads);
+	}
+
+	public void setAllowEmptyNames(boolean allowEmptyNames) {
+		this.allowEmptyNames = allowEmptyNames;
+	}
+
+	/**
+	 * @return best result for every point in the same order as points, null if nothing is found
+	 */
+	public List<GeocodingResult> reverseGeocoding(List<LatLon> points) throws IOException {
+		long time = System.currentTimeMillis();
+		final GeocodingResult[] results = new GeocodingResult[points.size()];
+		final int[] order = sortByHilbertIndex(points);
+		final List<LatLon> pointsList = points;
+		final AtomicInteger nextChunk = new AtomicInteger();
+		if (threads == 1) {
+			new Worker(readers).run(pointsList, order, results, nextChunk);
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<Void>> futures = new ArrayList<>();
+				for (int i = 0; i < threads; i++) {
+					futures.add(executor.submit(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							BinaryMapIndexReader[] copies = copyReaders();
+							try {
+								new Worker(copies).run(pointsList, order, results, nextChunk);
+							} finally {
+								for (BinaryMapIndexReader r : copies) {
+									r.close();
+								}
+							}
+							return null;
+						}
+					}));
+				}
+				for (Future<Void> f : futures) {
+					f.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		lastPoints = points.size();
+		lastTime = System.currentTimeMillis() - time;
+		log.info("Reverse geocoding of " + lastPoints + " points is done in " + lastTime + " ms ("
+				+ (int) getPointsPerSecond() + " points/sec)");
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * @return throughput of the last {@link #reverseGeocoding(List)} call
+	 */
+	public double getPointsPerSecond() {
+		return lastTime == 0 ? 0 : lastPoints * 1000d / lastTime;
+	}
+
+	private BinaryMapIndexReader[] copyReaders() throws IOException {
+		BinaryMapIndexReader[] copies = new BinaryMapIndexReader[readers.length];
+		for (int i = 0; i < readers.length; i++) {
+			copies[i] = copyReader(readers[i]);
+		}
+		return copies;
+	}
+
+	protected BinaryMapIndexReader copyReader(BinaryMapIndexReader reader) throws IOException {
+		return new BinaryMapIndexReader(new RandomAccessFile(reader.getFile(), "r"), reader);
+	}
+
+	protected RoutingContext createRoutingContext(BinaryMapIndexReader[] readers) {
+		return new RoutePlannerFrontEnd().buildRoutingContext(config, null, readers);
+	}
+
+	/**
+	 * @return named roads near the point (first step of reverse geocoding)
+	 */
+	protected List<GeocodingResult> searchRoads(GeocodingUtilities gu, RoutingContext ctx, double lat, double lon)
+			throws IOException {
+		return gu.reverseGeocodingSearch(ctx, lat, lon, allowEmptyNames);
+	}
+
+	/**
+	 * Reverse geocoding of a single point with the same steps as in the app, caches of
+	 * {@link GeocodingUtilities} should not change the result.
+	 */
+	GeocodingResult reverseGeocoding(GeocodingUtilities gu, RoutingContext ctx, BinaryMapIndexReader[] readers,
+			double lat, double lon) throws IOException {
+		List<GeocodingResult> roads = searchRoads(gu, ctx, lat, lon);
+		List<GeocodingResult> complete = new ArrayList<>();
+		double minBuildingDistance = 0;
+		for (GeocodingResult r : roads) {
+			BinaryMapIndexReader reader = getReader(readers, r);
+			if (reader == null) {
+				complete.add(r);
+				continue;
+			}
+			List<GeocodingResult> justified = gu.justifyReverseGeocodingSearch(r, reader, minBuildingDistance, null);
+			if (!justified.isEmpty()) {
+				double md = justified.get(0).getDistance();
+				minBuildingDistance = minBuildingDistance == 0 ? md : Math.min(md, minBuildingDistance);
+				complete.addAll(justified);
+			}
+		}
+		gu.filterDuplicateRegionResults(complete);
+		GeocodingResult best = null;
+		for (GeocodingResult r : complete) {
+			if (best == null || r.getDistance() < best.getDistance()) {
+				best = r;
+			}
+		}
+		return best;
+	}
+
+	private static BinaryMapIndexReader getReader(BinaryMapIndexReader[] readers, GeocodingResult r) {
+		for (BinaryMapIndexReader reader : readers) {
+			for (RouteRegion rb : reader.getRoutingIndexes()) {
+				if (r.regionFP == rb.getFilePointer() && r.regionLen == rb.getLength()) {
+					return reader;
+				}
+			}
+		}
+		return null;
+	}
+
+	private class Worker {
+		private final BinaryMapIndexReader[] readers;
+		private final RoutingContext ctx;
+		private final GeocodingUtilities gu = new GeocodingUtilities(true);
+
+		Worker(BinaryMapIndexReader[] readers) {
+			this.readers = readers;
+			this.ctx = createRoutingContext(readers);
+		}
+
+		void run(List<LatLon> points, int[] order, GeocodingResult[] results, AtomicInteger nextChunk)
+				throws IOException {
+			int chunk;
+			while ((chunk = nextChunk.getAndIncrement()) * CHUNK_SIZE < order.length) {
+				int end = Math.min(order.length, (chunk + 1) * CHUNK_SIZE);
+				for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+					LatLon p = points.get(order[i]);
+					results[order[i]] = reverseGeocoding(gu, ctx, readers, p.getLatitude(), p.getLongitude());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return indexes of points sorted by position on Hilbert curve
+	 */
+	static int[] sortByHilbertIndex(List<LatLon> points) {
+		final long[] keys = new long[points.size()];
+		List<Integer> order = new ArrayList<>(points.size());
+		int shift = 31 - HILBERT_ORDER;
+		for (int i = 0; i < keys.length; i++) {
+			LatLon l = points.get(i);
+			int x = MapUtils.get31TileNumberX(l.getLongitude()) >> shift;
+			int y = MapUtils.get31TileNumberY(l.getLatitude()) >> shift;
+			keys[i] = getHilbertIndex(x, y, HILBERT_ORDER);
+			order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(keys[o1], keys[o2]);
+			}
+		});
+		int[] res = new int[order.size()];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = order.get(i);
+		}
+		return res;
+	}
+
+	/**
+	 * @return distance of cell (x, y) along Hilbert curve which fills 2^order x 2^order grid
+	 */
+	static long getHilbertIndex(int x, int y, int order) {
+		int n = 1 << order;
+		long d = 0;
+		for (int s = n >> 1; s > 0; s >>= 1) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			// rotate quadrant
+			if (ry == 0) {
+				if (rx == 1) {
+					x = n - 1 - x;
+					y = n - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+}
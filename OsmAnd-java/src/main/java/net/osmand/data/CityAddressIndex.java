@@ -0,0 +1,109 @@
+package net.osmand.data;
+
+import net.osmand.util.Algorithms;
+import net.osmand.util.MapUtils;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index of streets and buildings of a city (streets and their buildings should be loaded).
+ * Buildings are indexed by their points, interpolations by boxes of their segments.
+ */
+public class CityAddressIndex {
+
+	// a bit less than minimal length of latitude degree, so boxes of radius are never too small
+	private static final double METERS_IN_DEGREE = 110000;
+
+	private final City city;
+	private final PackedRTree<Street> streets;
+	private final PackedRTree<Building> buildings;
+	private final Map<Building, Street> buildingStreets = new IdentityHashMap<>();
+
+	public CityAddressIndex(City city) {
+		this.city = city;
+		PackedRTree.Builder<Street> sb = new PackedRTree.Builder<>();
+		PackedRTree.Builder<Building> bb = new PackedRTree.Builder<>();
+		for (Street s : city.getStreets()) {
+			LatLon l = s.getLocation();
+			if (l != null) {
+				int x = MapUtils.get31TileNumberX(l.getLongitude());
+				int y = MapUtils.get31TileNumberY(l.getLatitude());
+				sb.add(s, x, y, x, y);
+			}
+			for (Building b : s.getBuildings()) {
+				LatLon l1 = b.getLocation();
+				if (l1 == null) {
+					continue;
+				}
+				LatLon l2 = b.getLatLon2() != null ? b.getLatLon2() : l1;
+				bb.add(b, MapUtils.get31TileNumberX(l1.getLongitude()), MapUtils.get31TileNumberY(l1.getLatitude()),
+						MapUtils.get31TileNumberX(l2.getLongitude()), MapUtils.get31TileNumberY(l2.getLatitude()));
+				buildingStreets.put(b, s);
+			}
+		}
+		streets = sb.build();
+		buildings = bb.build();
+	}
+
+	public City getCity() {
+		return city;
+	}
+
+	public int getBuildingsCount() {
+		return buildings.size();
+	}
+
+	public Street getStreet(Building b) {
+		return buildingStreets.get(b);
+	}
+
+	/**
+	 * @return buildings and interpolations with boxes in radius (distance should be checked by caller)
+	 */
+	public List<Building> getBuildings(double lat, double lon, double radius) {
+		int[] box = getBox(lat, lon, radius);
+		return buildings.queryInBox(box[0], box[1], box[2], box[3], new ArrayList<Building>());
+	}
+
+	/**
+	 * @return buildings of street (found by id and name) near the point
+	 */
+	public List<Building> getBuildings(Street street, double lat, double lon, double radius) {
+		List<Building> res = getBuildings(lat, lon, radius);
+		for (int i = res.size() - 1; i >= 0; i--) {
+			Street s = buildingStreets.get(res.get(i));
+			if (!Algorithms.objectEquals(s.getId(), street.getId()) || !Algorithms.stringsEqual(s.getName(), street.getName())) {
+				res.remove(i);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return nearest street (by location of street) in radius or null
+	 */
+	public Street getNearestStreet(double lat, double lon, double radius) {
+		int[] box = getBox(lat, lon, radius);
+		Street nearest = null;
+		double minDist = radius;
+		for (Street s : streets.queryInBox(box[0], box[1], box[2], box[3], new ArrayList<Street>())) {
+			double d = MapUtils.getDistance(s.getLocation(), lat, lon);
+			if (d <= minDist) {
+				minDist = d;
+				nearest = s;
+			}
+		}
+		return nearest;
+	}
+
+	private static int[] getBox(double lat, double lon, double radius) {
+		double dlat = radius / METERS_IN_DEGREE;
+		double dlon = dlat / Math.max(0.01, Math.cos(Math.toRadians(lat)));
+		return new int[] {
+				MapUtils.get31TileNumberX(lon - dlon), MapUtils.get31TileNumberY(lat + dlat),
+				MapUtils.get31TileNumberX(lon + dlon), MapUtils.get31TileNumberY(lat - dlat) };
+	}
+}
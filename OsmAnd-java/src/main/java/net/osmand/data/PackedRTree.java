@@ -0,0 +1,259 @@
+package net.osmand.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Static R-tree bulk loaded with Sort-Tile-Recursive packing over integer boxes
+ * (31 tile coordinates, top <= bottom). All levels are stored in flat arrays,
+ * items are the lowest level and root is the last node.
+ */
+public class PackedRTree<T> {
+
+	public static final int DEFAULT_NODE_CAPACITY = 16;
+
+	private final List<T> items;
+	// left, top, right, bottom for every node of every level
+	private final int[] boxes;
+	// first child (absolute node index) and children count, not used for items
+	private final int[] childStart;
+	private final int[] childCount;
+	private final int itemsCount;
+	private final int root;
+
+	public interface DistanceFunction<T> {
+
+		/**
+		 * @return distance from x, y to item, not less than distance to item box
+		 */
+		double getDistance(T item, int x, int y);
+	}
+
+	public static class Builder<T> {
+		private final List<T> items = new ArrayList<T>();
+		private final TIntArrayList boxes = new TIntArrayList();
+		private int nodeCapacity = DEFAULT_NODE_CAPACITY;
+
+		public Builder<T> setNodeCapacity(int nodeCapacity) {
+			this.nodeCapacity = Math.max(2, nodeCapacity);
+			return this;
+		}
+
+		public Builder<T> add(T item, int left, int top, int right, int bottom) {
+			items.add(item);
+			boxes.add(Math.min(left, right));
+			boxes.add(Math.min(top, bottom));
+			boxes.add(Math.max(left, right));
+			boxes.add(Math.max(top, bottom));
+			return this;
+		}
+
+		public int size() {
+			return items.size();
+		}
+
+		public PackedRTree<T> build() {
+			return new PackedRTree<T>(items, boxes.toArray(), nodeCapacity);
+		}
+	}
+
+	private PackedRTree(List<T> srcItems, int[] srcBoxes, int nodeCapacity) {
+		int n = srcItems.size();
+		itemsCount = n;
+		// count nodes of all levels
+		int total = n;
+		int levelSize = n;
+		while (levelSize > 1) {
+			levelSize = (levelSize + nodeCapacity - 1) / nodeCapacity;
+			total += levelSize;
+		}
+		boxes = new int[total * 4];
+		childStart = new int[total];
+		childCount = new int[total];
+
+		Integer[] order = strOrder(srcBoxes, n, nodeCapacity);
+		List<T> sortedItems = new ArrayList<T>(n);
+		for (int i = 0; i < n; i++) {
+			int ind = order[i];
+			sortedItems.add(srcItems.get(ind));
+			System.arraycopy(srcBoxes, ind * 4, boxes, i * 4, 4);
+		}
+		items = sortedItems;
+
+		int levelStart = 0;
+		levelSize = n;
+		int next = n;
+		while (levelSize > 1) {
+			int parents = (levelSize + nodeCapacity - 1) / nodeCapacity;
+			int[] parentBoxes = new int[parents * 4];
+			int[] parentStart = new int[parents];
+			int[] parentCount = new int[parents];
+			for (int p = 0; p < parents; p++) {
+				int from = levelStart + p * nodeCapacity;
+				int to = Math.min(levelStart + levelSize, from + nodeCapacity);
+				int l = Integer.MAX_VALUE, t = Integer.MAX_VALUE, r = Integer.MIN_VALUE, b = Integer.MIN_VALUE;
+				for (int c = from; c < to; c++) {
+					l = Math.min(l, boxes[c * 4]);
+					t = Math.min(t, boxes[c * 4 + 1]);
+					r = Math.max(r, boxes[c * 4 + 2]);
+					b = Math.max(b, boxes[c * 4 + 3]);
+				}
+				parentBoxes[p * 4] = l;
+				parentBoxes[p * 4 + 1] = t;
+				parentBoxes[p * 4 + 2] = r;
+				parentBoxes[p * 4 + 3] = b;
+				parentStart[p] = from;
+				parentCount[p] = to - from;
+			}
+			// children ranges stay contiguous, only parents are reordered for the next level
+			Integer[] parentOrder = strOrder(parentBoxes, parents, nodeCapacity);
+			for (int i = 0; i < parents; i++) {
+				int ind = parentOrder[i];
+				System.arraycopy(parentBoxes, ind * 4, boxes, (next + i) * 4, 4);
+				childStart[next + i] = parentStart[ind];
+				childCount[next + i] = parentCount[ind];
+			}
+			levelStart = next;
+			levelSize = parents;
+			next += parents;
+		}
+		root = total - 1;
+	}
+
+	private static Integer[] strOrder(final int[] boxes, int size, int nodeCapacity) {
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		if (size <= nodeCapacity) {
+			return order;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return compareCenter(boxes, o1, o2, 0);
+			}
+		});
+		int leaves = (size + nodeCapacity - 1) / nodeCapacity;
+		int slices = (int) Math.ceil(Math.sqrt(leaves));
+		int sliceSize = slices * nodeCapacity;
+		Comparator<Integer> yComparator = new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return compareCenter(boxes, o1, o2, 1);
+			}
+		};
+		for (int s = 0; s < size; s += sliceSize) {
+			Arrays.sort(order, s, Math.min(size, s + sliceSize), yComparator);
+		}
+		return order;
+	}
+
+	private static int compareCenter(int[] boxes, int i1, int i2, int axis) {
+		long c1 = (long) boxes[i1 * 4 + axis] + boxes[i1 * 4 + axis + 2];
+		long c2 = (long) boxes[i2 * 4 + axis] + boxes[i2 * 4 + axis + 2];
+		return c1 < c2 ? -1 : (c1 == c2 ? 0 : 1);
+	}
+
+	public int size() {
+		return itemsCount;
+	}
+
+	public boolean isEmpty() {
+		return itemsCount == 0;
+	}
+
+	public T getItem(int i) {
+		return items.get(i);
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	public List<T> queryInBox(int left, int top, int right, int bottom, List<T> result) {
+		result.clear();
+		if (itemsCount == 0) {
+			return result;
+		}
+		TIntArrayList stack = new TIntArrayList();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			int node = stack.removeAt(stack.size() - 1);
+			int o = node * 4;
+			if (boxes[o] > right || boxes[o + 2] < left || boxes[o + 1] > bottom || boxes[o + 3] < top) {
+				continue;
+			}
+			if (node < itemsCount) {
+				result.add(items.get(node));
+			} else {
+				int start = childStart[node];
+				for (int c = start + childCount[node] - 1; c >= start; c--) {
+					stack.add(c);
+				}
+			}
+		}
+		return result;
+	}
+
+	public boolean intersects(int left, int top, int right, int bottom) {
+		return !queryInBox(left, top, right, bottom, new ArrayList<T>()).isEmpty();
+	}
+
+	/**
+	 * Best-first search of item nearest to x, y. Distance to boxes is euclidean in coordinates of boxes.
+	 *
+	 * @return nearest item with distance not more than maxDistance or null
+	 */
+	public T findNearest(int x, int y, double maxDistance, DistanceFunction<T> distanceFunction) {
+		if (itemsCount == 0) {
+			return null;
+		}
+		// distance to node box and node
+		PriorityQueue<double[]> queue = new PriorityQueue<double[]>(16, new Comparator<double[]>() {
+			@Override
+			public int compare(double[] o1, double[] o2) {
+				return Double.compare(o1[0], o2[0]);
+			}
+		});
+		queue.add(new double[] {getBoxDistance(root, x, y), root});
+		T nearest = null;
+		double minDistance = maxDistance;
+		while (!queue.isEmpty()) {
+			double[] next = queue.poll();
+			if (next[0] > minDistance) {
+				break;
+			}
+			int node = (int) next[1];
+			if (node < itemsCount) {
+				T item = items.get(node);
+				double d = distanceFunction.getDistance(item, x, y);
+				if (d < minDistance || (nearest == null && d <= minDistance)) {
+					nearest = item;
+					minDistance = d;
+				}
+			} else {
+				int start = childStart[node];
+				for (int c = start; c < start + childCount[node]; c++) {
+					double d = getBoxDistance(c, x, y);
+					if (d <= minDistance) {
+						queue.add(new double[] {d, c});
+					}
+				}
+			}
+		}
+		return nearest;
+	}
+
+	private double getBoxDistance(int node, int x, int y) {
+		int o = node * 4;
+		double dx = x < boxes[o] ? (double) boxes[o] - x : (x > boxes[o + 2] ? (double) x - boxes[o + 2] : 0);
+		double dy = y < boxes[o + 1] ? (double) boxes[o + 1] - y : (y > boxes[o + 3] ? (double) y - boxes[o + 3] : 0);
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+}
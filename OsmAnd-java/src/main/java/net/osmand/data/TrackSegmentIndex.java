@@ -0,0 +1,261 @@
+package net.osmand.data;
+
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.TrackPoints;
+import net.osmand.util.MapUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Spatial index of track segment points (31 tile coordinates). Points are grouped into runs of consecutive
+ * points, neighbour runs share end point, so every edge of segment belongs to one run. Runs are items of
+ * packed R-trees: points appended to segment (recorded track) are indexed by new tree which is merged with
+ * previous trees of not larger size, so every run is repacked O(log n) times.
+ *
+ * Incomplete last run is checked by its bounding box, its points are searched linearly. If points were removed,
+ * index is rebuilt, changes of coordinates of indexed points are not detected. Index is updated and queried from
+ * different threads (recording and drawing).
+ */
+public class TrackSegmentIndex {
+
+	public static final int DEFAULT_RUN_SIZE = 16;
+
+	private final List<WptPt> points;
+	private final int runSize;
+
+	// trees of consecutive runs in order of runs, sizes of trees are decreasing
+	private final List<PackedRTree<Integer>> trees = new ArrayList<>();
+	private final TIntArrayList treeRuns = new TIntArrayList();
+	// left, top, right, bottom of indexed runs
+	private final TIntArrayList runBoxes = new TIntArrayList();
+	private int runs;
+
+	// left, top, right, bottom of incomplete last run
+	private final int[] lastRunBox = new int[4];
+
+	private int boundsPoints;
+	private int left;
+	private int top;
+	private int right;
+	private int bottom;
+
+	public TrackSegmentIndex(List<WptPt> points) {
+		this(points, DEFAULT_RUN_SIZE);
+	}
+
+	public TrackSegmentIndex(List<WptPt> points, int runSize) {
+		this.points = points;
+		this.runSize = Math.max(1, runSize);
+		update();
+	}
+
+	public List<WptPt> getPoints() {
+		return points;
+	}
+
+	public int getRunSize() {
+		return runSize;
+	}
+
+	/**
+	 * Indexes points appended since previous call.
+	 */
+	public synchronized void update() {
+		int size = points.size();
+		if (size < boundsPoints) {
+			trees.clear();
+			treeRuns.clear();
+			runBoxes.clear();
+			runs = 0;
+			boundsPoints = 0;
+		}
+		if (boundsPoints == 0) {
+			left = Integer.MAX_VALUE;
+			top = Integer.MAX_VALUE;
+			right = Integer.MIN_VALUE;
+			bottom = Integer.MIN_VALUE;
+		}
+		for (int i = boundsPoints; i < size; i++) {
+			int x = getX(i);
+			int y = getY(i);
+			left = Math.min(left, x);
+			top = Math.min(top, y);
+			right = Math.max(right, x);
+			bottom = Math.max(bottom, y);
+		}
+		boundsPoints = size;
+
+		int completeRuns = size > 0 ? (size - 1) / runSize : 0;
+		if (completeRuns > runs) {
+			for (int r = runs; r < completeRuns; r++) {
+				addRunBox(r * runSize, (r + 1) * runSize);
+			}
+			addTree(runs, completeRuns);
+			runs = completeRuns;
+		}
+		int lastStart = runs * runSize;
+		if (lastStart < size) {
+			setBox(lastRunBox, lastStart, size - 1);
+		}
+	}
+
+	private void addRunBox(int start, int end) {
+		int[] box = new int[4];
+		setBox(box, start, end);
+		runBoxes.add(box);
+	}
+
+	private void setBox(int[] box, int start, int end) {
+		int l = Integer.MAX_VALUE, t = Integer.MAX_VALUE, r = Integer.MIN_VALUE, b = Integer.MIN_VALUE;
+		for (int i = start; i <= end; i++) {
+			int x = getX(i);
+			int y = getY(i);
+			l = Math.min(l, x);
+			t = Math.min(t, y);
+			r = Math.max(r, x);
+			b = Math.max(b, y);
+		}
+		box[0] = l;
+		box[1] = t;
+		box[2] = r;
+		box[3] = b;
+	}
+
+	private void addTree(int fromRun, int toRun) {
+		while (!trees.isEmpty() && treeRuns.get(treeRuns.size() - 1) <= toRun - fromRun) {
+			fromRun -= treeRuns.removeAt(treeRuns.size() - 1);
+			trees.remove(trees.size() - 1);
+		}
+		PackedRTree.Builder<Integer> builder = new PackedRTree.Builder<>();
+		for (int r = fromRun; r < toRun; r++) {
+			builder.add(r * runSize, runBoxes.get(r * 4), runBoxes.get(r * 4 + 1),
+					runBoxes.get(r * 4 + 2), runBoxes.get(r * 4 + 3));
+		}
+		trees.add(builder.build());
+		treeRuns.add(toRun - fromRun);
+	}
+
+	private int getX(int i) {
+		return MapUtils.get31TileNumberX(TrackPoints.getLongitude(points, i));
+	}
+
+	private int getY(int i) {
+		return MapUtils.get31TileNumberY(TrackPoints.getLatitude(points, i));
+	}
+
+	public synchronized boolean isEmpty() {
+		return boundsPoints == 0;
+	}
+
+	public synchronized int getLeft() {
+		return left;
+	}
+
+	public synchronized int getTop() {
+		return top;
+	}
+
+	public synchronized int getRight() {
+		return right;
+	}
+
+	public synchronized int getBottom() {
+		return bottom;
+	}
+
+	public synchronized boolean intersects(int left, int top, int right, int bottom) {
+		return !isEmpty() && this.left <= right && this.right >= left && this.top <= bottom && this.bottom >= top;
+	}
+
+	/**
+	 * @return index of last point of run started at start point
+	 */
+	public synchronized int getRunEnd(int start) {
+		return Math.min(start + runSize, boundsPoints - 1);
+	}
+
+	/**
+	 * @return start indexes of runs intersecting box in increasing order
+	 */
+	public synchronized TIntArrayList queryRuns(int left, int top, int right, int bottom, TIntArrayList result) {
+		result.clear();
+		if (!intersects(left, top, right, bottom)) {
+			return result;
+		}
+		List<Integer> found = new ArrayList<>();
+		for (PackedRTree<Integer> tree : trees) {
+			tree.queryInBox(left, top, right, bottom, found);
+			int from = result.size();
+			for (Integer start : found) {
+				result.add(start);
+			}
+			result.sort(from, result.size());
+		}
+		int lastStart = runs * runSize;
+		if (lastStart < boundsPoints && (lastStart == 0 || lastStart < boundsPoints - 1)
+				&& lastRunBox[0] <= right && lastRunBox[2] >= left && lastRunBox[1] <= bottom && lastRunBox[3] >= top) {
+			// edges of last run can cross box while its points are outside
+			result.add(lastStart);
+		}
+		return result;
+	}
+
+	/**
+	 * @return index of point nearest to x, y or -1 if there are no points within maxDistance (31 tile units)
+	 */
+	public synchronized int findNearestPoint(int x, int y, double maxDistance) {
+		int nearest = -1;
+		double minDistance = maxDistance;
+		PackedRTree.DistanceFunction<Integer> distance = new PackedRTree.DistanceFunction<Integer>() {
+			@Override
+			public double getDistance(Integer start, int x, int y) {
+				return TrackSegmentIndex.this.getDistance(findNearestPoint(start, getRunEnd(start), x, y), x, y);
+			}
+		};
+		for (PackedRTree<Integer> tree : trees) {
+			Integer start = tree.findNearest(x, y, minDistance, distance);
+			if (start != null) {
+				int ind = findNearestPoint(start, getRunEnd(start), x, y);
+				double d = getDistance(ind, x, y);
+				if (nearest == -1 || d < minDistance || (d == minDistance && ind < nearest)) {
+					nearest = ind;
+					minDistance = d;
+				}
+			}
+		}
+		int lastStart = runs * runSize;
+		if (lastStart < boundsPoints) {
+			int ind = findNearestPoint(lastStart, boundsPoints - 1, x, y);
+			double d = getDistance(ind, x, y);
+			if (d < minDistance || (nearest == -1 && d <= minDistance)) {
+				nearest = ind;
+			}
+		}
+		return nearest;
+	}
+
+	private int findNearestPoint(int start, int end, int x, int y) {
+		int nearest = start;
+		double minDistance = getDistance(start, x, y);
+		for (int i = start + 1; i <= end; i++) {
+			double d = getDistance(i, x, y);
+			if (d < minDistance) {
+				nearest = i;
+				minDistance = d;
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * @return distance from point to x, y in 31 tile units
+	 */
+	public synchronized double getDistance(int i, int x, int y) {
+		double dx = (double) getX(i) - x;
+		double dy = (double) getY(i) - y;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+}
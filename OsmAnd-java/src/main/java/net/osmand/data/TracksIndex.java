@@ -0,0 +1,153 @@
+package net.osmand.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Spatial index of segments of several tracks. Segments are items of packed R-tree by their bounds,
+ * live segments (growing recorded track) are checked by their current bounds on every query.
+ * Results are returned in order segments were added.
+ */
+public class TracksIndex<T> {
+
+	private final List<SegmentEntry<T>> entries;
+	private final PackedRTree<SegmentEntry<T>> tree;
+	private final List<SegmentEntry<T>> liveEntries;
+
+	public static class SegmentEntry<T> {
+		private final T track;
+		private final TrackSegmentIndex index;
+		private final int order;
+		private final boolean live;
+
+		private SegmentEntry(T track, TrackSegmentIndex index, int order, boolean live) {
+			this.track = track;
+			this.index = index;
+			this.order = order;
+			this.live = live;
+		}
+
+		public T getTrack() {
+			return track;
+		}
+
+		public TrackSegmentIndex getIndex() {
+			return index;
+		}
+
+		public boolean isLive() {
+			return live;
+		}
+	}
+
+	public static class NearestPoint<T> {
+		private final SegmentEntry<T> segment;
+		private final int pointIndex;
+		private final double distance;
+
+		private NearestPoint(SegmentEntry<T> segment, int pointIndex, double distance) {
+			this.segment = segment;
+			this.pointIndex = pointIndex;
+			this.distance = distance;
+		}
+
+		public SegmentEntry<T> getSegment() {
+			return segment;
+		}
+
+		public int getPointIndex() {
+			return pointIndex;
+		}
+
+		public double getDistance() {
+			return distance;
+		}
+	}
+
+	public static class Builder<T> {
+		private final List<SegmentEntry<T>> entries = new ArrayList<>();
+
+		/**
+		 * @param live segment is growing, its bounds are checked on every query
+		 */
+		public Builder<T> add(T track, TrackSegmentIndex index, boolean live) {
+			entries.add(new SegmentEntry<>(track, index, entries.size(), live));
+			return this;
+		}
+
+		public TracksIndex<T> build() {
+			return new TracksIndex<>(entries);
+		}
+	}
+
+	private TracksIndex(List<SegmentEntry<T>> entries) {
+		this.entries = entries;
+		liveEntries = new ArrayList<>();
+		PackedRTree.Builder<SegmentEntry<T>> builder = new PackedRTree.Builder<>();
+		for (SegmentEntry<T> entry : entries) {
+			TrackSegmentIndex index = entry.index;
+			if (entry.live) {
+				liveEntries.add(entry);
+			} else if (!index.isEmpty()) {
+				builder.add(entry, index.getLeft(), index.getTop(), index.getRight(), index.getBottom());
+			}
+		}
+		tree = builder.build();
+	}
+
+	public List<SegmentEntry<T>> getSegments() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * @return segments intersecting box in order they were added
+	 */
+	public List<SegmentEntry<T>> querySegments(int left, int top, int right, int bottom) {
+		List<SegmentEntry<T>> result = new ArrayList<>();
+		tree.queryInBox(left, top, right, bottom, result);
+		for (SegmentEntry<T> entry : liveEntries) {
+			if (entry.index.intersects(left, top, right, bottom)) {
+				result.add(entry);
+			}
+		}
+		Collections.sort(result, new Comparator<SegmentEntry<T>>() {
+			@Override
+			public int compare(SegmentEntry<T> o1, SegmentEntry<T> o2) {
+				return o1.order < o2.order ? -1 : (o1.order == o2.order ? 0 : 1);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * @return point of all segments nearest to x, y within maxDistance (31 tile units) or null
+	 */
+	public NearestPoint<T> findNearestPoint(int x, int y, final double maxDistance) {
+		PackedRTree.DistanceFunction<SegmentEntry<T>> distance = new PackedRTree.DistanceFunction<SegmentEntry<T>>() {
+			@Override
+			public double getDistance(SegmentEntry<T> entry, int x, int y) {
+				int ind = entry.index.findNearestPoint(x, y, maxDistance);
+				return ind == -1 ? Double.POSITIVE_INFINITY : entry.index.getDistance(ind, x, y);
+			}
+		};
+		NearestPoint<T> nearest = null;
+		SegmentEntry<T> entry = tree.findNearest(x, y, maxDistance, distance);
+		if (entry != null) {
+			int ind = entry.index.findNearestPoint(x, y, maxDistance);
+			nearest = new NearestPoint<>(entry, ind, entry.index.getDistance(ind, x, y));
+		}
+		for (SegmentEntry<T> liveEntry : liveEntries) {
+			double max = nearest == null ? maxDistance : nearest.distance;
+			int ind = liveEntry.index.findNearestPoint(x, y, max);
+			if (ind != -1) {
+				double d = liveEntry.index.getDistance(ind, x, y);
+				if (nearest == null || d < nearest.distance) {
+					nearest = new NearestPoint<>(liveEntry, ind, d);
+				}
+			}
+		}
+		return nearest;
+	}
+}
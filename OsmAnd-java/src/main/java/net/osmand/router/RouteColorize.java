@@ -4,17 +4,20 @@ import net.osmand.GPXUtilities.GPXFile;
 import net.osmand.GPXUtilities.GPXTrackAnalysis;
 import net.osmand.GPXUtilities.Track;
 import net.osmand.GPXUtilities.TrkSegment;
-import net.osmand.GPXUtilities.WptPt;
 import net.osmand.PlatformUtil;
-import net.osmand.osm.edit.Node;
-import net.osmand.osm.edit.OsmMapUtils;
+import net.osmand.TrackPoints;
+import net.osmand.TrackPyramid;
 import net.osmand.util.Algorithms;
 import net.osmand.util.MapUtils;
 
 import org.apache.commons.logging.Log;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
 
 public class RouteColorize {
 
@@ -26,7 +29,12 @@ public class RouteColorize {
     public double maxValue;
     public double[][] palette;
 
-    private List<RouteColorizationPoint> dataList;
+    private TrackPyramid pyramid;
+    // results are cached for the same arrays of points and values
+    private double[] cachedLatitudes;
+    private double[] cachedValues;
+    private int[] colors;
+    private final Map<Integer, int[]> simplifiedIndexes = new HashMap<>();
 
     public static final int DARK_GREY = rgbaToDecimal(92, 92, 92, 255);
     public static final int LIGHT_GREY = rgbaToDecimal(200, 200, 200, 255);
@@ -105,29 +113,36 @@ public class RouteColorize {
             return;
         }
 
-        List<Double> latList = new ArrayList<>();
-        List<Double> lonList = new ArrayList<>();
-        List<Double> valList = new ArrayList<>();
-        int wptIdx = 0;
-
         if (analysis == null) {
             analysis = Algorithms.isEmpty(gpxFile.path)
                     ? gpxFile.getAnalysis(System.currentTimeMillis())
                     : gpxFile.getAnalysis(gpxFile.modifiedTime);
         }
+        int size = 0;
+        for (Track t : gpxFile.tracks) {
+            for (TrkSegment ts : t.segments) {
+                if (!ts.generalSegment && ts.points.size() >= 2) {
+                    size += ts.points.size();
+                }
+            }
+        }
+        latitudes = new double[size];
+        longitudes = new double[size];
+        double[] pointValues = new double[size];
+        int wptIdx = 0;
         for (Track t : gpxFile.tracks) {
             for (TrkSegment ts : t.segments) {
                 if (ts.generalSegment || ts.points.size() < 2) {
                     continue;
                 }
 
-                for (WptPt p : ts.points) {
-                    latList.add(p.lat);
-                    lonList.add(p.lon);
+                for (int i = 0; i < ts.points.size(); i++) {
+                    latitudes[wptIdx] = TrackPoints.getLatitude(ts.points, i);
+                    longitudes[wptIdx] = TrackPoints.getLongitude(ts.points, i);
                     if (type == ColorizationType.SPEED) {
-                        valList.add((double) analysis.speedData.get(wptIdx).speed);
+                        pointValues[wptIdx] = analysis.speedData.get(wptIdx).speed;
                     } else {
-                        valList.add((double) analysis.elevationData.get(wptIdx).elevation);
+                        pointValues[wptIdx] = analysis.elevationData.get(wptIdx).elevation;
                     }
                     wptIdx++;
                 }
@@ -136,19 +151,34 @@ public class RouteColorize {
 
         this.zoom = zoom;
         colorizationType = type;
-        latitudes = listToArray(latList);
-        longitudes = listToArray(lonList);
 
         if (type == ColorizationType.SLOPE) {
-            values = calculateSlopesByElevations(latitudes, longitudes, listToArray(valList), SLOPE_RANGE);
+            values = calculateSlopesByElevations(latitudes, longitudes, pointValues, SLOPE_RANGE);
         } else {
-            values = listToArray(valList);
+            values = pointValues;
         }
         calculateMinMaxValue(analysis, maxProfileSpeed);
         checkPalette();
         sortPalette();
     }
 
+    /**
+     * Douglas-Peucker pyramid of points is built once and used for all zooms
+     */
+    public TrackPyramid getPyramid() {
+        if (pyramid == null || pyramid.size() != latitudes.length) {
+            pyramid = TrackPyramid.forGeometry(latitudes, longitudes);
+        }
+        return pyramid;
+    }
+
+    /**
+     * @param pyramid built before for the same points (e.g. cached for other zoom or colorization type)
+     */
+    public void setPyramid(TrackPyramid pyramid) {
+        this.pyramid = pyramid;
+    }
+
     public int getZoom() {
         return zoom;
     }
@@ -190,13 +220,33 @@ public class RouteColorize {
             distances[i + 1] = totalDistance;
         }
 
+        // ends of slope range only move forward, so they are found for all points in linear time
+        int minIndex = 0;
+        int maxIndex = 0;
         for (int i = 0; i < elevations.length; i++) {
             if (distances[i] < slopeRange / 2 || distances[i] > totalDistance - slopeRange / 2) {
                 slopes[i] = Double.NaN;
-            } else {
-                double[] arg = findDerivativeArguments(distances, elevations, i, slopeRange);
-                slopes[i] = (arg[1] - arg[0]) / (arg[3] - arg[2]);
+                continue;
+            }
+            double minDist = distances[i] - slopeRange / 2;
+            double maxDist = distances[i] + slopeRange / 2;
+            while (minIndex < elevations.length - 1 && distances[minIndex + 1] <= minDist) {
+                minIndex++;
+            }
+            while (maxIndex < elevations.length - 1 && distances[maxIndex] < maxDist) {
+                maxIndex++;
+            }
+            double minElevation = elevations[minIndex];
+            if (distances[minIndex] != minDist) {
+                double coef = (minDist - distances[minIndex]) / (distances[minIndex + 1] - distances[minIndex]);
+                minElevation = (1 - coef) * elevations[minIndex] + coef * elevations[minIndex + 1];
             }
+            double maxElevation = elevations[maxIndex];
+            if (distances[maxIndex] != maxDist) {
+                double coef = (maxDist - distances[maxIndex - 1]) / (distances[maxIndex] - distances[maxIndex - 1]);
+                maxElevation = (1 - coef) * elevations[maxIndex - 1] + coef * elevations[maxIndex];
+            }
+            slopes[i] = (maxElevation - minElevation) / (maxDist - minDist);
         }
         return slopes;
     }
@@ -249,20 +299,45 @@ public class RouteColorize {
     }
 
     public List<RouteColorizationPoint> getResult(boolean simplify) {
-        List<RouteColorizationPoint> result = new ArrayList<>();
+        List<RouteColorizationPoint> result;
         if (simplify) {
             result = simplify();
         } else {
+            result = new ArrayList<>(latitudes.length);
             for (int i = 0; i < latitudes.length; i++) {
                 result.add(new RouteColorizationPoint(i, latitudes[i], longitudes[i], values[i]));
             }
         }
+        int[] colors = getColors();
         for (RouteColorizationPoint data : result) {
-            data.color = getColorByValue(data.val);
+            data.color = colors[data.id];
         }
         return result;
     }
 
+    /**
+     * @return colors of all points by values, cached until palette is changed
+     */
+    public int[] getColors() {
+        checkCachedArrays();
+        if (colors == null) {
+            colors = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                colors[i] = getColorByValue(values[i]);
+            }
+        }
+        return colors;
+    }
+
+    private void checkCachedArrays() {
+        if (cachedLatitudes != latitudes || cachedValues != values) {
+            cachedLatitudes = latitudes;
+            cachedValues = values;
+            colors = null;
+            simplifiedIndexes.clear();
+        }
+    }
+
     public int getColorByValue(double value) {
         if (Double.isNaN(value)) {
             return LIGHT_GREY;
@@ -291,6 +366,7 @@ public class RouteColorize {
         this.palette = palette;
         checkPalette();
         sortPalette();
+        colors = null;
     }
 
     public void setPalette(int[] gradientPalette) {
@@ -309,76 +385,72 @@ public class RouteColorize {
     }
 
     public List<RouteColorizationPoint> simplify() {
-        if (dataList == null) {
-            dataList = new ArrayList<>();
-            for (int i = 0; i < latitudes.length; i++) {
-                dataList.add(new RouteColorizationPoint(i, latitudes[i], longitudes[i], values[i]));
-            }
+        int[] indexes = getSimplifiedIndexes();
+        List<RouteColorizationPoint> simplified = new ArrayList<>(indexes.length);
+        for (int i : indexes) {
+            simplified.add(new RouteColorizationPoint(i, latitudes[i], longitudes[i], values[i]));
         }
-        List<Node> nodes = new ArrayList<>();
-        List<Node> result = new ArrayList<>();
-        for (RouteColorizationPoint data : dataList) {
-            nodes.add(new net.osmand.osm.edit.Node(data.lat, data.lon, data.id));
-        }
-
-        double epsilon = Math.pow(2.0, DEFAULT_BASE - zoom);
-        result.add(nodes.get(0));
-        OsmMapUtils.simplifyDouglasPeucker(nodes, 0, nodes.size() - 1, result, epsilon);
+        return simplified;
+    }
 
-        List<RouteColorizationPoint> simplified = new ArrayList<>();
-        for (int i = 1; i < result.size(); i++) {
-            int prevId = (int) result.get(i - 1).getId();
-            int currentId = (int) result.get(i).getId();
-            List<RouteColorizationPoint> sublist = dataList.subList(prevId, currentId);
-            simplified.addAll(getExtremums(sublist));
+    /**
+     * @return indexes of points kept for current zoom with extremums of values between them, cached per zoom
+     */
+    public int[] getSimplifiedIndexes() {
+        checkCachedArrays();
+        int[] indexes = simplifiedIndexes.get(zoom);
+        if (indexes == null) {
+            double epsilon = Math.pow(2.0, DEFAULT_BASE - zoom);
+            int[] survived = getPyramid().getIndexes(epsilon);
+            TIntArrayList simplified = new TIntArrayList(survived.length);
+            for (int i = 1; i < survived.length; i++) {
+                addExtremums(survived[i - 1], survived[i], simplified);
+            }
+            if (survived.length > 0) {
+                simplified.add(survived[survived.length - 1]);
+            }
+            indexes = simplified.toArray();
+            simplifiedIndexes.put(zoom, indexes);
         }
-        Node lastSurvivedPoint = result.get(result.size() - 1);
-        simplified.add(dataList.get((int) lastSurvivedPoint.getId()));
-        return simplified;
+        return indexes;
     }
 
-    private List<RouteColorizationPoint> getExtremums(List<RouteColorizationPoint> subDataList) {
-        if (subDataList.size() <= 2) {
-            return subDataList;
+    private void addExtremums(int start, int end, TIntArrayList result) {
+        if (end - start <= 2) {
+            for (int i = start; i < end; i++) {
+                result.add(i);
+            }
+            return;
         }
 
-        List<RouteColorizationPoint> result = new ArrayList<>();
         double min;
         double max;
-        min = max = subDataList.get(0).val;
-        for (RouteColorizationPoint pt : subDataList) {
-            if (min > pt.val) {
-                min = pt.val;
+        min = max = values[start];
+        for (int i = start; i < end; i++) {
+            if (min > values[i]) {
+                min = values[i];
             }
-            if (max < pt.val) {
-                max = pt.val;
+            if (max < values[i]) {
+                max = values[i];
             }
         }
 
         double diff = max - min;
-
-        result.add(subDataList.get(0));
-        for (int i = 1; i < subDataList.size() - 1; i++) {
-            double prev = subDataList.get(i - 1).val;
-            double current = subDataList.get(i).val;
-            double next = subDataList.get(i + 1).val;
-            RouteColorizationPoint currentData = subDataList.get(i);
-
+        // extremums are compared with the first value of range
+        boolean addExtremums = values[start] / diff > MIN_DIFFERENCE_SLOPE;
+
+        result.add(start);
+        for (int i = start + 1; addExtremums && i < end - 1; i++) {
+            double prev = values[i - 1];
+            double current = values[i];
+            double next = values[i + 1];
             if ((current > prev && current > next) || (current < prev && current < next)
                     || (current < prev && current == next) || (current == prev && current < next)
                     || (current > prev && current == next) || (current == prev && current > next)) {
-                RouteColorizationPoint prevInResult;
-                if (result.size() > 0) {
-                    prevInResult = result.get(0);
-                    if (prevInResult.val / diff > MIN_DIFFERENCE_SLOPE) {
-                        result.add(currentData);
-                    }
-                } else
-                    result.add(currentData);
+                result.add(i);
             }
         }
-        result.add(subDataList.get(subDataList.size() - 1));
-        return result;
+        result.add(end - 1);
     }
 
     private void checkPalette() {
@@ -428,61 +500,6 @@ public class RouteColorize {
         });
     }
 
-    /**
-     * @return double[minElevation, maxElevation, minDist, maxDist]
-     */
-    private double[] findDerivativeArguments(double[] distances, double[] elevations, int index, double slopeRange) {
-        double[] result = new double[4];
-        double minDist = distances[index] - slopeRange / 2;
-        double maxDist = distances[index] + slopeRange / 2;
-        result[0] = Double.NaN;
-        result[1] = Double.NaN;
-        result[2] = minDist;
-        result[3] = maxDist;
-        int closestMaxIndex = -1;
-        int closestMinIndex = -1;
-        for (int i = index; i < distances.length; i++) {
-            if (distances[i] == maxDist) {
-                result[1] = elevations[i];
-                break;
-            }
-            if (distances[i] > maxDist) {
-                closestMaxIndex = i;
-                break;
-            }
-        }
-        for (int i = index; i >= 0; i--) {
-            if (distances[i] == minDist) {
-                result[0] = elevations[i];
-                break;
-            }
-            if (distances[i] < minDist) {
-                closestMinIndex = i;
-                break;
-            }
-        }
-        if (closestMaxIndex > 0) {
-            double diff = distances[closestMaxIndex] - distances[closestMaxIndex - 1];
-            double coef = (maxDist - distances[closestMaxIndex - 1]) / diff;
-            if (coef > 1 || coef < 0) {
-                LOG.warn("Coefficient fo max must be 0..1 , coef=" + coef);
-            }
-            result[1] = (1 - coef) * elevations[closestMaxIndex - 1] + coef * elevations[closestMaxIndex];
-        }
-        if (closestMinIndex >= 0) {
-            double diff = distances[closestMinIndex + 1] - distances[closestMinIndex];
-            double coef = (minDist - distances[closestMinIndex]) / diff;
-            if (coef > 1 || coef < 0) {
-                LOG.warn("Coefficient for min must be 0..1 , coef=" + coef);
-            }
-            result[0] = (1 - coef) * elevations[closestMinIndex] + coef * elevations[closestMinIndex + 1];
-        }
-        if (Double.isNaN(result[0]) || Double.isNaN(result[1])) {
-            LOG.warn("Elevations wasn't calculated");
-        }
-        return result;
-    }
-
     public static double getMinValue(ColorizationType type, GPXTrackAnalysis analysis) {
         switch (type) {
             case SPEED:
@@ -537,14 +554,6 @@ public class RouteColorize {
         maxValue = getMaxValue(colorizationType, analysis, minValue, maxProfileSpeed);
     }
 
-    private double[] listToArray(List<Double> doubleList) {
-        double[] result = new double[doubleList.size()];
-        for (int i = 0; i < doubleList.size(); i++) {
-            result[i] = doubleList.get(i);
-        }
-        return result;
-    }
-
     private double[][] getDefaultPalette(ColorizationType colorizationType) {
         if (colorizationType == ColorizationType.SLOPE) {
             return SLOPE_PALETTE;
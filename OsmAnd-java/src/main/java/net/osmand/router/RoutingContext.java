@@ -27,6 +27,8 @@ import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
 import net.osmand.binary.BinaryMapRouteReaderAdapter;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.BinaryMapSpatialIndex;
+import net.osmand.binary.BinaryMapSpatialIndex.IndexDataType;
 import net.osmand.binary.RouteDataObject;
 import net.osmand.data.QuadPoint;
 import net.osmand.data.QuadRect;
@@ -51,6 +53,8 @@ public class RoutingContext {
 	public final NativeLibrary nativeLib;
 	public final Map<BinaryMapIndexReader, List<RouteSubregion>> map = new LinkedHashMap<BinaryMapIndexReader, List<RouteSubregion>>();
 	public final Map<RouteRegion, BinaryMapIndexReader> reverseMap = new LinkedHashMap<RouteRegion, BinaryMapIndexReader>();
+	// prefilter of readers for tile headers, built from map on first use
+	private BinaryMapSpatialIndex spatialIndex;
 	
 	// 0. Reference to native routingcontext for multiple routes
 	public long nativeRoutingContext;
@@ -412,15 +416,22 @@ public class RoutingContext {
 		SearchRequest<RouteDataObject> request = BinaryMapIndexReader.buildSearchRouteRequest(tileX << zoomToLoadM31,
 				(tileX + 1) << zoomToLoadM31, tileY << zoomToLoadM31, (tileY + 1) << zoomToLoadM31, null);
 		List<RoutingSubregionTile> collection = null;
-		for (Entry<BinaryMapIndexReader, List<RouteSubregion>> r : map.entrySet()) {
+		if (spatialIndex == null) {
+			spatialIndex = new BinaryMapSpatialIndex(map.keySet());
+		}
+		List<BinaryMapIndexReader> readers = spatialIndex.query(
+				calculationMode == RouteCalculationMode.BASE ? IndexDataType.BASE_ROUTE : IndexDataType.ROUTE,
+				request.getLeft(), request.getTop(), request.getRight(), request.getBottom(), -1);
+		for (BinaryMapIndexReader reader : readers) {
+			List<RouteSubregion> subregions = map.get(reader);
 			// NOTE: load headers same as we do in non-native (it is not native optimized)
 			try {
-				if (r.getValue().size() > 0) {
+				if (subregions != null && subregions.size() > 0) {
 					long now = System.nanoTime();
 					// int rg = r.getValue().get(0).routeReg.regionsRead;
-					List<RouteSubregion> subregs = r.getKey().searchRouteIndexTree(request, r.getValue());
+					List<RouteSubregion> subregs = reader.searchRouteIndexTree(request, subregions);
 					if(subregs.size() > 0) {
-						checkOldRoutingFiles(r.getKey());
+						checkOldRoutingFiles(reader);
 					}
 					for (RouteSubregion sr : subregs) {
 						int ind = searchSubregionTile(sr);
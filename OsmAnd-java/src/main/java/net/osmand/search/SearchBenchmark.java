@@ -0,0 +1,355 @@
+package net.osmand.search;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryIndexIOStats;
+import net.osmand.binary.BinaryIndexIOStats.IOCounters;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.Algorithms;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays recorded search workloads through {@link SearchUICore} and reports search latency
+ * per query type. Workload is a json file:
+ * <pre>
+ * {
+ *   "settings": { "lat": 52.37, "lon": 4.89, "lang": "en" },
+ *   "queries": [
+ *     { "type": "address", "text": "Damrak 1" },
+ *     { "type": "poi", "keystrokes": ["Rijks", "Rijksmus", "Rijksmuseum"], "lat": 52.36, "lon": 4.88 },
+ *     { "type": "category", "text": "cafe " },
+ *     { "type": "coordinates", "keystrokes": ["52.37 4.89"] }
+ *   ]
+ * }
+ * </pre>
+ * "text" is typed char by char, "keystrokes" are texts of requests as they were recorded. "settings" are
+ * {@link SearchSettings#toJSON()}, location of query overrides location of settings.
+ * Every keystroke is searched to the end like the last request of typing, phrase of the next keystroke
+ * is generated from the previous one as in UI.
+ * <p>
+ * Reported as percentiles: time to first result, time to complete (including sorting of results),
+ * number of results, results of every API, bytes read and file seeks.
+ */
+public class SearchBenchmark {
+
+	private static final int[] PERCENTILES = {50, 90, 99, 100};
+
+	private final SearchUICore core;
+	private final BinaryIndexIOStats ioStats = new BinaryIndexIOStats();
+
+	public static class Query {
+		public final String type;
+		public final List<String> keystrokes;
+		public final LatLon location;
+
+		public Query(String type, List<String> keystrokes, LatLon location) {
+			this.type = type;
+			this.keystrokes = keystrokes;
+			this.location = location;
+		}
+	}
+
+	public static class Workload {
+		public final SearchSettings settings;
+		public final List<Query> queries;
+
+		public Workload(SearchSettings settings, List<Query> queries) {
+			this.settings = settings;
+			this.queries = queries;
+		}
+	}
+
+	/**
+	 * Measurements of a single search request
+	 */
+	public static class RequestStats {
+		public final String type;
+		public final String text;
+		// -1 if nothing is found
+		public long firstResultNanos = -1;
+		public long completeNanos;
+		public int results;
+		public final Map<String, Integer> apiResults = new LinkedHashMap<>();
+		public long bytesRead;
+		public long seeks;
+
+		RequestStats(String type, String text) {
+			this.type = type;
+			this.text = text;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "%s <%s> first %.2f ms, complete %.2f ms, results %d %s, %.1f KB, %d seeks",
+					type, text, firstResultNanos / 1e6, completeNanos / 1e6, results, apiResults, bytesRead / 1024d,
+					seeks);
+		}
+	}
+
+	/**
+	 * @param core initialized core, its offline readers are measured by the benchmark
+	 */
+	public SearchBenchmark(SearchUICore core) {
+		this.core = core;
+		for (BinaryMapIndexReader r : core.getSearchSettings().getOfflineIndexes()) {
+			r.setIOStats(ioStats);
+		}
+	}
+
+	public static Workload parseWorkload(JSONObject json) {
+		SearchSettings settings = SearchSettings.parseJSON(json.optJSONObject("settings") == null
+				? new JSONObject() : json.getJSONObject("settings"));
+		List<Query> queries = new ArrayList<>();
+		JSONArray arr = json.getJSONArray("queries");
+		for (int i = 0; i < arr.length(); i++) {
+			JSONObject q = arr.getJSONObject(i);
+			List<String> keystrokes = new ArrayList<>();
+			if (q.has("keystrokes")) {
+				JSONArray k = q.getJSONArray("keystrokes");
+				for (int j = 0; j < k.length(); j++) {
+					keystrokes.add(k.getString(j));
+				}
+			} else {
+				String text = q.getString("text");
+				for (int j = 1; j <= text.length(); j++) {
+					keystrokes.add(text.substring(0, j));
+				}
+			}
+			LatLon location = null;
+			if (q.has("lat") && q.has("lon")) {
+				location = new LatLon(q.getDouble("lat"), q.getDouble("lon"));
+			}
+			queries.add(new Query(q.optString("type", "other"), keystrokes, location));
+		}
+		return new Workload(settings, queries);
+	}
+
+	public List<RequestStats> run(Workload workload) {
+		List<RequestStats> res = new ArrayList<>();
+		List<BinaryMapIndexReader> files = core.getSearchSettings().getOfflineIndexes();
+		for (Query q : workload.queries) {
+			SearchSettings settings = new SearchSettings(workload.settings);
+			settings.setOfflineIndexes(files);
+			if (q.location != null) {
+				settings = settings.setOriginalLocation(q.location);
+			}
+			SearchPhrase phrase = SearchPhrase.emptyPhrase(settings);
+			for (String text : q.keystrokes) {
+				phrase = phrase.generateNewPhrase(text, settings);
+				res.add(search(q.type, phrase));
+			}
+		}
+		return res;
+	}
+
+	private RequestStats search(String type, SearchPhrase phrase) {
+		final RequestStats stats = new RequestStats(type, phrase.getFullSearchPhrase());
+		final long start = System.nanoTime();
+		long[] io = getTotalIO();
+		ResultMatcher<SearchResult> matcher = new ResultMatcher<SearchResult>() {
+			int apiResults = 0;
+
+			@Override
+			public boolean publish(SearchResult sr) {
+				ObjectType type = sr.objectType;
+				if (type == ObjectType.SEARCH_API_FINISHED) {
+					Class<?> api = sr.object.getClass();
+					String name = Algorithms.isEmpty(api.getSimpleName()) ? api.getName() : api.getSimpleName();
+					Integer cnt = stats.apiResults.get(name);
+					stats.apiResults.put(name, (cnt == null ? 0 : cnt) + apiResults);
+					apiResults = 0;
+				} else if (type != ObjectType.SEARCH_STARTED && type != ObjectType.FILTER_FINISHED
+						&& type != ObjectType.SEARCH_FINISHED && type != ObjectType.SEARCH_API_REGION_FINISHED) {
+					if (stats.firstResultNanos == -1) {
+						stats.firstResultNanos = System.nanoTime() - start;
+					}
+					apiResults++;
+				}
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+		AtomicInteger request = new AtomicInteger();
+		SearchResultMatcher rm = new SearchResultMatcher(matcher, phrase, request.get(), request,
+				core.getTotalLimit(phrase));
+		core.searchInternal(phrase, rm);
+		SearchResultCollection collection = new SearchResultCollection(phrase);
+		collection.addSearchResults(rm.getRequestResults(), true, true);
+		stats.completeNanos = System.nanoTime() - start;
+		stats.results = collection.getCurrentSearchResults().size();
+		long[] after = getTotalIO();
+		stats.bytesRead = after[0] - io[0];
+		stats.seeks = after[1] - io[1];
+		return stats;
+	}
+
+	// bytes read and file seeks of all readers
+	private long[] getTotalIO() {
+		long[] total = new long[2];
+		for (IOCounters c : ioStats.getSectionTotals().values()) {
+			total[0] += c.getBytes();
+			total[1] += c.getSeeks();
+		}
+		return total;
+	}
+
+	/**
+	 * @return percentiles of measurements grouped by query type, all requests are reported as "all"
+	 */
+	public static String report(List<RequestStats> stats) {
+		Map<String, List<RequestStats>> byType = new LinkedHashMap<>();
+		byType.put("all", stats);
+		for (RequestStats s : stats) {
+			List<RequestStats> lst = byType.get(s.type);
+			if (lst == null) {
+				lst = new ArrayList<>();
+				byType.put(s.type, lst);
+			}
+			lst.add(s);
+		}
+		StringBuilder b = new StringBuilder();
+		for (Map.Entry<String, List<RequestStats>> e : byType.entrySet()) {
+			List<RequestStats> lst = e.getValue();
+			b.append(e.getKey()).append(": ").append(lst.size()).append(" requests\n");
+			List<Double> first = new ArrayList<>();
+			List<Double> complete = new ArrayList<>();
+			List<Double> results = new ArrayList<>();
+			List<Double> kb = new ArrayList<>();
+			List<Double> seeks = new ArrayList<>();
+			Map<String, List<Double>> apis = new LinkedHashMap<>();
+			for (RequestStats s : lst) {
+				if (s.firstResultNanos != -1) {
+					first.add(s.firstResultNanos / 1e6);
+				}
+				complete.add(s.completeNanos / 1e6);
+				results.add((double) s.results);
+				kb.add(s.bytesRead / 1024d);
+				seeks.add((double) s.seeks);
+				for (String api : s.apiResults.keySet()) {
+					if (!apis.containsKey(api)) {
+						apis.put(api, new ArrayList<Double>());
+					}
+				}
+			}
+			for (Map.Entry<String, List<Double>> api : apis.entrySet()) {
+				for (RequestStats s : lst) {
+					Integer cnt = s.apiResults.get(api.getKey());
+					api.getValue().add(cnt == null ? 0d : cnt);
+				}
+			}
+			appendPercentiles(b, "first result, ms", first);
+			appendPercentiles(b, "complete, ms", complete);
+			appendPercentiles(b, "results", results);
+			for (Map.Entry<String, List<Double>> api : apis.entrySet()) {
+				appendPercentiles(b, "  " + api.getKey(), api.getValue());
+			}
+			appendPercentiles(b, "read, KB", kb);
+			appendPercentiles(b, "seeks", seeks);
+		}
+		return b.toString();
+	}
+
+	private static void appendPercentiles(StringBuilder b, String name, List<Double> values) {
+		b.append(String.format(Locale.US, "  %-36s", name));
+		if (values.isEmpty()) {
+			b.append("-\n");
+			return;
+		}
+		Collections.sort(values);
+		for (int p : PERCENTILES) {
+			b.append(String.format(Locale.US, " %s %10.2f", p == 100 ? "max" : "p" + p,
+					Algorithms.getPercentile(values, p)));
+		}
+		b.append('\n');
+	}
+
+	public static void main(String[] args) throws Exception {
+		String obfDirectory = null;
+		int runs = 3;
+		int warmup = 1;
+		int parallelApis = 1;
+		boolean verbose = false;
+		List<File> workloads = new ArrayList<>();
+		for (String a : args) {
+			if (a.startsWith("-obfDir=")) {
+				obfDirectory = a.substring("-obfDir=".length());
+			} else if (a.startsWith("-runs=")) {
+				runs = Integer.parseInt(a.substring("-runs=".length()));
+			} else if (a.startsWith("-warmup=")) {
+				warmup = Integer.parseInt(a.substring("-warmup=".length()));
+			} else if (a.startsWith("-parallelApis=")) {
+				parallelApis = Integer.parseInt(a.substring("-parallelApis=".length()));
+			} else if (a.equals("-verbose")) {
+				verbose = true;
+			} else if (!a.startsWith("-")) {
+				workloads.add(new File(a));
+			}
+		}
+		if (obfDirectory == null || workloads.isEmpty()) {
+			System.out.println("Usage: SearchBenchmark -obfDir=<dir> [-runs=3] [-warmup=1] [-parallelApis=1] "
+					+ "[-verbose] <workload.json> ...");
+			return;
+		}
+		List<BinaryMapIndexReader> files = new ArrayList<>();
+		File[] obfs = new File(obfDirectory).listFiles();
+		if (obfs != null) {
+			for (File f : obfs) {
+				if (f.getName().endsWith(".obf")) {
+					files.add(new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f));
+				}
+			}
+		}
+		SearchUICore core = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		core.getSearchSettings().setOfflineIndexes(files);
+		core.init();
+		core.setParallelApiThreads(parallelApis);
+		SearchBenchmark benchmark = new SearchBenchmark(core);
+		try {
+			for (File w : workloads) {
+				Workload workload = parseWorkload(new JSONObject(Algorithms.getFileAsString(w)));
+				for (int i = 0; i < warmup; i++) {
+					benchmark.run(workload);
+				}
+				List<RequestStats> stats = new ArrayList<>();
+				for (int i = 0; i < runs; i++) {
+					stats.addAll(benchmark.run(workload));
+				}
+				if (verbose) {
+					for (RequestStats s : stats) {
+						System.out.println(s);
+					}
+				}
+				System.out.println(w.getName() + " (" + files.size() + " files, " + runs + " runs)");
+				System.out.println(report(stats));
+			}
+		} finally {
+			core.setParallelApiThreads(1);
+			for (BinaryMapIndexReader r : files) {
+				r.close();
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package net.osmand.search;
 
+import net.osmand.CollationKeys;
 import net.osmand.Collator;
 import net.osmand.PlatformUtil;
 import net.osmand.ResultMatcher;
@@ -17,11 +18,13 @@ import net.osmand.search.core.SearchCoreAPI;
 import net.osmand.search.core.SearchCoreFactory;
 import net.osmand.search.core.SearchCoreFactory.SearchAmenityByTypeAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchAmenityTypesAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchBaseAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchBuildingAndIntersectionsByStreetAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchStreetByCityAPI;
 import net.osmand.search.core.SearchExportSettings;
 import net.osmand.search.core.SearchPhrase;
 import net.osmand.search.core.SearchPhrase.NameStringMatcher;
+import net.osmand.search.core.SearchPhrase.SearchPhraseDataType;
 import net.osmand.search.core.SearchResult;
 import net.osmand.search.core.SearchSettings;
 import net.osmand.search.core.SearchWord;
@@ -38,11 +41,15 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -53,16 +60,25 @@ public class SearchUICore {
 	private static final int TIMEOUT_BETWEEN_CHARS = 700;
 	private static final int TIMEOUT_BEFORE_SEARCH = 50;
 	private static final int TIMEOUT_BEFORE_FILTER = 20;
+	// files around location which first searches read
+	private static final int PRELOAD_RADIUS = 100 * 1000;
+	// context less APIs (address, poi by name, online) don't use results of each other and run together
+	private static final int INDEPENDENT_API_PRIORITY = SearchCoreFactory.SEARCH_ADDRESS_BY_NAME_API_PRIORITY;
 	private static final Log LOG = PlatformUtil.getLog(SearchUICore.class);
 	private SearchPhrase phrase;
 	private SearchResultCollection  currentSearchResult;
 
 	private ThreadPoolExecutor singleThreadedExecutor;
 	private LinkedBlockingQueue<Runnable> taskQueue;
+	// runs APIs of the same priority or independent APIs concurrently, null - sequential execution
+	private ThreadPoolExecutor apiExecutor;
 	private Runnable onSearchStart = null;
 	private Runnable onResultsComplete = null;
 	private AtomicInteger requestNumber = new AtomicInteger();
-	private int totalLimit = -1; // -1 unlimited - not used
+	private int totalLimit = -1; // -1 unlimited, otherwise best results are kept
+	private TopSearchResults lastTopResults;
+	private volatile boolean preloadCancelled;
+	private volatile boolean searchHot;
 
 	List<SearchCoreAPI> apis = new ArrayList<>();
 	private SearchSettings searchSettings;
@@ -292,6 +308,10 @@ public class SearchUICore {
 		this.totalLimit = totalLimit;
 	}
 
+	int getTotalLimit(SearchPhrase phrase) {
+		return totalLimit != -1 ? totalLimit : phrase.getSettings().getTotalLimit();
+	}
+
 	@SuppressWarnings("unchecked")
 	public <T> T getApiByClass(Class<T> cl) {
 		for (SearchCoreAPI a : apis) {
@@ -318,7 +338,7 @@ public class SearchUICore {
 			SearchPhrase sphrase = this.phrase.generateNewPhrase(text, searchSettings);
 			preparePhrase(sphrase);
 			AtomicInteger ai = new AtomicInteger();
-			SearchResultMatcher rm = new SearchResultMatcher(matcher, sphrase, ai.get(), ai, totalLimit);
+			SearchResultMatcher rm = new SearchResultMatcher(matcher, sphrase, ai.get(), ai, getTotalLimit(sphrase));
 			api.search(sphrase, rm);
 
 			SearchResultCollection collection = new SearchResultCollection(
@@ -383,6 +403,29 @@ public class SearchUICore {
 		return phrase;
 	}
 
+	/**
+	 * Search APIs with the same priority and context less APIs (address and poi by name) run concurrently
+	 * on the pool of given size, their results are published in the same order as in sequential mode.
+	 *
+	 * @param threads 1 or less switches parallel execution off
+	 */
+	public synchronized void setParallelApiThreads(int threads) {
+		if (apiExecutor != null) {
+			apiExecutor.shutdown();
+			apiExecutor = null;
+		}
+		if (threads > 1) {
+			apiExecutor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>());
+			apiExecutor.allowCoreThreadTimeOut(true);
+		}
+	}
+
+	public int getParallelApiThreads() {
+		ThreadPoolExecutor executor = apiExecutor;
+		return executor == null ? 1 : executor.getMaximumPoolSize();
+	}
+
 	public void setOnSearchStart(Runnable onSearchStart) {
 		this.onSearchStart = onSearchStart;
 	}
@@ -439,12 +482,43 @@ public class SearchUICore {
 	}
 
 	public void search(final String text, final boolean delayedExecution, final ResultMatcher<SearchResult> matcher, final SearchSettings searchSettings) {
-		final int request = requestNumber.incrementAndGet();
-		final SearchPhrase phrase = this.phrase.generateNewPhrase(text, searchSettings);
+		SearchPhrase phrase = this.phrase.generateNewPhrase(text, searchSettings);
 		this.phrase = phrase;
 		if (debugMode) {
 			LOG.info("Prepare search <" + phrase + ">");
 		}
+		search(phrase, delayedExecution, matcher, null);
+	}
+
+	/**
+	 * Runs the last search with total limit again and collects its next page, results are
+	 * available as {@link #getCurrentSearchResult()} like results of the first page.
+	 *
+	 * @return false if the last search had no total limit or all its results were collected
+	 */
+	public boolean searchNextPage(final ResultMatcher<SearchResult> matcher) {
+		TopSearchResults topResults = lastTopResults;
+		if (topResults == null || !topResults.hasMoreResults()) {
+			return false;
+		}
+		this.phrase = topResults.getPhrase();
+		if (debugMode) {
+			LOG.info("Prepare next page search <" + phrase + ">");
+		}
+		search(topResults.getPhrase(), false, matcher, topResults.nextPage());
+		return true;
+	}
+
+	/**
+	 * @return best results of the last finished search with total limit, null if limit was not set
+	 */
+	public TopSearchResults getLastTopResults() {
+		return lastTopResults;
+	}
+
+	private void search(final SearchPhrase phrase, final boolean delayedExecution,
+			final ResultMatcher<SearchResult> matcher, final TopSearchResults page) {
+		final int request = requestNumber.incrementAndGet();
 		singleThreadedExecutor.submit(new Runnable() {
 
 			@Override
@@ -453,7 +527,9 @@ public class SearchUICore {
 					if (onSearchStart != null) {
 						onSearchStart.run();
 					}
-					final SearchResultMatcher rm = new SearchResultMatcher(matcher, phrase, request, requestNumber, totalLimit);
+					final SearchResultMatcher rm = page != null
+							? new SearchResultMatcher(matcher, phrase, request, requestNumber, page)
+							: new SearchResultMatcher(matcher, phrase, request, requestNumber, getTotalLimit(phrase));
 					if (debugMode) {
 						LOG.info("Starting search <" + phrase.toString() + ">");
 					}
@@ -525,6 +601,7 @@ public class SearchUICore {
 							LOG.info("Finishing search <" + phrase + "> Results=" + rm.getRequestResults().size());
 						}
 						currentSearchResult = collection;
+						lastTopResults = rm.getTopResults();
 						if (phrase.getSettings().isExportObjects()) {
 							rm.createTestJSON(collection);
 						}
@@ -547,6 +624,95 @@ public class SearchUICore {
 		});
 	}
 
+	/**
+	 * Warms structures which search APIs load lazily (poi types, poi categories and towns of files)
+	 * in background, files around location are preloaded first. Preload is stopped by new search,
+	 * by {@link #cancelPreload()} or when estimated memory of loaded structures exceeds the budget.
+	 * @param memoryBudget bytes, -1 unlimited
+	 */
+	public void preload(final LatLon location, final long memoryBudget, final SearchPreloadListener listener) {
+		final int request = requestNumber.get();
+		preloadCancelled = false;
+		searchHot = false;
+		singleThreadedExecutor.submit(new Runnable() {
+
+			@Override
+			public void run() {
+				boolean hot = false;
+				try {
+					hot = preloadInternal(location, memoryBudget, request, listener);
+				} catch (Throwable e) {
+					LOG.error(e.getMessage(), e);
+				}
+				searchHot = hot;
+				if (listener != null) {
+					listener.onPreloadFinished(hot);
+				}
+			}
+		});
+	}
+
+	public void cancelPreload() {
+		preloadCancelled = true;
+	}
+
+	/**
+	 * @return true if last preload was finished for all files around location
+	 */
+	public boolean isSearchHot() {
+		return searchHot;
+	}
+
+	boolean preloadInternal(LatLon location, long memoryBudget, int request, SearchPreloadListener listener)
+			throws IOException {
+		long startTime = System.currentTimeMillis();
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(searchSettings.setOriginalLocation(location));
+		phrase.sortFiles();
+		List<BinaryMapIndexReader> files = new ArrayList<>();
+		Iterator<BinaryMapIndexReader> it = phrase.getOfflineIndexes(phrase.getRadiusBBoxToSearch(PRELOAD_RADIUS),
+				SearchPhraseDataType.POI);
+		while (it.hasNext()) {
+			files.add(it.next());
+		}
+		List<SearchCoreAPI> lst = new ArrayList<>(apis);
+		// structures not related to files are loaded first
+		long memory = preloadApis(lst, phrase, null);
+		for (int i = 0; i < files.size(); i++) {
+			if (preloadCancelled || requestNumber.get() != request) {
+				LOG.info("Search preload cancelled after " + i + " files");
+				return false;
+			}
+			if (memoryBudget != -1 && memory > memoryBudget) {
+				LOG.info("Search preload stopped after " + i + " files: memory budget is exceeded " + memory);
+				return false;
+			}
+			memory += preloadApis(lst, phrase, files.get(i));
+			if (listener != null) {
+				listener.onFilePreloaded(files.get(i), i + 1, files.size());
+			}
+		}
+		LOG.info("Search preload finished: " + files.size() + " files, ~" + memory + " bytes, "
+				+ (System.currentTimeMillis() - startTime) + " ms");
+		return true;
+	}
+
+	private long preloadApis(List<SearchCoreAPI> lst, SearchPhrase phrase, BinaryMapIndexReader file) throws IOException {
+		long memory = 0;
+		for (SearchCoreAPI api : lst) {
+			if (api instanceof SearchBaseAPI) {
+				memory += ((SearchBaseAPI) api).preload(phrase, file);
+			}
+		}
+		return memory;
+	}
+
+	public interface SearchPreloadListener {
+
+		void onFilePreloaded(BinaryMapIndexReader file, int preloaded, int total);
+
+		void onPreloadFinished(boolean hot);
+	}
+
 
 	public boolean isSearchMoreAvailable(SearchPhrase phrase) {
 		for (SearchCoreAPI api : apis) {
@@ -613,29 +779,112 @@ public class SearchUICore {
 						o2.getSearchPriority(phrase));
 			}
 		});
-		for (SearchCoreAPI api : lst) {
+		ThreadPoolExecutor executor = apiExecutor;
+		for (int i = 0; i < lst.size(); ) {
 			if (matcher.isCancelled()) {
 				break;
 			}
+			SearchCoreAPI api = lst.get(i);
 			if (!api.isSearchAvailable(phrase) || api.getSearchPriority(phrase) == -1) {
+				i++;
 				continue;
 			}
-			try {
-				if (debugMode) {
-					LOG.info("Run API search <" + phrase + "> API=<" + api + ">");
+			List<SearchCoreAPI> group = new ArrayList<>();
+			group.add(api);
+			int priority = api.getSearchPriority(phrase);
+			for (i++; executor != null && i < lst.size(); i++) {
+				SearchCoreAPI next = lst.get(i);
+				int nextPriority = next.getSearchPriority(phrase);
+				if (nextPriority != priority
+						&& (priority < INDEPENDENT_API_PRIORITY || nextPriority < INDEPENDENT_API_PRIORITY)) {
+					break;
 				}
-				api.search(phrase, matcher);
-				if (debugMode) {
-					LOG.info("API search finishing <" + phrase + "> API=<" + api + ">");
+				if (next.isSearchAvailable(phrase)) {
+					group.add(next);
+				}
+			}
+			if (group.size() == 1) {
+				runApiSearch(api, phrase, matcher, true);
+			} else {
+				searchInParallel(executor, group, phrase, matcher);
+			}
+		}
+	}
+
+	private void searchInParallel(ThreadPoolExecutor executor, List<SearchCoreAPI> group, final SearchPhrase phrase,
+			SearchResultMatcher matcher) {
+		List<SearchResultMatcher> apiMatchers = new ArrayList<>();
+		List<Future<Boolean>> futures = new ArrayList<>();
+		for (int i = 0; i < group.size(); i++) {
+			final SearchCoreAPI api = group.get(i);
+			final SearchResultMatcher apiMatcher = new SearchResultMatcher(matcher);
+			apiMatchers.add(apiMatcher);
+			// first API runs in the current thread
+			if (i > 0) {
+				futures.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						return runApiSearch(api, phrase, apiMatcher, false);
+					}
+				}));
+			}
+		}
+		// results of every API are merged when it and all previous APIs are done
+		try {
+			for (int i = 0; i < group.size(); i++) {
+				boolean finished = false;
+				if (i == 0) {
+					finished = runApiSearch(group.get(0), phrase, apiMatchers.get(0), false);
+				} else {
+					try {
+						finished = futures.get(i - 1).get();
+					} catch (ExecutionException e) {
+						// as failed API in sequential mode, published results are kept
+						LOG.error(e.getMessage(), e);
+					}
+				}
+				if (matcher.isCancelled()) {
+					break;
 				}
+				matcher.mergeResults(apiMatchers.get(i));
+				if (finished) {
+					matcher.apiSearchFinished(group.get(i), phrase);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// not merged APIs of cancelled or interrupted search are stopped
+			for (Future<Boolean> f : futures) {
+				f.cancel(true);
+			}
+		}
+	}
+
+	private boolean runApiSearch(SearchCoreAPI api, SearchPhrase phrase, SearchResultMatcher matcher,
+			boolean publishFinished) {
+		if (matcher.isCancelled()) {
+			return false;
+		}
+		try {
+			if (debugMode) {
+				LOG.info("Run API search <" + phrase + "> API=<" + api + ">");
+			}
+			api.search(phrase, matcher);
+			if (debugMode) {
+				LOG.info("API search finishing <" + phrase + "> API=<" + api + ">");
+			}
+			if (publishFinished) {
 				matcher.apiSearchFinished(api, phrase);
 				if (debugMode) {
 					LOG.info("API search done <" + phrase + "> API=<" + api + ">");
 				}
-			} catch (Throwable e) {
-				e.printStackTrace();
-				LOG.error(e.getMessage(), e);
 			}
+			return true;
+		} catch (Throwable e) {
+			e.printStackTrace();
+			LOG.error(e.getMessage(), e);
+			return false;
 		}
 	}
 
@@ -656,23 +905,62 @@ public class SearchUICore {
 
 	public static class SearchResultMatcher implements ResultMatcher<SearchResult>{
 		private final List<SearchResult> requestResults = new ArrayList<>();
+		// best results by comparator if total limit is set
+		private final TopSearchResults topResults;
 		private final ResultMatcher<SearchResult> matcher;
 		private final int request;
-		private final int totalLimit;
 		private SearchResult parentSearchResult;
 		private final AtomicInteger requestNumber;
 		int count = 0;
 		private SearchPhrase phrase;
 		private List<MapObject> exportedObjects;
 		private List<City> exportedCities;
+		// matcher of API running in parallel keeps results until they are merged into parent
+		private final SearchResultMatcher parent;
+		private final List<SearchResult> deferredResults;
 
 		public SearchResultMatcher(ResultMatcher<SearchResult> matcher, SearchPhrase phrase, int request,
 								   AtomicInteger requestNumber, int totalLimit) {
+			this(matcher, phrase, request, requestNumber,
+					totalLimit > 0 && phrase != null ? new TopSearchResults(phrase, totalLimit) : null);
+		}
+
+		/**
+		 * @param topResults collector of best results (e.g. next page of previous search) or null to keep all results
+		 */
+		public SearchResultMatcher(ResultMatcher<SearchResult> matcher, SearchPhrase phrase, int request,
+								   AtomicInteger requestNumber, TopSearchResults topResults) {
 			this.matcher = matcher;
 			this.phrase = phrase;
 			this.request = request;
 			this.requestNumber = requestNumber;
-			this.totalLimit = totalLimit;
+			this.topResults = topResults;
+			this.parent = null;
+			this.deferredResults = null;
+		}
+
+		SearchResultMatcher(SearchResultMatcher parent) {
+			this.matcher = null;
+			this.phrase = parent.phrase;
+			this.request = parent.request;
+			this.requestNumber = parent.requestNumber;
+			this.topResults = null;
+			this.parentSearchResult = parent.parentSearchResult;
+			this.parent = parent;
+			this.deferredResults = new ArrayList<>();
+		}
+
+		void mergeResults(SearchResultMatcher apiMatcher) {
+			for (SearchResult sr : apiMatcher.deferredResults) {
+				if (sr.objectType == ObjectType.SEARCH_API_REGION_FINISHED) {
+					if (matcher != null) {
+						matcher.publish(sr);
+					}
+				} else {
+					publishResult(sr);
+				}
+			}
+			apiMatcher.deferredResults.clear();
 		}
 
 		public SearchResult setParentSearchResult(SearchResult parentSearchResult) {
@@ -686,11 +974,22 @@ public class SearchUICore {
 		}
 
 		public List<SearchResult> getRequestResults() {
-			return requestResults;
+			// results of APIs with higher priority, parent is not modified while parallel APIs run
+			if (parent != null) {
+				return parent.getRequestResults();
+			}
+			return topResults != null ? topResults.getResults() : requestResults;
+		}
+
+		/**
+		 * @return collector of best results or null if total limit is not set
+		 */
+		public TopSearchResults getTopResults() {
+			return parent != null ? parent.topResults : topResults;
 		}
 
 		public int getCount() {
-			return requestResults.size();
+			return topResults != null ? topResults.size() : requestResults.size();
 		}
 
 		public void searchStarted(SearchPhrase phrase) {
@@ -728,13 +1027,17 @@ public class SearchUICore {
 		}
 
 		public void apiSearchRegionFinished(SearchCoreAPI api, BinaryMapIndexReader region, SearchPhrase phrase) {
-			if(matcher != null) {
+			if (matcher != null || deferredResults != null) {
 				SearchResult sr = new SearchResult(phrase);
 				sr.objectType = ObjectType.SEARCH_API_REGION_FINISHED;
 				sr.object = api;
 				sr.parentSearchResult = parentSearchResult;
 				sr.file = region;
-				matcher.publish(sr);
+				if (deferredResults != null) {
+					deferredResults.add(sr);
+				} else {
+					matcher.publish(sr);
+				}
 				if (debugMode) {
 					LOG.info("API region search done <" + phrase + "> API=<" + api + "> Region=<" + region.getFile().getName() + ">");
 				}
@@ -764,9 +1067,19 @@ public class SearchUICore {
 				object.alternateName = null;
 			}
 			object.parentSearchResult = parentSearchResult;
+			if (deferredResults != null) {
+				deferredResults.add(object);
+				return true;
+			}
+			return publishResult(object);
+		}
+
+		private boolean publishResult(SearchResult object) {
 			if (matcher == null || matcher.publish(object)) {
 				count++;
-				if (totalLimit == -1 || count < totalLimit) {
+				if (topResults != null) {
+					topResults.add(object);
+				} else {
 					requestResults.add(object);
 				}
 				return true;
@@ -776,6 +1089,9 @@ public class SearchUICore {
 		
 		@Override
 		public boolean isCancelled() {
+			if (parent != null) {
+				return parent.isCancelled();
+			}
 			boolean cancelled = request != requestNumber.get();
 			return cancelled || (matcher != null && matcher.isCancelled());
 		}
@@ -789,6 +1105,12 @@ public class SearchUICore {
 		}
 
 		public void exportObject(SearchPhrase phrase, MapObject object) {
+			if (parent != null) {
+				synchronized (parent) {
+					parent.exportObject(phrase, object);
+				}
+				return;
+			}
 			double maxDistance = phrase.getSettings().getExportSettings().getMaxDistance();
 			if (maxDistance > 0) {
 				double distance = MapUtils.getDistance(phrase.getSettings().getOriginalLocation(), object.getLocation());
@@ -803,6 +1125,12 @@ public class SearchUICore {
 		}
 
 		public void exportCity(SearchPhrase phrase, City city) {
+			if (parent != null) {
+				synchronized (parent) {
+					parent.exportCity(phrase, city);
+				}
+				return;
+			}
 			double maxDistance = phrase.getSettings().getExportSettings().getMaxDistance();
 			if (maxDistance > 0) {
 				double distance = MapUtils.getDistance(phrase.getSettings().getOriginalLocation(), city.getLocation());
@@ -900,6 +1228,7 @@ public class SearchUICore {
 	
 	private enum ResultCompareStep {
 		TOP_VISIBLE,
+		EDIT_DISTANCE, // less is better (top)
 		FOUND_WORD_COUNT, // more is better (top)
 		UNKNOWN_PHRASE_MATCH_WEIGHT, // more is better (top)
 		COMPARE_AMENITY_TYPE_ADDITIONAL,
@@ -922,6 +1251,11 @@ public class SearchUICore {
 					return topVisible1 ? -1 : 1;
 				}
 				break;
+			case EDIT_DISTANCE:
+				if (o1.editDistance != o2.editDistance) {
+					return Algorithms.compare(o1.editDistance, o2.editDistance);
+				}
+				break;
 			case FOUND_WORD_COUNT: 
 				if (o1.getFoundWordCount() != o2.getFoundWordCount()) {
 					return -Algorithms.compare(o1.getFoundWordCount(), o2.getFoundWordCount());
@@ -972,7 +1306,7 @@ public class SearchUICore {
 			case COMPARE_BY_NAME: {
 				String localeName1 = o1.localeName == null ? "" : o1.localeName;
 				String localeName2 = o2.localeName == null ? "" : o2.localeName;
-				int cmp = c.collator.compare(localeName1, localeName2);
+				int cmp = c.compareNames(localeName1, localeName2);
 				if (cmp != 0) {
 					return cmp;
 				}
@@ -1008,12 +1342,12 @@ public class SearchUICore {
 						// to filter second
 						return subtypeFilter1 ? 1 : -1;
 					}
-					cmp = c.collator.compare(type1, type2);
+					cmp = c.compareNames(type1, type2);
 					if (cmp != 0) {
 						return cmp;
 					}
 
-					cmp = c.collator.compare(subType1, subType2);
+					cmp = c.compareNames(subType1, subType2);
 					if (cmp != 0) {
 						return cmp;
 					}
@@ -1027,15 +1361,22 @@ public class SearchUICore {
 
 	public static class SearchResultComparator implements Comparator<SearchResult> {
 		private Collator collator;
+		private CollationKeys collationKeys;
 		private LatLon loc;
 		private boolean sortByName;
 		
 
 		public SearchResultComparator(SearchPhrase sp) {
 			this.collator = sp.getCollator();
+			this.collationKeys = CollationKeys.getInstance(collator);
 			loc = sp.getLastTokenLocation();
 			sortByName = sp.isSortByName();
 		}
+
+		// names are compared by cached collation keys if collator supports them
+		int compareNames(String s1, String s2) {
+			return collationKeys != null ? collationKeys.compare(s1, s2) : collator.compare(s1, s2);
+		}
 		
 
 		@Override
@@ -0,0 +1,279 @@
+package net.osmand.search;
+
+import net.osmand.data.LatLon;
+import net.osmand.data.MapObject;
+import net.osmand.data.Street;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultComparator;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the best {@code limit} results by {@link SearchResultComparator} while results are published one by one,
+ * so memory and sorting cost don't depend on number of found objects. Duplicates (same as
+ * {@link SearchResultCollection#sameSearchResult(SearchResult, SearchResult)}) are found by hash of their name,
+ * street location or object and only the better one is kept.
+ * <p>
+ * Next page is collected by {@link #nextPage()} during the same search run again: it accepts only results
+ * which are worse than the last result of this page ({@link SearchUICore#searchNextPage(net.osmand.ResultMatcher)})
+ * and are not duplicates of results of previous pages. Results which are equal by comparator are ordered by
+ * file, object id and order of publishing, so every result belongs to exactly one page.
+ */
+public class TopSearchResults {
+
+	private final SearchPhrase phrase;
+	private final int limit;
+	private final Entry after;
+	private final SearchResultComparator cmp;
+	private final Comparator<Entry> entryCmp;
+	private final SearchResultCollection duplicates;
+	// worst result is the head
+	private final PriorityQueue<Entry> heap;
+	private final ResultsIndex kept = new ResultsIndex();
+	// kept results of previous pages
+	private final List<ResultsIndex> previousPages;
+	private int published;
+	private int dropped;
+	// sorted results, null if heap was changed
+	private List<SearchResult> sortedResults;
+
+	public TopSearchResults(SearchPhrase phrase, int limit) {
+		this(phrase, limit, null, Collections.<ResultsIndex>emptyList());
+	}
+
+	/**
+	 * @param after last result of the previous page, only worse results are accepted
+	 */
+	private TopSearchResults(SearchPhrase phrase, int limit, Entry after, List<ResultsIndex> previousPages) {
+		if (limit <= 0) {
+			throw new IllegalArgumentException("limit=" + limit);
+		}
+		this.phrase = phrase;
+		this.limit = limit;
+		this.after = after;
+		this.previousPages = previousPages;
+		this.cmp = new SearchResultComparator(phrase);
+		this.entryCmp = new Comparator<Entry>() {
+			@Override
+			public int compare(Entry e1, Entry e2) {
+				return compareEntries(e1, e2);
+			}
+		};
+		this.duplicates = new SearchResultCollection(phrase);
+		this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, Collections.reverseOrder(entryCmp));
+	}
+
+	/**
+	 * @return true if result is kept (it could be dropped later by better results)
+	 */
+	public boolean add(SearchResult r) {
+		// every run of search publishes results in the same order
+		Entry e = new Entry(r, published++);
+		if (after != null && compareEntries(e, after) <= 0) {
+			return false;
+		}
+		for (ResultsIndex page : previousPages) {
+			if (page.findDuplicate(r, duplicates) != null) {
+				return false;
+			}
+		}
+		Entry same = kept.findDuplicate(r, duplicates);
+		if (same != null) {
+			if (compareEntries(e, same) >= 0) {
+				return false;
+			}
+			heap.remove(same);
+			kept.remove(same);
+			sortedResults = null;
+		}
+		if (heap.size() >= limit) {
+			if (compareEntries(e, heap.peek()) >= 0) {
+				dropped++;
+				return false;
+			}
+			kept.remove(heap.poll());
+			dropped++;
+		}
+		heap.add(e);
+		kept.add(e);
+		sortedResults = null;
+		return true;
+	}
+
+	private int compareEntries(Entry e1, Entry e2) {
+		int c = cmp.compare(e1.result, e2.result);
+		if (c == 0) {
+			c = getFileName(e1.result).compareTo(getFileName(e2.result));
+		}
+		if (c == 0) {
+			c = Long.compare(getObjectId(e1.result), getObjectId(e2.result));
+		}
+		if (c == 0) {
+			c = Integer.compare(e1.order, e2.order);
+		}
+		return c;
+	}
+
+	private static String getFileName(SearchResult r) {
+		return r.file != null && r.file.getFile() != null ? r.file.getFile().getName() : "";
+	}
+
+	private static long getObjectId(SearchResult r) {
+		if (r.object instanceof MapObject) {
+			Long id = ((MapObject) r.object).getId();
+			return id != null ? id : Long.MIN_VALUE;
+		}
+		return Long.MIN_VALUE;
+	}
+
+	/**
+	 * @return kept results sorted by comparator (sorted once until next result is kept)
+	 */
+	public List<SearchResult> getResults() {
+		if (sortedResults == null) {
+			List<Entry> entries = new ArrayList<>(heap);
+			Collections.sort(entries, entryCmp);
+			List<SearchResult> res = new ArrayList<>(entries.size());
+			for (Entry e : entries) {
+				res.add(e.result);
+			}
+			sortedResults = Collections.unmodifiableList(res);
+		}
+		return sortedResults;
+	}
+
+	public SearchPhrase getPhrase() {
+		return phrase;
+	}
+
+	public int size() {
+		return heap.size();
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return true if results worse than kept ones were found (next page is not empty)
+	 */
+	public boolean hasMoreResults() {
+		return dropped > 0;
+	}
+
+	/**
+	 * @return empty collector of the next page, results of this page should not be added anymore
+	 */
+	public TopSearchResults nextPage() {
+		List<ResultsIndex> pages = new ArrayList<>(previousPages);
+		pages.add(kept);
+		return new TopSearchResults(phrase, limit, heap.isEmpty() ? after : heap.peek(), pages);
+	}
+
+	private static class Entry {
+		final SearchResult result;
+		final int order;
+
+		Entry(SearchResult result, int order) {
+			this.result = result;
+			this.order = order;
+		}
+	}
+
+	private static class ResultsIndex {
+		private final Map<String, List<Entry>> byName = new HashMap<>();
+		private final Map<LatLon, List<Entry>> streetsByLocation = new HashMap<>();
+		private final Map<Object, List<Entry>> byObject = new IdentityHashMap<>();
+
+		Entry findDuplicate(SearchResult r, SearchResultCollection duplicates) {
+			if (isLocated(r)) {
+				Entry same = findDuplicate(r, byName.get(r.localeName), duplicates);
+				if (same == null && r.objectType == ObjectType.STREET) {
+					same = findDuplicate(r, streetsByLocation.get(((Street) r.object).getLocation()), duplicates);
+				}
+				if (same == null && r.object != null) {
+					// the same object could be found without location
+					same = findDuplicate(r, byObject.get(r.object), duplicates);
+				}
+				return same;
+			}
+			return r.object == null ? null : findDuplicate(r, byObject.get(r.object), duplicates);
+		}
+
+		private static Entry findDuplicate(SearchResult r, List<Entry> candidates, SearchResultCollection duplicates) {
+			if (candidates != null) {
+				for (Entry c : candidates) {
+					if (duplicates.sameSearchResult(c.result, r)) {
+						return c;
+					}
+				}
+			}
+			return null;
+		}
+
+		void add(Entry e) {
+			SearchResult r = e.result;
+			if (isLocated(r)) {
+				addToIndex(byName, r.localeName, e);
+				if (r.objectType == ObjectType.STREET) {
+					addToIndex(streetsByLocation, ((Street) r.object).getLocation(), e);
+				}
+			}
+			if (r.object != null) {
+				addToIndex(byObject, r.object, e);
+			}
+		}
+
+		void remove(Entry e) {
+			SearchResult r = e.result;
+			if (isLocated(r)) {
+				removeFromIndex(byName, r.localeName, e);
+				if (r.objectType == ObjectType.STREET) {
+					removeFromIndex(streetsByLocation, ((Street) r.object).getLocation(), e);
+				}
+			}
+			if (r.object != null) {
+				removeFromIndex(byObject, r.object, e);
+			}
+		}
+	}
+
+	// same condition as location comparison of sameSearchResult
+	private static boolean isLocated(SearchResult r) {
+		return r.location != null && !ObjectType.isTopVisible(r.objectType);
+	}
+
+	private static <K> void addToIndex(Map<K, List<Entry>> map, K key, Entry e) {
+		List<Entry> lst = map.get(key);
+		if (lst == null) {
+			lst = new ArrayList<>(1);
+			map.put(key, lst);
+		}
+		lst.add(e);
+	}
+
+	private static <K> void removeFromIndex(Map<K, List<Entry>> map, K key, Entry e) {
+		List<Entry> lst = map.get(key);
+		if (lst != null) {
+			for (int i = 0; i < lst.size(); i++) {
+				if (lst.get(i) == e) {
+					lst.remove(i);
+					break;
+				}
+			}
+			if (lst.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package net.osmand.search.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.binary.BinaryMapIndexReader;
+
+/**
+ * Objects read from files by the previous search of an API. When the user types more letters of the same word,
+ * every object found by the longer word was also found by the previous one, so names of cached objects are
+ * matched again instead of reading the file. Files which were not searched completely (search was cancelled
+ * or stopped by the limit) are read again, as well as files which didn't fit into total limit of cached objects.
+ */
+class IncrementalSearchCache<T> {
+
+	private final int maxObjects;
+	private String word;
+	private String context;
+	private Map<BinaryMapIndexReader, List<T>> files = Collections.emptyMap();
+
+	IncrementalSearchCache(int maxObjects) {
+		this.maxObjects = maxObjects;
+	}
+
+	public class Search {
+		private final String word;
+		private final String context;
+		private final Map<BinaryMapIndexReader, List<T>> previous;
+		private final Map<BinaryMapIndexReader, List<T>> searched = new HashMap<>();
+		private int objectsCount;
+
+		private Search(String word, String context, Map<BinaryMapIndexReader, List<T>> previous) {
+			this.word = word;
+			this.context = context;
+			this.previous = previous;
+		}
+
+		/**
+		 * @return objects found in file by previous word or null if file should be read
+		 */
+		public List<T> getCachedObjects(BinaryMapIndexReader file) {
+			return previous.get(file);
+		}
+
+		/**
+		 * Called when all objects matching the word are read from file (or taken from cache)
+		 */
+		public void fileSearched(BinaryMapIndexReader file, List<T> objects) {
+			if (objectsCount + objects.size() <= maxObjects) {
+				searched.put(file, objects);
+				objectsCount += objects.size();
+			}
+		}
+	}
+
+	/**
+	 * @param word searched word (objects with names starting with the word are read from files)
+	 * @param context parameters of file requests (area to search), cache is valid only for the same context
+	 */
+	public synchronized Search startSearch(String word, String context) {
+		Map<BinaryMapIndexReader, List<T>> previous = Collections.emptyMap();
+		if (this.word != null && word.startsWith(this.word) && context.equals(this.context)) {
+			previous = files;
+		}
+		return new Search(word, context, previous);
+	}
+
+	/**
+	 * Keeps files searched by the finished (or cancelled) search for the next search
+	 */
+	public synchronized void finishSearch(Search search) {
+		this.word = search.word;
+		this.context = search.context;
+		this.files = search.searched;
+	}
+
+	public synchronized void clear() {
+		word = null;
+		context = null;
+		files = Collections.emptyMap();
+	}
+}
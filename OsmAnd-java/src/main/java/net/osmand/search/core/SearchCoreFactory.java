@@ -26,6 +26,8 @@ import net.osmand.binary.BinaryMapAddressReaderAdapter;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiSubType;
 import net.osmand.binary.CommonWords;
 import net.osmand.data.Amenity;
 import net.osmand.data.Building;
@@ -33,6 +35,7 @@ import net.osmand.data.City;
 import net.osmand.data.City.CityType;
 import net.osmand.data.LatLon;
 import net.osmand.data.MapObject;
+import net.osmand.data.Postcode;
 import net.osmand.data.QuadRect;
 import net.osmand.data.QuadTree;
 import net.osmand.data.Street;
@@ -85,6 +88,14 @@ public class SearchCoreFactory {
 	protected static final double SEARCH_AMENITY_BY_NAME_CITY_PRIORITY_DISTANCE = 0.001;
 	protected static final double SEARCH_AMENITY_BY_NAME_TOWN_PRIORITY_DISTANCE = 0.005;
 
+	// typo-tolerant search
+	protected static final int FUZZY_SEARCH_MIN_LENGTH = 4;
+	protected static final int FUZZY_SEARCH_2_TYPOS_MIN_LENGTH = 7;
+	protected static final int FUZZY_SEARCH_PREFIXES_LIMIT = 5;
+
+	// objects of all files kept by incremental search cache of API
+	protected static final int INCREMENTAL_SEARCH_CACHE_MAX_OBJECTS = 10000;
+
 	public static abstract class SearchBaseAPI implements SearchCoreAPI {
 
 		private ObjectType[] searchTypes;
@@ -141,6 +152,39 @@ public class SearchCoreFactory {
 			return 0;
 		}
 
+		/**
+		 * Initializes lazily loaded structures used by search, called by background preload
+		 * for each file (nearest first) and once with null file for structures not related to files.
+		 * @return estimated memory in bytes retained by structures loaded in this call
+		 */
+		public long preload(SearchPhrase phrase, BinaryMapIndexReader file) throws IOException {
+			return 0;
+		}
+
+		protected String getIncrementalSearchContext(SearchPhrase phrase) {
+			// files are searched in the area around last token location
+			return phrase.getRadiusLevel() + " " + phrase.getLastTokenLocation();
+		}
+
+		protected int getFuzzySearchDistance(SearchPhrase phrase, String word) {
+			int maxEdits = phrase.getSettings().getFuzzySearchDistance();
+			if (maxEdits == 0 || word.length() < FUZZY_SEARCH_MIN_LENGTH) {
+				return 0;
+			}
+			return word.length() < FUZZY_SEARCH_2_TYPOS_MIN_LENGTH ? 1 : maxEdits;
+		}
+
+		protected List<Map.Entry<String, Integer>> sortFuzzyPrefixes(Map<String, Integer> prefixes) {
+			List<Map.Entry<String, Integer>> res = new ArrayList<>(prefixes.entrySet());
+			Collections.sort(res, new Comparator<Map.Entry<String, Integer>>() {
+				@Override
+				public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
+					return Algorithms.compare(o1.getValue(), o2.getValue());
+				}
+			});
+			return res.size() > FUZZY_SEARCH_PREFIXES_LIMIT ? res.subList(0, FUZZY_SEARCH_PREFIXES_LIMIT) : res;
+		}
+
 		protected void subSearchApiOrPublish(SearchPhrase phrase, SearchResultMatcher resultMatcher, SearchResult res, SearchBaseAPI api)
 				throws IOException {
 			subSearchApiOrPublish(phrase, resultMatcher, res, api, true);
@@ -269,11 +313,15 @@ public class SearchCoreFactory {
 
 		private static final int DEFAULT_ADDRESS_BBOX_RADIUS = 100 * 1000;
 		private static final int LIMIT = 10000;
+		// city with names, location and quad tree entry
+		private static final int ESTIMATED_CITY_BYTES = 400;
 
 		private Map<BinaryMapIndexReader, List<City>> townCities = new LinkedHashMap<>();
 		private QuadTree<City> townCitiesQR = new QuadTree<City>(new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE),
 				8, 0.55f);
 		private List<City> resArray = new ArrayList<>();
+		private IncrementalSearchCache<MapObject> incrementalCache =
+				new IncrementalSearchCache<>(INCREMENTAL_SEARCH_CACHE_MAX_OBJECTS);
 		private SearchStreetByCityAPI cityApi;
 		private SearchBuildingAndIntersectionsByStreetAPI streetsApi;
 
@@ -334,20 +382,7 @@ public class SearchCoreFactory {
 			QuadRect bbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 20);
 			Iterator<BinaryMapIndexReader> offlineIndexes = phrase.getOfflineIndexes(bbox, SearchPhraseDataType.ADDRESS);
 			while (offlineIndexes.hasNext()) {
-				BinaryMapIndexReader r = offlineIndexes.next();
-				if (!townCities.containsKey(r)) {
-					BinaryMapIndexReader.buildAddressRequest(null);
-					List<City> l = r.getCities(null, BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
-					townCities.put(r, l);
-					for (City c  : l) {
-						LatLon cl = c.getLocation();
-						c.setReferenceFile(r);
-						int y = MapUtils.get31TileNumberY(cl.getLatitude());
-						int x = MapUtils.get31TileNumberX(cl.getLongitude());
-						QuadRect qr = new QuadRect(x, y, x, y);
-						townCitiesQR.insert(c, qr);
-					}
-				}
+				initTownCities(offlineIndexes.next());
 			}
 			if (phrase.isNoSelectedType() && bbox != null
 					&& (phrase.isUnknownSearchWordPresent() || phrase.isEmptyQueryAllowed())
@@ -383,6 +418,32 @@ public class SearchCoreFactory {
 			}
 		}
 
+		private List<City> initTownCities(BinaryMapIndexReader r) throws IOException {
+			List<City> l = townCities.get(r);
+			if (l == null) {
+				BinaryMapIndexReader.buildAddressRequest(null);
+				l = r.getCities(null, BinaryMapAddressReaderAdapter.CITY_TOWN_TYPE);
+				townCities.put(r, l);
+				for (City c  : l) {
+					LatLon cl = c.getLocation();
+					c.setReferenceFile(r);
+					int y = MapUtils.get31TileNumberY(cl.getLatitude());
+					int x = MapUtils.get31TileNumberX(cl.getLongitude());
+					QuadRect qr = new QuadRect(x, y, x, y);
+					townCitiesQR.insert(c, qr);
+				}
+			}
+			return l;
+		}
+
+		@Override
+		public long preload(SearchPhrase phrase, BinaryMapIndexReader file) throws IOException {
+			if (file == null || !file.containsAddressData() || townCities.containsKey(file)) {
+				return 0;
+			}
+			return (long) initTownCities(file).size() * ESTIMATED_CITY_BYTES;
+		}
+
 		private void searchByName(final SearchPhrase phrase, final SearchResultMatcher resultMatcher)
 				throws IOException {
 			if (phrase.getRadiusLevel() > 1 || phrase.getUnknownWordToSearch().length() > 3 ||
@@ -397,6 +458,8 @@ public class SearchCoreFactory {
 				final int priority = phrase.isNoSelectedType() ?
 						SEARCH_ADDRESS_BY_NAME_PRIORITY : SEARCH_ADDRESS_BY_NAME_PRIORITY_RADIUS2;
 				final BinaryMapIndexReader[] currentFile = new BinaryMapIndexReader[1];
+				final int[] currentEditDistance = new int[1];
+				final List<MapObject> fileObjects = new ArrayList<>();
 
 				ResultMatcher<MapObject> rm = new ResultMatcher<MapObject>() {
 					int limit = 0;
@@ -405,9 +468,11 @@ public class SearchCoreFactory {
 						if (isCancelled()) {
 							return false;
 						}
+						fileObjects.add(object);
 						SearchResult sr = new SearchResult(phrase);
 						sr.object = object;
 						sr.file = currentFile[0];
+						sr.editDistance = currentEditDistance[0];
 						sr.localeName = object.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
 						sr.otherNames = object.getOtherNames(true);
 						sr.localeRelatedObjectName = sr.file.getRegionName();
@@ -515,18 +580,61 @@ public class SearchCoreFactory {
 				Iterator<BinaryMapIndexReader> offlineIterator = phrase.getRadiusOfflineIndexes(DEFAULT_ADDRESS_BBOX_RADIUS * 5,
 						SearchPhraseDataType.ADDRESS);
 				String wordToSearch = phrase.getUnknownWordToSearch();
+				StringMatcherMode matcherMode = phrase.isMainUnknownSearchWordComplete() ?
+						StringMatcherMode.CHECK_EQUALS_FROM_SPACE : StringMatcherMode.CHECK_STARTS_FROM_SPACE;
+				CollatorStringMatcher nameMatcher = new CollatorStringMatcher(wordToSearch.toLowerCase(), matcherMode);
+				IncrementalSearchCache<MapObject>.Search incrementalSearch = null;
+				if (!phrase.getSettings().isExportObjects() && wordToSearch.length() > 0) {
+					incrementalSearch = incrementalCache.startSearch(wordToSearch.toLowerCase(),
+							getIncrementalSearchContext(phrase));
+				}
 				while (offlineIterator.hasNext() && wordToSearch.length() > 0) {
 					BinaryMapIndexReader r = offlineIterator.next();
 					currentFile[0] = r;
 					immediateResults.clear();
-					SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(rm, rawDataCollector, wordToSearch.toLowerCase(),
-							phrase.isMainUnknownSearchWordComplete() ? StringMatcherMode.CHECK_EQUALS_FROM_SPACE
-									: StringMatcherMode.CHECK_STARTS_FROM_SPACE);
-					if (locSpecified) {
-						req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
-								phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
+					fileObjects.clear();
+					// postcodes are matched by normalized query which doesn't keep prefixes
+					boolean incremental = incrementalSearch != null
+							&& !Postcode.looksLikePostcodeStart(wordToSearch, r.getCountryName());
+					List<MapObject> cachedObjects = incremental ? incrementalSearch.getCachedObjects(r) : null;
+					if (cachedObjects != null) {
+						for (MapObject object : cachedObjects) {
+							if (matchesName(nameMatcher, object)) {
+								rm.publish(object);
+							}
+						}
+					} else {
+						SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(rm, rawDataCollector,
+								wordToSearch.toLowerCase(), matcherMode);
+						if (locSpecified) {
+							req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
+									phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
+						}
+						// in-memory name index (if loaded) tells without file access that nothing could be found
+						if (r.containsAddressNamePrefix(wordToSearch.toLowerCase())) {
+							r.searchAddressDataByName(req);
+						}
+					}
+					if (incremental && !rm.isCancelled()) {
+						incrementalSearch.fileSearched(r, new ArrayList<>(fileObjects));
+					}
+					int maxEdits = getFuzzySearchDistance(phrase, wordToSearch);
+					if (maxEdits > 0 && immediateResults.isEmpty()) {
+						// nothing is found by exact name, search similar names from name index
+						Map<String, Integer> prefixes = r.getFuzzyAddressNamePrefixes(wordToSearch.toLowerCase(), maxEdits,
+								FUZZY_SEARCH_PREFIXES_LIMIT);
+						for (Map.Entry<String, Integer> e : sortFuzzyPrefixes(prefixes)) {
+							currentEditDistance[0] = e.getValue();
+							SearchRequest<MapObject> fuzzyReq = BinaryMapIndexReader.buildAddressByNameRequest(rm,
+									rawDataCollector, e.getKey(), StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+							if (locSpecified) {
+								fuzzyReq.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
+										phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
+							}
+							r.searchAddressDataByName(fuzzyReq);
+						}
+						currentEditDistance[0] = 0;
 					}
-					r.searchAddressDataByName(req);
 					for (SearchResult res : immediateResults) {
 						if (res.objectType == ObjectType.STREET) {
 							subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
@@ -536,7 +644,24 @@ public class SearchCoreFactory {
 					}
 					resultMatcher.apiSearchRegionFinished(this, r, phrase);
 				}
+				// objects of complete word don't contain objects of longer words
+				if (incrementalSearch != null && matcherMode == StringMatcherMode.CHECK_STARTS_FROM_SPACE) {
+					incrementalCache.finishSearch(incrementalSearch);
+				}
+			}
+		}
+
+		// same check as file search by name does
+		private boolean matchesName(CollatorStringMatcher nameMatcher, MapObject object) {
+			if (nameMatcher.matches(object.getName())) {
+				return true;
+			}
+			for (String n : object.getOtherNames()) {
+				if (nameMatcher.matches(n)) {
+					return true;
+				}
 			}
+			return false;
 		}
 	}
 
@@ -546,6 +671,9 @@ public class SearchCoreFactory {
 		private static final int BBOX_RADIUS_INSIDE = 10000 * 1000; // to support city search for basemap
 		private static final int FIRST_WORD_MIN_LENGTH = 3;
 
+		private IncrementalSearchCache<Amenity> incrementalCache =
+				new IncrementalSearchCache<>(INCREMENTAL_SEARCH_CACHE_MAX_OBJECTS);
+
 		public SearchAmenityByNameAPI() {
 			super(ObjectType.POI);
 		}
@@ -566,9 +694,11 @@ public class SearchCoreFactory {
 			Iterator<BinaryMapIndexReader> offlineIterator = phrase.getRadiusOfflineIndexes(BBOX_RADIUS,
 					SearchPhraseDataType.POI);
 			String searchWord = phrase.getUnknownWordToSearch();
-			final NameStringMatcher nm = phrase.getMainUnknownNameStringMatcher();
+			final NameStringMatcher[] nm = new NameStringMatcher[] { phrase.getMainUnknownNameStringMatcher() };
+			final int[] currentEditDistance = new int[1];
 			QuadRect bbox = phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE);
 			final Set<String> ids = new HashSet<String>();
+			final List<Amenity> fileObjects = new ArrayList<>();
 
 			ResultMatcher<Amenity> rawDataCollector = null;
 			if (phrase.getSettings().isExportObjects()) {
@@ -585,61 +715,102 @@ public class SearchCoreFactory {
 					}
 				};
 			}
-			SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.centerX(),
-					(int) bbox.centerY(), searchWord, (int) bbox.left, (int) bbox.right, (int) bbox.top,
-					(int) bbox.bottom, new ResultMatcher<Amenity>() {
-						int limit = 0;
+			ResultMatcher<Amenity> matcher = new ResultMatcher<Amenity>() {
+				int limit = 0;
 
-						@Override
-						public boolean publish(Amenity object) {
-							if (limit++ > LIMIT) {
-								return false;
-							}
-							String poiID = object.getType().getKeyName() + "_" + object.getId();
-							if (ids.contains(poiID)) {
-								return false;
-							}
-							SearchResult sr = new SearchResult(phrase);
-							sr.otherNames = object.getOtherNames(true);
-							sr.localeName = object.getName(phrase.getSettings().getLang(),
-									phrase.getSettings().isTransliterate());
-							if (!nm.matches(sr.localeName) && !nm.matches(sr.otherNames)
-									&& !nm.matches(object.getAdditionalInfoValues(false))) {
-								return false;
-							}
-							sr.object = object;
-							sr.preferredZoom = 17;
-							sr.file = currentFile[0];
-							sr.location = object.getLocation();
-							if (object.getSubType().equals("city") || object.getSubType().equals("country")) {
-								sr.priorityDistance = SEARCH_AMENITY_BY_NAME_CITY_PRIORITY_DISTANCE;
-								sr.preferredZoom = object.getSubType().equals("country") ? 7 : 13;
-							} else if (object.getSubType().equals("town")) {
-								sr.priorityDistance = SEARCH_AMENITY_BY_NAME_TOWN_PRIORITY_DISTANCE;
-							} else {
-								sr.priorityDistance = 1;
-							}
-							sr.priority = SEARCH_AMENITY_BY_NAME_PRIORITY;
-							phrase.countUnknownWordsMatchMainResult(sr);
-							sr.objectType = ObjectType.POI;
-							resultMatcher.publish(sr);
-							ids.add(poiID);
-							return false;
-						}
+				@Override
+				public boolean publish(Amenity object) {
+					fileObjects.add(object);
+					if (limit++ > LIMIT) {
+						return false;
+					}
+					String poiID = object.getType().getKeyName() + "_" + object.getId();
+					if (ids.contains(poiID)) {
+						return false;
+					}
+					SearchResult sr = new SearchResult(phrase);
+					sr.otherNames = object.getOtherNames(true);
+					sr.localeName = object.getName(phrase.getSettings().getLang(),
+							phrase.getSettings().isTransliterate());
+					if (!nm[0].matches(sr.localeName) && !nm[0].matches(sr.otherNames)
+							&& !nm[0].matches(object.getAdditionalInfoValues(false))) {
+						return false;
+					}
+					sr.object = object;
+					sr.editDistance = currentEditDistance[0];
+					sr.preferredZoom = 17;
+					sr.file = currentFile[0];
+					sr.location = object.getLocation();
+					if (object.getSubType().equals("city") || object.getSubType().equals("country")) {
+						sr.priorityDistance = SEARCH_AMENITY_BY_NAME_CITY_PRIORITY_DISTANCE;
+						sr.preferredZoom = object.getSubType().equals("country") ? 7 : 13;
+					} else if (object.getSubType().equals("town")) {
+						sr.priorityDistance = SEARCH_AMENITY_BY_NAME_TOWN_PRIORITY_DISTANCE;
+					} else {
+						sr.priorityDistance = 1;
+					}
+					sr.priority = SEARCH_AMENITY_BY_NAME_PRIORITY;
+					phrase.countUnknownWordsMatchMainResult(sr);
+					sr.objectType = ObjectType.POI;
+					resultMatcher.publish(sr);
+					ids.add(poiID);
+					return false;
+				}
 
-						@Override
-						public boolean isCancelled() {
-							return resultMatcher.isCancelled() && (limit < LIMIT);
-						}
-					}, rawDataCollector);
+				@Override
+				public boolean isCancelled() {
+					return resultMatcher.isCancelled() && (limit < LIMIT);
+				}
+			};
+			SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.centerX(),
+					(int) bbox.centerY(), searchWord, (int) bbox.left, (int) bbox.right, (int) bbox.top,
+					(int) bbox.bottom, matcher, rawDataCollector);
+			int maxEdits = phrase.hasMoreThanOneUnknownSearchWord() ? 0 : getFuzzySearchDistance(phrase, searchWord);
+			IncrementalSearchCache<Amenity>.Search incrementalSearch = null;
+			if (!phrase.getSettings().isExportObjects()) {
+				incrementalSearch = incrementalCache.startSearch(searchWord.toLowerCase(),
+						getIncrementalSearchContext(phrase));
+			}
 
 			while (offlineIterator.hasNext()) {
 				BinaryMapIndexReader r = offlineIterator.next();
 				currentFile[0] = r;
-				r.searchPoiByName(req);
+				int found = ids.size();
+				fileObjects.clear();
+				List<Amenity> cachedObjects = incrementalSearch != null ? incrementalSearch.getCachedObjects(r) : null;
+				if (cachedObjects != null) {
+					// names are checked by matcher
+					for (Amenity object : cachedObjects) {
+						matcher.publish(object);
+					}
+				} else if (r.containsPoiNamePrefix(searchWord)) {
+					r.searchPoiByName(req);
+				}
+				if (incrementalSearch != null && !resultMatcher.isCancelled()) {
+					incrementalSearch.fileSearched(r, new ArrayList<>(fileObjects));
+				}
+				if (maxEdits > 0 && found == ids.size() && !resultMatcher.isCancelled()) {
+					// nothing is found by exact name, search similar names from name index
+					NameStringMatcher mainMatcher = nm[0];
+					Map<String, Integer> prefixes = r.getFuzzyPoiNamePrefixes(searchWord, maxEdits,
+							FUZZY_SEARCH_PREFIXES_LIMIT);
+					for (Map.Entry<String, Integer> e : sortFuzzyPrefixes(prefixes)) {
+						nm[0] = new NameStringMatcher(e.getKey(), StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+						currentEditDistance[0] = e.getValue();
+						SearchRequest<Amenity> fuzzyReq = BinaryMapIndexReader.buildSearchPoiRequest(
+								(int) bbox.centerX(), (int) bbox.centerY(), e.getKey(), (int) bbox.left,
+								(int) bbox.right, (int) bbox.top, (int) bbox.bottom, matcher, rawDataCollector);
+						r.searchPoiByName(fuzzyReq);
+					}
+					nm[0] = mainMatcher;
+					currentEditDistance[0] = 0;
+				}
 
 				resultMatcher.apiSearchRegionFinished(this, r, phrase);
 			}
+			if (incrementalSearch != null) {
+				incrementalCache.finishSearch(incrementalSearch);
+			}
 			return true;
 		}
 
@@ -682,6 +853,7 @@ public class SearchCoreFactory {
 	public static class SearchAmenityTypesAPI extends SearchBaseAPI {
 
 		public final static String STD_POI_FILTER_PREFIX = "std_";
+		private static final int ESTIMATED_STRING_BYTES = 64;
 
 		private Map<String, PoiType> translatedNames = new LinkedHashMap<>();
 		private List<AbstractPoiType> topVisibleFilters;
@@ -862,6 +1034,29 @@ public class SearchCoreFactory {
 			}
 		}
 
+		@Override
+		public long preload(SearchPhrase phrase, BinaryMapIndexReader file) throws IOException {
+			if (file == null) {
+				initPoiTypes();
+				types.initPoiTypesByTag();
+				return 0;
+			}
+			long memory = 0;
+			for (PoiRegion region : file.getPoiIndexes()) {
+				if (region.getCategories().isEmpty()) {
+					file.initCategories(region);
+					for (List<String> subcategories : region.getSubcategories()) {
+						memory += (long) subcategories.size() * ESTIMATED_STRING_BYTES;
+					}
+					for (PoiSubType subType : region.getSubTypes()) {
+						int values = subType.possibleValues == null ? 0 : subType.possibleValues.size();
+						memory += (long) (values + 1) * ESTIMATED_STRING_BYTES;
+					}
+				}
+			}
+			return memory;
+		}
+
 		@Override
 		public boolean search(SearchPhrase phrase, SearchResultMatcher resultMatcher) throws IOException {
 			boolean showTopFiltersOnly = !phrase.isUnknownSearchWordPresent();
@@ -11,6 +11,8 @@ import net.osmand.StringMatcher;
 import net.osmand.binary.Abbreviations;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapSpatialIndex;
+import net.osmand.binary.BinaryMapSpatialIndex.IndexDataType;
 import net.osmand.binary.CommonWords;
 import net.osmand.data.LatLon;
 import net.osmand.data.QuadRect;
@@ -416,49 +418,45 @@ public class SearchPhrase {
 
 	public Iterator<BinaryMapIndexReader> getOfflineIndexes(final QuadRect rect, final SearchPhraseDataType dt) {
 		List<BinaryMapIndexReader> list = indexes != null ? indexes : settings.getOfflineIndexes();
-		final Iterator<BinaryMapIndexReader> lit = list.iterator();
-		return new Iterator<BinaryMapIndexReader>() {
-			BinaryMapIndexReader next = null;
-			@Override
-			public boolean hasNext() {
-				while (lit.hasNext()) {
-					next = lit.next();
-					if(rect != null) {
-						if(dt == SearchPhraseDataType.POI) {
-							if(next.containsPoiData((int)rect.left, (int)rect.top, (int)rect.right, (int)rect.bottom)) {
-								return true;
-							}
-						} else if(dt == SearchPhraseDataType.ADDRESS) {
-							// containsAddressData not all maps supported
-							if(next.containsPoiData((int)rect.left, (int)rect.top, (int)rect.right, (int)rect.bottom) && 
-									next.containsAddressData()) {
-								return true;
-							}
-						} else if(dt == SearchPhraseDataType.ROUTING) {
-							if(next.containsRouteData((int)rect.left, (int)rect.top, (int)rect.right, (int)rect.bottom, 15)) {
-								return true;
-							}
-						} else {
-							if(next.containsMapData((int)rect.left, (int)rect.top, (int)rect.right, (int)rect.bottom, 15)) {
-								return true;
-							}
-						}
-					} else {
-						return true;
-					}
-				}
-				return false;
+		if (rect == null) {
+			return list.iterator();
+		}
+		// prefilter readers with spatial index and keep order of the list
+		BinaryMapSpatialIndex spatialIndex = settings.getOfflineIndexesSpatialIndex();
+		int left = (int) rect.left;
+		int top = (int) rect.top;
+		int right = (int) rect.right;
+		int bottom = (int) rect.bottom;
+		List<BinaryMapIndexReader> candidates;
+		if (dt == SearchPhraseDataType.POI || dt == SearchPhraseDataType.ADDRESS) {
+			candidates = spatialIndex.query(IndexDataType.POI, left, top, right, bottom, -1);
+		} else if (dt == SearchPhraseDataType.ROUTING) {
+			candidates = spatialIndex.query(IndexDataType.ROUTE, left, top, right, bottom, -1);
+		} else {
+			candidates = spatialIndex.query(IndexDataType.MAP, left, top, right, bottom, 15);
+		}
+		Set<BinaryMapIndexReader> candidatesSet = new HashSet<>(candidates);
+		List<BinaryMapIndexReader> res = new ArrayList<>();
+		for (BinaryMapIndexReader r : list) {
+			boolean accept;
+			if (spatialIndex.containsReader(r)) {
+				accept = candidatesSet.contains(r);
+			} else if (dt == SearchPhraseDataType.POI || dt == SearchPhraseDataType.ADDRESS) {
+				accept = r.containsPoiData(left, top, right, bottom);
+			} else if (dt == SearchPhraseDataType.ROUTING) {
+				accept = r.containsRouteData(left, top, right, bottom, 15);
+			} else {
+				accept = r.containsMapData(left, top, right, bottom, 15);
 			}
-
-			@Override
-			public BinaryMapIndexReader next() {
-				return next;
+			// containsAddressData not all maps supported
+			if (accept && dt == SearchPhraseDataType.ADDRESS) {
+				accept = r.containsAddressData();
 			}
-
-			@Override
-			public void remove() {
+			if (accept) {
+				res.add(r);
 			}
-		};
+		}
+		return res.iterator();
 	}
 	
 	public List<BinaryMapIndexReader> getOfflineIndexes() {
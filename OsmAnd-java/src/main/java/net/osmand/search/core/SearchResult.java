@@ -41,6 +41,9 @@ public class SearchResult {
 	public String alternateName;
 	public Collection<String> otherNames;
 
+	// number of typos in searched name (typo-tolerant search), 0 for exact matches
+	public int editDistance;
+
 	public String localeRelatedObjectName;
 	public Object relatedObject;
 	public double distRelatedObjectName;
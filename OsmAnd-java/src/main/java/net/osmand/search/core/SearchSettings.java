@@ -3,6 +3,7 @@ package net.osmand.search.core;
 import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapDataObject;
 import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapSpatialIndex;
 import net.osmand.data.LatLon;
 import net.osmand.map.OsmandRegions;
 import net.osmand.map.WorldRegion;
@@ -29,6 +30,7 @@ public class SearchSettings {
 	private OsmandRegions regions;
 	private String regionLang;
 	private List<BinaryMapIndexReader> offlineIndexes = new ArrayList<>();
+	private BinaryMapSpatialIndex offlineIndexesSpatialIndex;
 	private int radiusLevel = 1;
 	private int totalLimit = -1;
 	private String lang;
@@ -36,6 +38,8 @@ public class SearchSettings {
 	private ObjectType[] searchTypes;
 	private boolean emptyQueryAllowed;
 	private boolean sortByName;
+	// maximal number of typos in searched name, 0 - exact search only
+	private int fuzzySearchDistance;
 	private SearchExportSettings exportSettings; // = new SearchExportSettings(true, true, -1);
 
 	public SearchSettings(SearchSettings s) {
@@ -45,12 +49,14 @@ public class SearchSettings {
 			this.transliterateIfMissing = s.transliterateIfMissing;
 			this.totalLimit = s.totalLimit;
 			this.offlineIndexes = s.offlineIndexes;
+			this.offlineIndexesSpatialIndex = s.offlineIndexesSpatialIndex;
 			this.originalLocation = s.originalLocation;
 			this.regions = s.regions;
 			this.regionLang = s.regionLang;
 			this.searchTypes = s.searchTypes;
 			this.emptyQueryAllowed = s.emptyQueryAllowed;
 			this.sortByName = s.sortByName;
+			this.fuzzySearchDistance = s.fuzzySearchDistance;
 			this.exportSettings = s.exportSettings;
 		}
 	}
@@ -65,6 +71,16 @@ public class SearchSettings {
 
 	public void setOfflineIndexes(List<? extends BinaryMapIndexReader> offlineIndexes) {
 		this.offlineIndexes = Collections.unmodifiableList(offlineIndexes);
+		this.offlineIndexesSpatialIndex = null;
+	}
+
+	public BinaryMapSpatialIndex getOfflineIndexesSpatialIndex() {
+		BinaryMapSpatialIndex spatialIndex = offlineIndexesSpatialIndex;
+		if (spatialIndex == null) {
+			spatialIndex = new BinaryMapSpatialIndex(offlineIndexes);
+			offlineIndexesSpatialIndex = spatialIndex;
+		}
+		return spatialIndex;
 	}
 
 	public int getRadiusLevel() {
@@ -154,6 +170,20 @@ public class SearchSettings {
 		return s;
 	}
 
+	public int getFuzzySearchDistance() {
+		return fuzzySearchDistance;
+	}
+
+	/**
+	 * @param fuzzySearchDistance maximal edit distance (1-2) of names found by typo-tolerant search,
+	 *                            0 switches it off. It works only for files with name indexes in memory.
+	 */
+	public SearchSettings setFuzzySearchDistance(int fuzzySearchDistance) {
+		SearchSettings s = new SearchSettings(this);
+		s.fuzzySearchDistance = Math.max(0, Math.min(2, fuzzySearchDistance));
+		return s;
+	}
+
 	public SearchExportSettings getExportSettings() {
 		return exportSettings;
 	}
@@ -224,6 +254,7 @@ public class SearchSettings {
 		json.put("transliterateIfMissing", transliterateIfMissing);
 		json.put("emptyQueryAllowed", emptyQueryAllowed);
 		json.put("sortByName", sortByName);
+		json.put("fuzzySearchDistance", fuzzySearchDistance);
 		if (searchTypes != null && searchTypes.length > 0) {
 			JSONArray searchTypesArr = new JSONArray();
 			for (ObjectType type : searchTypes) {
@@ -245,6 +276,7 @@ public class SearchSettings {
 		s.transliterateIfMissing = json.optBoolean("transliterateIfMissing", false);
 		s.emptyQueryAllowed = json.optBoolean("emptyQueryAllowed", false);
 		s.sortByName = json.optBoolean("sortByName", false);
+		s.fuzzySearchDistance = json.optInt("fuzzySearchDistance", 0);
 		if (json.has("lang")) {
 			s.lang = json.getString("lang");
 		}
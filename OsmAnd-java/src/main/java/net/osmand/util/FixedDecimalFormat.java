@@ -0,0 +1,144 @@
+package net.osmand.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formats doubles with fixed number of fraction digits into reusable buffer with the same result as
+ * {@link DecimalFormat} of pattern like "0.00#####" or "#.#" (HALF_EVEN rounding, US symbols).
+ * Rounding ties, negative zeros and huge values are delegated to {@link DecimalFormat}.
+ * Not thread safe.
+ */
+public class FixedDecimalFormat {
+
+	private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000,
+			1000000000};
+	private static final double MAX_SCALED_VALUE = 1e15;
+
+	private final int minIntegerDigits;
+	private final int minFractionDigits;
+	private final int maxFractionDigits;
+	private final long scale;
+	private final DecimalFormat fallbackFormat;
+	private char[] buffer = new char[32];
+	private int length;
+
+	/**
+	 * @param pattern pattern of {@link DecimalFormat} with fraction digits only (without grouping and exponent)
+	 */
+	public FixedDecimalFormat(String pattern) {
+		fallbackFormat = new DecimalFormat(pattern, new DecimalFormatSymbols(new Locale("EN", "US")));
+		fallbackFormat.setRoundingMode(RoundingMode.HALF_EVEN);
+		minIntegerDigits = fallbackFormat.getMinimumIntegerDigits();
+		minFractionDigits = fallbackFormat.getMinimumFractionDigits();
+		maxFractionDigits = fallbackFormat.getMaximumFractionDigits();
+		if (fallbackFormat.isGroupingUsed() || minIntegerDigits > 1 || maxFractionDigits >= POWERS_OF_TEN.length) {
+			throw new IllegalArgumentException("Unsupported pattern " + pattern);
+		}
+		scale = POWERS_OF_TEN[maxFractionDigits];
+	}
+
+	public String format(double value) {
+		formatToBuffer(value);
+		return new String(buffer, 0, length);
+	}
+
+	/**
+	 * @return formatted value in {@link #getBuffer()}
+	 */
+	public int formatToBuffer(double value) {
+		length = 0;
+		double abs = Math.abs(value);
+		double scaled = abs * scale;
+		if (Double.isNaN(value) || scaled >= MAX_SCALED_VALUE) {
+			return fallback(value);
+		}
+		long rounded = round(abs, scaled);
+		boolean negative = Double.doubleToRawLongBits(value) < 0;
+		if (negative && rounded == 0) {
+			return fallback(value);
+		}
+		long integer = rounded / scale;
+		long fractionDigits = rounded % scale;
+		int digits = maxFractionDigits;
+		while (digits > minFractionDigits && fractionDigits % 10 == 0) {
+			fractionDigits /= 10;
+			digits--;
+		}
+		if (negative) {
+			buffer[length++] = '-';
+		}
+		if (integer != 0 || minIntegerDigits > 0 || digits == 0) {
+			appendLong(integer);
+		}
+		if (digits > 0) {
+			buffer[length++] = '.';
+			for (int i = digits - 1; i >= 0; i--) {
+				buffer[length + i] = (char) ('0' + fractionDigits % 10);
+				fractionDigits /= 10;
+			}
+			length += digits;
+		}
+		return length;
+	}
+
+	/**
+	 * @return value rounded to fraction digits of pattern as formatted, multiplied by 10^digits
+	 * (absolute value should be less than 1e15 / 10^digits)
+	 */
+	public long toScaledLong(double value) {
+		double abs = Math.abs(value);
+		long rounded = round(abs, abs * scale);
+		return value < 0 ? -rounded : rounded;
+	}
+
+	private long round(double abs, double scaled) {
+		long rounded = (long) scaled;
+		double fraction = scaled - rounded;
+		// error of multiplication is close to ulp, ties are rounded precisely by exact decimal value
+		if (Math.abs(fraction - 0.5) <= Math.max(1e-6, 4 * Math.ulp(scaled))) {
+			rounded = new BigDecimal(abs).setScale(maxFractionDigits, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+		} else if (fraction > 0.5) {
+			rounded++;
+		}
+		return rounded;
+	}
+
+	public long getScale() {
+		return scale;
+	}
+
+	public char[] getBuffer() {
+		return buffer;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	private void appendLong(long value) {
+		int start = length;
+		do {
+			buffer[length++] = (char) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+		for (int i = start, j = length - 1; i < j; i++, j--) {
+			char c = buffer[i];
+			buffer[i] = buffer[j];
+			buffer[j] = c;
+		}
+	}
+
+	private int fallback(double value) {
+		String s = fallbackFormat.format(value);
+		if (s.length() > buffer.length) {
+			buffer = new char[s.length()];
+		}
+		length = s.length();
+		s.getChars(0, length, buffer, 0);
+		return length;
+	}
+}
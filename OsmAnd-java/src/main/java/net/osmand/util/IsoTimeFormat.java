@@ -0,0 +1,204 @@
+package net.osmand.util;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Parser of ISO 8601 UTC times used in gpx (yyyy-MM-ddTHH:mm:ss[.SSS](Z|+hh:mm)) without SimpleDateFormat.
+ * Instance formats times as yyyy-MM-ddTHH:mm:ssZ caching date of the previous time (not thread safe).
+ */
+public class IsoTimeFormat {
+
+	public static final int FORMATTED_LENGTH = 20;
+
+	private static final long MILLIS_IN_MINUTE = 60 * 1000L;
+	private static final long MILLIS_IN_DAY = 24 * 60 * MILLIS_IN_MINUTE;
+	// SimpleDateFormat uses julian calendar before 1582
+	private static final int MIN_FORMAT_YEAR = 1583;
+	private static final int MAX_FORMAT_YEAR = 9999;
+
+	private final char[] buffer = new char[FORMATTED_LENGTH];
+	private long cachedDay = Long.MIN_VALUE;
+	private boolean cachedDaySupported;
+	private SimpleDateFormat fallbackFormat;
+
+	public String format(long time) {
+		int length = formatToBuffer(time);
+		return length == FORMATTED_LENGTH ? new String(buffer, 0, length) : getFallbackFormat().format(new Date(time));
+	}
+
+	/**
+	 * @return length of formatted time in {@link #getBuffer()} or -1 if time is out of supported years
+	 */
+	public int formatToBuffer(long time) {
+		long day = time / MILLIS_IN_DAY;
+		long millisOfDay = time % MILLIS_IN_DAY;
+		if (millisOfDay < 0) {
+			day--;
+			millisOfDay += MILLIS_IN_DAY;
+		}
+		if (day != cachedDay) {
+			cachedDay = day;
+			cachedDaySupported = writeDate(day);
+		}
+		if (!cachedDaySupported) {
+			return -1;
+		}
+		int seconds = (int) (millisOfDay / 1000);
+		writeDigits(seconds / 3600, 11, 2);
+		buffer[13] = ':';
+		writeDigits(seconds / 60 % 60, 14, 2);
+		buffer[16] = ':';
+		writeDigits(seconds % 60, 17, 2);
+		buffer[19] = 'Z';
+		return FORMATTED_LENGTH;
+	}
+
+	public char[] getBuffer() {
+		return buffer;
+	}
+
+	private boolean writeDate(long day) {
+		// inverse of daysFromCivil
+		long z = day + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int dayOfMonth = (int) (doy - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+		if (year < MIN_FORMAT_YEAR || year > MAX_FORMAT_YEAR) {
+			return false;
+		}
+		writeDigits((int) year, 0, 4);
+		buffer[4] = '-';
+		writeDigits(month, 5, 2);
+		buffer[7] = '-';
+		writeDigits(dayOfMonth, 8, 2);
+		buffer[10] = 'T';
+		return true;
+	}
+
+	private void writeDigits(int value, int start, int count) {
+		for (int i = start + count - 1; i >= start; i--) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	private SimpleDateFormat getFallbackFormat() {
+		if (fallbackFormat == null) {
+			fallbackFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+			fallbackFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		}
+		return fallbackFormat;
+	}
+
+	/**
+	 * @return time in millis or defValue if text is not in supported format
+	 */
+	public static long parse(CharSequence text, long defValue) {
+		if (text == null) {
+			return defValue;
+		}
+		int start = 0;
+		int end = text.length();
+		while (start < end && Character.isWhitespace(text.charAt(start))) {
+			start++;
+		}
+		while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		if (end - start < 20 || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-'
+				|| text.charAt(start + 10) != 'T' || text.charAt(start + 13) != ':' || text.charAt(start + 16) != ':') {
+			return defValue;
+		}
+		int year = digits(text, start, 4);
+		int month = digits(text, start + 5, 2);
+		int day = digits(text, start + 8, 2);
+		int hour = digits(text, start + 11, 2);
+		int minute = digits(text, start + 14, 2);
+		int second = digits(text, start + 17, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 24
+				|| minute < 0 || minute > 59 || second < 0 || second > 60) {
+			return defValue;
+		}
+		int pos = start + 19;
+		int millis = 0;
+		if (text.charAt(pos) == '.') {
+			pos++;
+			int fractionStart = pos;
+			int scale = 100;
+			while (pos < end && isDigit(text.charAt(pos))) {
+				millis += (text.charAt(pos) - '0') * scale;
+				scale /= 10;
+				pos++;
+			}
+			if (pos == fractionStart) {
+				return defValue;
+			}
+		}
+		if (pos == end) {
+			return defValue;
+		}
+		long offset = 0;
+		char zone = text.charAt(pos++);
+		if (zone == '+' || zone == '-') {
+			int offsetHours = pos + 2 <= end ? digits(text, pos, 2) : -1;
+			pos += 2;
+			int offsetMinutes = 0;
+			if (pos < end && text.charAt(pos) == ':') {
+				pos++;
+			}
+			if (pos < end) {
+				offsetMinutes = pos + 2 <= end ? digits(text, pos, 2) : -1;
+				pos += 2;
+			}
+			if (offsetHours < 0 || offsetMinutes < 0) {
+				return defValue;
+			}
+			offset = (offsetHours * 60 + offsetMinutes) * MILLIS_IN_MINUTE;
+			if (zone == '-') {
+				offset = -offset;
+			}
+		} else if (zone != 'Z') {
+			return defValue;
+		}
+		if (pos != end) {
+			return defValue;
+		}
+		long time = daysFromCivil(year, month, day) * MILLIS_IN_DAY
+				+ ((hour * 60L + minute) * 60 + second) * 1000 + millis;
+		return time - offset;
+	}
+
+	// days since 1970-01-01 in proleptic Gregorian calendar
+	private static long daysFromCivil(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era * 400;
+		long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	private static int digits(CharSequence text, int start, int count) {
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			char c = text.charAt(i);
+			if (!isDigit(c)) {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
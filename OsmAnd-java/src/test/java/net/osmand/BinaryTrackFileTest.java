@@ -0,0 +1,244 @@
+package net.osmand;
+
+import net.osmand.BinaryTrackFile.Appender;
+import net.osmand.BinaryTrackFile.Chunk;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.Metadata;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BinaryTrackFileTest {
+
+	private final Random rnd = new Random(7);
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("track", BinaryTrackFile.FILE_EXT);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private List<WptPt> generatePoints(int size, long time) {
+		List<WptPt> points = new ArrayList<>();
+		double lat = 52 + rnd.nextDouble();
+		double lon = 4 + rnd.nextDouble();
+		for (int i = 0; i < size; i++) {
+			lat += (rnd.nextDouble() - 0.5) / 2000;
+			lon += (rnd.nextDouble() - 0.5) / 2000;
+			time += 1000 + rnd.nextInt(100);
+			double ele = i % 100 < 90 ? 10 + rnd.nextDouble() * 100 : Double.NaN;
+			double hdop = i % 50 < 25 ? rnd.nextDouble() * 20 : Double.NaN;
+			WptPt point = new WptPt(lat, lon, time, ele, rnd.nextDouble() * 30, hdop);
+			point.heading = i < size / 2 ? rnd.nextFloat() * 360 : Float.NaN;
+			if (i % 400 == 7) {
+				point.name = "point " + i;
+				point.desc = "description";
+				point.setColor(0xff00ff00);
+			}
+			points.add(point);
+		}
+		return points;
+	}
+
+	private GPXFile generateGpx() {
+		GPXFile gpx = new GPXFile("test");
+		gpx.metadata = new Metadata();
+		gpx.metadata.name = "binary";
+		gpx.metadata.desc = "track";
+		gpx.addPoint(new WptPt(52.5, 4.5, 1262347200000L, 5, 0, Double.NaN));
+		long time = 1262347200000L;
+		for (int t = 0; t < 2; t++) {
+			Track track = new Track();
+			track.name = "track " + t;
+			gpx.tracks.add(track);
+			for (int s = 0; s < 3; s++) {
+				TrkSegment segment = new TrkSegment();
+				segment.name = s == 1 ? "segment" : null;
+				if (t == 0 || s != 1) {
+					segment.points = generatePoints(500 + rnd.nextInt(3000), time);
+					time = segment.points.get(segment.points.size() - 1).time + 60000;
+				}
+				track.segments.add(segment);
+			}
+		}
+		return gpx;
+	}
+
+	private static String toXml(GPXFile gpx) {
+		StringWriter writer = new StringWriter();
+		Assert.assertNull(GPXUtilities.writeGpx(writer, gpx, null));
+		return writer.toString();
+	}
+
+	private static List<WptPt> getPoints(GPXFile gpx) {
+		List<WptPt> points = new ArrayList<>();
+		for (Track track : gpx.tracks) {
+			if (!track.generalTrack) {
+				for (TrkSegment segment : track.segments) {
+					points.addAll(segment.points);
+				}
+			}
+		}
+		return points;
+	}
+
+	@Test
+	public void testConversion() throws IOException {
+		GPXFile gpx = generateGpx();
+		String xml = toXml(gpx);
+		BinaryTrackFile.write(file, gpx, 256);
+		Assert.assertTrue(file.length() * 4 < xml.length());
+
+		BinaryTrackFile trackFile = BinaryTrackFile.open(file);
+		try {
+			GPXFile restored = trackFile.toGpxFile();
+			Assert.assertNull(restored.error);
+			Assert.assertEquals(xml, toXml(restored));
+			List<WptPt> expected = getPoints(gpx);
+			List<WptPt> actual = getPoints(restored);
+			Assert.assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				Assert.assertEquals(expected.get(i).time, actual.get(i).time);
+			}
+
+			// chunks of time range are read
+			long from = expected.get(1000).time + 1;
+			long to = expected.get(2000).time;
+			int chunks = 0;
+			for (Chunk chunk : trackFile.getChunks()) {
+				if (chunk.intersects(from, to)) {
+					chunks++;
+				}
+			}
+			Assert.assertTrue(chunks * 256 < 2000);
+			actual = getPoints(trackFile.readTimeRange(from, to));
+			Assert.assertEquals(1000, actual.size());
+			for (int i = 0; i < actual.size(); i++) {
+				Assert.assertEquals(expected.get(1001 + i).time, actual.get(i).time);
+				Assert.assertEquals(expected.get(1001 + i).lat, actual.get(i).lat, 1e-7);
+				Assert.assertEquals(expected.get(1001 + i).name, actual.get(i).name);
+			}
+		} finally {
+			trackFile.close();
+		}
+	}
+
+	@Test
+	public void testAppend() throws IOException {
+		file.delete();
+		List<WptPt> points = generatePoints(2500, 1262347200000L);
+		Appender appender = Appender.open(file, new GPXFile("test"), 100);
+		try {
+			for (int i = 0; i < 1000; i++) {
+				if (i == 500) {
+					appender.startSegment();
+					appender.startSegment();
+				}
+				appender.append(points.get(i));
+			}
+			appender.flush();
+		} finally {
+			appender.close();
+		}
+		// interrupted write of the next chunk
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(raf.length());
+		raf.write(new byte[200]);
+		raf.close();
+
+		appender = Appender.open(file, new GPXFile("test"), 100);
+		try {
+			Assert.assertEquals(1, appender.getSegmentIndex());
+			for (int i = 1000; i < points.size(); i++) {
+				appender.append(points.get(i));
+				if (i == 1050) {
+					// flushed points are visible for readers
+					appender.flush();
+					BinaryTrackFile trackFile = BinaryTrackFile.open(file);
+					Assert.assertEquals(1051, getPoints(trackFile.toGpxFile()).size());
+					trackFile.close();
+				}
+			}
+		} finally {
+			appender.close();
+		}
+
+		BinaryTrackFile trackFile = BinaryTrackFile.open(file);
+		try {
+			Assert.assertEquals(file.length(), trackFile.getLength());
+			GPXFile gpx = trackFile.toGpxFile();
+			Assert.assertEquals(1, gpx.tracks.size() - (gpx.hasGeneralTrack() ? 1 : 0));
+			Track track = gpx.tracks.get(gpx.tracks.size() - 1);
+			Assert.assertEquals(2, track.segments.size());
+			Assert.assertEquals(500, track.segments.get(0).points.size());
+
+			GPXFile expected = new GPXFile("test");
+			Track expectedTrack = new Track();
+			expected.tracks.add(expectedTrack);
+			TrkSegment segment = new TrkSegment();
+			segment.points = new ArrayList<>(points.subList(0, 500));
+			expectedTrack.segments.add(segment);
+			segment = new TrkSegment();
+			segment.points = new ArrayList<>(points.subList(500, points.size()));
+			expectedTrack.segments.add(segment);
+			gpx.path = expected.path;
+			gpx.metadata = null;
+			Assert.assertEquals(toXml(expected), toXml(gpx));
+		} finally {
+			trackFile.close();
+		}
+	}
+
+	@Test
+	public void testRecorderRows() throws IOException {
+		// recorder appends rows of its table, zero coordinates and time are the start of new segment
+		List<WptPt> rows = generatePoints(300, 1262347200000L);
+		for (int i = 0; i < rows.size(); i += 70) {
+			rows.add(i, new WptPt(0, 0, rows.get(i).time, 0, 0, 0, Float.NaN));
+		}
+		Appender appender = Appender.create(file, new GPXFile("test"), 100);
+		try {
+			for (WptPt row : rows) {
+				appender.append(row);
+				appender.flush();
+			}
+		} finally {
+			appender.close();
+		}
+		BinaryTrackFile trackFile = BinaryTrackFile.open(file);
+		try {
+			int size = 0;
+			for (Chunk chunk : trackFile.getChunks()) {
+				size += chunk.getSize();
+			}
+			Assert.assertEquals(rows.size(), size);
+			List<WptPt> restored = getPoints(trackFile.toGpxFile());
+			Assert.assertEquals(rows.size(), restored.size());
+			for (int i = 0; i < rows.size(); i++) {
+				Assert.assertEquals(rows.get(i).time, restored.get(i).time);
+				Assert.assertEquals(rows.get(i).lat == 0 && rows.get(i).lon == 0,
+						restored.get(i).lat == 0 && restored.get(i).lon == 0);
+			}
+		} finally {
+			trackFile.close();
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package net.osmand;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+public class CollationKeysTest {
+
+	private static final String CHARS = "aAbBeEéÉèsSßtTnNñoOöÖuüUzZёЁеЕлкЛ -'.1";
+
+	@Test
+	public void testSameResultsAsCollator() {
+		Collator keyed = OsmAndCollator.primaryCollator();
+		Assert.assertNotNull(CollationKeys.getInstance(keyed));
+		Collator plain = plainCollator(keyed);
+		Assert.assertNull(CollationKeys.getInstance(plain));
+		CollationKeys keys = CollationKeys.getInstance(keyed);
+		Random rnd = new Random(3);
+		for (int i = 0; i < 20000; i++) {
+			String name = randomString(rnd, 12);
+			String part = randomString(rnd, 4);
+			for (StringMatcherMode mode : StringMatcherMode.values()) {
+				Assert.assertEquals(name + " / " + part + " " + mode,
+						CollatorStringMatcher.cmatches(plain, name, part, mode),
+						CollatorStringMatcher.cmatches(keyed, name, part, mode));
+			}
+			String other = randomString(rnd, 12);
+			Assert.assertEquals(name + " / " + other, Integer.signum(plain.compare(name, other)),
+					Integer.signum(keys.compare(name, other)));
+		}
+	}
+
+	@Test
+	public void testContractions() {
+		// "aa" is collated as "å" in Danish and Norwegian, "zs" is a letter in Hungarian
+		Collator da = localeCollator("da");
+		Assert.assertTrue(CollatorStringMatcher.cmatches(da, "Aalborg", "Å", StringMatcherMode.CHECK_CONTAINS));
+		Assert.assertTrue(CollatorStringMatcher.cmatches(da, "Ålborg", "Aa", StringMatcherMode.CHECK_CONTAINS));
+		Assert.assertTrue(CollatorStringMatcher.cmatches(da, "Aabenraa", "Åb", StringMatcherMode.CHECK_CONTAINS));
+		Collator nb = localeCollator("nb");
+		Assert.assertTrue(CollatorStringMatcher.cmatches(nb, "Aasen", "Ås", StringMatcherMode.CHECK_CONTAINS));
+
+		String[] chars = {"aAåÅbz -", "aAåÅbz -", "zZsScCdD -"};
+		String[] languages = {"da", "nb", "hu"};
+		Random rnd = new Random(5);
+		for (int l = 0; l < languages.length; l++) {
+			Collator keyed = localeCollator(languages[l]);
+			Collator plain = plainCollator(keyed);
+			CollationKeys keys = CollationKeys.getInstance(keyed);
+			Assert.assertNotNull(keys);
+			for (int i = 0; i < 20000; i++) {
+				String name = randomString(rnd, chars[l], 8);
+				String part = randomString(rnd, chars[l], 3);
+				for (StringMatcherMode mode : StringMatcherMode.values()) {
+					Assert.assertEquals(languages[l] + " " + name + " / " + part + " " + mode,
+							CollatorStringMatcher.cmatches(plain, name, part, mode),
+							CollatorStringMatcher.cmatches(keyed, name, part, mode));
+				}
+				String other = randomString(rnd, chars[l], 8);
+				Assert.assertEquals(languages[l] + " " + name + " / " + other,
+						Integer.signum(plain.compare(name, other)), Integer.signum(keys.compare(name, other)));
+			}
+		}
+		Collator hu = localeCollator("hu");
+		CollationKeys huKeys = CollationKeys.getInstance(hu);
+		Assert.assertNull(huKeys.getKey("zsák"));
+		Assert.assertEquals(Integer.signum(hu.compare("zsák", "zu")), Integer.signum(huKeys.compare("zsák", "zu")));
+	}
+
+	@Test
+	public void testDecomposedAndReorderedChars() {
+		// "и" + breve is collated as "й", Thai prevowels are collated after the next consonant
+		String[] chars = {"иийеё\u0306\u0308 -", "iIİı\u0307 -", "\u0e01\u0e02\u0e04\u0e32\u0e40\u0e41\u0e44 -"};
+		String[] languages = {"ru", "tr", "th"};
+		Random rnd = new Random(7);
+		for (int l = 0; l < languages.length; l++) {
+			Collator keyed = localeCollator(languages[l]);
+			Collator plain = plainCollator(keyed);
+			CollationKeys keys = CollationKeys.getInstance(keyed);
+			Assert.assertNotNull(keys);
+			for (int i = 0; i < 20000; i++) {
+				String name = randomString(rnd, chars[l], 8);
+				String part = randomString(rnd, chars[l], 3);
+				for (StringMatcherMode mode : StringMatcherMode.values()) {
+					Assert.assertEquals(languages[l] + " " + name + " / " + part + " " + mode,
+							CollatorStringMatcher.cmatches(plain, name, part, mode),
+							CollatorStringMatcher.cmatches(keyed, name, part, mode));
+				}
+				String other = randomString(rnd, chars[l], 8);
+				Assert.assertEquals(languages[l] + " " + name + " / " + other,
+						Integer.signum(plain.compare(name, other)), Integer.signum(keys.compare(name, other)));
+			}
+		}
+	}
+
+	@Test
+	public void testContractionsOfDefaultLocale() {
+		Locale locale = Locale.getDefault();
+		try {
+			Locale.setDefault(new Locale("da"));
+			CollatorStringMatcher matcher = new CollatorStringMatcher("Å", StringMatcherMode.CHECK_CONTAINS);
+			Assert.assertTrue(matcher.matches("Aalborg"));
+			matcher = new CollatorStringMatcher("Aa", StringMatcherMode.CHECK_CONTAINS);
+			Assert.assertTrue(matcher.matches("Nørre Ålborg"));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	// plain collator without keys
+	private static Collator plainCollator(final Collator keyed) {
+		return new Collator() {
+			@Override
+			public boolean equals(String source, String target) {
+				return keyed.equals(source, target);
+			}
+
+			@Override
+			public int compare(String source, String target) {
+				return keyed.compare(source, target);
+			}
+
+			@Override
+			public int compare(Object o1, Object o2) {
+				return keyed.compare(o1, o2);
+			}
+		};
+	}
+
+	private static Collator localeCollator(String language) {
+		java.text.Collator instance = java.text.Collator.getInstance(new Locale(language));
+		instance.setStrength(java.text.Collator.PRIMARY);
+		return OsmAndCollator.wrapCollator(instance);
+	}
+
+	@Test
+	public void testMatcher() {
+		CollatorStringMatcher matcher = new CollatorStringMatcher("Strasse", StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		Assert.assertTrue(matcher.matches("Große Straße"));
+		Assert.assertTrue(matcher.matches("straßenbahn"));
+		Assert.assertFalse(matcher.matches("Strase"));
+		matcher = new CollatorStringMatcher("ecole", StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+		Assert.assertTrue(matcher.matches("Grande École"));
+		Assert.assertFalse(matcher.matches("Écoles"));
+	}
+
+	private static String randomString(Random rnd, int maxLength) {
+		return randomString(rnd, CHARS, maxLength);
+	}
+
+	private static String randomString(Random rnd, String chars, int maxLength) {
+		int len = rnd.nextInt(maxLength + 1);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < len; i++) {
+			sb.append(chars.charAt(rnd.nextInt(chars.length())));
+		}
+		return sb.toString();
+	}
+}
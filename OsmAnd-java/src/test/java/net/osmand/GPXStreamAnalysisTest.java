@@ -0,0 +1,97 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+public class GPXStreamAnalysisTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("analysis", ".gpx");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private static GPXFile createGpx() {
+		Random rnd = new Random(11);
+		GPXFile gpx = new GPXFile("test");
+		long time = 1262347200000L;
+		for (int t = 0; t < 3; t++) {
+			Track track = new Track();
+			gpx.tracks.add(track);
+			for (int s = 0; s < 3; s++) {
+				TrkSegment segment = new TrkSegment();
+				track.segments.add(segment);
+				// single point segments are skipped by analysis
+				int count = s == 1 ? 1 : 300;
+				double lat = 50 + t;
+				// second track crosses antimeridian
+				double lon = t == 1 ? 179.99 : 10;
+				for (int i = 0; i < count; i++) {
+					time += 1000 + rnd.nextInt(3) * 250;
+					lat += rnd.nextDouble() / 10000;
+					lon += rnd.nextDouble() / 10000;
+					double ele = i % 50 == 0 ? Double.NaN : (float) (100 + rnd.nextDouble() * 30);
+					WptPt p = new WptPt(lat, lon > 180 ? lon - 360 : lon, time, ele, 0, Double.NaN);
+					if (i % 3 == 0) {
+						p.speed = (float) (rnd.nextDouble() * 5);
+					}
+					segment.points.add(p);
+				}
+			}
+		}
+		for (int i = 0; i < 10; i++) {
+			WptPt wpt = new WptPt(50, 10, 0, Double.NaN, 0, Double.NaN);
+			wpt.name = "Point " + i;
+			wpt.category = i % 2 == 0 ? "first" : null;
+			gpx.addPoint(wpt);
+		}
+		return gpx;
+	}
+
+	@Test
+	public void testStreamAnalysis() {
+		Assert.assertNull(GPXUtilities.writeGpxFile(file, createGpx()));
+		GPXTrackAnalysis expected = GPXUtilities.loadGPXFile(file).getAnalysis(file.lastModified());
+		GPXTrackAnalysis actual = GPXUtilities.analyzeGPXFile(file);
+
+		Assert.assertEquals(expected.totalTracks, actual.totalTracks);
+		Assert.assertEquals(expected.points, actual.points);
+		Assert.assertEquals(expected.wptPoints, actual.wptPoints);
+		Assert.assertEquals(expected.wptCategoryNames, actual.wptCategoryNames);
+		Assert.assertEquals(expected.startTime, actual.startTime);
+		Assert.assertEquals(expected.endTime, actual.endTime);
+		Assert.assertEquals(expected.timeSpan, actual.timeSpan);
+		Assert.assertEquals(expected.timeMoving, actual.timeMoving);
+		Assert.assertEquals(expected.totalDistance, actual.totalDistance, 0);
+		Assert.assertEquals(expected.totalDistanceMoving, actual.totalDistanceMoving, 0);
+		Assert.assertEquals(expected.diffElevationUp, actual.diffElevationUp, 0);
+		Assert.assertEquals(expected.diffElevationDown, actual.diffElevationDown, 0);
+		Assert.assertEquals(expected.avgElevation, actual.avgElevation, 0);
+		Assert.assertEquals(expected.avgSpeed, actual.avgSpeed, 0);
+		Assert.assertEquals(expected.maxSpeed, actual.maxSpeed, 0);
+		Assert.assertEquals(expected.left, actual.left, 0);
+		Assert.assertEquals(expected.right, actual.right, 0);
+		Assert.assertEquals(expected.top, actual.top, 0);
+		Assert.assertEquals(expected.bottom, actual.bottom, 0);
+		Assert.assertEquals(expected.locationEnd.distance, actual.locationEnd.distance, 0);
+		Assert.assertTrue(actual.elevationData.isEmpty());
+	}
+}
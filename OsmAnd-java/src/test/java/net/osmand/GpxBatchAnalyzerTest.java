@@ -0,0 +1,172 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.GpxBatchAnalyzer.AnalysisSink;
+import net.osmand.GpxBatchAnalyzer.BatchStatistics;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class GpxBatchAnalyzerTest {
+
+	private File dir;
+	private final List<File> files = new ArrayList<>();
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("gpx", "batch");
+		dir.delete();
+		dir.mkdirs();
+		Random rnd = new Random(3);
+		for (int i = 0; i < 40; i++) {
+			GPXFile gpx = new GPXFile("test");
+			Track track = new Track();
+			gpx.tracks.add(track);
+			TrkSegment segment = new TrkSegment();
+			track.segments.add(segment);
+			double lat = 50 + rnd.nextDouble();
+			double lon = 10 + rnd.nextDouble();
+			long time = 1262347200000L + i * 86400000L;
+			for (int k = 0; k < 200 + rnd.nextInt(800); k++) {
+				lat += (rnd.nextDouble() - 0.5) / 2000;
+				lon += (rnd.nextDouble() - 0.5) / 2000;
+				time += 1000 + rnd.nextInt(4000);
+				segment.points.add(new WptPt(lat, lon, time, 100 + rnd.nextInt(20), rnd.nextDouble() * 5, Double.NaN));
+			}
+			if (i % 5 == 0) {
+				gpx.addPoint(new WptPt(lat, lon, time, Double.NaN, 0, Double.NaN));
+			}
+			File file = new File(dir, "track" + i + ".gpx");
+			Assert.assertNull(GPXUtilities.writeGpxFile(file, gpx));
+			files.add(file);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : files) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testParallelAnalysis() {
+		final Thread thread = Thread.currentThread();
+		final Map<File, GPXTrackAnalysis> results = new HashMap<>();
+		BatchStatistics statistics = new GpxBatchAnalyzer(4, 3).analyze(files, new AnalysisSink() {
+			@Override
+			public void onFileAnalyzed(File file, GPXTrackAnalysis analysis) {
+				Assert.assertSame(thread, Thread.currentThread());
+				Assert.assertNull(results.put(file, analysis));
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		});
+		Assert.assertEquals(files.size(), results.size());
+		Assert.assertEquals(files.size(), statistics.getFiles());
+		int points = 0;
+		long bytes = 0;
+		for (File file : files) {
+			GPXTrackAnalysis expected = GPXUtilities.analyzeGPXFile(file);
+			GPXTrackAnalysis actual = results.get(file);
+			Assert.assertEquals(expected.points, actual.points);
+			Assert.assertEquals(expected.wptPoints, actual.wptPoints);
+			Assert.assertEquals(expected.startTime, actual.startTime);
+			Assert.assertEquals(expected.totalDistance, actual.totalDistance, 0);
+			Assert.assertEquals(expected.avgElevation, actual.avgElevation, 0);
+			points += expected.points + expected.wptPoints;
+			bytes += file.length();
+		}
+		Assert.assertEquals(points, statistics.getPoints());
+		Assert.assertEquals(bytes, statistics.getBytes());
+	}
+
+	@Test
+	public void testCancel() {
+		final int[] analyzed = {0};
+		BatchStatistics statistics = new GpxBatchAnalyzer(4, 2).analyze(files, new AnalysisSink() {
+			@Override
+			public void onFileAnalyzed(File file, GPXTrackAnalysis analysis) {
+				analyzed[0]++;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return analyzed[0] >= 5;
+			}
+		});
+		Assert.assertEquals(5, analyzed[0]);
+		Assert.assertEquals(5, statistics.getFiles());
+	}
+
+	@Test(timeout = 60000)
+	public void testWorkerError() {
+		// worker taking the 10th file fails, other workers analyze the rest
+		final Iterator<File> it = files.iterator();
+		final int[] taken = {0};
+		final List<File> analyzed = new ArrayList<>();
+		BatchStatistics statistics = new GpxBatchAnalyzer(4, 2).analyze(new AbstractCollection<File>() {
+			@Override
+			public Iterator<File> iterator() {
+				return new Iterator<File>() {
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public File next() {
+						File file = it.next();
+						if (++taken[0] == 10) {
+							throw new OutOfMemoryError("test");
+						}
+						return file;
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return files.size();
+			}
+		}, new AnalysisSink() {
+			@Override
+			public void onFileAnalyzed(File file, GPXTrackAnalysis analysis) {
+				analyzed.add(file);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		});
+		Assert.assertEquals(files.size() - 1, analyzed.size());
+		Assert.assertEquals(files.size() - 1, statistics.getFiles());
+		Assert.assertFalse(analyzed.contains(files.get(9)));
+	}
+}
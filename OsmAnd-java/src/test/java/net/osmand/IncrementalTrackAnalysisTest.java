@@ -0,0 +1,131 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.Elevation;
+import net.osmand.GPXUtilities.GPXFile;
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.Speed;
+import net.osmand.GPXUtilities.Track;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class IncrementalTrackAnalysisTest {
+
+	private final Random rnd = new Random(17);
+	private double lat = 52.0;
+	private double lon = 4.0;
+	private long time = 1262347200000L;
+
+	// recorded point, elevation or speed could be missing
+	private WptPt nextPoint(int i) {
+		lat += (rnd.nextDouble() - 0.3) / 3000;
+		lon += (rnd.nextDouble() - 0.3) / 3000;
+		time += 1000 + rnd.nextInt(5) * 1000;
+		double ele = i % 7 == 0 ? Double.NaN : (float) (100 + 30 * Math.sin(i / 50.0) + rnd.nextDouble() * 3);
+		double speed = i % 5 == 0 ? 0 : (float) (rnd.nextDouble() * 4);
+		return new WptPt(lat, lon, time, ele, speed, 5);
+	}
+
+	private static void assertAnalysis(GPXTrackAnalysis expected, GPXTrackAnalysis actual) {
+		Assert.assertEquals(expected.totalTracks, actual.totalTracks);
+		Assert.assertEquals(expected.points, actual.points);
+		Assert.assertEquals(expected.wptPoints, actual.wptPoints);
+		Assert.assertEquals(expected.startTime, actual.startTime);
+		Assert.assertEquals(expected.endTime, actual.endTime);
+		Assert.assertEquals(expected.timeSpan, actual.timeSpan);
+		Assert.assertEquals(expected.timeMoving, actual.timeMoving);
+		Assert.assertEquals(expected.totalDistance, actual.totalDistance, 0);
+		Assert.assertEquals(expected.totalDistanceMoving, actual.totalDistanceMoving, 0);
+		Assert.assertEquals(expected.diffElevationUp, actual.diffElevationUp, 0);
+		Assert.assertEquals(expected.diffElevationDown, actual.diffElevationDown, 0);
+		Assert.assertEquals(expected.avgElevation, actual.avgElevation, 0);
+		Assert.assertEquals(expected.minElevation, actual.minElevation, 0);
+		Assert.assertEquals(expected.avgSpeed, actual.avgSpeed, 0);
+		Assert.assertEquals(expected.maxSpeed, actual.maxSpeed, 0);
+		Assert.assertEquals(expected.minSpeed, actual.minSpeed, 0);
+		Assert.assertEquals(expected.left, actual.left, 0);
+		Assert.assertEquals(expected.top, actual.top, 0);
+		Assert.assertEquals(expected.hasElevationData, actual.hasElevationData);
+		Assert.assertEquals(expected.hasSpeedData, actual.hasSpeedData);
+		Assert.assertSame(expected.locationStart, actual.locationStart);
+		Assert.assertSame(expected.locationEnd, actual.locationEnd);
+	}
+
+	@Test
+	public void testRecording() {
+		GPXFile gpx = new GPXFile("test");
+		Track track = new Track();
+		gpx.tracks.add(track);
+		IncrementalTrackAnalysis incremental = new IncrementalTrackAnalysis(100000);
+		TrkSegment segment = null;
+		for (int i = 0; i < 3000; i++) {
+			// new segments after gaps, some of them have single point
+			if (segment == null || rnd.nextInt(400) == 0 || i == 1001) {
+				segment = new TrkSegment();
+				track.segments.add(segment);
+			}
+			segment.points.add(nextPoint(i));
+			if (i % 37 == 0 || i == 1001) {
+				GPXTrackAnalysis actual = incremental.getAnalysis(gpx, 5);
+				GPXTrackAnalysis expected = gpx.getAnalysis(5);
+				assertAnalysis(expected, actual);
+				// all points are kept in data while size limit is not reached
+				Assert.assertEquals(expected.elevationData.size(), actual.elevationData.size());
+				for (int k = 0; k < expected.elevationData.size(); k++) {
+					Elevation e = expected.elevationData.get(k);
+					Elevation a = actual.elevationData.get(k);
+					Assert.assertEquals(e.elevation, a.elevation, 0);
+					Assert.assertEquals(e.distance, a.distance, 0);
+					Assert.assertEquals(e.time, a.time);
+					Speed s = expected.speedData.get(k);
+					Assert.assertEquals(s.speed, actual.speedData.get(k).speed, 0);
+				}
+			}
+		}
+
+		// removed points are detected
+		segment.points.remove(segment.points.size() - 1);
+		gpx.addPoint(new WptPt(lat, lon, time, Double.NaN, 0, Double.NaN));
+		assertAnalysis(gpx.getAnalysis(5), incremental.getAnalysis(gpx, 5));
+		track.segments.remove(0);
+		assertAnalysis(gpx.getAnalysis(5), incremental.getAnalysis(gpx, 5));
+	}
+
+	@Test
+	public void testDownsampledData() {
+		GPXFile gpx = new GPXFile("test");
+		Track track = new Track();
+		gpx.tracks.add(track);
+		TrkSegment segment = new TrkSegment();
+		track.segments.add(segment);
+		IncrementalTrackAnalysis incremental = new IncrementalTrackAnalysis(64);
+		for (int i = 0; i < 5000; i++) {
+			segment.points.add(nextPoint(i));
+			if (i % 10 == 0) {
+				incremental.update(gpx);
+			}
+		}
+		GPXTrackAnalysis expected = gpx.getAnalysis(0);
+		GPXTrackAnalysis actual = incremental.getAnalysis(gpx, 0);
+		assertAnalysis(expected, actual);
+		Assert.assertTrue(actual.elevationData.size() <= 64);
+		Assert.assertTrue(actual.elevationData.size() > 32);
+		float distance = 0;
+		long seconds = 0;
+		long expectedSeconds = 0;
+		for (Elevation e : expected.elevationData) {
+			expectedSeconds += e.time;
+		}
+		for (Elevation e : actual.elevationData) {
+			distance += e.distance;
+			seconds += e.time;
+			Assert.assertTrue(e.elevation > 60 && e.elevation < 140);
+		}
+		Assert.assertEquals(expected.totalDistance, distance, 1);
+		Assert.assertEquals(expectedSeconds, seconds);
+	}
+}
@@ -0,0 +1,110 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TrackPointsTest {
+
+	private static TrkSegment createSegment(int count) {
+		Random rnd = new Random(3);
+		TrkSegment segment = new TrkSegment();
+		double lat = 52.0;
+		double lon = 4.0;
+		for (int i = 0; i < count; i++) {
+			lat += rnd.nextDouble() / 5000;
+			lon += rnd.nextDouble() / 5000;
+			// values parsed from gpx have float precision
+			WptPt p = new WptPt(lat, lon, 1000000L + i * 1000L, (float) (10 + rnd.nextDouble() * 50),
+					(float) (rnd.nextDouble() * 5), Double.NaN);
+			if (i % 100 == 0) {
+				p.name = "Point " + i;
+			}
+			segment.points.add(p);
+		}
+		return segment;
+	}
+
+	@Test
+	public void testAnalysisOfColumns() {
+		TrkSegment segment = createSegment(2000);
+		GPXTrackAnalysis expected = GPXTrackAnalysis.segment(0, segment);
+		TrkSegment compact = createSegment(2000);
+		compact.points = new TrackPoints(compact.points);
+		Assert.assertEquals(20, ((TrackPoints) compact.points).getDetailsCount());
+		GPXTrackAnalysis actual = GPXTrackAnalysis.segment(0, compact);
+
+		Assert.assertEquals(expected.totalDistance, actual.totalDistance, 0);
+		Assert.assertEquals(expected.timeMoving, actual.timeMoving);
+		Assert.assertEquals(expected.diffElevationUp, actual.diffElevationUp, 0);
+		Assert.assertEquals(expected.diffElevationDown, actual.diffElevationDown, 0);
+		Assert.assertEquals(expected.avgSpeed, actual.avgSpeed, 0);
+		Assert.assertEquals(expected.left, actual.left, 0);
+		Assert.assertEquals(expected.top, actual.top, 0);
+		Assert.assertEquals(expected.elevationData.size(), actual.elevationData.size());
+		for (int i = 0; i < segment.points.size(); i++) {
+			Assert.assertEquals(segment.points.get(i).distance, compact.points.get(i).distance, 0);
+		}
+		Assert.assertTrue(actual.locationEnd.distance > 0);
+		Assert.assertEquals(expected.locationEnd.distance, actual.locationEnd.distance, 0);
+		Assert.assertEquals(splitByDistance(segment, 1000), splitByDistance(compact, 1000));
+	}
+
+	private static List<Float> splitByDistance(TrkSegment segment, double meters) {
+		List<Float> res = new ArrayList<>();
+		for (GPXTrackAnalysis a : segment.splitByDistance(meters, false)) {
+			res.add(a.totalDistance);
+			// distance of approximated end point of split
+			Assert.assertEquals(a.totalDistance, a.locationEnd.distance, 0.01);
+		}
+		return res;
+	}
+
+	@Test
+	public void testListOperations() {
+		TrackPoints points = new TrackPoints(2);
+		for (int i = 0; i < 10; i++) {
+			points.add(new WptPt(i, i, i, i, i, i));
+		}
+		WptPt named = new WptPt(100, 100, 100, 100, 100, 100);
+		named.name = "named";
+		named.getExtensionsToWrite().put("icon", "flag");
+		points.add(5, named);
+		Assert.assertEquals(11, points.size());
+		Assert.assertEquals("named", points.get(5).name);
+		Assert.assertEquals("flag", points.get(5).getExtensionsToRead().get("icon"));
+		Assert.assertEquals(5, points.getLatitude(6), 0);
+
+		// views are detached
+		points.get(3).lat = 50;
+		Assert.assertEquals(3, points.getLatitude(3), 0);
+		WptPt p = points.get(3);
+		p.lat = 50;
+		p.firstPoint = true;
+		points.set(3, p);
+		Assert.assertEquals(50, points.getLatitude(3), 0);
+		Assert.assertTrue(points.isFirstPoint(3));
+
+		points.remove(2);
+		Assert.assertTrue(points.isFirstPoint(2));
+		Assert.assertFalse(points.isFirstPoint(3));
+		Assert.assertEquals("named", points.get(4).name);
+		Assert.assertNull(points.get(5).name);
+		points.remove(4);
+		Assert.assertEquals(0, points.getDetailsCount());
+		Assert.assertEquals(9, points.size());
+		Assert.assertEquals(9, points.getLatitude(8), 0);
+
+		LocationsHolder holder = new LocationsHolder(points);
+		Assert.assertEquals(9, holder.getSize());
+		Assert.assertEquals(50, holder.getLatitude(2), 0);
+		Assert.assertEquals(9, holder.getWptPt(8).time);
+	}
+}
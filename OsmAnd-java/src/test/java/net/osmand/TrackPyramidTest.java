@@ -0,0 +1,157 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.Elevation;
+import net.osmand.osm.edit.Node;
+import net.osmand.osm.edit.OsmMapUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class TrackPyramidTest {
+
+	private final Random rnd = new Random(31);
+
+	private double[][] generateTrack(int size) {
+		double[] latitudes = new double[size];
+		double[] longitudes = new double[size];
+		double lat = 52.0;
+		double lon = 4.0;
+		for (int i = 0; i < size; i++) {
+			// straight parts and repeated points are included
+			if (i % 100 > 80) {
+				lat += 0.0001;
+			} else if (i % 50 != 0) {
+				lat += (rnd.nextDouble() - 0.4) / 1000;
+				lon += (rnd.nextDouble() - 0.4) / 1000;
+			}
+			latitudes[i] = lat;
+			longitudes[i] = lon;
+		}
+		return new double[][] {latitudes, longitudes};
+	}
+
+	private static int[] simplifyDouglasPeucker(double[] latitudes, double[] longitudes, double epsilon) {
+		List<Node> nodes = new ArrayList<>();
+		for (int i = 0; i < latitudes.length; i++) {
+			nodes.add(new Node(latitudes[i], longitudes[i], i));
+		}
+		List<Node> result = new ArrayList<>();
+		result.add(nodes.get(0));
+		OsmMapUtils.simplifyDouglasPeucker(nodes, 0, nodes.size() - 1, result, epsilon);
+		int[] ids = new int[result.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = (int) result.get(i).getId();
+		}
+		return ids;
+	}
+
+	@Test
+	public void testSimplifyAsDouglasPeucker() {
+		double[][] track = generateTrack(20000);
+		TrackPyramid pyramid = TrackPyramid.forGeometry(track[0], track[1]);
+		for (int zoom = 3; zoom <= 21; zoom++) {
+			double epsilon = Math.pow(2.0, 17.2 - zoom);
+			int[] expected = simplifyDouglasPeucker(track[0], track[1], epsilon);
+			Assert.assertArrayEquals("zoom " + zoom, expected, pyramid.getIndexes(epsilon));
+		}
+	}
+
+	@Test
+	public void testMostImportantPoints() {
+		double[][] track = generateTrack(5000);
+		TrackPyramid pyramid = TrackPyramid.forGeometry(track[0], track[1]);
+		int[] all = pyramid.getIndexes(0d);
+		Assert.assertArrayEquals(all, pyramid.getIndexes(all.length + 10));
+		for (int maxPoints : new int[] {1, 2, 3, 10, 100, 1000}) {
+			int[] indexes = pyramid.getIndexes(maxPoints);
+			Assert.assertEquals(maxPoints, indexes.length);
+			Assert.assertEquals(0, indexes[0]);
+			// points with the largest importance are selected
+			double minSelected = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < indexes.length; i++) {
+				Assert.assertTrue(i == 0 || indexes[i] > indexes[i - 1]);
+				minSelected = Math.min(minSelected, pyramid.getImportance(indexes[i]));
+			}
+			for (int ind : all) {
+				if (Arrays.binarySearch(indexes, ind) < 0) {
+					Assert.assertTrue(pyramid.getImportance(ind) <= minSelected);
+				}
+			}
+		}
+		Assert.assertArrayEquals(new int[] {0}, TrackPyramid.forGeometry(new double[1], new double[1]).getIndexes(10d));
+		Assert.assertArrayEquals(new int[] {0, 1}, TrackPyramid.forGeometry(new double[2], new double[2]).getIndexes(10d));
+	}
+
+	@Test
+	public void testSimplifyElevationData() {
+		List<Elevation> elevationData = new ArrayList<>();
+		float distance = 0;
+		int time = 0;
+		for (int i = 0; i < 10000; i++) {
+			Elevation e = new Elevation();
+			e.distance = 5 + rnd.nextInt(10);
+			e.time = 1 + rnd.nextInt(3);
+			e.elevation = i < 10 || i % 13 == 0 ? Float.NaN : (float) (100 + 50 * Math.sin(i / 300.0));
+			e.firstPoint = i == 0 || i == 5000;
+			e.lastPoint = i == 4999 || i == 9999;
+			distance += e.distance;
+			time += e.time;
+			elevationData.add(e);
+		}
+		List<Elevation> simplified = TrackPyramid.simplifyElevationData(elevationData, 500);
+		Assert.assertTrue(simplified.size() <= 504);
+		float simplifiedDistance = 0;
+		int simplifiedTime = 0;
+		int segments = 0;
+		for (Elevation e : simplified) {
+			simplifiedDistance += e.distance;
+			simplifiedTime += e.time;
+			segments += e.firstPoint ? 1 : 0;
+			if (!Float.isNaN(e.elevation)) {
+				// profile is kept within 1 meter
+				double expected = 100 + 50 * Math.sin(indexOf(elevationData, simplifiedDistance) / 300.0);
+				Assert.assertEquals(expected, e.elevation, 1);
+			}
+		}
+		Assert.assertEquals(distance, simplifiedDistance, 1);
+		Assert.assertEquals(time, simplifiedTime);
+		Assert.assertEquals(2, segments);
+		Assert.assertTrue(simplified.get(simplified.size() - 1).lastPoint);
+		Assert.assertSame(elevationData, TrackPyramid.simplifyElevationData(elevationData, 10000));
+	}
+
+	private static int indexOf(List<Elevation> elevationData, float distance) {
+		float d = 0;
+		for (int i = 0; i < elevationData.size(); i++) {
+			d += elevationData.get(i).distance;
+			if (d >= distance - 0.5) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Test
+	public void testCacheFile() throws IOException {
+		double[][] track = generateTrack(3000);
+		TrackPyramid pyramid = TrackPyramid.forGeometry(track[0], track[1]);
+		File file = File.createTempFile("track", TrackPyramid.CACHE_FILE_EXT);
+		file.deleteOnExit();
+		Assert.assertTrue(pyramid.writeToFile(file, 12345L));
+		Assert.assertNull(TrackPyramid.readFromFile(file, 12346L, 3000));
+		Assert.assertNull(TrackPyramid.readFromFile(file, 12345L, 3001));
+		TrackPyramid read = TrackPyramid.readFromFile(file, 12345L, 3000);
+		Assert.assertNotNull(read);
+		for (double tolerance : new double[] {0, 1, 10, 100}) {
+			Assert.assertArrayEquals(pyramid.getIndexes(tolerance), read.getIndexes(tolerance));
+		}
+		Assert.assertArrayEquals(pyramid.getIndexes(100), read.getIndexes(100));
+	}
+}
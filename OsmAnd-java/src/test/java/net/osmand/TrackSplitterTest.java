@@ -0,0 +1,103 @@
+package net.osmand;
+
+import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GPXUtilities.TrkSegment;
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.TrackSplitter.Split;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class TrackSplitterTest {
+
+	private final Random rnd = new Random(9);
+
+	private void addPoints(TrkSegment segment, int count) {
+		WptPt last = segment.points.isEmpty() ? null : segment.points.get(segment.points.size() - 1);
+		double lat = last != null ? last.lat : 50;
+		double lon = last != null ? last.lon : 10;
+		long time = last != null ? last.time : 1262347200000L;
+		for (int i = 0; i < count; i++) {
+			lat += (rnd.nextDouble() - 0.5) / 1000;
+			lon += (rnd.nextDouble() - 0.5) / 1000;
+			time += 1000 + rnd.nextInt(10000);
+			WptPt point = new WptPt(lat, lon, time, 100 + rnd.nextDouble() * 20, rnd.nextDouble() * 5, Double.NaN);
+			point.firstPoint = segment.points.size() % 300 == 0;
+			segment.points.add(point);
+		}
+	}
+
+	@Test
+	public void testSplits() {
+		TrkSegment segment = new TrkSegment();
+		segment.generalSegment = true;
+		addPoints(segment, 3000);
+		TrackSplitter splitter = segment.getSplitter(false);
+		Assert.assertSame(splitter, segment.getSplitter(false));
+
+		List<Split> splits = splitter.splitByDistance(500);
+		Assert.assertSame(splits, splitter.splitByDistance(500));
+		double distance = 0;
+		for (int i = 0; i < splits.size(); i++) {
+			Split split = splits.get(i);
+			GPXTrackAnalysis analysis = split.calculateAnalysis();
+			Assert.assertEquals(split.getMetricEnd(), analysis.metricEnd, 0);
+			distance += split.getDistance();
+			Assert.assertEquals(split.getMetricEnd(), distance, 1e-6);
+			if (i < splits.size() - 1) {
+				Assert.assertEquals(500, split.getDistance(), 1e-6);
+			}
+		}
+		Assert.assertEquals(splitter.getDistance(splitter.getPointsCount() - 1), distance, 1e-6);
+
+		double time = 0;
+		for (Split split : splitter.splitByTime(600)) {
+			time += split.getTime();
+			Assert.assertEquals(split.getMetricEnd(), time, 1e-6);
+		}
+		Assert.assertEquals(splitter.getTime(splitter.getPointsCount() - 1), time, 1e-6);
+
+		// gaps between segments are counted when segments are joined
+		Assert.assertTrue(segment.getSplitter(true).getDistance(2999) > splitter.getDistance(2999));
+	}
+
+	@Test
+	public void testAppendedPoints() {
+		TrkSegment segment = new TrkSegment();
+		addPoints(segment, 1000);
+		TrackSplitter splitter = segment.getSplitter(false);
+		List<Split> splits = splitter.splitByTime(300);
+		addPoints(segment, 1500);
+		Assert.assertSame(splitter, segment.getSplitter(false));
+		Assert.assertNotSame(splits, splitter.splitByTime(300));
+
+		TrkSegment copy = new TrkSegment();
+		copy.points.addAll(segment.points);
+		assertSplitsEqual(new TrackSplitter(copy, false).splitByTime(300), splitter.splitByTime(300));
+		assertSplitsEqual(new TrackSplitter(copy, false).splitByDistance(1000), splitter.splitByDistance(1000));
+
+		// points are rebuilt if they were removed
+		segment.points.subList(200, segment.points.size()).clear();
+		Assert.assertEquals(200, segment.getSplitter(false).getPointsCount());
+		copy.points.subList(200, copy.points.size()).clear();
+		assertSplitsEqual(new TrackSplitter(copy, false).splitByTime(300), splitter.splitByTime(300));
+	}
+
+	private static void assertSplitsEqual(List<Split> expected, List<Split> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Split e = expected.get(i);
+			Split a = actual.get(i);
+			Assert.assertEquals(e.getStartIndex(), a.getStartIndex());
+			Assert.assertEquals(e.getEndIndex(), a.getEndIndex());
+			Assert.assertEquals(e.getStartCoeff(), a.getStartCoeff(), 0);
+			Assert.assertEquals(e.getEndCoeff(), a.getEndCoeff(), 0);
+			Assert.assertEquals(e.getMetricEnd(), a.getMetricEnd(), 0);
+			Assert.assertEquals(e.getSecondaryMetricEnd(), a.getSecondaryMetricEnd(), 0);
+			Assert.assertEquals(e.calculateAnalysis().totalDistance, a.calculateAnalysis().totalDistance, 0);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package net.osmand.binary;
+
+import com.google.protobuf.CodedInputStream;
+
+import net.osmand.binary.BinaryIndexIOStats.FileIOStats;
+import net.osmand.binary.BinaryIndexIOStats.IOCounters;
+import net.osmand.binary.BinaryIndexIOStats.IOSection;
+import net.osmand.binary.BinaryIndexIOStats.IOStatsListener;
+import net.osmand.binary.BinaryIndexIOStats.RequestTrace;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryIndexIOStatsTest {
+
+	private File file;
+	private RandomAccessFile raf;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("iostats", ".obf");
+		raf = new RandomAccessFile(file, "rw");
+		raf.setLength(64 * 1024);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		raf.close();
+		file.delete();
+	}
+
+	@Test
+	public void testSectionCounters() throws IOException {
+		BinaryIndexIOStats stats = new BinaryIndexIOStats();
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, file, false);
+		MapIndex mapIndex = new MapIndex();
+		mapIndex.filePointer = 0;
+		mapIndex.length = 32 * 1024;
+		reader.mapIndexes.add(mapIndex);
+		PoiRegion poiRegion = new PoiRegion();
+		poiRegion.filePointer = 32 * 1024;
+		poiRegion.length = 32 * 1024;
+		reader.poiIndexes.add(poiRegion);
+		reader.setIOStats(stats);
+		CodedInputStream cis = reader.codedIS;
+
+		cis.seek(100);
+		cis.readRawByte();
+		// inside of the buffer
+		cis.seek(200);
+		cis.seek(40 * 1024);
+		cis.readRawBytes(10000);
+
+		FileIOStats fs = stats.getFileStats(file.getName());
+		IOCounters map = fs.getSections().get(IOSection.MAP);
+		Assert.assertEquals(1, map.getSeeks());
+		Assert.assertEquals(1, map.getBufferedSeeks());
+		Assert.assertEquals(1, map.getRefills());
+		IOCounters poi = fs.getSections().get(IOSection.POI);
+		Assert.assertEquals(1, poi.getSeeks());
+		Assert.assertEquals(0, poi.getBufferedSeeks());
+		Assert.assertTrue(poi.getBytes() >= 10000);
+		Assert.assertEquals(map.getBytes() + poi.getBytes(), fs.getTotal().getBytes());
+		Assert.assertNull(fs.getSections().get(IOSection.ROUTE));
+
+		stats.reset();
+		Assert.assertTrue(stats.getFileStats().isEmpty());
+		reader.setIOStats(null);
+		cis.seek(0);
+		Assert.assertNull(stats.getFileStats(file.getName()));
+	}
+
+	@Test
+	public void testSampledTraces() throws IOException {
+		BinaryIndexIOStats stats = new BinaryIndexIOStats();
+		stats.setTraceSampling(2);
+		final List<RequestTrace> traces = new ArrayList<RequestTrace>();
+		stats.addListener(new IOStatsListener() {
+			@Override
+			public void onRequestTrace(RequestTrace trace) {
+				traces.add(trace);
+			}
+		});
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, file, false);
+		reader.setIOStats(stats);
+		for (int i = 0; i < 4; i++) {
+			reader.searchTransportIndex(BinaryMapIndexReader.buildSearchTransportRequest(0, 0, 0, 0, 15, null));
+			reader.codedIS.seek(i * 8 * 1024);
+		}
+		Assert.assertEquals(2, traces.size());
+		Assert.assertEquals("searchTransportIndex", traces.get(0).getRequest());
+		Assert.assertEquals(file.getName(), traces.get(0).getFileName());
+		// seeks after finished requests are not part of traces
+		Assert.assertTrue(traces.get(0).getTotal().isEmpty());
+	}
+}
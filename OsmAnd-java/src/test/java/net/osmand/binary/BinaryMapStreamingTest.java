@@ -0,0 +1,197 @@
+package net.osmand.binary;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.LazyStringTable;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapTree;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.OsmandOdb.MapData;
+import net.osmand.binary.OsmandOdb.MapDataBlock;
+import net.osmand.binary.OsmandOdb.StringTable;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class BinaryMapStreamingTest {
+
+	private static final int OBJECTS = 200;
+	private static final long BASE_ID = 1000;
+
+	private final Random rnd = new Random(11);
+	private final List<String> strings = new ArrayList<>();
+	private File file;
+	private RandomAccessFile raf;
+	private BinaryMapIndexReader reader;
+	private int blockLength;
+
+	@Before
+	public void setUp() throws IOException {
+		for (int i = 0; i < 50; i++) {
+			strings.add("Straße " + i + " улица");
+		}
+		MapDataBlock.Builder block = MapDataBlock.newBuilder();
+		block.setBaseId(BASE_ID);
+		for (int i = 0; i < OBJECTS; i++) {
+			MapData.Builder data = MapData.newBuilder();
+			int points = 2 + rnd.nextInt(20);
+			int[] deltas = new int[points * 2];
+			for (int k = 0; k < deltas.length; k++) {
+				deltas[k] = k < 2 ? 1000 + rnd.nextInt(1000) : rnd.nextInt(200) - 100;
+			}
+			data.setCoordinates(encode(deltas, true));
+			data.setTypes(encode(new int[] {1 + rnd.nextInt(5)}, false));
+			data.setId(i);
+			// every third object has no names
+			if (i % 3 != 0) {
+				data.setStringNames(encode(new int[] {1, rnd.nextInt(strings.size()),
+						2, rnd.nextInt(strings.size())}, false));
+			}
+			block.addDataObjects(data);
+		}
+		StringTable.Builder table = StringTable.newBuilder();
+		for (String s : strings) {
+			table.addS(s);
+		}
+		block.setStringTable(table);
+		byte[] bytes = block.build().toByteArray();
+		blockLength = bytes.length;
+
+		file = File.createTempFile("streaming", ".obf");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(bytes);
+		out.close();
+		raf = new RandomAccessFile(file, "r");
+		reader = new BinaryMapIndexReader(raf, file, false);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		raf.close();
+		file.delete();
+	}
+
+	private static ByteString encode(int[] values, boolean signed) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+		for (int v : values) {
+			if (signed) {
+				out.writeSInt32NoTag(v);
+			} else {
+				out.writeRawVarint32(v);
+			}
+		}
+		out.flush();
+		return ByteString.copyFrom(bytes.toByteArray());
+	}
+
+	private List<BinaryMapDataObject> readBlock(SearchRequest<BinaryMapDataObject> req) throws IOException {
+		MapTree tree = new MapTree();
+		MapIndex root = new MapIndex();
+		CodedInputStream codedIS = reader.codedIS;
+		codedIS.seek(0);
+		int oldLimit = codedIS.pushLimit(blockLength);
+		reader.readMapDataBlocks(req, tree, root);
+		codedIS.popLimit(oldLimit);
+		return req.getSearchResults();
+	}
+
+	private SearchRequest<BinaryMapDataObject> buildRequest(ResultMatcher<BinaryMapDataObject> matcher) {
+		return BinaryMapIndexReader.buildSearchRequest(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, 15, null, matcher);
+	}
+
+	@Test
+	public void testStreamingReadsSameObjects() throws IOException {
+		List<BinaryMapDataObject> expected = new ArrayList<>(readBlock(buildRequest(null)));
+		Assert.assertEquals(OBJECTS, expected.size());
+
+		final List<BinaryMapDataObject> streamed = new ArrayList<>();
+		SearchRequest<BinaryMapDataObject> req = buildRequest(new ResultMatcher<BinaryMapDataObject>() {
+			@Override
+			public boolean publish(BinaryMapDataObject object) {
+				// names are not decoded until they are requested
+				Assert.assertEquals(object.objectNames != null, object.stringTable != null);
+				streamed.add(object);
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		});
+		req.setStreaming(true, false);
+		Assert.assertTrue(readBlock(req).isEmpty());
+		Assert.assertEquals(expected.size(), streamed.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertObjectsEqual(expected.get(i), streamed.get(i));
+		}
+	}
+
+	@Test
+	public void testStreamingReusedObject() throws IOException {
+		final List<BinaryMapDataObject> expected = new ArrayList<>(readBlock(buildRequest(null)));
+		final BinaryMapDataObject[] reused = new BinaryMapDataObject[1];
+		final int[] count = {0};
+		SearchRequest<BinaryMapDataObject> req = buildRequest(new ResultMatcher<BinaryMapDataObject>() {
+			@Override
+			public boolean publish(BinaryMapDataObject object) {
+				if (reused[0] == null) {
+					reused[0] = object;
+				}
+				Assert.assertSame(reused[0], object);
+				// object is valid inside of publish
+				assertObjectsEqual(expected.get(count[0]++), object);
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		});
+		req.setStreaming(true, true);
+		Assert.assertTrue(readBlock(req).isEmpty());
+		Assert.assertEquals(OBJECTS, count[0]);
+	}
+
+	@Test
+	public void testLazyStringTable() throws IOException {
+		StringTable.Builder table = StringTable.newBuilder();
+		for (String s : strings) {
+			table.addS(s);
+		}
+		LazyStringTable lazy = new LazyStringTable(table.build().toByteArray());
+		Assert.assertEquals(strings.size(), lazy.size());
+		for (int i = strings.size() - 1; i >= 0; i--) {
+			Assert.assertEquals(strings.get(i), lazy.get(i));
+			// decoded string is kept
+			Assert.assertSame(lazy.get(i), lazy.get(i));
+		}
+	}
+
+	private static void assertObjectsEqual(BinaryMapDataObject expected, BinaryMapDataObject actual) {
+		Assert.assertEquals(expected.getId(), actual.getId());
+		Assert.assertTrue(actual.getId() >= BASE_ID);
+		Assert.assertTrue(Arrays.equals(expected.getCoordinates(), actual.getCoordinates()));
+		Assert.assertTrue(Arrays.equals(expected.getTypes(), actual.getTypes()));
+		Map<Integer, String> expectedNames = expected.getOrderedObjectNames();
+		Assert.assertEquals(expectedNames, actual.getOrderedObjectNames());
+	}
+}
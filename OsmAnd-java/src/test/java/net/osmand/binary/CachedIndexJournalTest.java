@@ -0,0 +1,223 @@
+package net.osmand.binary;
+
+import net.osmand.binary.OsmandIndex.FileIndex;
+import net.osmand.binary.OsmandIndex.PoiPart;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class CachedIndexJournalTest {
+
+	private File dir;
+	private File journalFile;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("journal", "");
+		dir.delete();
+		dir.mkdirs();
+		journalFile = new File(dir, "ind.journal");
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testAppendAndReload() throws IOException {
+		File a = obf("A.obf", 10);
+		File b = obf("B.obf", 20);
+		CachedIndexJournal journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		journal.put(fileIndex(a, 1));
+		journal.flush();
+
+		journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		Assert.assertFalse(journal.hasChanges());
+		long length = journalFile.length();
+		journal.put(fileIndex(b, 2));
+		journal.flush();
+		Assert.assertTrue(journalFile.length() > length);
+
+		journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		Assert.assertEquals(2, journal.size());
+		Assert.assertEquals(1, journal.getFileIndex(a).getPoiIndex(0).getLeft());
+		Assert.assertEquals(2, journal.getFileIndex(b).getPoiIndex(0).getLeft());
+		Assert.assertNull(journal.getFileIndex(obf("A.obf", 11)));
+	}
+
+	@Test
+	public void testBrokenTailIsTruncated() throws IOException {
+		File a = obf("A.obf", 10);
+		File b = obf("B.obf", 20);
+		CachedIndexJournal journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		journal.put(fileIndex(a, 1));
+		journal.flush();
+		long validLength = journalFile.length();
+		journal.put(fileIndex(b, 2));
+		journal.flush();
+		RandomAccessFile raf = new RandomAccessFile(journalFile, "rw");
+		raf.setLength(journalFile.length() - 3);
+		raf.close();
+
+		journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		Assert.assertEquals(1, journal.size());
+		Assert.assertNotNull(journal.getFileIndex(a));
+		Assert.assertNull(journal.getFileIndex(b));
+		journal.put(fileIndex(b, 3));
+		journal.flush();
+		Assert.assertTrue(journalFile.length() > validLength);
+
+		journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		Assert.assertEquals(3, journal.getFileIndex(b).getPoiIndex(0).getLeft());
+	}
+
+	@Test
+	public void testCorruptedRecord() throws IOException {
+		File a = obf("A.obf", 10);
+		File b = obf("B.obf", 20);
+		File c = obf("C.obf", 30);
+		CachedIndexJournal journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		journal.put(fileIndex(a, 1));
+		journal.put(fileIndex(b, 2));
+		journal.flush();
+		// the last byte of B payload
+		long corruptedOffset = journalFile.length() - 1;
+		journal.put(fileIndex(c, 3));
+		journal.flush();
+		RandomAccessFile raf = new RandomAccessFile(journalFile, "rw");
+		raf.seek(corruptedOffset);
+		int value = raf.read();
+		raf.seek(corruptedOffset);
+		raf.write(value ^ 0xFF);
+		raf.close();
+
+		journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		Assert.assertEquals(3, journal.size());
+		Assert.assertEquals(2, journal.getAllFileIndexes().size());
+		Assert.assertEquals(2, journal.size());
+		Assert.assertTrue(journal.flush());
+
+		journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		Assert.assertEquals(2, journal.size());
+		Assert.assertEquals(1, journal.getFileIndex(a).getPoiIndex(0).getLeft());
+		Assert.assertNull(journal.getFileIndex(b));
+		Assert.assertEquals(3, journal.getFileIndex(c).getPoiIndex(0).getLeft());
+	}
+
+	@Test
+	public void testCompaction() throws IOException {
+		File a = obf("A.obf", 10);
+		File b = obf("B.obf", 20);
+		CachedIndexJournal journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		for (int i = 0; i < 100; i++) {
+			journal.put(fileIndex(a, i));
+			journal.flush();
+		}
+		journal.put(fileIndex(b, 7));
+		journal.retainFiles(Arrays.asList(b));
+		journal.flush();
+
+		journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		Assert.assertEquals(1, journal.size());
+		Assert.assertNull(journal.getFileIndex(a));
+		Assert.assertEquals(7, journal.getFileIndex(b).getPoiIndex(0).getLeft());
+		Assert.assertFalse(new File(dir, journalFile.getName() + ".tmp").exists());
+
+		journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION + 1);
+		journal.load();
+		Assert.assertEquals(0, journal.size());
+	}
+
+	@Test
+	public void testFullIndexWrittenOnCompaction() throws IOException {
+		File a = obf("A.obf", 10);
+		File b = obf("B.obf", 20);
+		File cache = new File(dir, "ind.cache");
+		CachedIndexJournal journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		journal.put(fileIndex(a, 1));
+		journal.put(fileIndex(b, 2));
+		journal.flush();
+
+		CachedOsmandIndexes indexes = new CachedOsmandIndexes();
+		indexes.readFromJournal(journalFile, CachedOsmandIndexes.VERSION);
+		indexes.writeToJournal();
+		// missing file is written
+		indexes.writeToFile(cache);
+		Assert.assertTrue(cache.length() > 0);
+
+		// appended records don't rewrite existing full index
+		obf(cache.getName(), 0);
+		indexes = new CachedOsmandIndexes();
+		indexes.readFromJournal(journalFile, CachedOsmandIndexes.VERSION);
+		indexes.retainFiles(Arrays.asList(b));
+		indexes.writeToJournal();
+		indexes.writeToFile(cache);
+		Assert.assertEquals(0, cache.length());
+
+		// 2 outdated records of A and 30 of B, journal is compacted when B is removed
+		journal = new CachedIndexJournal(journalFile, CachedOsmandIndexes.VERSION);
+		journal.load();
+		for (int i = 0; i < 30; i++) {
+			journal.put(fileIndex(b, i));
+			Assert.assertFalse(journal.flush());
+		}
+		indexes = new CachedOsmandIndexes();
+		indexes.readFromJournal(journalFile, CachedOsmandIndexes.VERSION);
+		indexes.retainFiles(Collections.<File>emptyList());
+		indexes.writeToJournal();
+		indexes.writeToFile(cache);
+		Assert.assertTrue(cache.length() > 0);
+	}
+
+	private File obf(String name, int length) throws IOException {
+		File f = new File(dir, name);
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		raf.setLength(length);
+		raf.close();
+		return f;
+	}
+
+	private FileIndex fileIndex(File f, int left) {
+		FileIndex.Builder fileIndex = FileIndex.newBuilder();
+		fileIndex.setFileName(f.getName());
+		fileIndex.setSize(f.length());
+		fileIndex.setDateModified(f.lastModified());
+		fileIndex.setVersion(2);
+		PoiPart.Builder poi = PoiPart.newBuilder();
+		poi.setSize(1);
+		poi.setOffset(0);
+		poi.setLeft(left);
+		poi.setRight(left);
+		poi.setTop(0);
+		poi.setBottom(0);
+		fileIndex.addPoiIndex(poi);
+		return fileIndex.build();
+	}
+}
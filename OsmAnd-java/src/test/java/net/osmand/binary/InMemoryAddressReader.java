@@ -0,0 +1,175 @@
+package net.osmand.binary;
+
+import net.osmand.CollatorStringMatcher;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.NamePrefixIndex.TableNode;
+import net.osmand.data.Building;
+import net.osmand.data.City;
+import net.osmand.data.City.CityType;
+import net.osmand.data.MapObject;
+import net.osmand.data.Street;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Address file for search tests: streets are kept in memory and name prefix index is built from their names
+ * (keys of 2 letters with full names as in obf files), search by name matches names as file search does.
+ * Streets of cities and buildings of streets are preloaded as new objects as file reader does.
+ */
+public class InMemoryAddressReader extends BinaryMapIndexReader {
+
+	private final List<MapObject> objects = new ArrayList<>();
+	private final List<City> cities = new ArrayList<>();
+	private final Map<Long, List<Building>> buildings = new HashMap<>();
+	private int searchCount;
+	private int preloadedStreetsCount;
+
+	public InMemoryAddressReader(RandomAccessFile raf, File file) throws IOException {
+		super(raf, file, false);
+	}
+
+	public Street addStreet(String name, double lat, double lon) {
+		return addStreet(addCity("City", lat, lon), name, lat, lon);
+	}
+
+	public City addCity(String name, double lat, double lon) {
+		City city = new City(CityType.CITY);
+		city.setName(name);
+		city.setLocation(lat, lon);
+		city.setId((long) cities.size());
+		// offsets are used as keys of cities
+		city.setFileOffset(cities.size() + 1);
+		cities.add(city);
+		return city;
+	}
+
+	public Street addStreet(City city, String name, double lat, double lon) {
+		Street street = new Street(city);
+		street.setName(name);
+		street.setLocation(lat, lon);
+		street.setId((long) objects.size());
+		objects.add(street);
+		city.registerStreet(street);
+		return street;
+	}
+
+	public Building addBuilding(Street street, String name, double lat, double lon) {
+		List<Building> lst = buildings.get(street.getId());
+		if (lst == null) {
+			lst = new ArrayList<>();
+			buildings.put(street.getId(), lst);
+		}
+		Building b = new Building();
+		b.setName(name);
+		b.setLocation(lat, lon);
+		b.setId(street.getId() * 1000 + lst.size());
+		lst.add(b);
+		return b;
+	}
+
+	/**
+	 * Adds routing region, roads of reverse geocoding are matched with file by it.
+	 */
+	public RouteRegion addRouteRegion(int filePointer, int length) {
+		RouteRegion region = new RouteRegion();
+		region.setName("Test");
+		region.setFilePointer(filePointer);
+		region.setLength(length);
+		routingIndexes.add(region);
+		return region;
+	}
+
+	public void buildNameIndex() {
+		Map<String, TableNode> roots = new LinkedHashMap<>();
+		for (int i = 0; i < objects.size(); i++) {
+			String name = objects.get(i).getName().toLowerCase();
+			String key = name.substring(0, Math.min(2, name.length()));
+			TableNode root = roots.get(key);
+			if (root == null) {
+				root = new TableNode(key);
+				roots.put(key, root);
+			}
+			if (name.length() > key.length()) {
+				TableNode child = new TableNode(name);
+				child.vals.add(i);
+				root.children.add(child);
+			} else {
+				root.vals.add(i);
+			}
+		}
+		AddressRegion reg = new AddressRegion();
+		reg.name = "Test";
+		reg.indexNameOffset = 0;
+		reg.namePrefixIndex = NamePrefixIndex.build(new ArrayList<>(roots.values()));
+		addressIndexes.clear();
+		addressIndexes.add(reg);
+		// address files are selected for search by poi bounds
+		PoiRegion poiRegion = new PoiRegion();
+		poiRegion.name = "Test";
+		poiRegion.left31 = 0;
+		poiRegion.top31 = 0;
+		poiRegion.right31 = Integer.MAX_VALUE;
+		poiRegion.bottom31 = Integer.MAX_VALUE;
+		poiIndexes.clear();
+		poiIndexes.add(poiRegion);
+	}
+
+	public int getSearchCount() {
+		return searchCount;
+	}
+
+	public int getPreloadedStreetsCount() {
+		return preloadedStreetsCount;
+	}
+
+	@Override
+	public synchronized List<MapObject> searchAddressDataByName(SearchRequest<MapObject> req, List<Integer> typeFilter) {
+		searchCount++;
+		CollatorStringMatcher matcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
+		for (MapObject object : objects) {
+			if (req.isCancelled()) {
+				break;
+			}
+			if (matcher.matches(object.getName())) {
+				req.publish(object);
+			}
+		}
+		return req.getSearchResults();
+	}
+
+	@Override
+	public synchronized int preloadStreets(City c, SearchRequest<Street> resultMatcher) {
+		preloadedStreetsCount++;
+		for (City city : cities) {
+			if (city.getFileOffset() == c.getFileOffset()) {
+				for (Street s : city.getStreets()) {
+					Street street = new Street(c);
+					street.setName(s.getName());
+					street.setLocation(s.getLocation().getLatitude(), s.getLocation().getLongitude());
+					street.setId(s.getId());
+					c.registerStreet(street);
+				}
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public synchronized void preloadBuildings(Street s, SearchRequest<Building> resultMatcher) {
+		List<Building> lst = buildings.get(s.getId());
+		if (lst != null) {
+			for (Building b : lst) {
+				s.addBuildingCheckById(b);
+			}
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package net.osmand.binary;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import net.osmand.Collator;
+import net.osmand.OsmAndCollator;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import gnu.trove.list.array.TIntArrayList;
+
+public class NamePrefixIndexTest {
+
+	private static final String[] WORDS = { "straße", "strasse", "Strand", "éclair", "Eclair", "ecole", "new", "newton",
+			"ёлка", "елка", "Ель", "abc", "ab", "a", "zürich", "zurich", "züri", "ñandu", "nandu", "o'hara", "ohara" };
+
+	private File file;
+	private RandomAccessFile raf;
+	private int tableOffset;
+	private int tableLength;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("names", ".obf");
+		raf = new RandomAccessFile(file, "rw");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		raf.close();
+		file.delete();
+	}
+
+	@Test
+	public void testSameOffsetsAsFileTable() throws IOException {
+		Random rnd = new Random(7);
+		List<String> keys = new ArrayList<>();
+		for (String w : WORDS) {
+			keys.add(w);
+			keys.add(w + " " + WORDS[rnd.nextInt(WORDS.length)]);
+		}
+		writeAddressNameIndex(keys);
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, file, false);
+		AddressRegion reg = new AddressRegion();
+		reg.indexNameOffset = 0;
+		reader.addressIndexes.add(reg);
+		reader.buildNamePrefixIndexes();
+		NamePrefixIndex index = reg.namePrefixIndex;
+		Assert.assertNotNull(index);
+
+		Collator collator = OsmAndCollator.primaryCollator();
+		List<String> queries = new ArrayList<>();
+		for (String w : WORDS) {
+			for (int i = 1; i <= w.length(); i++) {
+				queries.add(w.substring(0, i));
+				queries.add(w.substring(0, i).toUpperCase());
+			}
+		}
+		queries.add("strassen");
+		queries.add("x");
+		for (String q : queries) {
+			assertSameSearch(reader, index, collator, Arrays.asList(q));
+		}
+		for (int i = 0; i < 200; i++) {
+			String q1 = queries.get(rnd.nextInt(queries.size()));
+			String q2 = queries.get(rnd.nextInt(queries.size()));
+			assertSameSearch(reader, index, collator, Arrays.asList(q1, q2));
+		}
+		Assert.assertTrue(reader.containsAddressNamePrefix("zuri"));
+		Assert.assertFalse(reader.containsAddressNamePrefix("x"));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		index.writeTo(new DataOutputStream(bytes));
+		NamePrefixIndex read = NamePrefixIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		Assert.assertEquals(index.size(), read.size());
+		for (String q : queries) {
+			Assert.assertEquals(search(index, collator, Arrays.asList(q)), search(read, collator, Arrays.asList(q)));
+		}
+	}
+
+	@Test
+	public void testFuzzyPrefixes() throws IOException {
+		writeAddressNameIndex(Arrays.asList(WORDS));
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, file, false);
+		AddressRegion reg = new AddressRegion();
+		reg.indexNameOffset = 0;
+		reader.addressIndexes.add(reg);
+		reader.buildNamePrefixIndexes();
+
+		// shortest prefixes of names with the least distance to query
+		Map<String, Integer> prefixes = reader.getFuzzyAddressNamePrefixes("zurihc", 2, 5);
+		Assert.assertEquals(Integer.valueOf(1), prefixes.get("zuric"));
+		Assert.assertEquals(Integer.valueOf(1), prefixes.get("züric"));
+		Assert.assertEquals(Integer.valueOf(2), prefixes.get("zuri"));
+		Assert.assertEquals(Integer.valueOf(1), prefixes.values().iterator().next());
+		prefixes = reader.getFuzzyAddressNamePrefixes("newtno", 1, 5);
+		Assert.assertEquals(1, prefixes.size());
+		Assert.assertEquals(Integer.valueOf(1), prefixes.get("newto"));
+		Assert.assertEquals(1, reader.getFuzzyAddressNamePrefixes("zurihc", 2, 1).size());
+		// exact matches are found by usual search
+		prefixes = reader.getFuzzyAddressNamePrefixes("strand", 2, 5);
+		Assert.assertFalse(prefixes.containsKey("strand"));
+		Assert.assertFalse(prefixes.containsValue(0));
+		Assert.assertTrue(reader.getFuzzyAddressNamePrefixes("qwerty", 1, 5).isEmpty());
+	}
+
+	@Test
+	public void testCacheFile() throws IOException {
+		writeAddressNameIndex(Arrays.asList(WORDS));
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, file, false);
+		AddressRegion reg = new AddressRegion();
+		reg.indexNameOffset = 0;
+		reader.addressIndexes.add(reg);
+		NamePrefixIndexCache cache = new NamePrefixIndexCache();
+		cache.attach(reader, file);
+		Assert.assertNotNull(reg.namePrefixIndex);
+
+		File cacheFile = File.createTempFile("ind", ".names");
+		File tmp = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+		try {
+			// existing file is replaced
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(cacheFile));
+			out.writeInt(12345);
+			out.close();
+			cache.writeToFile(cacheFile);
+			Assert.assertFalse(tmp.exists());
+
+			NamePrefixIndexCache read = new NamePrefixIndexCache();
+			read.readFromFile(cacheFile);
+			BinaryMapIndexReader other = new BinaryMapIndexReader(raf, file, false);
+			AddressRegion otherReg = new AddressRegion();
+			otherReg.indexNameOffset = 0;
+			other.addressIndexes.add(otherReg);
+			read.attach(other, file);
+			Assert.assertEquals(reg.namePrefixIndex.size(), otherReg.namePrefixIndex.size());
+		} finally {
+			cacheFile.delete();
+			tmp.delete();
+		}
+	}
+
+	private void assertSameSearch(BinaryMapIndexReader reader, NamePrefixIndex index, Collator collator,
+			List<String> queries) throws IOException {
+		List<TIntArrayList> expected = newOffsets(queries);
+		TIntArrayList expectedChars = newChars(queries);
+		reader.codedIS.seek(tableOffset);
+		int old = reader.codedIS.pushLimit(tableLength);
+		reader.readIndexedStringTable(collator, queries, "", expected, expectedChars);
+		reader.codedIS.popLimit(old);
+
+		List<TIntArrayList> actual = newOffsets(queries);
+		TIntArrayList actualChars = newChars(queries);
+		index.search(collator, queries, actual, actualChars);
+		Assert.assertEquals(queries.toString(), expected, actual);
+		Assert.assertEquals(queries.toString(), expectedChars, actualChars);
+	}
+
+	private List<TIntArrayList> search(NamePrefixIndex index, Collator collator, List<String> queries) {
+		List<TIntArrayList> res = newOffsets(queries);
+		index.search(collator, queries, res, newChars(queries));
+		return res;
+	}
+
+	private static List<TIntArrayList> newOffsets(List<String> queries) {
+		List<TIntArrayList> res = new ArrayList<>();
+		for (int i = 0; i < queries.size(); i++) {
+			res.add(new TIntArrayList());
+		}
+		return res;
+	}
+
+	private static TIntArrayList newChars(List<String> queries) {
+		TIntArrayList res = new TIntArrayList();
+		for (int i = 0; i < queries.size(); i++) {
+			res.add(0);
+		}
+		return res;
+	}
+
+	private void writeAddressNameIndex(List<String> keys) throws IOException {
+		byte[] table = writeTable(keys, 0);
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		CodedOutputStream cos = CodedOutputStream.newInstance(data);
+		cos.writeTag(OsmandOdb.OsmAndAddressNameIndexData.TABLE_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32);
+		cos.flush();
+		writeInt(data, table.length);
+		tableOffset = 4 + data.size();
+		tableLength = table.length;
+		data.write(table);
+		writeInt(data, 0);
+		ByteArrayOutputStream res = new ByteArrayOutputStream();
+		writeInt(res, data.size());
+		res.write(data.toByteArray());
+		raf.write(res.toByteArray());
+	}
+
+	// two letter keys with subtables of suffixes like in obf files
+	private byte[] writeTable(List<String> keys, int val) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream cos = CodedOutputStream.newInstance(bytes);
+		List<String> prefixes = new ArrayList<>();
+		for (String k : keys) {
+			String p = k.substring(0, Math.min(2, k.length()));
+			if (!prefixes.contains(p)) {
+				prefixes.add(p);
+			}
+		}
+		for (String p : prefixes) {
+			cos.writeString(OsmandOdb.IndexedStringTable.KEY_FIELD_NUMBER, p);
+			writeVal(cos, bytes, val++);
+			ByteArrayOutputStream sub = new ByteArrayOutputStream();
+			CodedOutputStream subCos = CodedOutputStream.newInstance(sub);
+			for (String k : keys) {
+				if (k.startsWith(p) && k.length() > p.length()) {
+					subCos.writeString(OsmandOdb.IndexedStringTable.KEY_FIELD_NUMBER, k.substring(p.length()));
+					writeVal(subCos, sub, val++);
+					writeVal(subCos, sub, val++);
+				}
+			}
+			subCos.flush();
+			cos.writeTag(OsmandOdb.IndexedStringTable.SUBTABLES_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			cos.writeRawVarint32(sub.size());
+			cos.writeRawBytes(sub.toByteArray());
+			// value after subtable
+			writeVal(cos, bytes, val++);
+		}
+		cos.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void writeVal(CodedOutputStream cos, ByteArrayOutputStream bytes, int val) throws IOException {
+		cos.writeTag(OsmandOdb.IndexedStringTable.VAL_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED32);
+		cos.flush();
+		writeInt(bytes, val);
+	}
+
+	private static void writeInt(ByteArrayOutputStream out, int v) {
+		out.write((v >>> 24) & 0xff);
+		out.write((v >>> 16) & 0xff);
+		out.write((v >>> 8) & 0xff);
+		out.write(v & 0xff);
+	}
+}
@@ -0,0 +1,63 @@
+package net.osmand.binary;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class PackedSInt32DecodingTest {
+
+	@Test
+	public void testBulkDecodingMatchesPerValue() throws IOException {
+		Random rnd = new Random(7);
+		int[] values = new int[20000];
+		for (int i = 0; i < values.length; i++) {
+			switch (i % 4) {
+			case 0:
+				values[i] = rnd.nextInt(128) - 64;
+				break;
+			case 1:
+				values[i] = rnd.nextInt(1 << 16) - (1 << 15);
+				break;
+			case 2:
+				values[i] = rnd.nextInt();
+				break;
+			default:
+				values[i] = i % 8 == 3 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+			}
+		}
+		ByteArrayOutputStream packed = new ByteArrayOutputStream();
+		CodedOutputStream cos = CodedOutputStream.newInstance(packed);
+		for (int v : values) {
+			cos.writeSInt32NoTag(v);
+		}
+		cos.flush();
+		byte[] payload = packed.toByteArray();
+
+		ByteArrayOutputStream message = new ByteArrayOutputStream();
+		cos = CodedOutputStream.newInstance(message);
+		cos.writeRawVarint32(payload.length);
+		cos.writeRawBytes(payload);
+		cos.writeSInt32NoTag(-12345);
+		cos.flush();
+
+		// stream input makes the field span many internal buffer refills
+		CodedInputStream cis = CodedInputStream.newInstance(new ByteArrayInputStream(message.toByteArray()));
+		int size = cis.readRawVarint32();
+		int old = cis.pushLimit(size);
+		int[] dest = new int[size];
+		int len = cis.readPackedSInt32(dest);
+		cis.popLimit(old);
+		Assert.assertEquals(values.length, len);
+		for (int i = 0; i < values.length; i++) {
+			Assert.assertEquals(values[i], dest[i]);
+		}
+		Assert.assertEquals(-12345, cis.readSInt32());
+	}
+}
@@ -0,0 +1,194 @@
+package net.osmand.binary;
+
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.data.City;
+import net.osmand.data.LatLon;
+import net.osmand.data.Street;
+import net.osmand.router.RoutingContext;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class ReverseGeocodingBatchTest {
+
+	private static final int ROUTE_REGION_FP = 1;
+	private static final int ROUTE_REGION_LENGTH = 100;
+
+	// streets along latitude, the same name is used in both cities
+	private static final String[] STREET_NAMES = { "Main Street", "Church Street", "Mill Road", "Main Street",
+			"Park Lane" };
+	private static final String[] STREET_CITIES = { "Alpha", "Alpha", "Alpha", "Beta", "Beta" };
+	private static final double[] STREET_LATS = { 52.0, 52.001, 52.002, 52.02, 52.021 };
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("geocoding", ".obf");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	private InMemoryAddressReader createReader() throws IOException {
+		InMemoryAddressReader reader = new InMemoryAddressReader(new RandomAccessFile(file, "r"), file);
+		City alpha = reader.addCity("Alpha", 52.0, 4.0);
+		City beta = reader.addCity("Beta", 52.02, 4.0);
+		for (int i = 0; i < STREET_NAMES.length; i++) {
+			City city = STREET_CITIES[i].equals(alpha.getName()) ? alpha : beta;
+			Street street = reader.addStreet(city, STREET_NAMES[i], STREET_LATS[i], 4.0);
+			for (int k = 0; k <= 20; k++) {
+				reader.addBuilding(street, String.valueOf(2 * k + 1), STREET_LATS[i] + 0.0001, 3.998 + k * 0.0002);
+			}
+		}
+		reader.buildNameIndex();
+		reader.addRouteRegion(ROUTE_REGION_FP, ROUTE_REGION_LENGTH);
+		return reader;
+	}
+
+	/**
+	 * Roads are streets near the point, readers are copied from the same streets.
+	 */
+	private class TestGeocodingBatch extends ReverseGeocodingBatch {
+
+		TestGeocodingBatch(BinaryMapIndexReader[] readers, int threads) {
+			super(null, readers, threads);
+		}
+
+		@Override
+		protected BinaryMapIndexReader copyReader(BinaryMapIndexReader reader) throws IOException {
+			return createReader();
+		}
+
+		@Override
+		protected RoutingContext createRoutingContext(BinaryMapIndexReader[] readers) {
+			return null;
+		}
+
+		@Override
+		protected List<GeocodingResult> searchRoads(GeocodingUtilities gu, RoutingContext ctx, double lat, double lon) {
+			List<GeocodingResult> roads = new ArrayList<>();
+			for (int i = 0; i < STREET_NAMES.length; i++) {
+				if (Math.abs(lat - STREET_LATS[i]) < 0.0015) {
+					GeocodingResult road = new GeocodingResult();
+					road.searchPoint = new LatLon(lat, lon);
+					road.connectionPoint = new LatLon(STREET_LATS[i], lon);
+					road.streetName = STREET_NAMES[i];
+					road.regionFP = ROUTE_REGION_FP;
+					road.regionLen = ROUTE_REGION_LENGTH;
+					roads.add(road);
+				}
+			}
+			Collections.sort(roads, GeocodingUtilities.DISTANCE_COMPARATOR);
+			return roads;
+		}
+	}
+
+	@Test
+	public void testSameAsSinglePoint() throws IOException {
+		Random rnd = new Random(11);
+		List<LatLon> points = new ArrayList<>();
+		for (int i = 0; i < 700; i++) {
+			// some points are far from streets
+			double lat = i % 10 == 0 ? 52.01 : STREET_LATS[rnd.nextInt(STREET_LATS.length)] + (rnd.nextDouble() - 0.5) / 500;
+			points.add(new LatLon(lat, 3.998 + rnd.nextDouble() * 0.004));
+		}
+		InMemoryAddressReader single = createReader();
+		BinaryMapIndexReader[] singleReaders = { single };
+		TestGeocodingBatch singleBatch = new TestGeocodingBatch(singleReaders, 1);
+		List<String> expected = new ArrayList<>();
+		int buildings = 0;
+		for (LatLon p : points) {
+			// caches are not shared between points
+			GeocodingResult r = singleBatch.reverseGeocoding(new GeocodingUtilities(), null, singleReaders,
+					p.getLatitude(), p.getLongitude());
+			expected.add(toString(r));
+			if (r != null && r.building != null) {
+				buildings++;
+			}
+		}
+		Assert.assertTrue(buildings > points.size() / 2);
+		Assert.assertTrue(single.getSearchCount() > points.size() / 2);
+
+		InMemoryAddressReader reader = createReader();
+		List<GeocodingResult> results = new TestGeocodingBatch(new BinaryMapIndexReader[] { reader }, 1)
+				.reverseGeocoding(points);
+		Assert.assertEquals(expected, toStrings(results));
+		// every name is searched once, streets of both cities are loaded once
+		Assert.assertEquals(4, reader.getSearchCount());
+		Assert.assertEquals(2, reader.getPreloadedStreetsCount());
+
+		results = new TestGeocodingBatch(new BinaryMapIndexReader[] { createReader() }, 3).reverseGeocoding(points);
+		Assert.assertEquals(expected, toStrings(results));
+	}
+
+	private static List<String> toStrings(List<GeocodingResult> results) {
+		List<String> res = new ArrayList<>();
+		for (GeocodingResult r : results) {
+			res.add(toString(r));
+		}
+		return res;
+	}
+
+	private static String toString(GeocodingResult r) {
+		return r == null ? "null" : r + " " + r.searchPoint + " " + r.getLocation();
+	}
+
+	@Test
+	public void testHilbertCurve() {
+		int order = 4;
+		int n = 1 << order;
+		int[] xs = new int[n * n];
+		int[] ys = new int[n * n];
+		boolean[] visited = new boolean[n * n];
+		for (int x = 0; x < n; x++) {
+			for (int y = 0; y < n; y++) {
+				int d = (int) ReverseGeocodingBatch.getHilbertIndex(x, y, order);
+				Assert.assertFalse(visited[d]);
+				visited[d] = true;
+				xs[d] = x;
+				ys[d] = y;
+			}
+		}
+		// consecutive cells of the curve are neighbours
+		for (int d = 1; d < n * n; d++) {
+			Assert.assertEquals(1, Math.abs(xs[d] - xs[d - 1]) + Math.abs(ys[d] - ys[d - 1]));
+		}
+	}
+
+	@Test
+	public void testSortByHilbertIndex() {
+		Random rnd = new Random(1);
+		List<LatLon> points = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			// two clusters far from each other
+			double lat = (i % 2 == 0 ? 52 : -33) + rnd.nextDouble() * 0.1;
+			double lon = (i % 2 == 0 ? 4 : 151) + rnd.nextDouble() * 0.1;
+			points.add(new LatLon(lat, lon));
+		}
+		int[] order = ReverseGeocodingBatch.sortByHilbertIndex(points);
+		Assert.assertEquals(points.size(), order.length);
+		boolean[] used = new boolean[order.length];
+		int clusterChanges = 0;
+		for (int i = 0; i < order.length; i++) {
+			Assert.assertFalse(used[order[i]]);
+			used[order[i]] = true;
+			if (i > 0 && order[i] % 2 != order[i - 1] % 2) {
+				clusterChanges++;
+			}
+		}
+		Assert.assertEquals(1, clusterChanges);
+	}
+}
@@ -0,0 +1,95 @@
+package net.osmand.data;
+
+import net.osmand.data.City.CityType;
+import net.osmand.util.MapUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class CityAddressIndexTest {
+
+	private static Street street(City c, long id, String name, double lat, double lon) {
+		Street s = new Street(c);
+		s.setId(id);
+		s.setName(name);
+		s.setLocation(lat, lon);
+		c.registerStreet(s);
+		return s;
+	}
+
+	private static Building building(Street s, long id, String name, double lat, double lon) {
+		Building b = new Building();
+		b.setId(id);
+		b.setName(name);
+		b.setLocation(lat, lon);
+		s.addBuilding(b);
+		return b;
+	}
+
+	@Test
+	public void testBuildingsInRadius() {
+		City c = new City(CityType.CITY);
+		c.setLocation(60.0, 30.0);
+		Random rnd = new Random(5);
+		for (int i = 0; i < 50; i++) {
+			Street s = street(c, i, "Street " + i, 60 + rnd.nextDouble() / 50, 30 + rnd.nextDouble() / 50);
+			for (int j = 0; j < 40; j++) {
+				building(s, i * 100 + j, String.valueOf(j + 1), 60 + rnd.nextDouble() / 50, 30 + rnd.nextDouble() / 50);
+			}
+		}
+		CityAddressIndex index = new CityAddressIndex(c);
+		Assert.assertEquals(2000, index.getBuildingsCount());
+		for (int q = 0; q < 100; q++) {
+			double lat = 60 + rnd.nextDouble() / 50;
+			double lon = 30 + rnd.nextDouble() / 50;
+			Set<Building> found = new HashSet<>(index.getBuildings(lat, lon, 100));
+			Street nearest = null;
+			for (Street s : c.getStreets()) {
+				for (Building b : s.getBuildings()) {
+					if (MapUtils.getDistance(b.getLocation(), lat, lon) < 100) {
+						Assert.assertTrue(found.contains(b));
+					}
+				}
+				if (nearest == null || MapUtils.getDistance(s.getLocation(), lat, lon)
+						< MapUtils.getDistance(nearest.getLocation(), lat, lon)) {
+					nearest = s;
+				}
+			}
+			Assert.assertSame(nearest, index.getNearestStreet(lat, lon, 5000));
+		}
+		Assert.assertNull(index.getNearestStreet(61, 31, 1000));
+	}
+
+	@Test
+	public void testStreetBuildingsAndInterpolations() {
+		City c = new City(CityType.TOWN);
+		Street main = street(c, 1, "Main", 50.0, 10.0);
+		Street other = street(c, 2, "Other", 50.0, 10.0);
+		Building b1 = building(main, 10, "1", 50.0001, 10.0);
+		building(other, 20, "2", 50.0001, 10.0);
+		// interpolation 1 km long, its ends are far from the point
+		Building range = building(main, 30, "10", 50.0, 10.01);
+		range.setName2("100");
+		range.setLatLon2(new LatLon(50.0, 10.02));
+		range.setInterpolationType(Building.BuildingInterpolation.EVEN);
+		CityAddressIndex index = new CityAddressIndex(c);
+
+		// street from another object (e.g. found by name) is matched by id and name
+		Street found = new Street(new City(CityType.TOWN));
+		found.setId(1L);
+		found.setName("Main");
+		List<Building> res = index.getBuildings(found, 50.0, 10.0, 50);
+		Assert.assertEquals(1, res.size());
+		Assert.assertSame(b1, res.get(0));
+		Assert.assertSame(main, index.getStreet(b1));
+
+		res = index.getBuildings(found, 50.0005, 10.015, 100);
+		Assert.assertEquals(1, res.size());
+		Assert.assertSame(range, res.get(0));
+	}
+}
@@ -0,0 +1,93 @@
+package net.osmand.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class PackedRTreeTest {
+
+	@Test
+	public void testQueryMatchesLinearScan() {
+		Random rnd = new Random(11);
+		int n = 5000;
+		int[][] boxes = new int[n][];
+		PackedRTree.Builder<Integer> builder = new PackedRTree.Builder<Integer>();
+		for (int i = 0; i < n; i++) {
+			int l = rnd.nextInt(1 << 30);
+			int t = rnd.nextInt(1 << 30);
+			int r = l + rnd.nextInt(1 << 22);
+			int b = t + rnd.nextInt(1 << 22);
+			boxes[i] = new int[] { l, t, r, b };
+			builder.add(i, l, t, r, b);
+		}
+		PackedRTree<Integer> tree = builder.build();
+		Assert.assertEquals(n, tree.size());
+		List<Integer> res = new ArrayList<Integer>();
+		for (int q = 0; q < 200; q++) {
+			int l = rnd.nextInt(1 << 30);
+			int t = rnd.nextInt(1 << 30);
+			int r = l + rnd.nextInt(1 << 25);
+			int b = t + rnd.nextInt(1 << 25);
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int i = 0; i < n; i++) {
+				int[] bx = boxes[i];
+				if (bx[0] <= r && bx[2] >= l && bx[1] <= b && bx[3] >= t) {
+					expected.add(i);
+				}
+			}
+			tree.queryInBox(l, t, r, b, res);
+			Collections.sort(res);
+			Assert.assertEquals(expected, res);
+			Assert.assertEquals(!expected.isEmpty(), tree.intersects(l, t, r, b));
+		}
+	}
+
+	@Test
+	public void testSmallTrees() {
+		PackedRTree<String> empty = new PackedRTree.Builder<String>().build();
+		Assert.assertTrue(empty.isEmpty());
+		Assert.assertFalse(empty.intersects(0, 0, 10, 10));
+
+		PackedRTree<String> single = new PackedRTree.Builder<String>().add("a", 10, 20, 0, 5).build();
+		List<String> res = single.queryInBox(5, 5, 5, 5, new ArrayList<String>());
+		Assert.assertEquals(Collections.singletonList("a"), res);
+		Assert.assertFalse(single.intersects(11, 0, 12, 30));
+	}
+
+	@Test
+	public void testFindNearest() {
+		Random rnd = new Random(23);
+		int n = 3000;
+		final int[][] points = new int[n][];
+		PackedRTree.Builder<Integer> builder = new PackedRTree.Builder<Integer>();
+		for (int i = 0; i < n; i++) {
+			int x = rnd.nextInt(1 << 30);
+			int y = rnd.nextInt(1 << 30);
+			points[i] = new int[] { x, y };
+			builder.add(i, x, y, x, y);
+		}
+		PackedRTree<Integer> tree = builder.build();
+		PackedRTree.DistanceFunction<Integer> distance = new PackedRTree.DistanceFunction<Integer>() {
+			@Override
+			public double getDistance(Integer item, int x, int y) {
+				return Math.hypot(points[item][0] - (double) x, points[item][1] - (double) y);
+			}
+		};
+		for (int q = 0; q < 200; q++) {
+			int x = rnd.nextInt(1 << 30);
+			int y = rnd.nextInt(1 << 30);
+			double min = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < n; i++) {
+				min = Math.min(min, distance.getDistance(i, x, y));
+			}
+			Integer nearest = tree.findNearest(x, y, Double.POSITIVE_INFINITY, distance);
+			Assert.assertEquals(min, distance.getDistance(nearest, x, y), 0);
+			Assert.assertNull(tree.findNearest(x, y, min / 2, distance));
+		}
+		Assert.assertNull(new PackedRTree.Builder<Integer>().build().findNearest(0, 0, 10, distance));
+	}
+}
@@ -0,0 +1,212 @@
+package net.osmand.data;
+
+import net.osmand.GPXUtilities.WptPt;
+import net.osmand.data.TracksIndex.NearestPoint;
+import net.osmand.data.TracksIndex.SegmentEntry;
+import net.osmand.util.MapUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import gnu.trove.list.array.TIntArrayList;
+
+public class TracksIndexTest {
+
+	private final Random rnd = new Random(5);
+
+	private List<WptPt> generatePoints(int size, double lat, double lon) {
+		List<WptPt> points = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			lat += (rnd.nextDouble() - 0.5) / 500;
+			lon += (rnd.nextDouble() - 0.3) / 500;
+			points.add(new WptPt(lat, lon, 0, Double.NaN, 0, Double.NaN));
+		}
+		return points;
+	}
+
+	private static int getX(WptPt point) {
+		return MapUtils.get31TileNumberX(point.lon);
+	}
+
+	private static int getY(WptPt point) {
+		return MapUtils.get31TileNumberY(point.lat);
+	}
+
+	private static boolean isInBox(WptPt point, int[] box) {
+		int x = getX(point);
+		int y = getY(point);
+		return x >= box[0] && x <= box[2] && y >= box[1] && y <= box[3];
+	}
+
+	private int[] randomBox(List<WptPt> points, int size) {
+		WptPt center = points.get(rnd.nextInt(points.size()));
+		int x = getX(center) + rnd.nextInt(size) - size / 2;
+		int y = getY(center) + rnd.nextInt(size) - size / 2;
+		return new int[] {x - size, y - size, x + size, y + size};
+	}
+
+	private static int findNearestLinear(List<WptPt> points, int x, int y) {
+		int nearest = -1;
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < points.size(); i++) {
+			double d = Math.hypot(getX(points.get(i)) - (double) x, getY(points.get(i)) - (double) y);
+			if (d < min) {
+				min = d;
+				nearest = i;
+			}
+		}
+		return nearest;
+	}
+
+	private void checkSegmentIndex(TrackSegmentIndex index, List<WptPt> points) {
+		TIntArrayList runs = new TIntArrayList();
+		for (int q = 0; q < 20; q++) {
+			int[] box = randomBox(points, 1 << 16);
+			index.queryRuns(box[0], box[1], box[2], box[3], runs);
+			// every point in box is found in run and runs are sorted
+			List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < points.size(); i++) {
+				if (isInBox(points.get(i), box)) {
+					expected.add(i);
+				}
+			}
+			List<Integer> found = new ArrayList<>();
+			for (int k = 0; k < runs.size(); k++) {
+				Assert.assertTrue(k == 0 || runs.get(k) > runs.get(k - 1));
+				int start = runs.get(k);
+				for (int i = start; i <= index.getRunEnd(start); i++) {
+					if (isInBox(points.get(i), box) && !found.contains(i)) {
+						found.add(i);
+					}
+				}
+			}
+			Assert.assertEquals(expected, found);
+			checkEdges(index, points, box, runs);
+
+			int x = box[0] + (box[2] - box[0]) / 2;
+			int y = box[1] + (box[3] - box[1]) / 2;
+			int nearest = index.findNearestPoint(x, y, Double.POSITIVE_INFINITY);
+			int expectedNearest = findNearestLinear(points, x, y);
+			Assert.assertEquals(index.getDistance(expectedNearest, x, y), index.getDistance(nearest, x, y), 0);
+		}
+	}
+
+	// every edge which bounds intersect box is in found run
+	private static void checkEdges(TrackSegmentIndex index, List<WptPt> points, int[] box, TIntArrayList runs) {
+		for (int i = 0; i + 1 < points.size(); i++) {
+			WptPt p1 = points.get(i);
+			WptPt p2 = points.get(i + 1);
+			if (Math.min(getX(p1), getX(p2)) > box[2] || Math.max(getX(p1), getX(p2)) < box[0]
+					|| Math.min(getY(p1), getY(p2)) > box[3] || Math.max(getY(p1), getY(p2)) < box[1]) {
+				continue;
+			}
+			boolean found = false;
+			for (int k = 0; k < runs.size() && !found; k++) {
+				found = runs.get(k) <= i && index.getRunEnd(runs.get(k)) >= i + 1;
+			}
+			Assert.assertTrue("Edge " + i + " of " + points.size(), found);
+		}
+	}
+
+	@Test
+	public void testEdgeCrossingBox() {
+		for (int size : new int[] {2, 18, 20, 33}) {
+			List<WptPt> points = generatePoints(size - 1, 52.0, 4.0);
+			WptPt last = points.get(points.size() - 1);
+			// long last edge
+			points.add(new WptPt(last.lat + 0.1, last.lon + 0.1, 0, Double.NaN, 0, Double.NaN));
+			TrackSegmentIndex index = new TrackSegmentIndex(points);
+			int x = (int) (((long) getX(last) + getX(points.get(size - 1))) / 2);
+			int y = (int) (((long) getY(last) + getY(points.get(size - 1))) / 2);
+			int[] box = {x - 100, y - 100, x + 100, y + 100};
+			TIntArrayList runs = new TIntArrayList();
+			index.queryRuns(box[0], box[1], box[2], box[3], runs);
+			Assert.assertFalse("size " + size, runs.isEmpty());
+			checkEdges(index, points, box, runs);
+		}
+	}
+
+	@Test
+	public void testAppendedPoints() {
+		List<WptPt> points = new ArrayList<>();
+		TrackSegmentIndex index = new TrackSegmentIndex(points);
+		Assert.assertTrue(index.isEmpty());
+		Assert.assertEquals(-1, index.findNearestPoint(0, 0, Double.POSITIVE_INFINITY));
+		List<WptPt> generated = generatePoints(3000, 52.0, 4.0);
+		for (int i = 0; i < generated.size(); i++) {
+			points.add(generated.get(i));
+			if (i % 97 == 0 || i < 40) {
+				index.update();
+				checkSegmentIndex(index, points);
+			}
+		}
+		index.update();
+		checkSegmentIndex(index, points);
+		Assert.assertEquals(getX(points.get(0)), getX(points.get(index.findNearestPoint(getX(points.get(0)),
+				getY(points.get(0)), 0))));
+
+		// removed points are detected
+		points.subList(1000, points.size()).clear();
+		index.update();
+		checkSegmentIndex(index, points);
+	}
+
+	@Test
+	public void testTracks() {
+		List<List<WptPt>> segments = new ArrayList<>();
+		TracksIndex.Builder<String> builder = new TracksIndex.Builder<>();
+		for (int i = 0; i < 50; i++) {
+			List<WptPt> points = generatePoints(100 + rnd.nextInt(500), 52.0 + rnd.nextDouble(), 4.0 + rnd.nextDouble());
+			segments.add(points);
+			builder.add("track" + i / 3, new TrackSegmentIndex(points), false);
+		}
+		List<WptPt> live = new ArrayList<>();
+		TrackSegmentIndex liveIndex = new TrackSegmentIndex(live);
+		segments.add(live);
+		builder.add("live", liveIndex, true);
+		TracksIndex<String> index = builder.build();
+		live.addAll(generatePoints(1000, 52.5, 4.5));
+		liveIndex.update();
+
+		List<WptPt> all = new ArrayList<>();
+		for (List<WptPt> points : segments) {
+			all.addAll(points);
+		}
+		for (int q = 0; q < 100; q++) {
+			int[] box = randomBox(all, 1 << 18);
+			List<SegmentEntry<String>> found = index.querySegments(box[0], box[1], box[2], box[3]);
+			// segments are found by bounds
+			List<List<WptPt>> expectedSegments = new ArrayList<>();
+			for (List<WptPt> points : segments) {
+				int l = Integer.MAX_VALUE, t = Integer.MAX_VALUE, r = Integer.MIN_VALUE, b = Integer.MIN_VALUE;
+				for (WptPt point : points) {
+					l = Math.min(l, getX(point));
+					t = Math.min(t, getY(point));
+					r = Math.max(r, getX(point));
+					b = Math.max(b, getY(point));
+				}
+				if (l <= box[2] && r >= box[0] && t <= box[3] && b >= box[1]) {
+					expectedSegments.add(points);
+				}
+			}
+			Assert.assertEquals(expectedSegments.size(), found.size());
+			for (int k = 0; k < found.size(); k++) {
+				Assert.assertSame(expectedSegments.get(k), found.get(k).getIndex().getPoints());
+			}
+
+			int x = box[0] + (box[2] - box[0]) / 2;
+			int y = box[1] + (box[3] - box[1]) / 2;
+			WptPt expectedPoint = all.get(findNearestLinear(all, x, y));
+			NearestPoint<String> nearest = index.findNearestPoint(x, y, Double.POSITIVE_INFINITY);
+			WptPt point = nearest.getSegment().getIndex().getPoints().get(nearest.getPointIndex());
+			Assert.assertEquals(Math.hypot(getX(expectedPoint) - (double) x, getY(expectedPoint) - (double) y),
+					nearest.getDistance(), 0);
+			Assert.assertEquals(nearest.getDistance(), Math.hypot(getX(point) - (double) x, getY(point) - (double) y), 0);
+			Assert.assertNull(index.findNearestPoint(x, y, nearest.getDistance() / 2));
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package net.osmand.router;
+
+import net.osmand.router.RouteColorize.RouteColorizationPoint;
+import net.osmand.util.MapUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class RouteColorizeTest {
+
+    private final Random rnd = new Random(5);
+
+    private double[][] generateTrack(int size) {
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        double[] elevations = new double[size];
+        double lat = 46 + rnd.nextDouble();
+        double lon = 7 + rnd.nextDouble();
+        double ele = 1000;
+        for (int i = 0; i < size; i++) {
+            // repeated points have zero distance
+            if (i % 37 != 0) {
+                lat += (rnd.nextDouble() - 0.5) / 3000;
+                lon += (rnd.nextDouble() - 0.5) / 3000;
+                ele += (rnd.nextDouble() - 0.4) * 5;
+            }
+            latitudes[i] = lat;
+            longitudes[i] = lon;
+            elevations[i] = ele;
+        }
+        return new double[][] {latitudes, longitudes, elevations};
+    }
+
+    @Test
+    public void testSlopes() {
+        double[][] track = generateTrack(3000);
+        RouteColorize colorize = new RouteColorize(15, track[0], track[1], track[2], 0, 0, null);
+        double[] elevations = track[2].clone();
+        double[] slopes = colorize.calculateSlopesByElevations(track[0], track[1], elevations, RouteColorize.SLOPE_RANGE);
+
+        // elevations are smoothed in place, slopes are compared with linear search of range ends
+        int size = elevations.length;
+        double[] distances = new double[size];
+        for (int i = 1; i < size; i++) {
+            distances[i] = distances[i - 1]
+                    + MapUtils.getDistance(track[0][i - 1], track[1][i - 1], track[0][i], track[1][i]);
+        }
+        double halfRange = RouteColorize.SLOPE_RANGE / 2d;
+        int calculated = 0;
+        for (int i = 0; i < size; i++) {
+            if (distances[i] < halfRange || distances[i] > distances[size - 1] - halfRange) {
+                Assert.assertTrue(Double.isNaN(slopes[i]));
+                continue;
+            }
+            double min = getElevation(distances, elevations, distances[i] - halfRange);
+            double max = getElevation(distances, elevations, distances[i] + halfRange);
+            Assert.assertEquals((max - min) / (2 * halfRange), slopes[i], 1e-9);
+            calculated++;
+        }
+        Assert.assertTrue(calculated > size / 2);
+    }
+
+    private static double getElevation(double[] distances, double[] elevations, double distance) {
+        for (int i = 0; i < distances.length; i++) {
+            if (distances[i] == distance) {
+                return elevations[i];
+            }
+            if (distances[i] > distance) {
+                double coef = (distance - distances[i - 1]) / (distances[i] - distances[i - 1]);
+                return (1 - coef) * elevations[i - 1] + coef * elevations[i];
+            }
+        }
+        return elevations[elevations.length - 1];
+    }
+
+    @Test
+    public void testSimplifiedColors() {
+        double[][] track = generateTrack(5000);
+        RouteColorize colorize = new RouteColorize(10, track[0], track[1], track[2], 1000, 1500, null);
+        int[] colors = colorize.getColors();
+        Assert.assertEquals(track[0].length, colors.length);
+        for (int zoom = 10; zoom <= 18; zoom += 4) {
+            colorize.setZoom(zoom);
+            int[] indexes = colorize.getSimplifiedIndexes();
+            Assert.assertSame(indexes, colorize.getSimplifiedIndexes());
+            List<RouteColorizationPoint> result = colorize.getResult(true);
+            Assert.assertEquals(indexes.length, result.size());
+            for (int i = 0; i < indexes.length; i++) {
+                RouteColorizationPoint point = result.get(i);
+                Assert.assertEquals(indexes[i], point.id);
+                Assert.assertEquals(colorize.getColorByValue(track[2][point.id]), point.color);
+                Assert.assertEquals(colors[point.id], point.color);
+            }
+        }
+
+        // colors are recalculated for new palette
+        colorize.setPalette(new double[][] {{1000, RouteColorize.RED}, {1500, RouteColorize.GREEN}});
+        Assert.assertNotSame(colors, colorize.getColors());
+        Assert.assertEquals(RouteColorize.RED, colorize.getColors()[0]);
+    }
+}
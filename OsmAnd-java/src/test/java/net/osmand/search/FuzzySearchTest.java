@@ -0,0 +1,95 @@
+package net.osmand.search;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.InMemoryAddressReader;
+import net.osmand.data.LatLon;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchCoreFactory.SearchAddressByNameAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchBuildingAndIntersectionsByStreetAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchStreetByCityAPI;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FuzzySearchTest {
+
+	private File file;
+	private RandomAccessFile raf;
+	private InMemoryAddressReader reader;
+	private SearchUICore core;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("fuzzy", ".obf");
+		raf = new RandomAccessFile(file, "r");
+		reader = new InMemoryAddressReader(raf, file);
+		reader.addStreet("Lundenstrasse", 52.001, 4.0);
+		reader.addStreet("Lindenstrasse", 52.01, 4.0);
+		reader.addStreet("Marktplatz", 52.0, 4.0);
+		reader.buildNameIndex();
+
+		core = new SearchUICore(null, "en", false);
+		SearchBuildingAndIntersectionsByStreetAPI streetsApi = new SearchBuildingAndIntersectionsByStreetAPI();
+		core.registerAPI(new SearchAddressByNameAPI(streetsApi, new SearchStreetByCityAPI(streetsApi)));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		raf.close();
+		file.delete();
+	}
+
+	private List<SearchResult> search(String text, int fuzzySearchDistance) {
+		SearchSettings settings = new SearchSettings(Collections.<BinaryMapIndexReader>singletonList(reader))
+				.setOriginalLocation(new LatLon(52.0, 4.0))
+				.setFuzzySearchDistance(fuzzySearchDistance);
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(settings).generateNewPhrase(text, settings);
+		SearchResultMatcher matcher = new SearchResultMatcher(null, phrase, 1, new AtomicInteger(1), -1);
+		core.searchInternal(phrase, matcher);
+		SearchResultCollection collection = new SearchResultCollection(phrase);
+		collection.addSearchResults(matcher.getRequestResults(), true, true);
+		return collection.getCurrentSearchResults();
+	}
+
+	private static List<String> streets(List<SearchResult> results) {
+		List<String> names = new ArrayList<>();
+		for (SearchResult sr : results) {
+			if (sr.objectType == ObjectType.STREET) {
+				names.add(sr.localeName);
+			}
+		}
+		return names;
+	}
+
+	@Test
+	public void testMisspelledStreet() {
+		Assert.assertEquals(Collections.singletonList("Lindenstrasse"), streets(search("Lindenstr", 0)));
+		// exact search only
+		Assert.assertTrue(streets(search("Lindenstrase", 0)).isEmpty());
+
+		// 1 typo is ranked before 2 typos though the other street is closer
+		List<SearchResult> results = search("Lindenstrase", 2);
+		Assert.assertEquals(2, streets(results).size());
+		Assert.assertEquals("Lindenstrasse", streets(results).get(0));
+		Assert.assertEquals("Lundenstrasse", streets(results).get(1));
+		Assert.assertEquals(Collections.singletonList("Lindenstrasse"), streets(search("Lindenstrase", 1)));
+
+		// typos are not searched when name is found
+		Assert.assertEquals(Collections.singletonList("Lindenstrasse"), streets(search("Lindenstrasse", 2)));
+	}
+}
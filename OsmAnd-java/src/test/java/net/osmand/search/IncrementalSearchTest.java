@@ -0,0 +1,101 @@
+package net.osmand.search;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.InMemoryAddressReader;
+import net.osmand.data.LatLon;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.SearchCoreFactory.SearchAddressByNameAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchBuildingAndIntersectionsByStreetAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchStreetByCityAPI;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IncrementalSearchTest {
+
+	private static final String[] STREETS = { "Lindenstrasse", "Lindenallee", "Lindweg", "Lingerweg", "Linie",
+			"Lindholm", "Marktplatz", "Mühlenweg" };
+
+	private File file;
+	private RandomAccessFile raf;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("incremental", ".obf");
+		raf = new RandomAccessFile(file, "r");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		raf.close();
+		file.delete();
+	}
+
+	private InMemoryAddressReader createReader() throws IOException {
+		InMemoryAddressReader reader = new InMemoryAddressReader(raf, file);
+		for (int i = 0; i < STREETS.length; i++) {
+			reader.addStreet(STREETS[i], 52.0 + i / 1000d, 4.0);
+		}
+		reader.buildNameIndex();
+		return reader;
+	}
+
+	private static SearchUICore createCore() {
+		SearchUICore core = new SearchUICore(null, "en", false);
+		SearchBuildingAndIntersectionsByStreetAPI streetsApi = new SearchBuildingAndIntersectionsByStreetAPI();
+		core.registerAPI(new SearchAddressByNameAPI(streetsApi, new SearchStreetByCityAPI(streetsApi)));
+		return core;
+	}
+
+	private static List<String> search(SearchUICore core, BinaryMapIndexReader reader, String text) {
+		SearchSettings settings = new SearchSettings(Collections.singletonList(reader))
+				.setOriginalLocation(new LatLon(52.0, 4.0));
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(settings).generateNewPhrase(text, settings);
+		SearchResultMatcher matcher = new SearchResultMatcher(null, phrase, 1, new AtomicInteger(1), -1);
+		core.searchInternal(phrase, matcher);
+		SearchResultCollection collection = new SearchResultCollection(phrase);
+		collection.addSearchResults(matcher.getRequestResults(), true, true);
+		List<String> names = new ArrayList<>();
+		for (SearchResult sr : collection.getCurrentSearchResults()) {
+			names.add(sr.localeName);
+		}
+		return names;
+	}
+
+	@Test
+	public void testRefinedPhrase() throws IOException {
+		InMemoryAddressReader reader = createReader();
+		SearchUICore core = createCore();
+		Assert.assertEquals(4, search(core, reader, "Lind").size());
+		Assert.assertEquals(1, reader.getSearchCount());
+
+		// objects of the shorter word are filtered without file search, results are the same as cold search
+		for (String text : new String[] { "Linde", "Lindena", "Lindenallee" }) {
+			List<String> refined = search(core, reader, text);
+			Assert.assertEquals(1, reader.getSearchCount());
+			InMemoryAddressReader coldReader = createReader();
+			Assert.assertEquals(text, search(createCore(), coldReader, text), refined);
+			Assert.assertEquals(1, coldReader.getSearchCount());
+		}
+
+		// shortened and other words are searched in file
+		Assert.assertEquals(Collections.singletonList("Lindenallee"), search(core, reader, "Lindenalle"));
+		Assert.assertEquals(2, reader.getSearchCount());
+		Assert.assertEquals(Collections.singletonList("Marktplatz"), search(core, reader, "Mark"));
+		Assert.assertEquals(3, reader.getSearchCount());
+	}
+}
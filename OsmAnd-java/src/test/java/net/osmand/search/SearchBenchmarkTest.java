@@ -0,0 +1,98 @@
+package net.osmand.search;
+
+import net.osmand.search.SearchBenchmark.RequestStats;
+import net.osmand.search.SearchBenchmark.Workload;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.SearchCoreAPI;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class SearchBenchmarkTest {
+
+	@Test
+	public void testParseWorkload() {
+		Workload w = SearchBenchmark.parseWorkload(new JSONObject("{\"settings\": {\"lat\": 52.37, \"lon\": 4.89},"
+				+ "\"queries\": [{\"type\": \"address\", \"text\": \"Dam\"},"
+				+ "{\"keystrokes\": [\"Rijks\", \"Rijksmuseum\"], \"lat\": 52.36, \"lon\": 4.88}]}"));
+		Assert.assertEquals(52.37, w.settings.getOriginalLocation().getLatitude(), 1e-9);
+		Assert.assertEquals(2, w.queries.size());
+		Assert.assertEquals("address", w.queries.get(0).type);
+		Assert.assertEquals(Arrays.asList("D", "Da", "Dam"), w.queries.get(0).keystrokes);
+		Assert.assertNull(w.queries.get(0).location);
+		Assert.assertEquals("other", w.queries.get(1).type);
+		Assert.assertEquals(Arrays.asList("Rijks", "Rijksmuseum"), w.queries.get(1).keystrokes);
+		Assert.assertEquals(4.88, w.queries.get(1).location.getLongitude(), 1e-9);
+	}
+
+	@Test
+	public void testRun() {
+		SearchUICore core = new SearchUICore(null, "en", false);
+		core.registerAPI(new LengthAPI());
+		Workload w = SearchBenchmark.parseWorkload(new JSONObject("{\"queries\": ["
+				+ "{\"type\": \"poi\", \"text\": \"abc\"}, {\"type\": \"address\", \"keystrokes\": [\"\"]}]}"));
+		List<RequestStats> stats = new SearchBenchmark(core).run(w);
+		Assert.assertEquals(4, stats.size());
+		for (int i = 0; i < 3; i++) {
+			RequestStats s = stats.get(i);
+			Assert.assertEquals("poi", s.type);
+			Assert.assertEquals(i + 1, s.results);
+			Assert.assertEquals(Integer.valueOf(i + 1), s.apiResults.get("LengthAPI"));
+			Assert.assertTrue(s.firstResultNanos >= 0 && s.firstResultNanos <= s.completeNanos);
+		}
+		Assert.assertEquals(-1, stats.get(3).firstResultNanos);
+		Assert.assertEquals(Integer.valueOf(0), stats.get(3).apiResults.get("LengthAPI"));
+
+		String report = SearchBenchmark.report(stats);
+		Assert.assertTrue(report, report.startsWith("all: 4 requests\n"));
+		Assert.assertTrue(report, report.contains("poi: 3 requests\n"));
+		Assert.assertTrue(report, report.contains("address: 1 requests\n"));
+		Assert.assertTrue(report, report.contains("LengthAPI"));
+	}
+
+	// finds as many results as there are letters in the phrase
+	private static class LengthAPI implements SearchCoreAPI {
+
+		@Override
+		public int getSearchPriority(SearchPhrase p) {
+			return 1;
+		}
+
+		@Override
+		public boolean search(SearchPhrase phrase, SearchResultMatcher resultMatcher) {
+			String text = phrase.getFullSearchPhrase();
+			for (int i = 0; i < text.length(); i++) {
+				SearchResult sr = new SearchResult(phrase);
+				sr.localeName = text + i;
+				resultMatcher.publish(sr);
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isSearchMoreAvailable(SearchPhrase phrase) {
+			return false;
+		}
+
+		@Override
+		public boolean isSearchAvailable(SearchPhrase p) {
+			return true;
+		}
+
+		@Override
+		public int getMinimalSearchRadius(SearchPhrase phrase) {
+			return 0;
+		}
+
+		@Override
+		public int getNextSearchRadius(SearchPhrase phrase) {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package net.osmand.search;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchCoreAPI;
+import net.osmand.search.core.SearchCoreFactory;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchParallelApiTest {
+
+	@Test
+	public void testParallelResultsOrder() {
+		SearchUICore core = new SearchUICore(null, "en", false);
+		Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		core.registerAPI(new TestAPI("a", 10, 30, threads));
+		core.registerAPI(new TestAPI("b", 10, 0, threads));
+		core.registerAPI(new TestAPI("c", 10, 10, threads));
+		core.registerAPI(new TestAPI("d", 20, 0, threads));
+
+		List<String> sequential = search(core);
+		Assert.assertEquals(1, threads.size());
+
+		core.setParallelApiThreads(3);
+		threads.clear();
+		List<String> parallel = search(core);
+		Assert.assertEquals(sequential, parallel);
+		Assert.assertTrue(threads.size() > 1);
+		// d has lower priority and sees results of all previous APIs
+		Assert.assertEquals("d9", parallel.get(parallel.size() - 2));
+		core.setParallelApiThreads(1);
+	}
+
+	@Test
+	public void testIndependentApis() {
+		SearchUICore core = new SearchUICore(null, "en", false);
+		Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		// address and poi by name have different priorities, but don't depend on each other
+		core.registerAPI(new TestAPI("address", SearchCoreFactory.SEARCH_ADDRESS_BY_NAME_API_PRIORITY, 20, threads));
+		core.registerAPI(new TestAPI("poi", SearchCoreFactory.SEARCH_AMENITY_BY_NAME_PRIORITY, 20, threads));
+
+		List<String> sequential = search(core);
+		core.setParallelApiThreads(2);
+		threads.clear();
+		List<String> parallel = search(core);
+		Assert.assertEquals(sequential, parallel);
+		Assert.assertEquals(2, threads.size());
+		core.setParallelApiThreads(1);
+	}
+
+	@Test
+	public void testCancelledRequest() {
+		SearchUICore core = new SearchUICore(null, "en", false);
+		Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		core.registerAPI(new TestAPI("a", 10, 10, threads));
+		core.registerAPI(new TestAPI("b", 10, 10, threads));
+		core.setParallelApiThreads(2);
+		SearchSettings settings = new SearchSettings(new ArrayList<BinaryMapIndexReader>());
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(settings).generateNewPhrase("test", settings);
+		AtomicInteger requestNumber = new AtomicInteger(2);
+		final List<String> published = new ArrayList<>();
+		SearchResultMatcher rm = new SearchResultMatcher(collector(published), phrase, 1, requestNumber, -1);
+		core.searchInternal(phrase, rm);
+		Assert.assertTrue(published.isEmpty());
+		core.setParallelApiThreads(1);
+	}
+
+	private List<String> search(SearchUICore core) {
+		SearchSettings settings = new SearchSettings(new ArrayList<BinaryMapIndexReader>());
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(settings).generateNewPhrase("test", settings);
+		List<String> published = new ArrayList<>();
+		SearchResultMatcher rm = new SearchResultMatcher(collector(published), phrase, 1, new AtomicInteger(1), -1);
+		core.searchInternal(phrase, rm);
+		int finished = 0;
+		for (String s : published) {
+			if (s.startsWith("finished ")) {
+				finished++;
+			}
+		}
+		Assert.assertEquals(core.apis.size(), finished);
+		Assert.assertEquals(published.size() - finished, rm.getRequestResults().size());
+		return published;
+	}
+
+	private ResultMatcher<SearchResult> collector(final List<String> published) {
+		return new ResultMatcher<SearchResult>() {
+			@Override
+			public boolean publish(SearchResult object) {
+				if (object.objectType == ObjectType.SEARCH_API_FINISHED) {
+					published.add("finished " + object.object);
+				} else {
+					published.add(object.localeName);
+				}
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+	}
+
+	private static class TestAPI implements SearchCoreAPI {
+		private final String name;
+		private final int priority;
+		private final long sleep;
+		private final Set<Thread> threads;
+
+		TestAPI(String name, int priority, long sleep, Set<Thread> threads) {
+			this.name = name;
+			this.priority = priority;
+			this.sleep = sleep;
+			this.threads = threads;
+		}
+
+		@Override
+		public int getSearchPriority(SearchPhrase p) {
+			return priority;
+		}
+
+		@Override
+		public boolean search(SearchPhrase phrase, SearchResultMatcher resultMatcher) {
+			threads.add(Thread.currentThread());
+			int count = name.equals("d") ? resultMatcher.getRequestResults().size() : 3;
+			if (name.equals("d")) {
+				SearchResult sr = new SearchResult(phrase);
+				sr.localeName = name + count;
+				resultMatcher.publish(sr);
+				return true;
+			}
+			for (int i = 0; i < count && !resultMatcher.isCancelled(); i++) {
+				try {
+					Thread.sleep(sleep);
+				} catch (InterruptedException e) {
+					return false;
+				}
+				SearchResult sr = new SearchResult(phrase);
+				sr.localeName = name + i;
+				resultMatcher.publish(sr);
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isSearchMoreAvailable(SearchPhrase phrase) {
+			return false;
+		}
+
+		@Override
+		public boolean isSearchAvailable(SearchPhrase p) {
+			return true;
+		}
+
+		@Override
+		public int getMinimalSearchRadius(SearchPhrase phrase) {
+			return 0;
+		}
+
+		@Override
+		public int getNextSearchRadius(SearchPhrase phrase) {
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
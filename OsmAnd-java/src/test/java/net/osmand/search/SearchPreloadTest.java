@@ -0,0 +1,117 @@
+package net.osmand.search;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.search.SearchUICore.SearchPreloadListener;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchCoreFactory.SearchBaseAPI;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchSettings;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SearchPreloadTest {
+
+	private File file;
+	private RandomAccessFile raf;
+	private List<BinaryMapIndexReader> files = new ArrayList<>();
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("preload", ".obf");
+		raf = new RandomAccessFile(file, "r");
+		for (int i = 0; i < 3; i++) {
+			files.add(new BinaryMapIndexReader(raf, file, false));
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		raf.close();
+		file.delete();
+	}
+
+	private SearchUICore createCore(PreloadAPI api) {
+		SearchUICore core = new SearchUICore(null, "en", false);
+		core.updateSettings(new SearchSettings(files));
+		core.registerAPI(api);
+		return core;
+	}
+
+	@Test
+	public void testPreloadAllFiles() throws InterruptedException {
+		PreloadAPI api = new PreloadAPI();
+		SearchUICore core = createCore(api);
+		final List<Integer> preloaded = new ArrayList<>();
+		final boolean[] finished = new boolean[1];
+		final CountDownLatch latch = new CountDownLatch(1);
+		core.preload(null, -1, new SearchPreloadListener() {
+
+			@Override
+			public void onFilePreloaded(BinaryMapIndexReader file, int count, int total) {
+				preloaded.add(count);
+				Assert.assertEquals(3, total);
+			}
+
+			@Override
+			public void onPreloadFinished(boolean hot) {
+				finished[0] = hot;
+				latch.countDown();
+			}
+		});
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(finished[0]);
+		Assert.assertTrue(core.isSearchHot());
+		Assert.assertEquals(Arrays.asList(1, 2, 3), preloaded);
+		// structures not related to files are loaded first
+		Assert.assertNull(api.preloaded.get(0));
+		Assert.assertEquals(files, api.preloaded.subList(1, 4));
+	}
+
+	@Test
+	public void testMemoryBudgetAndCancel() throws IOException {
+		PreloadAPI api = new PreloadAPI();
+		SearchUICore core = createCore(api);
+		Assert.assertFalse(core.preloadInternal(null, 150, 0, null));
+		// 2 files are loaded before budget is exceeded
+		Assert.assertEquals(3, api.preloaded.size());
+
+		// new search was started
+		api.preloaded.clear();
+		Assert.assertFalse(core.preloadInternal(null, -1, 1, null));
+		Assert.assertEquals(1, api.preloaded.size());
+
+		api.preloaded.clear();
+		core.cancelPreload();
+		Assert.assertFalse(core.preloadInternal(null, -1, 0, null));
+		Assert.assertEquals(1, api.preloaded.size());
+		Assert.assertFalse(core.isSearchHot());
+	}
+
+	// each file takes 100 bytes
+	private static class PreloadAPI extends SearchBaseAPI {
+
+		private List<BinaryMapIndexReader> preloaded = new ArrayList<>();
+
+		PreloadAPI() {
+			super(ObjectType.POI);
+		}
+
+		@Override
+		public long preload(SearchPhrase phrase, BinaryMapIndexReader file) {
+			preloaded.add(file);
+			return file == null ? 0 : 100;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package net.osmand.search;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.search.SearchUICore.SearchResultCollection;
+import net.osmand.search.SearchUICore.SearchResultComparator;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchCoreFactory;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class TopSearchResultsTest {
+
+	private static SearchPhrase phrase() {
+		SearchSettings settings = new SearchSettings(new ArrayList<BinaryMapIndexReader>())
+				.setOriginalLocation(new LatLon(52.0, 4.0));
+		return SearchPhrase.emptyPhrase(settings).generateNewPhrase("test", settings);
+	}
+
+	private static SearchResult result(SearchPhrase phrase, String name, double lat, double lon) {
+		SearchResult sr = new SearchResult(phrase);
+		sr.localeName = name;
+		sr.object = new Object();
+		sr.objectType = ObjectType.HOUSE;
+		sr.location = new LatLon(lat, lon);
+		sr.priority = 1;
+		sr.priorityDistance = 1;
+		return sr;
+	}
+
+	@Test
+	public void testSameAsFullSort() {
+		SearchPhrase phrase = phrase();
+		Random rnd = new Random(7);
+		List<SearchResult> all = new ArrayList<>();
+		TopSearchResults top = new TopSearchResults(phrase, 50);
+		for (int i = 0; i < 5000; i++) {
+			SearchResult sr = result(phrase, "House " + i, 52 + rnd.nextDouble() / 10, 4 + rnd.nextDouble() / 10);
+			all.add(sr);
+			top.add(sr);
+		}
+		Collections.sort(all, new SearchResultComparator(phrase));
+		Assert.assertEquals(all.subList(0, 50), top.getResults());
+		Assert.assertTrue(top.hasMoreResults());
+
+		// pages of the same search continue each other
+		List<SearchResult> pages = new ArrayList<>(top.getResults());
+		TopSearchResults page = top;
+		for (int k = 0; k < 3; k++) {
+			page = page.nextPage();
+			for (SearchResult sr : all) {
+				page.add(sr);
+			}
+			pages.addAll(page.getResults());
+		}
+		Assert.assertEquals(all.subList(0, 200), pages);
+	}
+
+	@Test
+	public void testDuplicates() {
+		SearchPhrase phrase = phrase();
+		TopSearchResults top = new TopSearchResults(phrase, 10);
+		SearchResult far = result(phrase, "Main", 52.0005, 4.0);
+		SearchResult near = result(phrase, "Main", 52.0001, 4.0);
+		SearchResult other = result(phrase, "Main", 52.01, 4.0);
+		Assert.assertTrue(top.add(far));
+		Assert.assertTrue(top.add(near));
+		Assert.assertTrue(top.add(other));
+		Assert.assertFalse(top.add(result(phrase, "Main", 52.0004, 4.0)));
+		// the same object without location
+		SearchResult noLocation = result(phrase, "Main", 0, 0);
+		noLocation.object = other.object;
+		noLocation.location = null;
+		noLocation.priority = 2;
+		Assert.assertFalse(top.add(noLocation));
+
+		List<SearchResult> res = top.getResults();
+		Assert.assertEquals(2, res.size());
+		Assert.assertSame(near, res.get(0));
+		Assert.assertSame(other, res.get(1));
+		Assert.assertFalse(top.hasMoreResults());
+	}
+
+	@Test
+	public void testEqualResultsOnPageBorder() {
+		SearchPhrase phrase = phrase();
+		SearchResultComparator cmp = new SearchResultComparator(phrase);
+		List<SearchResult> run = pageRun(phrase);
+		// names differ only by case, results are not duplicates but equal by comparator
+		Assert.assertEquals(0, cmp.compare(run.get(1), run.get(4)));
+		Assert.assertFalse(new SearchResultCollection(phrase).sameSearchResult(run.get(1), run.get(4)));
+
+		TopSearchResults page = new TopSearchResults(phrase, 3);
+		List<String> names = new ArrayList<>();
+		while (true) {
+			// every page is collected by new run of the same search
+			for (SearchResult sr : pageRun(phrase)) {
+				page.add(sr);
+			}
+			for (SearchResult sr : page.getResults()) {
+				names.add(sr.localeName);
+			}
+			if (!page.hasMoreResults()) {
+				break;
+			}
+			page = page.nextPage();
+		}
+		Assert.assertEquals(Arrays.asList("Near", "House", "house", "HOUSE", "HoUse", "Far"), names);
+	}
+
+	private static List<SearchResult> pageRun(SearchPhrase phrase) {
+		return Arrays.asList(result(phrase, "Near", 52.0001, 4.0), result(phrase, "House", 52.001, 4.0),
+				result(phrase, "house", 52.001, 4.0), result(phrase, "HOUSE", 52.001, 4.0),
+				result(phrase, "HoUse", 52.001, 4.0), result(phrase, "Far", 52.01, 4.0));
+	}
+
+	@Test
+	public void testDuplicatesOnNextPage() {
+		SearchPhrase phrase = phrase();
+		SearchResultComparator cmp = new SearchResultComparator(phrase);
+		TopSearchResults top = new TopSearchResults(phrase, 2);
+		SearchResult a = result(phrase, "A", 52.0004, 4.0);
+		SearchResult b = result(phrase, "B", 52.0005, 4.0);
+		// duplicate of A which is worse than B
+		SearchResult sameA = result(phrase, "A", 52.0012, 4.0);
+		SearchResult c = result(phrase, "C", 52.002, 4.0);
+		Assert.assertTrue(cmp.compare(sameA, b) > 0);
+		for (SearchResult sr : Arrays.asList(a, b, sameA, c)) {
+			top.add(sr);
+		}
+		Assert.assertEquals(Arrays.asList(a, b), top.getResults());
+		Assert.assertTrue(top.hasMoreResults());
+
+		TopSearchResults next = top.nextPage();
+		SearchResult c2 = result(phrase, "C", 52.002, 4.0);
+		for (SearchResult sr : Arrays.asList(result(phrase, "A", 52.0004, 4.0), result(phrase, "B", 52.0005, 4.0),
+				result(phrase, "A", 52.0012, 4.0), c2)) {
+			next.add(sr);
+		}
+		Assert.assertEquals(Collections.singletonList(c2), next.getResults());
+		Assert.assertFalse(next.hasMoreResults());
+	}
+
+	@Test
+	public void testSearchNextPage() throws InterruptedException {
+		final SearchUICore core = new SearchUICore(null, "en", false);
+		core.updateSettings(core.getSearchSettings().setOriginalLocation(new LatLon(52.0, 4.0)));
+		core.registerAPI(new HousesAPI(120));
+		final LinkedBlockingQueue<List<String>> pages = new LinkedBlockingQueue<>();
+		core.setOnResultsComplete(new Runnable() {
+			@Override
+			public void run() {
+				List<String> names = new ArrayList<>();
+				for (SearchResult sr : core.getCurrentSearchResult().getCurrentSearchResults()) {
+					names.add(sr.localeName);
+				}
+				pages.add(names);
+			}
+		});
+		core.search("test", false, null);
+		List<String> all = pages.poll(10, TimeUnit.SECONDS);
+		Assert.assertEquals(120, all.size());
+		Assert.assertNull(core.getLastTopResults());
+		Assert.assertFalse(core.searchNextPage(null));
+
+		core.setTotalLimit(50);
+		core.search("test", false, null);
+		List<String> paged = new ArrayList<>(pages.poll(10, TimeUnit.SECONDS));
+		Assert.assertEquals(50, paged.size());
+		while (core.searchNextPage(null)) {
+			paged.addAll(pages.poll(10, TimeUnit.SECONDS));
+		}
+		Assert.assertEquals(all, paged);
+		Assert.assertEquals(20, core.getLastTopResults().size());
+	}
+
+	private static class HousesAPI extends SearchCoreFactory.SearchBaseAPI {
+		private final int count;
+
+		HousesAPI(int count) {
+			super(ObjectType.HOUSE);
+			this.count = count;
+		}
+
+		@Override
+		public boolean search(SearchPhrase phrase, SearchResultMatcher resultMatcher) {
+			// the same results on every run
+			Random rnd = new Random(3);
+			for (int i = 0; i < count; i++) {
+				resultMatcher.publish(result(phrase, "House " + i, 52 + rnd.nextDouble() / 10, 4 + rnd.nextDouble() / 10));
+			}
+			return true;
+		}
+
+		@Override
+		public int getSearchPriority(SearchPhrase p) {
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package net.osmand.search.core;
+
+import net.osmand.binary.BinaryMapIndexReader;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+public class IncrementalSearchCacheTest {
+
+	private File file;
+	private RandomAccessFile raf;
+	private BinaryMapIndexReader r1;
+	private BinaryMapIndexReader r2;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("search", ".obf");
+		raf = new RandomAccessFile(file, "r");
+		r1 = new BinaryMapIndexReader(raf, file, false);
+		r2 = new BinaryMapIndexReader(raf, file, false);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		raf.close();
+		file.delete();
+	}
+
+	@Test
+	public void testRefineLongerWord() {
+		IncrementalSearchCache<String> cache = new IncrementalSearchCache<>(2);
+		IncrementalSearchCache<String>.Search search = cache.startSearch("ma", "1");
+		Assert.assertNull(search.getCachedObjects(r1));
+		List<String> objects = Arrays.asList("Main", "Mall");
+		search.fileSearched(r1, objects);
+		// too many objects
+		search.fileSearched(r2, Arrays.asList("Main", "Mall", "Map"));
+		cache.finishSearch(search);
+
+		search = cache.startSearch("mai", "1");
+		Assert.assertEquals(objects, search.getCachedObjects(r1));
+		Assert.assertNull(search.getCachedObjects(r2));
+		// cancelled search keeps only searched files
+		cache.finishSearch(search);
+		Assert.assertNull(cache.startSearch("main", "1").getCachedObjects(r1));
+
+		search = cache.startSearch("ma", "1");
+		search.fileSearched(r1, objects);
+		cache.finishSearch(search);
+		Assert.assertNull(cache.startSearch("mo", "1").getCachedObjects(r1));
+		Assert.assertNull(cache.startSearch("m", "1").getCachedObjects(r1));
+		Assert.assertNull(cache.startSearch("main", "2").getCachedObjects(r1));
+		Assert.assertEquals(objects, cache.startSearch("ma", "1").getCachedObjects(r1));
+		cache.clear();
+		Assert.assertNull(cache.startSearch("main", "1").getCachedObjects(r1));
+	}
+
+	@Test
+	public void testTotalLimit() {
+		IncrementalSearchCache<String> cache = new IncrementalSearchCache<>(4);
+		IncrementalSearchCache<String>.Search search = cache.startSearch("ma", "1");
+		List<String> objects = Arrays.asList("Main", "Mall", "Map");
+		search.fileSearched(r1, objects);
+		// file fits into limit, but not together with the other file
+		search.fileSearched(r2, Arrays.asList("Main", "Mall"));
+		cache.finishSearch(search);
+		search = cache.startSearch("mai", "1");
+		Assert.assertEquals(objects, search.getCachedObjects(r1));
+		Assert.assertNull(search.getCachedObjects(r2));
+	}
+}
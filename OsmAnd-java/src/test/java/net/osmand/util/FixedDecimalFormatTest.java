@@ -0,0 +1,72 @@
+package net.osmand.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+
+public class FixedDecimalFormatTest {
+
+	private static void assertSameFormat(String pattern, double[] values) {
+		DecimalFormat expected = new DecimalFormat(pattern, new DecimalFormatSymbols(new Locale("EN", "US")));
+		FixedDecimalFormat actual = new FixedDecimalFormat(pattern);
+		for (double v : values) {
+			Assert.assertEquals(String.valueOf(v), expected.format(v), actual.format(v));
+			int length = actual.formatToBuffer(v);
+			Assert.assertEquals(expected.format(v), new String(actual.getBuffer(), 0, length));
+		}
+	}
+
+	private static double[] randomValues(double range, int count) {
+		Random rnd = new Random(1);
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++) {
+			switch (i % 3) {
+				case 0:
+					values[i] = (rnd.nextDouble() - 0.5) * range;
+					break;
+				case 1:
+					// float values of parsed gpx
+					values[i] = (float) ((rnd.nextDouble() - 0.5) * range);
+					break;
+				default:
+					// exact binary ties
+					values[i] = (rnd.nextInt(1 << 20) - (1 << 19)) / 512.0;
+					break;
+			}
+		}
+		return values;
+	}
+
+	@Test
+	public void testLatLonFormat() {
+		assertSameFormat("0.00#####", new double[] {0, -0.0, -0.000000001, 1 / 256.0, -1 / 256.0, 179.999991234,
+				52.12345675, 1.00000005, Double.NaN, 1e20});
+		assertSameFormat("0.00#####", randomValues(360, 100000));
+	}
+
+	@Test
+	public void testDecimalFormat() {
+		assertSameFormat("#.#", new double[] {0, -0.0, -0.01, 0.04, 0.05, 0.15, 0.25, 2.5, 9.95, 99.95,
+				123456789.95, Double.NaN, Double.NEGATIVE_INFINITY});
+		assertSameFormat("#.#", randomValues(9000, 100000));
+	}
+
+	@Test
+	public void testScaledLong() {
+		String[] patterns = {"0.00#####", "#.#"};
+		for (String pattern : patterns) {
+			FixedDecimalFormat format = new FixedDecimalFormat(pattern);
+			for (double v : randomValues(360, 100000)) {
+				long scaled = format.toScaledLong(v);
+				// negative values rounded to zero are formatted as -0
+				if (scaled != 0) {
+					Assert.assertEquals(String.valueOf(v), format.format(v), format.format(scaled / (double) format.getScale()));
+				}
+			}
+		}
+	}
+}
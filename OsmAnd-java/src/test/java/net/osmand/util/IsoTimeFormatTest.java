@@ -0,0 +1,64 @@
+package net.osmand.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+public class IsoTimeFormatTest {
+
+	@Test
+	public void testSameAsDateFormat() throws Exception {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		SimpleDateFormat formatMillis = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+		formatMillis.setTimeZone(TimeZone.getTimeZone("UTC"));
+		Random rnd = new Random(7);
+		for (int i = 0; i < 1000; i++) {
+			long time = (long) (rnd.nextDouble() * 4000000000000L) - 1000000000000L;
+			String text = formatMillis.format(time);
+			Assert.assertEquals(text, time, IsoTimeFormat.parse(text, -1));
+			text = format.format(time);
+			Assert.assertEquals(text, format.parse(text).getTime(), IsoTimeFormat.parse(text, -1));
+		}
+	}
+
+	@Test
+	public void testFormat() {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		IsoTimeFormat isoFormat = new IsoTimeFormat();
+		Random rnd = new Random(9);
+		for (int i = 0; i < 10000; i++) {
+			// times of the same day use cached date
+			long time = i % 2 == 0 ? (long) ((rnd.nextDouble() - 0.3) * 1e13) : 1600000000000L + i * 1337L;
+			Assert.assertEquals(format.format(new Date(time)), isoFormat.format(time));
+		}
+		// julian calendar and years of 5 digits
+		Assert.assertEquals(format.format(new Date(-12219292800001L)), isoFormat.format(-12219292800001L));
+		Assert.assertEquals(-1, isoFormat.formatToBuffer(-12219292800001L));
+		Assert.assertEquals(format.format(new Date(253402300800000L)), isoFormat.format(253402300800000L));
+	}
+
+	@Test
+	public void testOffsetsAndFractions() {
+		long time = 1262347200000L; // 2010-01-01T12:00:00Z
+		Assert.assertEquals(time, IsoTimeFormat.parse(" 2010-01-01T12:00:00Z\n", -1));
+		Assert.assertEquals(time, IsoTimeFormat.parse("2010-01-01T14:30:00+02:30", -1));
+		Assert.assertEquals(time, IsoTimeFormat.parse("2010-01-01T07:00:00-0500", -1));
+		Assert.assertEquals(time, IsoTimeFormat.parse("2010-01-01T13:00:00+01", -1));
+		Assert.assertEquals(time + 500, IsoTimeFormat.parse("2010-01-01T12:00:00.5Z", -1));
+		Assert.assertEquals(time + 123, IsoTimeFormat.parse("2010-01-01T12:00:00.123456Z", -1));
+
+		Assert.assertEquals(-1, IsoTimeFormat.parse(null, -1));
+		Assert.assertEquals(-1, IsoTimeFormat.parse("2010-01-01T12:00:00", -1));
+		Assert.assertEquals(-1, IsoTimeFormat.parse("2010-01-01 12:00:00Z", -1));
+		Assert.assertEquals(-1, IsoTimeFormat.parse("2010-13-01T12:00:00Z", -1));
+		Assert.assertEquals(-1, IsoTimeFormat.parse("2010-01-01T12:00:00.Z", -1));
+		Assert.assertEquals(-1, IsoTimeFormat.parse("2010-01-01T12:00:00+1", -1));
+	}
+}
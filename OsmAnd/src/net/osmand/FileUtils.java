@@ -105,6 +105,10 @@ public class FileUtils {
 			dest.getParentFile().mkdirs();
 		}
 		if (src.renameTo(dest)) {
+			File pyramidFile = TrackPyramid.getCacheFile(src);
+			if (pyramidFile.exists()) {
+				pyramidFile.renameTo(TrackPyramid.getCacheFile(dest));
+			}
 			GpxSelectionHelper helper = app.getSelectedGpxHelper();
 			SelectedGpxFile selected = helper.getSelectedFileByPath(src.getAbsolutePath());
 			app.getGpxDbHelper().rename(src, dest);
@@ -123,6 +127,7 @@ public class FileUtils {
 			GpxSelectionHelper helper = app.getSelectedGpxHelper();
 			SelectedGpxFile selected = helper.getSelectedFileByPath(file.getAbsolutePath());
 			file.delete();
+			TrackPyramid.getCacheFile(file).delete();
 			app.getGpxDbHelper().remove(file);
 			if (selected != null && selected.getGpxFile() != null) {
 				helper.selectGpxFile(selected.getGpxFile(), false, false);
@@ -6,22 +6,35 @@ import android.os.AsyncTask;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import net.osmand.GPXUtilities;
-import net.osmand.GPXUtilities.GPXFile;
 import net.osmand.GPXUtilities.GPXTrackAnalysis;
+import net.osmand.GpxBatchAnalyzer;
+import net.osmand.GpxBatchAnalyzer.AnalysisSink;
+import net.osmand.GpxBatchAnalyzer.BatchStatistics;
+import net.osmand.PlatformUtil;
 import net.osmand.plus.GPXDatabase.GpxDataItem;
 import net.osmand.plus.api.SQLiteAPI.SQLiteConnection;
 import net.osmand.plus.track.GpxSplitType;
 
+import org.apache.commons.logging.Log;
+
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class GpxDbHelper {
 
 	private static final int MAX_ITEMS_CACHE_SIZE = 5000;
+	private static final int MAX_READING_BATCH_SIZE = 256;
+	// big files which can't be analyzed in stream are loaded completely, so threads are limited
+	private static final int MAX_READING_THREADS = 4;
+
+	private static final Log LOG = PlatformUtil.getLog(GpxDbHelper.class);
 
 	private final GPXDatabase db;
 	private final Map<File, GpxDataItem> itemsCache = new ConcurrentHashMap<>();
@@ -30,6 +43,9 @@ public class GpxDbHelper {
 	private final Map<File, GpxDataItem> readingItemsMap = new ConcurrentHashMap<>();
 	private final Map<File, GpxDataItemCallback> readingItemsCallbacks = new ConcurrentHashMap<>();
 	private GpxReaderTask readerTask;
+	private final GpxBatchAnalyzer batchAnalyzer = new GpxBatchAnalyzer(
+			Math.min(MAX_READING_THREADS, Runtime.getRuntime().availableProcessors()),
+			GpxBatchAnalyzer.DEFAULT_MAX_PENDING_RESULTS);
 
 	public interface GpxDataItemCallback {
 
@@ -181,7 +197,7 @@ public class GpxDbHelper {
 	private boolean isGpxReading(@NonNull File gpxFile) {
 		GpxReaderTask analyser = this.readerTask;
 		return readingItems.contains(gpxFile)
-				|| (analyser != null && gpxFile.equals(analyser.getGpxFile()));
+				|| (analyser != null && analyser.isReading(gpxFile));
 	}
 
 	private void readGpxItem(@NonNull File gpxFile, @Nullable GpxDataItem item, @Nullable GpxDataItemCallback callback) {
@@ -217,14 +233,15 @@ public class GpxDbHelper {
 	@SuppressLint("StaticFieldLeak")
 	private class GpxReaderTask extends AsyncTask<Void, GpxDataItem, Void> {
 
-		private File gpxFile;
+		// files taken from queue and not published yet
+		private final Set<File> readingFiles = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
 
-		public File getGpxFile() {
-			return gpxFile;
+		public boolean isReading(@NonNull File gpxFile) {
+			return readingFiles.contains(gpxFile);
 		}
 
 		public boolean isReading() {
-			return readingItems.size() > 0 || gpxFile != null;
+			return readingItems.size() > 0 || !readingFiles.isEmpty();
 		}
 
 		@Override
@@ -232,30 +249,8 @@ public class GpxDbHelper {
 			SQLiteConnection conn = db.openConnection(false);
 			if (conn != null) {
 				try {
-					gpxFile = readingItems.poll();
-					while (gpxFile != null && !isCancelled()) {
-						GpxDataItem item = readingItemsMap.remove(gpxFile);
-						if (item != null && item.getFile() == null) {
-							item = db.getItem(gpxFile, conn);
-						}
-						if (isAnalyseNeeded(gpxFile, item)) {
-							GPXFile f = GPXUtilities.loadGPXFile(gpxFile);
-							GPXTrackAnalysis analysis = f.getAnalysis(gpxFile.lastModified());
-							if (item == null || item.getFile() == null) {
-								item = new GpxDataItem(gpxFile, analysis);
-								db.insert(item, conn);
-							} else {
-								db.updateAnalysis(item, analysis, conn);
-							}
-							putToCache(item);
-						} else {
-							putToCache(item);
-						}
-
-						if (!isCancelled()) {
-							publishProgress(item);
-						}
-						gpxFile = readingItems.poll();
+					while (readingItems.size() > 0 && !isCancelled()) {
+						readBatch(conn);
 					}
 				} finally {
 					conn.close();
@@ -266,6 +261,58 @@ public class GpxDbHelper {
 			return null;
 		}
 
+		// files which need analysis are analyzed in parallel, database is updated in this thread
+		private void readBatch(final SQLiteConnection conn) {
+			final Map<File, GpxDataItem> items = new HashMap<>();
+			List<File> filesToAnalyse = new ArrayList<>();
+			File gpxFile;
+			while (filesToAnalyse.size() < MAX_READING_BATCH_SIZE && (gpxFile = readingItems.poll()) != null) {
+				readingFiles.add(gpxFile);
+				GpxDataItem item = readingItemsMap.remove(gpxFile);
+				if (item != null && item.getFile() == null) {
+					item = db.getItem(gpxFile, conn);
+				}
+				if (isAnalyseNeeded(gpxFile, item)) {
+					items.put(gpxFile, item);
+					filesToAnalyse.add(gpxFile);
+				} else {
+					publishItem(gpxFile, item);
+				}
+			}
+			if (!filesToAnalyse.isEmpty() && !isCancelled()) {
+				BatchStatistics statistics = batchAnalyzer.analyze(filesToAnalyse, new AnalysisSink() {
+					@Override
+					public void onFileAnalyzed(File file, GPXTrackAnalysis analysis) {
+						GpxDataItem item = items.get(file);
+						if (item == null || item.getFile() == null) {
+							item = new GpxDataItem(file, analysis);
+							db.insert(item, conn);
+						} else {
+							db.updateAnalysis(item, analysis, conn);
+						}
+						publishItem(file, item);
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return GpxReaderTask.this.isCancelled();
+					}
+				});
+				if (statistics.getFiles() > 1) {
+					LOG.info(statistics.toString());
+				}
+			}
+			readingFiles.clear();
+		}
+
+		private void publishItem(@NonNull File gpxFile, @NonNull GpxDataItem item) {
+			putToCache(item);
+			readingFiles.remove(gpxFile);
+			if (!isCancelled()) {
+				publishProgress(item);
+			}
+		}
+
 		@Override
 		protected void onCancelled(Void aVoid) {
 			readingItems.clear();
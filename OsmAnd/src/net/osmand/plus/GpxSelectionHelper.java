@@ -18,9 +18,12 @@ import net.osmand.GPXUtilities.Track;
 import net.osmand.GPXUtilities.TrkSegment;
 import net.osmand.GPXUtilities.WptPt;
 import net.osmand.IProgress;
+import net.osmand.IncrementalTrackAnalysis;
 import net.osmand.IndexConstants;
 import net.osmand.PlatformUtil;
 import net.osmand.data.LatLon;
+import net.osmand.data.TrackSegmentIndex;
+import net.osmand.data.TracksIndex;
 import net.osmand.plus.GPXDatabase.GpxDataItem;
 import net.osmand.plus.activities.SavingTrackHelper;
 import net.osmand.plus.helpers.GpxUiHelper;
@@ -70,6 +73,9 @@ public class GpxSelectionHelper {
 	private final SavingTrackHelper savingTrackHelper;
 	@NonNull
 	private List<SelectedGpxFile> selectedGPXFiles = new ArrayList<>();
+	private TracksIndex<SelectedGpxFile> tracksIndex;
+	private List<SelectedGpxFile> indexedGpxFiles;
+	private List<List<TrackSegmentIndex>> indexedSegments;
 	private final Map<GPXFile, Long> selectedGpxFilesBackUp = new HashMap<>();
 	private SelectGpxTask selectGpxTask;
 
@@ -173,6 +179,34 @@ public class GpxSelectionHelper {
 		}
 	}
 
+	/**
+	 * @return spatial index of displayed segments of selected files, rebuilt when selection or segments change
+	 */
+	public TracksIndex<SelectedGpxFile> getTracksIndex() {
+		List<SelectedGpxFile> files = selectedGPXFiles;
+		List<List<TrackSegmentIndex>> segments = new ArrayList<>();
+		for (SelectedGpxFile selectedGpxFile : files) {
+			segments.add(selectedGpxFile.getSegmentIndexes());
+		}
+		boolean valid = tracksIndex != null && indexedGpxFiles == files && indexedSegments.size() == segments.size();
+		for (int i = 0; valid && i < segments.size(); i++) {
+			valid = indexedSegments.get(i) == segments.get(i);
+		}
+		if (!valid) {
+			TracksIndex.Builder<SelectedGpxFile> builder = new TracksIndex.Builder<>();
+			for (int i = 0; i < files.size(); i++) {
+				SelectedGpxFile selectedGpxFile = files.get(i);
+				for (TrackSegmentIndex index : segments.get(i)) {
+					builder.add(selectedGpxFile, index, selectedGpxFile.isShowCurrentTrack());
+				}
+			}
+			tracksIndex = builder.build();
+			indexedGpxFiles = files;
+			indexedSegments = segments;
+		}
+		return tracksIndex;
+	}
+
 	public SelectedGpxFile getSelectedGPXFile(WptPt point) {
 		for (SelectedGpxFile selectedGpxFile : selectedGPXFiles) {
 			GPXFile gpxFile = selectedGpxFile.getGpxFile();
@@ -850,9 +884,14 @@ public class GpxSelectionHelper {
 
 		private GPXFile gpxFile;
 		private GPXTrackAnalysis trackAnalysis;
+		// recorded track is analyzed incrementally
+		private IncrementalTrackAnalysis incrementalAnalysis;
 
 		private Set<String> hiddenGroups = new HashSet<>();
 		private List<TrkSegment> processedPointsToDisplay = new ArrayList<>();
+		// spatial indexes of points to display
+		private List<TrackSegmentIndex> segmentIndexes = new ArrayList<>();
+		private long segmentIndexesModifiedTime = -1;
 		private List<GpxDisplayGroup> displayGroups;
 
 		private int color;
@@ -884,9 +923,13 @@ public class GpxSelectionHelper {
 
 		private void update(OsmandApplication app) {
 			modifiedTime = gpxFile.modifiedTime;
-			trackAnalysis = gpxFile.getAnalysis(
-					Algorithms.isEmpty(gpxFile.path) ? System.currentTimeMillis() :
-							new File(gpxFile.path).lastModified());
+			long fileTimestamp = Algorithms.isEmpty(gpxFile.path) ? System.currentTimeMillis() :
+					new File(gpxFile.path).lastModified();
+			if (incrementalAnalysis != null) {
+				trackAnalysis = incrementalAnalysis.getAnalysis(gpxFile, fileTimestamp);
+			} else {
+				trackAnalysis = gpxFile.getAnalysis(fileTimestamp);
+			}
 			displayGroups = null;
 			splitProcessed = GpxSelectionHelper.processSplit(app);
 		}
@@ -919,6 +962,33 @@ public class GpxSelectionHelper {
 			return processedPointsToDisplay;
 		}
 
+		/**
+		 * Points appended to segments of recorded track are indexed incrementally,
+		 * indexes of other tracks are rebuilt when file is modified.
+		 */
+		public List<TrackSegmentIndex> getSegmentIndexes() {
+			List<TrkSegment> segments = getPointsToDisplay();
+			List<TrackSegmentIndex> indexes = segmentIndexes;
+			boolean valid = indexes.size() == segments.size()
+					&& (showCurrentTrack || segmentIndexesModifiedTime == gpxFile.modifiedTime);
+			for (int i = 0; valid && i < segments.size(); i++) {
+				valid = indexes.get(i).getPoints() == segments.get(i).points;
+			}
+			if (valid) {
+				for (TrackSegmentIndex index : indexes) {
+					index.update();
+				}
+			} else {
+				indexes = new ArrayList<>();
+				for (TrkSegment segment : segments) {
+					indexes.add(new TrackSegmentIndex(segment.points));
+				}
+				segmentIndexes = indexes;
+				segmentIndexesModifiedTime = gpxFile.modifiedTime;
+			}
+			return indexes;
+		}
+
 		public Set<String> getHiddenGroups() {
 			return Collections.unmodifiableSet(hiddenGroups);
 		}
@@ -946,6 +1016,7 @@ public class GpxSelectionHelper {
 
 		public void setShowCurrentTrack(boolean showCurrentTrack) {
 			this.showCurrentTrack = showCurrentTrack;
+			this.incrementalAnalysis = showCurrentTrack ? new IncrementalTrackAnalysis() : null;
 		}
 
 		public boolean isJoinSegments() {
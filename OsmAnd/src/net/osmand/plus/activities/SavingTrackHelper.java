@@ -8,6 +8,7 @@ import android.text.format.DateFormat;
 import androidx.annotation.NonNull;
 
 import net.osmand.AndroidUtils;
+import net.osmand.BinaryTrackFile;
 import net.osmand.GPXUtilities;
 import net.osmand.GPXUtilities.GPXFile;
 import net.osmand.GPXUtilities.GPXTrackAnalysis;
@@ -32,6 +33,7 @@ import net.osmand.util.MapUtils;
 import org.apache.commons.logging.Log;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -69,6 +71,8 @@ public class SavingTrackHelper extends SQLiteOpenHelper {
 
 	public final static float NO_HEADING = -1.0f;
 
+	public final static String RECORDING_FILE_NAME = "recording" + BinaryTrackFile.FILE_EXT; //$NON-NLS-1$
+
 	public final static Log log = PlatformUtil.getLog(SavingTrackHelper.class);
 
 	private long lastTimeUpdated = 0;
@@ -84,6 +88,7 @@ public class SavingTrackHelper extends SQLiteOpenHelper {
 	private long lastTimeFileSaved;
 
 	private ApplicationMode lastRoutingApplicationMode;
+	private BinaryTrackFile.Appender recordingFile;
 
 	public SavingTrackHelper(OsmandApplication ctx) {
 		super(ctx, DATABASE_NAME, null, DATABASE_VERSION);
@@ -269,6 +274,7 @@ public class SavingTrackHelper extends SQLiteOpenHelper {
 					db.close();
 				}
 			}
+			createRecordingFile(new ArrayList<WptPt>());
 		}
 		distance = 0;
 		points = 0;
@@ -281,13 +287,13 @@ public class SavingTrackHelper extends SQLiteOpenHelper {
 		prepareCurrentTrackForRecording();
 	}
 
-	public Map<String, GPXFile> collectRecordedData() {
+	public synchronized Map<String, GPXFile> collectRecordedData() {
 		Map<String, GPXFile> data = new LinkedHashMap<String, GPXFile>();
 		SQLiteDatabase db = getReadableDatabase();
 		if (db != null && db.isOpen()) {
 			try {
 				collectDBPoints(db, data);
-				collectDBTracks(db, data);
+				collectTracks(db, data);
 			} finally {
 				db.close();
 			}
@@ -336,13 +342,31 @@ public class SavingTrackHelper extends SQLiteOpenHelper {
 		query.close();
 	}
 
-	private void collectDBTracks(SQLiteDatabase db, Map<String, GPXFile> dataTracks) {
+	private void collectTracks(SQLiteDatabase db, Map<String, GPXFile> dataTracks) {
+		List<WptPt> rows = readRecordingFile(getTrackRowsCount(db));
+		if (rows == null) {
+			rows = collectDBTrackRows(db);
+			createRecordingFile(rows);
+		} else if (recordingFile == null) {
+			openRecordingFile();
+		}
+		collectTracks(rows, dataTracks);
+	}
+
+	private long getTrackRowsCount(SQLiteDatabase db) {
+		long count = 0;
+		Cursor query = db.rawQuery("SELECT COUNT(*) FROM " + TRACK_NAME, null); //$NON-NLS-1$
+		if (query.moveToFirst()) {
+			count = query.getLong(0);
+		}
+		query.close();
+		return count;
+	}
+
+	private List<WptPt> collectDBTrackRows(SQLiteDatabase db) {
+		List<WptPt> rows = new ArrayList<>();
 		Cursor query = db.rawQuery("SELECT " + TRACK_COL_LAT + "," + TRACK_COL_LON + "," + TRACK_COL_ALTITUDE + "," //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 				+ TRACK_COL_SPEED + "," + TRACK_COL_HDOP + "," + TRACK_COL_DATE + "," + TRACK_COL_HEADING + " FROM " + TRACK_NAME + " ORDER BY " + TRACK_COL_DATE + " ASC", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
-		long previousTime = 0;
-		long previousInterval = 0;
-		TrkSegment segment = null;
-		Track track = null;
 		if (query.moveToFirst()) {
 			do {
 				WptPt pt = new WptPt();
@@ -351,48 +375,59 @@ public class SavingTrackHelper extends SQLiteOpenHelper {
 				pt.ele = query.getDouble(2);
 				pt.speed = query.getDouble(3);
 				pt.hdop = query.getDouble(4);
-				long time = query.getLong(5);
-				pt.time = time;
+				pt.time = query.getLong(5);
 				float heading = query.getFloat(6);
 				pt.heading = heading == NO_HEADING ? Float.NaN : heading;
-				long currentInterval = Math.abs(time - previousTime);
-				boolean newInterval = pt.lat == 0 && pt.lon == 0;
+				rows.add(pt);
+			} while (query.moveToNext());
+		}
+		query.close();
+		return rows;
+	}
 
-				if (track != null && !newInterval && (!settings.AUTO_SPLIT_RECORDING.get()
-						|| currentInterval < 6 * 60 * 1000 || currentInterval < 10 * previousInterval)) {
-					// 6 minute - same segment
+	private void collectTracks(List<WptPt> rows, Map<String, GPXFile> dataTracks) {
+		long previousTime = 0;
+		long previousInterval = 0;
+		TrkSegment segment = null;
+		Track track = null;
+		for (WptPt pt : rows) {
+			long time = pt.time;
+			long currentInterval = Math.abs(time - previousTime);
+			boolean newInterval = pt.lat == 0 && pt.lon == 0;
+
+			if (track != null && !newInterval && (!settings.AUTO_SPLIT_RECORDING.get()
+					|| currentInterval < 6 * 60 * 1000 || currentInterval < 10 * previousInterval)) {
+				// 6 minute - same segment
+				segment.points.add(pt);
+			} else if (track != null && (settings.AUTO_SPLIT_RECORDING.get()
+					&& currentInterval < 2 * 60 * 60 * 1000)) {
+				// 2 hour - same track
+				segment = new TrkSegment();
+				if (!newInterval) {
 					segment.points.add(pt);
-				} else if (track != null && (settings.AUTO_SPLIT_RECORDING.get()
-						&& currentInterval < 2 * 60 * 60 * 1000)) {
-					// 2 hour - same track
-					segment = new TrkSegment();
-					if (!newInterval) {
-						segment.points.add(pt);
-					}
-					track.segments.add(segment);
+				}
+				track.segments.add(segment);
+			} else {
+				// check if date the same - new track otherwise new file  
+				track = new Track();
+				segment = new TrkSegment();
+				track.segments.add(segment);
+				if (!newInterval) {
+					segment.points.add(pt);
+				}
+				String date = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date(time));  //$NON-NLS-1$
+				if (dataTracks.containsKey(date)) {
+					GPXFile gpx = dataTracks.get(date);
+					gpx.tracks.add(track);
 				} else {
-					// check if date the same - new track otherwise new file  
-					track = new Track();
-					segment = new TrkSegment();
-					track.segments.add(segment);
-					if (!newInterval) {
-						segment.points.add(pt);
-					}
-					String date = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date(time));  //$NON-NLS-1$
-					if (dataTracks.containsKey(date)) {
-						GPXFile gpx = dataTracks.get(date);
-						gpx.tracks.add(track);
-					} else {
-						GPXFile file = new GPXFile(Version.getFullVersion(ctx));
-						file.tracks.add(track);
-						dataTracks.put(date, file);
-					}
+					GPXFile file = new GPXFile(Version.getFullVersion(ctx));
+					file.tracks.add(track);
+					dataTracks.put(date, file);
 				}
-				previousInterval = currentInterval;
-				previousTime = time;
-			} while (query.moveToNext());
+			}
+			previousInterval = currentInterval;
+			previousTime = time;
 		}
-		query.close();
 
 		// drop empty tracks
 		List<String> datesToRemove = new ArrayList<>();
@@ -493,6 +528,103 @@ public class SavingTrackHelper extends SQLiteOpenHelper {
 		trkPoints++;
 	}
 
+	/**
+	 * @return binary track file with the same rows (segment breaks are points with zero coordinates) as track table,
+	 * recorded tracks are restored from it when it has as many points as table has rows
+	 */
+	public File getRecordingFile() {
+		return new File(ctx.getFilesDir(), RECORDING_FILE_NAME);
+	}
+
+	private List<WptPt> readRecordingFile(long rowsCount) {
+		File file = getRecordingFile();
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			BinaryTrackFile trackFile = BinaryTrackFile.open(file);
+			try {
+				long size = 0;
+				for (BinaryTrackFile.Chunk chunk : trackFile.getChunks()) {
+					size += chunk.getSize();
+				}
+				if (size != rowsCount) {
+					log.info("Recording file has " + size + " points, database has " + rowsCount + " rows");
+					return null;
+				}
+				List<WptPt> rows = new ArrayList<>((int) size);
+				for (Track track : trackFile.toGpxFile().tracks) {
+					if (!track.generalTrack) {
+						for (TrkSegment segment : track.segments) {
+							rows.addAll(segment.points);
+						}
+					}
+				}
+				return rows;
+			} finally {
+				trackFile.close();
+			}
+		} catch (IOException e) {
+			log.error("Error reading recording file", e);
+			return null;
+		}
+	}
+
+	private synchronized void createRecordingFile(List<WptPt> rows) {
+		closeRecordingFile();
+		try {
+			recordingFile = BinaryTrackFile.Appender.create(getRecordingFile(),
+					new GPXFile(Version.getFullVersion(ctx)), BinaryTrackFile.DEFAULT_CHUNK_SIZE);
+			for (WptPt row : rows) {
+				recordingFile.append(row);
+			}
+			recordingFile.flush();
+		} catch (IOException e) {
+			log.error("Error writing recording file", e);
+			deleteRecordingFile();
+		}
+	}
+
+	private void openRecordingFile() {
+		try {
+			recordingFile = BinaryTrackFile.Appender.open(getRecordingFile(),
+					new GPXFile(Version.getFullVersion(ctx)), BinaryTrackFile.DEFAULT_CHUNK_SIZE);
+		} catch (IOException e) {
+			log.error("Error opening recording file", e);
+			deleteRecordingFile();
+		}
+	}
+
+	// file is written only after it was restored or created from database, so it doesn't miss rows
+	private void appendToRecordingFile(WptPt row) {
+		if (recordingFile != null) {
+			try {
+				recordingFile.append(row);
+				recordingFile.flush();
+			} catch (IOException e) {
+				log.error("Error writing recording file", e);
+				deleteRecordingFile();
+			}
+		}
+	}
+
+	// file is created again from database on next restore
+	private void deleteRecordingFile() {
+		closeRecordingFile();
+		getRecordingFile().delete();
+	}
+
+	private void closeRecordingFile() {
+		if (recordingFile != null) {
+			try {
+				recordingFile.close();
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+			}
+			recordingFile = null;
+		}
+	}
+
 	private void addTrackPoint(WptPt pt, boolean newSegment, long time) {
 		List<TrkSegment> points = currentTrack.getModifiablePointsToDisplay();
 		Track track = currentTrack.getModifiableGpxFile().tracks.get(0);
@@ -685,7 +817,7 @@ public class SavingTrackHelper extends SQLiteOpenHelper {
 		}
 	}
 
-	private void executeInsertTrackQuery(double lat, double lon, double alt, double speed, double hdop, long time, float heading) {
+	private synchronized void executeInsertTrackQuery(double lat, double lon, double alt, double speed, double hdop, long time, float heading) {
 		Map<String, Object> rowsMap = new LinkedHashMap<>();
 		rowsMap.put(TRACK_COL_LAT, lat);
 		rowsMap.put(TRACK_COL_LON, lon);
@@ -695,6 +827,7 @@ public class SavingTrackHelper extends SQLiteOpenHelper {
 		rowsMap.put(TRACK_COL_DATE, time);
 		rowsMap.put(TRACK_COL_HEADING, heading);
 		execWithClose(AndroidUtils.createDbInsertQuery(TRACK_NAME, rowsMap.keySet()), rowsMap.values().toArray());
+		appendToRecordingFile(new WptPt(lat, lon, time, alt, speed, hdop, heading == NO_HEADING ? Float.NaN : heading));
 	}
 
 	public void loadGpxFromDatabase() {
@@ -706,7 +839,7 @@ public class SavingTrackHelper extends SQLiteOpenHelper {
 		}
 		currentTrack.processPoints(ctx);
 		prepareCurrentTrackForRecording();
-		GPXTrackAnalysis analysis = currentTrack.getModifiableGpxFile().getAnalysis(System.currentTimeMillis());
+		GPXTrackAnalysis analysis = currentTrack.getTrackAnalysis(ctx);
 		distance = analysis.totalDistance;
 		points = analysis.wptPoints;
 		duration = analysis.timeSpan;
@@ -48,6 +48,7 @@ public class DevelopmentSettingsFragment extends BaseSettingsFragment {
 		setupDebugRenderingInfoPref();
 		setupSimulateInitialStartupPref();
 		setupFullscreenMapDrawingModePref();
+		setupNamePrefixIndexesPref();
 		setupShouldShowFreeVersionBannerPref();
 		setupTestVoiceCommandsPref();
 		setupLogcatBufferPref();
@@ -119,6 +120,12 @@ public class DevelopmentSettingsFragment extends BaseSettingsFragment {
 		fullscreenMapDrawingMode.setIconSpaceReserved(false);
 	}
 
+	private void setupNamePrefixIndexesPref() {
+		SwitchPreferenceEx namePrefixIndexes = findPreference(settings.NAME_PREFIX_INDEXES.getId());
+		namePrefixIndexes.setDescription(getString(R.string.name_prefix_indexes_descr));
+		namePrefixIndexes.setIconSpaceReserved(false);
+	}
+
 	private void setupTestVoiceCommandsPref() {
 		Preference testVoiceCommands = findPreference("test_voice_commands");
 		testVoiceCommands.setIntent(new Intent(getActivity(), TestVoiceActivity.class));
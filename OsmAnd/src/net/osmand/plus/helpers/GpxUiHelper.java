@@ -88,6 +88,7 @@ import net.osmand.GPXUtilities.WptPt;
 import net.osmand.IndexConstants;
 import net.osmand.Location;
 import net.osmand.PlatformUtil;
+import net.osmand.TrackPyramid;
 import net.osmand.plus.ColorUtilities;
 import net.osmand.plus.ContextMenuAdapter;
 import net.osmand.plus.ContextMenuItem;
@@ -1275,10 +1276,9 @@ public class GpxUiHelper {
 		return 1f;
 	}
 
-	private static List<Entry> calculateElevationArray(GPXTrackAnalysis analysis, GPXDataSetAxisType axisType,
+	private static List<Entry> calculateElevationArray(List<Elevation> elevationData, GPXDataSetAxisType axisType,
 													   float divX, float convEle, boolean useGeneralTrackPoints, boolean calcWithoutGaps) {
 		List<Entry> values = new ArrayList<>();
-		List<Elevation> elevationData = analysis.elevationData;
 		float nextX = 0;
 		float nextY;
 		float elev;
@@ -1466,7 +1466,9 @@ public class GpxUiHelper {
 			}
 		});
 
-		List<Entry> values = calculateElevationArray(analysis, axisType, divX, convEle, true, calcWithoutGaps);
+		// chart can't show more details, the most important points of profile are kept
+		List<Elevation> elevationData = TrackPyramid.simplifyElevationData(analysis.elevationData, MAX_CHART_DATA_ITEMS);
+		List<Entry> values = calculateElevationArray(elevationData, axisType, divX, convEle, true, calcWithoutGaps);
 
 		OrderedLineDataSet dataSet = new OrderedLineDataSet(values, "", GPXDataSetType.ALTITUDE, axisType);
 		dataSet.priority = (float) (analysis.avgElevation - analysis.minElevation) * convEle;
@@ -1726,7 +1728,7 @@ public class GpxUiHelper {
 
 		List<Entry> values;
 		if (eleValues == null) {
-			values = calculateElevationArray(analysis, GPXDataSetAxisType.DISTANCE, 1f, 1f, false, calcWithoutGaps);
+			values = calculateElevationArray(analysis.elevationData, GPXDataSetAxisType.DISTANCE, 1f, 1f, false, calcWithoutGaps);
 		} else {
 			values = new ArrayList<>(eleValues.size());
 			for (Entry e : eleValues) {
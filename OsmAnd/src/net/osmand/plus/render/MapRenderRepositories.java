@@ -20,6 +20,8 @@ import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
+import net.osmand.binary.BinaryMapSpatialIndex;
+import net.osmand.binary.BinaryMapSpatialIndex.IndexDataType;
 import net.osmand.binary.RouteDataObject;
 import net.osmand.data.QuadPointDouble;
 import net.osmand.data.QuadRect;
@@ -82,6 +84,7 @@ public class MapRenderRepositories {
 	static int zoomForBaseRouteRendering  = 14;
 	private final Handler handler;
 	private Map<String, BinaryMapIndexReader> files = new LinkedHashMap<>();
+	private final BinaryMapSpatialIndex filesSpatialIndex = new BinaryMapSpatialIndex();
 	private final Set<String> nativeFiles = new HashSet<>();
 	private final Set<String> hiddenFileNames = new HashSet<>();
 	private final Set<String> hiddenFileExtensions = new HashSet<>();
@@ -186,12 +189,16 @@ public class MapRenderRepositories {
 		LinkedHashMap<String, BinaryMapIndexReader> cpfiles = new LinkedHashMap<>(files);
 		cpfiles.put(fileName, reader);
 		files = cpfiles;
+		filesSpatialIndex.addReader(reader);
 	}
 
 	public synchronized void closeConnection(String file) {
 		LinkedHashMap<String, BinaryMapIndexReader> cpfiles = new LinkedHashMap<String, BinaryMapIndexReader>(files);
 		BinaryMapIndexReader bmir = cpfiles.remove(file);
 		files = cpfiles;
+		if (bmir != null) {
+			filesSpatialIndex.removeReader(bmir);
+		}
 		if (nativeFiles.contains(file)) {
 			NativeOsmandLibrary lib = NativeOsmandLibrary.getLoadedLibrary();
 			if (lib != null) {
@@ -212,12 +219,7 @@ public class MapRenderRepositories {
 	public boolean containsLatLonMapData(double lat, double lon, int zoom) {
 		int x = MapUtils.get31TileNumberX(lon);
 		int y = MapUtils.get31TileNumberY(lat);
-		for (BinaryMapIndexReader reader : files.values()) {
-			if (reader.containsMapData(x, y, zoom)) {
-				return true;
-			}
-		}
-		return false;
+		return filesSpatialIndex.contains(IndexDataType.MAP, x, y, x, y, zoom);
 	}
 
 	public void clearAllResources() {
@@ -335,11 +337,13 @@ public class MapRenderRepositories {
 		}
 		boolean containsJapanMapData = false;
 		boolean useLive = context.getSettings().USE_OSM_LIVE_FOR_ROUTING.get();
+		Set<BinaryMapIndexReader> intersected = new HashSet<>(
+				filesSpatialIndex.query(IndexDataType.MAP, leftX, topY, rightX, bottomY, zoom));
+		intersected.addAll(filesSpatialIndex.query(IndexDataType.ROUTE, leftX, topY, rightX, bottomY, -1));
 		for (Map.Entry<String, BinaryMapIndexReader> entry : files.entrySet()) {
 			String mapName = entry.getKey();
 			BinaryMapIndexReader fr = entry.getValue();
-			if (fr != null && (fr.containsMapData(leftX, topY, rightX, bottomY, zoom) ||
-					fr.containsRouteData(leftX, topY, rightX, bottomY, zoom))) {
+			if (fr != null && intersected.contains(fr)) {
 				if (!nativeFiles.contains(mapName)) {
 					long time = System.currentTimeMillis();
 					nativeFiles.add(mapName);
@@ -568,7 +572,9 @@ public class MapRenderRepositories {
 		MapIndex mi = null;
 		searchRequest = BinaryMapIndexReader.buildSearchRequest(leftX, rightX, topY, bottomY, zoom, searchFilter);
 		boolean containsJapanMapData = false;
-		for (BinaryMapIndexReader c : files.values()) {
+		List<BinaryMapIndexReader> intersectedFiles = filesSpatialIndex.query(IndexDataType.MAP,
+				leftX, topY, rightX, bottomY, zoom);
+		for (BinaryMapIndexReader c : intersectedFiles) {
 			boolean basemap = c.isBasemap();
 			searchRequest.clearSearchResults();
 			List<BinaryMapDataObject> res;
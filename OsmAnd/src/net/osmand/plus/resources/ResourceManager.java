@@ -25,6 +25,7 @@ import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
 import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiSubType;
 import net.osmand.binary.CachedOsmandIndexes;
+import net.osmand.binary.NamePrefixIndexCache;
 import net.osmand.data.Amenity;
 import net.osmand.data.RotatedTileBox;
 import net.osmand.data.TransportRoute;
@@ -92,6 +93,8 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ResourceManager {
 
 	private static final String INDEXES_CACHE = "ind.cache";
+	private static final String INDEXES_CACHE_JOURNAL = "ind.journal";
+	private static final String INDEXES_NAMES_CACHE = "ind.names";
 	public static final String DEFAULT_WIKIVOYAGE_TRAVEL_OBF = "Default_wikivoyage.travel.obf";
 
 	private static final Log log = PlatformUtil.getLog(ResourceManager.class);
@@ -721,13 +724,29 @@ public class ResourceManager {
 		renderer.clearAllResources();
 		CachedOsmandIndexes cachedOsmandIndexes = new CachedOsmandIndexes();
 		File indCache = context.getAppPath(INDEXES_CACHE);
-		if (indCache.exists()) {
+		File indCacheJournal = context.getAppPath(INDEXES_CACHE_JOURNAL);
+		if (indCache.exists() && !indCacheJournal.exists()) {
 			try {
 				cachedOsmandIndexes.readFromFile(indCache, CachedOsmandIndexes.VERSION);
 			} catch (Exception e) {
 				log.error(e.getMessage(), e);
 			}
 		}
+		try {
+			cachedOsmandIndexes.readFromJournal(indCacheJournal, CachedOsmandIndexes.VERSION);
+		} catch (Exception e) {
+			log.error(e.getMessage(), e);
+		}
+		boolean useNamePrefixIndexes = context.getSettings().NAME_PREFIX_INDEXES.get();
+		NamePrefixIndexCache namePrefixIndexes = new NamePrefixIndexCache();
+		File indNamesCache = context.getAppPath(INDEXES_NAMES_CACHE);
+		if (useNamePrefixIndexes && indNamesCache.exists()) {
+			try {
+				namePrefixIndexes.readFromFile(indNamesCache);
+			} catch (Exception e) {
+				log.error(e.getMessage(), e);
+			}
+		}
 		File liveDir = context.getAppPath(IndexConstants.LIVE_INDEX_DIR);
 		depthContours = false;
 		File worldBasemapStd = null;
@@ -812,6 +831,13 @@ public class ResourceManager {
 						// travel files should be indexed separately (so it's possible to turn on / off)
 						continue;
 					}
+					if (useNamePrefixIndexes && (mapReader.containsPoiData() || !mapReader.getRegionNames().isEmpty())) {
+						try {
+							namePrefixIndexes.attach(mapReader, f);
+						} catch (IOException e) {
+							log.error(String.format("Name index of %s could not be read", fileName), e);
+						}
+					}
 					if (!mapReader.getRegionNames().isEmpty()) {
 						RegionAddressRepositoryBinary rarb = new RegionAddressRepositoryBinary(this, resource);
 						addressMap.put(fileName, rarb);
@@ -866,7 +892,26 @@ public class ResourceManager {
 			category.addExtraPoiTypes(next.getValue());
 		}
 		log.debug("All map files initialized " + (System.currentTimeMillis() - val) + " ms");
-		if (files.size() > 0 && (!indCache.exists() || indCache.canWrite())) {
+		if (files.size() > 0 && (!indCacheJournal.exists() || indCacheJournal.canWrite())) {
+			try {
+				cachedOsmandIndexes.retainFiles(files);
+				cachedOsmandIndexes.writeToJournal();
+			} catch (Exception e) {
+				log.error("Index cache journal could not be written", e);
+			}
+		}
+		if (useNamePrefixIndexes && files.size() > 0 && (!indNamesCache.exists() || indNamesCache.canWrite())) {
+			try {
+				namePrefixIndexes.retainFiles(files);
+				namePrefixIndexes.writeToFile(indNamesCache);
+			} catch (Exception e) {
+				log.error("Name index cache could not be written", e);
+			}
+		}
+		// native library (not used in safe mode) reads boundaries from the full protobuf cache,
+		// it's rewritten only when journal is compacted, files missing in it are read by native library
+		if (files.size() > 0 && !context.getSettings().SAFE_MODE.get()
+				&& (!indCache.exists() || indCache.canWrite())) {
 			try {
 				cachedOsmandIndexes.writeToFile(indCache);
 			} catch (Exception e) {
@@ -66,6 +66,7 @@ public class QuickSearchHelper implements ResourceListener {
 	public static final int SEARCH_HISTORY_OBJECT_PRIORITY = 154;
 	public static final int SEARCH_ONLINE_API_PRIORITY = 500;
 	public static final int SEARCH_ONLINE_AMENITY_PRIORITY = 500;
+	private static final int SEARCH_PRELOAD_MEMORY_PART = 16;
 
 	private final OsmandApplication app;
 	private final SearchUICore core;
@@ -114,6 +115,9 @@ public class QuickSearchHelper implements ResourceListener {
 		core.registerAPI(new SearchOnlineApi(app));
 
 		refreshCustomPoiFilters();
+		// first search around last map location shouldn't wait for lazy index reading
+		long memoryBudget = Runtime.getRuntime().maxMemory() / SEARCH_PRELOAD_MEMORY_PART;
+		core.preload(app.getSettings().getLastKnownMapLocation(), memoryBudget, null);
 	}
 
 	public void refreshCustomPoiFilters() {
@@ -3,6 +3,7 @@ package net.osmand.plus.track;
 import net.osmand.GPXUtilities.GPXFile;
 import net.osmand.GPXUtilities.TrkSegment;
 import net.osmand.GPXUtilities.WptPt;
+import net.osmand.TrackPyramid;
 import net.osmand.plus.GpxSelectionHelper.SelectedGpxFile;
 import net.osmand.plus.OsmandApplication;
 import net.osmand.plus.routing.ColoringType;
@@ -10,22 +11,32 @@ import net.osmand.plus.routing.RouteProvider;
 import net.osmand.render.RenderingRulesStorage;
 import net.osmand.router.RouteColorize;
 import net.osmand.router.RouteColorize.ColorizationType;
-import net.osmand.router.RouteColorize.RouteColorizationPoint;
 import net.osmand.router.RouteSegmentResult;
 import net.osmand.router.RouteStatisticsHelper;
+import net.osmand.util.Algorithms;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 public class CachedTrack {
 
+	// pyramids of smaller tracks are built faster than read
+	private static final int MIN_POINTS_TO_CACHE_PYRAMID = 10000;
+
+	// pyramids of large tracks are read or built and written to cache file not in render thread
+	private static final ExecutorService pyramidExecutor = Executors.newSingleThreadExecutor();
+
 	private final OsmandApplication app;
 
 	private final SelectedGpxFile selectedGpxFile;
@@ -34,6 +45,9 @@ public class CachedTrack {
 	private Set<String> availableColoringTypes = null;
 
 	private final Map<Integer, List<RouteSegmentResult>> routeCache = new HashMap<>();
+	private final Map<GradientScaleType, RouteColorize> colorizeCache = new HashMap<>();
+	private volatile TrackPyramid trackPyramid;
+	private boolean pyramidRequested;
 
 	private long prevModifiedTime = -1;
 
@@ -71,6 +85,9 @@ public class CachedTrack {
 			List<TrkSegment> segments = segmentsCache.get(trackId);
 			if (segments == null) {
 				segments = calculateGradientTrack(selectedGpxFile, zoom, scaleType);
+				if (segments == null) {
+					return Collections.emptyList();
+				}
 				segmentsCache.put(trackId, segments);
 			}
 			return segments;
@@ -78,22 +95,82 @@ public class CachedTrack {
 			clearCaches();
 			prevModifiedTime = gpxFile.modifiedTime;
 			List<TrkSegment> segments = calculateGradientTrack(selectedGpxFile, zoom, scaleType);
+			if (segments == null) {
+				return Collections.emptyList();
+			}
 			segmentsCache.put(trackId, segments);
 			return segments;
 		}
 	}
 
+	/**
+	 * @return null if pyramid of large track is not ready yet, map is refreshed when it's loaded
+	 */
+	@Nullable
 	private List<TrkSegment> calculateGradientTrack(SelectedGpxFile selectedGpxFile, int zoom,
 	                                                GradientScaleType scaleType) {
 		GPXFile gpxFile = selectedGpxFile.getGpxFile();
-		RouteColorize colorize = new RouteColorize(zoom, gpxFile, selectedGpxFile.getTrackAnalysis(app),
-				scaleType.toColorizationType(), app.getSettings().getApplicationMode().getMaxSpeed());
-		List<RouteColorizationPoint> colorsOfPoints = colorize.getResult(true);
-		return createSimplifiedSegments(selectedGpxFile.getGpxFile(), colorsOfPoints, scaleType);
+		RouteColorize colorize = colorizeCache.get(scaleType);
+		if (colorize == null) {
+			colorize = new RouteColorize(zoom, gpxFile, selectedGpxFile.getTrackAnalysis(app),
+					scaleType.toColorizationType(), app.getSettings().getApplicationMode().getMaxSpeed());
+			colorizeCache.put(scaleType, colorize);
+		}
+		TrackPyramid pyramid = trackPyramid;
+		if (pyramid == null && colorize.latitudes.length >= MIN_POINTS_TO_CACHE_PYRAMID) {
+			File file = getTrackFile();
+			if (file != null) {
+				if (!pyramidRequested) {
+					pyramidRequested = true;
+					loadTrackPyramid(file, colorize.latitudes, colorize.longitudes, prevModifiedTime);
+				}
+				return null;
+			}
+		}
+		colorize.setPyramid(pyramid);
+		colorize.setZoom(zoom);
+		int[] indexes = colorize.getSimplifiedIndexes();
+		if (pyramid == null) {
+			trackPyramid = colorize.getPyramid();
+		}
+		return createSimplifiedSegments(gpxFile, indexes, colorize.getColors(), scaleType);
+	}
+
+	private void loadTrackPyramid(@NonNull final File file, @NonNull final double[] latitudes,
+	                              @NonNull final double[] longitudes, final long modifiedTime) {
+		pyramidExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				File cacheFile = TrackPyramid.getCacheFile(file);
+				TrackPyramid pyramid = TrackPyramid.readFromFile(cacheFile, file.lastModified(), latitudes.length);
+				if (pyramid == null) {
+					pyramid = TrackPyramid.forGeometry(latitudes, longitudes);
+					pyramid.writeToFile(cacheFile, file.lastModified());
+				}
+				if (modifiedTime == selectedGpxFile.getGpxFile().modifiedTime) {
+					trackPyramid = pyramid;
+					app.runInUIThread(new Runnable() {
+						@Override
+						public void run() {
+							app.getOsmandMap().refreshMap();
+						}
+					});
+				}
+			}
+		});
+	}
+
+	@Nullable
+	private File getTrackFile() {
+		GPXFile gpxFile = selectedGpxFile.getGpxFile();
+		if (selectedGpxFile.isShowCurrentTrack() || Algorithms.isEmpty(gpxFile.path)) {
+			return null;
+		}
+		File file = new File(gpxFile.path);
+		return file.exists() ? file : null;
 	}
 
-	private List<TrkSegment> createSimplifiedSegments(GPXFile gpxFile,
-	                                                  List<RouteColorizationPoint> colorizationPoints,
+	private List<TrkSegment> createSimplifiedSegments(GPXFile gpxFile, int[] indexes, int[] colors,
 	                                                  GradientScaleType scaleType) {
 		List<TrkSegment> simplifiedSegments = new ArrayList<>();
 		ColorizationType colorizationType = scaleType.toColorizationType();
@@ -104,13 +181,12 @@ public class CachedTrack {
 			TrkSegment simplifiedSegment = new TrkSegment();
 			simplifiedSegments.add(simplifiedSegment);
 			for (WptPt pt : segment.points) {
-				if (colorPointIdx >= colorizationPoints.size()) {
+				if (colorPointIdx >= indexes.length) {
 					return simplifiedSegments;
 				}
-				RouteColorizationPoint colorPoint = colorizationPoints.get(colorPointIdx);
-				if (colorPoint.id == id) {
+				if (indexes[colorPointIdx] == id) {
 					simplifiedSegment.points.add(pt);
-					pt.setColor(colorizationType, colorPoint.color);
+					pt.setColor(colorizationType, colors[id]);
 					colorPointIdx++;
 				}
 				id++;
@@ -164,5 +240,8 @@ public class CachedTrack {
 	private void clearCaches() {
 		segmentsCache.clear();
 		routeCache.clear();
+		colorizeCache.clear();
+		trackPyramid = null;
+		pyramidRequested = false;
 	}
 }
\ No newline at end of file
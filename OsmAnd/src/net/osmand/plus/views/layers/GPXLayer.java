@@ -1,6 +1,5 @@
 package net.osmand.plus.views.layers;
 
-import static net.osmand.GPXUtilities.calculateTrackBounds;
 import static net.osmand.plus.dialogs.ConfigureMapMenu.CURRENT_TRACK_COLOR_ATTR;
 import static net.osmand.plus.dialogs.ConfigureMapMenu.CURRENT_TRACK_WIDTH_ATTR;
 
@@ -24,7 +23,6 @@ import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 
 import net.osmand.AndroidUtils;
-import net.osmand.GPXUtilities;
 import net.osmand.GPXUtilities.GPXFile;
 import net.osmand.GPXUtilities.TrkSegment;
 import net.osmand.GPXUtilities.WptPt;
@@ -35,6 +33,8 @@ import net.osmand.data.PointDescription;
 import net.osmand.data.QuadRect;
 import net.osmand.data.QuadTree;
 import net.osmand.data.RotatedTileBox;
+import net.osmand.data.TrackSegmentIndex;
+import net.osmand.data.TracksIndex.SegmentEntry;
 import net.osmand.plus.ChartPointsHelper;
 import net.osmand.plus.ColorUtilities;
 import net.osmand.plus.GPXDatabase.GpxDataItem;
@@ -84,11 +84,14 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import gnu.trove.list.array.TIntArrayList;
+
 public class GPXLayer extends OsmandMapLayer implements IContextMenuProvider, IMoveObjectProvider, MapTextProvider<WptPt> {
 
 	private static final Log log = PlatformUtil.getLog(GPXLayer.class);
@@ -443,7 +446,7 @@ public class GPXLayer extends OsmandMapLayer implements IContextMenuProvider, IM
 				ColoringType coloringType = ColoringType.getNonNullTrackColoringTypeByName(coloringTypeName);
 
 				if (!showArrows || coloringType.isRouteInfoAttribute()
-						|| !QuadRect.trivialOverlap(correctedQuadRect, calculateTrackBounds(selectedGpxFile.getPointsToDisplay()))) {
+						|| !QuadRect.trivialOverlap(correctedQuadRect, getTrackBounds(selectedGpxFile))) {
 					continue;
 				}
 				String width = getTrackWidthName(selectedGpxFile.getGpxFile(), defaultTrackWidthPref.get());
@@ -644,7 +647,7 @@ public class GPXLayer extends OsmandMapLayer implements IContextMenuProvider, IM
 		String routeIndoAttribute = ColoringType.getRouteInfoAttribute(coloringTypeName);
 
 		boolean visible = QuadRect.trivialOverlap(tileBox.getLatLonBounds(),
-				calculateTrackBounds(selectedGpxFile.getPointsToDisplay()));
+				getTrackBounds(selectedGpxFile));
 		if (!gpxFile.hasTrkPt() && coloringType.isGradient() || !visible) {
 			segmentsCache.remove(selectedGpxFile.getGpxFile().path);
 			return;
@@ -855,33 +858,61 @@ public class GPXLayer extends OsmandMapLayer implements IContextMenuProvider, IM
 		}
 	}
 
+	private QuadRect getTrackBounds(SelectedGpxFile selectedGpxFile) {
+		// bounds of segments are kept by spatial indexes instead of iterating all points for every frame
+		QuadRect trackBounds = new QuadRect(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+		for (TrackSegmentIndex index : selectedGpxFile.getSegmentIndexes()) {
+			if (!index.isEmpty()) {
+				trackBounds.left = Math.min(trackBounds.left, MapUtils.get31LongitudeX(index.getLeft()));
+				trackBounds.right = Math.max(trackBounds.right, MapUtils.get31LongitudeX(index.getRight()));
+				trackBounds.top = Math.max(trackBounds.top, MapUtils.get31LatitudeY(index.getTop()));
+				trackBounds.bottom = Math.min(trackBounds.bottom, MapUtils.get31LatitudeY(index.getBottom()));
+			}
+		}
+		return trackBounds;
+	}
+
 	public void getTracksFromPoint(RotatedTileBox tb, PointF point, List<Object> res, boolean showTrackPointMenu) {
 		int r = getScaledTouchRadius(view.getApplication(), getDefaultRadiusPoi(tb));
 		int mx = (int) point.x;
 		int my = (int) point.y;
-		List<SelectedGpxFile> selectedGpxFiles = new ArrayList<>(selectedGpxHelper.getSelectedGPXFiles());
-		for (SelectedGpxFile selectedGpxFile : selectedGpxFiles) {
-			Pair<WptPt, WptPt> points = findPointsNearSegments(selectedGpxFile.getPointsToDisplay(), tb, r, mx, my);
-			if (points != null) {
-				LatLon latLon = tb.getLatLonFromPixel(mx, my);
-				res.add(createSelectedGpxPoint(selectedGpxFile, points.first, points.second, latLon,
-						showTrackPointMenu));
+		// box of touch area on rotated map, margin covers rounding of pixels
+		int margin = r + 2;
+		int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE, right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+		for (int dx = -margin; dx <= margin; dx += 2 * margin) {
+			for (int dy = -margin; dy <= margin; dy += 2 * margin) {
+				LatLon latLon = tb.getLatLonFromPixel(mx + dx, my + dy);
+				int x31 = MapUtils.get31TileNumberX(latLon.getLongitude());
+				int y31 = MapUtils.get31TileNumberY(latLon.getLatitude());
+				left = Math.min(left, x31);
+				top = Math.min(top, y31);
+				right = Math.max(right, x31);
+				bottom = Math.max(bottom, y31);
 			}
 		}
-	}
-
-	private Pair<WptPt, WptPt> findPointsNearSegments(List<TrkSegment> segments, RotatedTileBox tileBox,
-													  int radius, int x, int y) {
-		for (TrkSegment segment : segments) {
-			QuadRect trackBounds = GPXUtilities.calculateBounds(segment.points);
-			if (QuadRect.trivialOverlap(tileBox.getLatLonBounds(), trackBounds)) {
-				Pair<WptPt, WptPt> points = findPointsNearSegment(tileBox, segment.points, radius, x, y);
-				if (points != null) {
-					return points;
+		Set<SelectedGpxFile> processedFiles = new HashSet<>();
+		TIntArrayList runs = new TIntArrayList();
+		for (SegmentEntry<SelectedGpxFile> entry : selectedGpxHelper.getTracksIndex().querySegments(left, top, right, bottom)) {
+			SelectedGpxFile selectedGpxFile = entry.getTrack();
+			if (processedFiles.contains(selectedGpxFile)) {
+				continue;
+			}
+			TrackSegmentIndex index = entry.getIndex();
+			index.queryRuns(left, top, right, bottom, runs);
+			for (int i = 0; i < runs.size(); i++) {
+				int start = runs.get(i);
+				List<WptPt> points = index.getPoints().subList(start, index.getRunEnd(start) + 1);
+				Pair<WptPt, WptPt> nearPoints = findPointsNearSegment(tb, points, r, mx, my);
+				if (nearPoints != null) {
+					LatLon latLon = tb.getLatLonFromPixel(mx, my);
+					res.add(createSelectedGpxPoint(selectedGpxFile, nearPoints.first, nearPoints.second, latLon,
+							showTrackPointMenu));
+					processedFiles.add(selectedGpxFile);
+					break;
 				}
 			}
 		}
-		return null;
 	}
 
 	@Nullable
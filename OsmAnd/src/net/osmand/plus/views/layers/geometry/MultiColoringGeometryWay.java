@@ -253,9 +253,9 @@ public abstract class MultiColoringGeometryWay
 			this.locations = locations;
 		}
 
-		public List<RouteColorizationPoint> simplify(int zoom) {
+		public int[] simplify(int zoom) {
 			routeColorize.setZoom(zoom);
-			return routeColorize.simplify();
+			return routeColorize.getSimplifiedIndexes();
 		}
 
 		public int getColor(int index) {
@@ -288,9 +288,8 @@ public abstract class MultiColoringGeometryWay
 		protected void simplify(RotatedTileBox tb, GeometryWayProvider locationProvider, TByteArrayList simplifyPoints) {
 			if (locationProvider instanceof GradientGeometryWayProvider) {
 				GradientGeometryWayProvider provider = (GradientGeometryWayProvider) locationProvider;
-				List<RouteColorizationPoint> simplified = provider.simplify(tb.getZoom());
-				for (RouteColorizationPoint location : simplified) {
-					simplifyPoints.set(location.id, (byte) 1);
+				for (int index : provider.simplify(tb.getZoom())) {
+					simplifyPoints.set(index, (byte) 1);
 				}
 			}
 		}